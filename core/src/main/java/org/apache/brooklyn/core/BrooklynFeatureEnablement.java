@@ -114,6 +114,13 @@ public class BrooklynFeatureEnablement {
 
     public static final String FEATURE_VALIDATE_LOCATION_SSH_KEYS = "brooklyn.validate.locationSshKeys";
 
+    /**
+     * Whether resolved config values are cached by each entity, location and adjunct (until its config, or that of
+     * an ancestor, changes), rather than walking the ancestors and coercing on every {@code config().get(key)}.
+     * Deferred values (such as tasks and DSL) are never cached.
+     */
+    public static final String FEATURE_CONFIG_RESOLUTION_CACHE = FEATURE_PROPERTY_PREFIX+".config.resolutionCache";
+
     /**
      * Values explicitly set by Java calls.
      */
@@ -150,6 +157,7 @@ public class BrooklynFeatureEnablement {
         setDefault(FEATURE_AUTO_FIX_CATALOG_REF_ON_REBIND, false);
         setDefault(FEATURE_SSH_ASYNC_EXEC, false);
         setDefault(FEATURE_VALIDATE_LOCATION_SSH_KEYS, true);
+        setDefault(FEATURE_CONFIG_RESOLUTION_CACHE, true);
     }
     
     static {
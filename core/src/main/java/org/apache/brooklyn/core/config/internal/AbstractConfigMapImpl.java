@@ -24,7 +24,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +41,7 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.config.ConfigMap.ConfigMapWithInheritance;
 import org.apache.brooklyn.config.ConfigValueAtContainer;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.config.BasicConfigInheritance;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.ConfigKeys.InheritanceContext;
@@ -57,8 +60,11 @@ import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 
 public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> implements ConfigMapWithInheritance<TContainer> {
@@ -106,12 +112,195 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     @Override
     public <T> T getConfig(ConfigKey<T> key) {
-        return getConfigImpl(key, false).getWithoutError().get();
+        ResolvedConfigCache cache = (key==null) ? null : getResolvedConfigCache();
+        if (cache==null || !cache.enabled) {
+            return getConfigImpl(key, false).getWithoutError().get();
+        }
+        CachedConfigValue cached = cache.values.get(key.getName());
+        if (cached!=null && cached.queryKey==key && cached.isValid(this)) {
+            cache.hits.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            T result = (T) cached.value;
+            return result;
+        }
+        cache.misses.incrementAndGet();
+        // snapshot the ancestors' modification counts *before* resolving, so any concurrent change invalidates the result
+        List<AbstractConfigMapImpl<?>> chain = getAncestorConfigMaps();
+        long[] modCounts = (chain==null) ? null : getModCounts(chain);
+        ReferenceWithError<ConfigValueAtContainer<TContainer, T>> resolved = getConfigImpl(key, false);
+        T result = resolved.getWithoutError().get();
+        if (chain!=null && !resolved.hasError() && isCacheable(key, result)) {
+            cache.values.put(key.getName(), new CachedConfigValue(key, result, chain, modCounts));
+        }
+        return result;
     }
     
     @Override
     public <T> T getConfig(HasConfigKey<T> key) {
-        return getConfigImpl(key.getConfigKey(), false).getWithoutError().get();
+        return getConfig(key.getConfigKey());
+    }
+
+    /**
+     * Cache of resolved and coerced values returned by {@link #getConfig(ConfigKey)}, by key name.
+     * Values are only cached if they do not depend on anything other than the config of this container and its ancestors
+     * (so not for deferred values such as tasks and DSL, nor structured keys),
+     * and each is checked on retrieval against the modification counts of this container and of its ancestors' config,
+     * so it is invalidated by a change to the config (or declared keys) anywhere in the inheritance chain,
+     * or by a change of parent.
+     * <p>
+     * Transient, and created lazily, so not persisted and not dependent on the constructor
+     * (instances may be deserialized).
+     */
+    private static class ResolvedConfigCache {
+        final boolean enabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_CONFIG_RESOLUTION_CACHE);
+        final AtomicLong modCount = new AtomicLong();
+        final Map<String, CachedConfigValue> values = new ConcurrentHashMap<String, CachedConfigValue>();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+
+    private static class CachedConfigValue {
+        final ConfigKey<?> queryKey;
+        final Object value;
+        final List<AbstractConfigMapImpl<?>> chain;
+        final long[] modCounts;
+
+        CachedConfigValue(ConfigKey<?> queryKey, Object value, List<AbstractConfigMapImpl<?>> chain, long[] modCounts) {
+            this.queryKey = queryKey;
+            this.value = value;
+            this.chain = chain;
+            this.modCounts = modCounts;
+        }
+
+        boolean isValid(AbstractConfigMapImpl<?> map) {
+            int i = 0;
+            for (AbstractConfigMapImpl<?> m = map; m!=null; m = m.getParentConfigMap(), i++) {
+                if (i >= chain.size() || chain.get(i)!=m || m.getResolvedConfigCache().modCount.get()!=modCounts[i]) return false;
+            }
+            return i==chain.size();
+        }
+    }
+
+    private transient volatile ResolvedConfigCache resolvedConfigCache;
+
+    private ResolvedConfigCache getResolvedConfigCache() {
+        ResolvedConfigCache result = resolvedConfigCache;
+        if (result==null) {
+            synchronized (this) {
+                result = resolvedConfigCache;
+                if (result==null) {
+                    result = new ResolvedConfigCache();
+                    resolvedConfigCache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records that the config here has changed, so that any resolved values cached here or at descendants are discarded.
+     * Called whenever the local config is changed through this class;
+     * should also be called by subclasses when something else affecting resolution changes, such as the declared keys.
+     */
+    @Beta
+    public void onConfigChangedInvalidatingResolvedValues() {
+        ResolvedConfigCache cache = getResolvedConfigCache();
+        cache.modCount.incrementAndGet();
+        cache.values.clear();
+    }
+
+    /** number of calls to {@link #getConfig(ConfigKey)} answered from the cache of resolved values */
+    @Beta
+    public long getResolvedConfigCacheHits() {
+        return getResolvedConfigCache().hits.get();
+    }
+
+    /** number of calls to {@link #getConfig(ConfigKey)} which had to resolve the value (whether or not it could then be cached) */
+    @Beta
+    public long getResolvedConfigCacheMisses() {
+        return getResolvedConfigCache().misses.get();
+    }
+
+    @Nullable
+    private AbstractConfigMapImpl<?> getParentConfigMap() {
+        TContainer parent = getParent();
+        return (parent==null) ? null : getConfigMapOfContainer(parent);
+    }
+
+    /**
+     * The config map of the given container, for tracking whether its config has changed,
+     * or null if it is not an {@link AbstractConfigMapImpl}. Subclasses should override to avoid any proxy
+     * (which could be slower, and could refuse access e.g. to read-only entities).
+     */
+    @Nullable
+    protected AbstractConfigMapImpl<?> getConfigMapOfContainer(TContainer container) {
+        Object result = ((BrooklynObjectInternal)container).config().getInternalConfigMap();
+        return (result instanceof AbstractConfigMapImpl) ? (AbstractConfigMapImpl<?>)result : null;
+    }
+
+    /** this and the config maps of its ancestors, or null if some ancestor's config cannot be tracked */
+    @Nullable
+    private List<AbstractConfigMapImpl<?>> getAncestorConfigMaps() {
+        List<AbstractConfigMapImpl<?>> result = MutableList.of();
+        TContainer c = getContainer();
+        while (c!=null) {
+            AbstractConfigMapImpl<?> map = getConfigMapOfContainer(c);
+            if (map==null) return null;
+            result.add(map);
+            c = getParentOfContainer(c);
+        }
+        return result;
+    }
+
+    private static long[] getModCounts(List<AbstractConfigMapImpl<?>> chain) {
+        long[] result = new long[chain.size()];
+        for (int i=0; i<result.length; i++) {
+            result[i] = chain.get(i).getResolvedConfigCache().modCount.get();
+        }
+        return result;
+    }
+
+    /**
+     * Whether the resolved value can be cached: not if it (or the raw value or default at any container)
+     * is deferred or could be mutated by the caller, nor if the key is structured (as those resolve sub-keys too).
+     */
+    protected boolean isCacheable(ConfigKey<?> queryKey, Object resolvedValue) {
+        if (resolvedValue!=null) {
+            if (resolvedValue.getClass().isArray()) return false;
+            if ((resolvedValue instanceof Map || resolvedValue instanceof Iterable)
+                    && !(resolvedValue instanceof ImmutableMap || resolvedValue instanceof ImmutableCollection)) {
+                return false;
+            }
+        }
+        if (queryKey instanceof StructuredConfigKey || isDeferred(queryKey.getDefaultValue())) return false;
+        TContainer c = getContainer();
+        ConfigKey<?> ownKey = getKeyAtContainer(c, queryKey);
+        if (ownKey==null) ownKey = queryKey;
+        while (c!=null) {
+            ConfigKey<?> keyHere = getKeyAtContainer(c, queryKey);
+            if (keyHere!=null && (keyHere instanceof StructuredConfigKey || isDeferred(keyHere.getDefaultValue()))) return false;
+            AbstractConfigMapImpl<?> configMap = getConfigMapOfContainer(c);
+            if (configMap==null) return false;
+            Maybe<Object> raw = configMap.getConfigLocalRaw(ownKey);
+            if (raw.isPresent() && isDeferred(raw.get())) return false;
+            c = getParentOfContainer(c);
+        }
+        return true;
+    }
+
+    private static boolean isDeferred(Object v) {
+        if ((v instanceof Future) || (v instanceof DeferredSupplier) || (v instanceof TaskFactory)) {
+            return true;
+        } else if (v instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)v).entrySet()) {
+                if (isDeferred(entry.getKey()) || isDeferred(entry.getValue())) return true;
+            }
+        } else if (v instanceof Iterable) {
+            for (Object o : (Iterable<?>)v) {
+                if (isDeferred(o)) return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -179,6 +368,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         } else {
             oldVal = ownConfig.put(ownKey, val);
         }
+        onConfigChangedInvalidatingResolvedValues();
         postSetConfig();
         return oldVal;
     }
@@ -190,6 +380,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
             ownConfig.clear();
             ownConfig.putAll(vals);
         }
+        onConfigChangedInvalidatingResolvedValues();
     }
 
     @SuppressWarnings("unchecked")
@@ -209,10 +400,12 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     public void removeKey(String key) {
         ownConfig.remove(ConfigKeys.newConfigKey(Object.class, key));
+        onConfigChangedInvalidatingResolvedValues();
     }
 
     public void removeKey(ConfigKey<?> key) {
         ownConfig.remove(key);
+        onConfigChangedInvalidatingResolvedValues();
     }
 
     protected final TContainer getParent() {
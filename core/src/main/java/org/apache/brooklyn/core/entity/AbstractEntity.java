@@ -526,7 +526,10 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
     }
 
     /** Where code needs to synch on the attributes, it can access the low-level object used for synching
-     * through this method. Internally, all attribute updates synch on this object. Code wishing to
+     * through this method. It is held by {@link #addChild(Entity)}, {@link #removeChild(Entity)} and the group
+     * membership methods, so those changes (and the sensors they set) are atomic with respect to each other.
+     * Attribute updates synch on this object only if the attribute storage is not concurrent; by default it is,
+     * this is a dedicated lock, and other attribute writes are not blocked by it. Code wishing to
      * update attributes or publish while holding some other lock should acquire the monitor on this
      * object first to prevent deadlock. */
     protected Object getAttributesSynchObjectInternal() {
@@ -1148,6 +1151,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             
             attributesInternal.remove(attribute);
             entityType.removeSensor(attribute);
+            getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
         }
 
         @Override
@@ -32,6 +32,8 @@ import org.apache.brooklyn.api.entity.EntityType;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
+import org.apache.brooklyn.config.ConfigMap.ConfigMapWithInheritance;
+import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
 import org.apache.brooklyn.core.effector.EffectorAndBody;
 import org.apache.brooklyn.core.effector.EffectorBody;
 import org.apache.brooklyn.core.effector.EffectorTasks.EffectorBodyTaskFactory;
@@ -242,6 +244,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
     public void addConfigKey(ConfigKey<?> newKey) {
         configKeys.put(newKey.getName(), new FieldAndValue<ConfigKey<?>>(null, newKey));
         invalidateSnapshot();
+        invalidateResolvedConfig();
         instance.sensors().emit(AbstractEntity.CONFIG_KEY_ADDED, newKey);
     }
     
@@ -261,6 +264,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         FieldAndValue<ConfigKey<?>> result = configKeys.remove(key.getName());
         if (result != null) {
             invalidateSnapshot();
+            invalidateResolvedConfig();
             ConfigKey<?> removedKey = result.value;
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, removedKey);
             return true;
@@ -269,10 +273,19 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         }
     }
     
+    private void invalidateResolvedConfig() {
+        // the declared keys determine the type, default and inheritance used when resolving config, here and at descendants
+        ConfigMapWithInheritance<?> configMap = instance.config().getInternalConfigMap();
+        if (configMap instanceof AbstractConfigMapImpl) {
+            ((AbstractConfigMapImpl<?>) configMap).onConfigChangedInvalidatingResolvedValues();
+        }
+    }
+
     public void clearConfigKeys() {
         Map<String, FieldAndValue<ConfigKey<?>>> oldKeys = MutableMap.copyOf(configKeys);
         configKeys.clear();
         invalidateSnapshot();
+        invalidateResolvedConfig();
         for (FieldAndValue<ConfigKey<?>> k: oldKeys.values()) {
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, k.value);
         }
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.entity;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -31,15 +32,18 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.trait.Startable;
+import org.apache.brooklyn.core.mgmt.internal.EntityIndex;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.util.collections.CollectionFunctionals;
 import org.apache.brooklyn.util.guava.SerializablePredicate;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.StringPredicates;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
 
 @SuppressWarnings("serial")
 public class EntityPredicates {
@@ -141,7 +145,7 @@ public class EntityPredicates {
     // ---------------------------
 
     public static Predicate<Entity> applicationIdEqualTo(final String val) {
-        return applicationIdSatisfies(Predicates.equalTo(val));
+        return new ApplicationIdEqualTo(val);
     }
 
     public static Predicate<Entity> applicationIdSatisfies(final Predicate<? super String> condition) {
@@ -163,6 +167,19 @@ public class EntityPredicates {
         }
     }
 
+    /** As {@link ApplicationIdSatisfies} with an equality check, but can select its candidates from an {@link EntityIndex}. */
+    protected static class ApplicationIdEqualTo extends ApplicationIdSatisfies implements EntityIndex.IndexedPredicate {
+        protected final String val;
+        protected ApplicationIdEqualTo(String val) {
+            super(Predicates.equalTo(val));
+            this.val = val;
+        }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return (val == null) ? null : index.getEntitiesInApplication(val);
+        }
+    }
+
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
     private static Predicate<Entity> applicationIdEqualToOld(final String val) {
@@ -185,11 +202,11 @@ public class EntityPredicates {
     }
 
     public static Predicate<Entity> attributeEqualTo(final String attributeName, final Object val) {
-        return attributeSatisfies(attributeName, Predicates.equalTo(val));
+        return new AttributeEqualTo<Object>(Sensors.newSensor(Object.class, attributeName), val);
     }
 
     public static <T> Predicate<Entity> attributeEqualTo(final AttributeSensor<T> attribute, final T val) {
-        return attributeSatisfies(attribute, Predicates.equalTo(val));
+        return new AttributeEqualTo<T>(attribute, val);
     }
 
     public static <T> Predicate<Entity> attributeNotEqualTo(final String attributeName, final Object val) {
@@ -225,6 +242,19 @@ public class EntityPredicates {
         }
     }
 
+    /** As {@link AttributeSatisfies} with an equality check, but can select its candidates from an {@link EntityIndex}. */
+    protected static class AttributeEqualTo<T> extends AttributeSatisfies<T> implements EntityIndex.IndexedPredicate {
+        protected final T val;
+        protected AttributeEqualTo(AttributeSensor<T> attribute, T val) {
+            super(attribute, Predicates.equalTo(val));
+            this.val = val;
+        }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return index.getEntitiesWithAttribute(attribute, val);
+        }
+    }
+
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
     private static <T> Predicate<Entity> attributeEqualToOld(final AttributeSensor<T> attribute, final T val) {
@@ -251,11 +281,11 @@ public class EntityPredicates {
     }
 
     public static <T> Predicate<Entity> configEqualTo(final String configKeyName, final Object val) {
-        return configSatisfies(configKeyName, Predicates.equalTo(val));
+        return new ConfigKeyEqualTo<Object>(ConfigKeys.newConfigKey(Object.class, configKeyName), val);
     }
 
     public static <T> Predicate<Entity> configEqualTo(final ConfigKey<T> configKey, final T val) {
-        return configSatisfies(configKey, Predicates.equalTo(val));
+        return new ConfigKeyEqualTo<T>(configKey, val);
     }
 
     public static <T> Predicate<Entity> configEqualTo(final HasConfigKey<T> configKey, final T val) {
@@ -303,6 +333,18 @@ public class EntityPredicates {
         }
     }
 
+    /** As {@link ConfigKeySatisfies} with an equality check, but can select its candidates from an {@link EntityIndex}. */
+    protected static class ConfigKeyEqualTo<T> extends ConfigKeySatisfies<T> implements EntityIndex.IndexedPredicate {
+        protected final T val;
+        protected ConfigKeyEqualTo(ConfigKey<T> configKey, T val) {
+            super(configKey, Predicates.equalTo(val));
+            this.val = val;
+        }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return index.getEntitiesWithConfig(configKey, val);
+        }
+    }
     
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
@@ -336,7 +378,7 @@ public class EntityPredicates {
         return new ImplementsInterface(typeRegex);
     }
 
-    protected static class ImplementsInterface implements SerializablePredicate<Entity> {
+    protected static class ImplementsInterface implements SerializablePredicate<Entity>, EntityIndex.IndexedPredicate {
         protected final Pattern pattern;
 
         public ImplementsInterface(String typeRegex) {
@@ -353,6 +395,10 @@ public class EntityPredicates {
             }
             return false;
         }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return index.getEntitiesWithInterfaceMatching(pattern);
+        }
     }
 
     // ---------------------------
@@ -366,7 +412,7 @@ public class EntityPredicates {
 
     // if needed, could add parentSatisfies(...)
     
-    protected static class IsChildOf implements SerializablePredicate<Entity> {
+    protected static class IsChildOf implements SerializablePredicate<Entity>, EntityIndex.IndexedPredicate {
         protected final Entity parent;
         protected IsChildOf(Entity parent) {
             this.parent = parent;
@@ -376,6 +422,10 @@ public class EntityPredicates {
             return (input != null) && Objects.equal(input.getParent(), parent);
         }
         @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return (parent == null) ? null : parent.getChildren();
+        }
+        @Override
         public String toString() {
             return "isChildOf("+parent+")";
         }
@@ -398,7 +448,7 @@ public class EntityPredicates {
         return new IsMemberOf(group);
     }
 
-    protected static class IsMemberOf implements SerializablePredicate<Entity> {
+    protected static class IsMemberOf implements SerializablePredicate<Entity>, EntityIndex.IndexedPredicate {
         protected final Group group;
         protected IsMemberOf(Group group) {
             this.group = group;
@@ -408,6 +458,10 @@ public class EntityPredicates {
             return (group != null) && (input != null) && group.hasMember(input);
         }
         @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return (group == null) ? ImmutableList.<Entity>of() : group.getMembers();
+        }
+        @Override
         public String toString() {
             return "isMemberOf("+group+")";
         }
@@ -426,6 +480,34 @@ public class EntityPredicates {
 
     // ---------------------------
 
+    /**
+     * @return true if the entity has the given tag
+     */
+    public static Predicate<Entity> hasTag(final Object tag) {
+        return new HasTag(tag);
+    }
+
+    protected static class HasTag implements SerializablePredicate<Entity>, EntityIndex.IndexedPredicate {
+        protected final Object tag;
+        protected HasTag(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && input.tags().containsTag(tag);
+        }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            return index.getEntitiesWithTag(tag);
+        }
+        @Override
+        public String toString() {
+            return "hasTag("+tag+")";
+        }
+    }
+
+    // ---------------------------
+
     /**
      * Create a predicate that matches any entity who has an exact match for the given location
      * (i.e. {@code entity.getLocations().contains(location)}).
@@ -504,6 +586,51 @@ public class EntityPredicates {
         };
     }
 
+    // ---------------------------
+
+    /**
+     * As {@link Predicates#and(Iterable)}, but where any of the components is an {@link EntityIndex.IndexedPredicate}
+     * this is too, selecting its candidates using whichever component narrows them the most.
+     */
+    @Beta
+    @SafeVarargs
+    public static Predicate<Entity> allOf(Predicate<? super Entity>... components) {
+        return new AllOf(ImmutableList.copyOf(components));
+    }
+
+    protected static class AllOf implements SerializablePredicate<Entity>, EntityIndex.IndexedPredicate {
+        protected final List<Predicate<? super Entity>> components;
+        protected AllOf(List<Predicate<? super Entity>> components) {
+            this.components = components;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            for (Predicate<? super Entity> component : components) {
+                if (!component.apply(input)) return false;
+            }
+            return true;
+        }
+        @Override
+        public Collection<Entity> getCandidates(EntityIndex index) {
+            Collection<Entity> result = null;
+            for (Predicate<? super Entity> component : components) {
+                if (component instanceof EntityIndex.IndexedPredicate) {
+                    Collection<Entity> candidates = ((EntityIndex.IndexedPredicate)component).getCandidates(index);
+                    if (candidates != null && (result == null || candidates.size() < result.size())) {
+                        result = candidates;
+                    }
+                }
+            }
+            return result;
+        }
+        @Override
+        public String toString() {
+            return "allOf("+components+")";
+        }
+    }
+
+    // ---------------------------
+
     public static Predicate<Entity> isServiceUp() {
         return new IsServiceUp();
     }
@@ -20,6 +20,7 @@ package org.apache.brooklyn.core.entity.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.Set;
 
@@ -28,7 +29,9 @@ import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.ConfigMap.ConfigMapWithInheritance;
 import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
+import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.objs.BrooklynObjectInternal.ConfigurationSupportInternal;
 import org.apache.brooklyn.util.guava.Maybe;
@@ -99,6 +102,14 @@ public class EntityConfigMap extends AbstractConfigMapImpl<Entity> {
         return container.getParent();
     }
 
+    @Override
+    protected AbstractConfigMapImpl<?> getConfigMapOfContainer(Entity container) {
+        // go direct to the entity, as read-only proxies (e.g. in hot standby) refuse config()
+        Entity entity = Proxy.isProxyClass(container.getClass()) ? Entities.deproxy(container) : container;
+        ConfigMapWithInheritance<?> result = ((EntityInternal)entity).config().getInternalConfigMap();
+        return (result instanceof AbstractConfigMapImpl) ? (AbstractConfigMapImpl<?>)result : null;
+    }
+
     @Override
     protected <T> ConfigKey<?> getKeyAtContainerImpl(Entity container, ConfigKey<T> queryKey) {
         if (queryKey==null) return null;
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -51,6 +52,7 @@ import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle.Transition;
 import org.apache.brooklyn.core.entity.trait.Startable;
+import org.apache.brooklyn.enricher.stock.AbstractAggregator;
 import org.apache.brooklyn.enricher.stock.AbstractMultipleSensorAggregator;
 import org.apache.brooklyn.enricher.stock.Enrichers;
 import org.apache.brooklyn.enricher.stock.UpdatingMap;
@@ -60,6 +62,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
+import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.guava.Maybe;
@@ -69,14 +72,17 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 
 /** Logic, sensors and enrichers, and conveniences, for computing service status */
@@ -473,6 +479,26 @@ public class ServiceStateLogic {
             "Service states (including null) which indicate an entity should be ignored when looking at children service states; anything apart from RUNNING not in this list will be treated as not healthy (by default just ON_FIRE will mean not healthy)",
             MutableSet.<Lifecycle>builder().addAll(Lifecycle.values()).add(null).remove(Lifecycle.RUNNING).remove(Lifecycle.ON_FIRE).build().asUnmodifiable());
 
+        /*
+         * How each producer counts towards the quorums, maintained as its values change (in onValueChanged)
+         * rather than recomputed from all producers' values on every change, which is costly for large groups.
+         * Guarded by getValuesMutex(). Recomputed for all producers if the config they depend on changes.
+         */
+        private enum UpStatus { IGNORED, UP, NOT_UP_BUT_IGNORED, NOT_UP }
+        private enum HealthStatus { RUNNING, IGNORED, NOT_HEALTHY }
+        private final Map<Entity, UpStatus> upStatuses = MutableMap.of();
+        private final Map<Entity, HealthStatus> healthStatuses = MutableMap.of();
+        private final Set<Entity> notUp = MutableSet.of();
+        private final Set<Entity> notHealthy = MutableSet.of();
+        private int numPublishingUp, numUp, numRunning;
+        private Boolean statusesIgnoreNull;
+        private Set<Lifecycle> statusesIgnoreStates;
+
+        private final AtomicLong updateCount = new AtomicLong();
+        private final AtomicLong deferredCount = new AtomicLong();
+        private final AtomicLong recomputeCount = new AtomicLong();
+        private volatile long lastRecomputeTime = -1;
+
         protected String getKeyForMapSensor() {
             return Preconditions.checkNotNull(super.getUniqueTag());
         }
@@ -541,6 +567,14 @@ public class ServiceStateLogic {
                 return;
             }
 
+            updateCount.incrementAndGet();
+            if (deferPublishIfTooSoon()) {
+                deferredCount.incrementAndGet();
+                return;
+            }
+            recomputeCount.incrementAndGet();
+            lastRecomputeTime = System.currentTimeMillis();
+
             // override superclass to publish multiple sensors
             if (getConfig(DERIVE_SERVICE_PROBLEMS)) {
                 updateMapSensor(SERVICE_PROBLEMS, computeServiceProblems());
@@ -552,22 +586,16 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceNotUp() {
-            Map<Entity, Boolean> values = getValues(SERVICE_UP);
-            List<Entity> violators = MutableList.of();
-            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            int entries=0;
-            int numUp=0;
-            for (Map.Entry<Entity, Boolean> state: values.entrySet()) {
-                if (ignoreNull && state.getValue()==null)
-                    continue;
-                entries++;
-                Lifecycle entityState = state.getKey().getAttribute(SERVICE_STATE_ACTUAL);
-
-                if (Boolean.TRUE.equals(state.getValue())) numUp++;
-                else if (!ignoreStates.contains(entityState)) {
-                    violators.add(state.getKey());
-                }
+            List<Entity> violators;
+            int entries;
+            int numUp;
+            boolean empty;
+            synchronized (getValuesMutex()) {
+                updateStatusesIfConfigChanged();
+                violators = MutableList.copyOf(notUp);
+                entries = numPublishingUp;
+                numUp = this.numUp;
+                empty = upStatuses.isEmpty();
             }
 
             QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
@@ -576,7 +604,7 @@ public class ServiceStateLogic {
                     // quorate
                     return null;
 
-                if (values.isEmpty()) return "No entities present";
+                if (empty) return "No entities present";
                 if (entries==0) return "No entities publishing service up";
                 if (violators.isEmpty()) return "Not enough entities";
             } else {
@@ -590,34 +618,121 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceProblems() {
-            Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
-            int numRunning=0;
-            List<Entity> onesNotHealthy=MutableList.of();
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
-                if (state.getValue()==Lifecycle.RUNNING) numRunning++;
-                else if (!ignoreStates.contains(state.getValue()))
-                    onesNotHealthy.add(state.getKey());
+            int numRunning;
+            int numNotHealthy;
+            List<Entity> onesNotHealthy;
+            synchronized (getValuesMutex()) {
+                updateStatusesIfConfigChanged();
+                numRunning = this.numRunning;
+                numNotHealthy = notHealthy.size();
+                // only the first few are named
+                onesNotHealthy = MutableList.copyOf(Iterables.limit(notHealthy, 4));
             }
 
             QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
             if (qc!=null) {
-                if (qc.isQuorate(numRunning, onesNotHealthy.size()+numRunning))
+                if (qc.isQuorate(numRunning, numNotHealthy+numRunning))
                     // quorate
                     return null;
 
-                if (onesNotHealthy.isEmpty())
+                if (numNotHealthy==0)
                     return "Not enough entities running to be quorate";
             } else {
-                if (onesNotHealthy.isEmpty())
+                if (numNotHealthy==0)
                     return null;
             }
 
-            return "Required entit"+Strings.ies(onesNotHealthy.size())+" not healthy: "+
-                (onesNotHealthy.size()>3 ? nameOfEntity(onesNotHealthy.get(0))+" and "+(onesNotHealthy.size()-1)+" others"
+            return "Required entit"+Strings.ies(numNotHealthy)+" not healthy: "+
+                (numNotHealthy>3 ? nameOfEntity(onesNotHealthy.get(0))+" and "+(numNotHealthy-1)+" others"
                     : Strings.join(nameOfEntity(onesNotHealthy), ", "));
         }
 
+        @Override
+        protected void onValueChanged(Sensor<?> sensor, Entity producer, Maybe<Object> oldValue, Maybe<Object> newValue) {
+            // called synchronized on getValuesMutex()
+            if (statusesIgnoreNull==null) {
+                updateStatusesIfConfigChanged();
+            } else {
+                updateStatus(producer);
+            }
+        }
+
+        /** recomputes the status of all producers if the config they depend on has changed (or they have not yet been computed) */
+        private void updateStatusesIfConfigChanged() {
+            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
+            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
+            if (Boolean.valueOf(ignoreNull).equals(statusesIgnoreNull) && Objects.equal(ignoreStates, statusesIgnoreStates)) return;
+
+            statusesIgnoreNull = ignoreNull;
+            statusesIgnoreStates = ignoreStates;
+            upStatuses.clear();
+            healthStatuses.clear();
+            notUp.clear();
+            notHealthy.clear();
+            numPublishingUp = numUp = numRunning = 0;
+            Set<Entity> producers = MutableSet.copyOf(getValues(SERVICE_UP).keySet());
+            producers.addAll(getValues(SERVICE_STATE_ACTUAL).keySet());
+            for (Entity producer : producers) {
+                updateStatus(producer);
+            }
+        }
+
+        private void updateStatus(Entity producer) {
+            Maybe<Object> up = getRecordedValue(SERVICE_UP, producer);
+            Maybe<Object> state = getRecordedValue(SERVICE_STATE_ACTUAL, producer);
+            Lifecycle stateValue = state.isPresent() ? TypeCoercions.coerce(state.get(), Lifecycle.class) : null;
+
+            UpStatus newUpStatus = null;
+            if (up.isPresent()) {
+                Boolean upValue = TypeCoercions.coerce(up.get(), Boolean.class);
+                if (statusesIgnoreNull && upValue==null) newUpStatus = UpStatus.IGNORED;
+                else if (Boolean.TRUE.equals(upValue)) newUpStatus = UpStatus.UP;
+                else if (statusesIgnoreStates.contains(stateValue)) newUpStatus = UpStatus.NOT_UP_BUT_IGNORED;
+                else newUpStatus = UpStatus.NOT_UP;
+            }
+            UpStatus oldUpStatus = (newUpStatus==null) ? upStatuses.remove(producer) : upStatuses.put(producer, newUpStatus);
+            if (oldUpStatus!=null && oldUpStatus!=UpStatus.IGNORED) numPublishingUp--;
+            if (newUpStatus!=null && newUpStatus!=UpStatus.IGNORED) numPublishingUp++;
+            if (oldUpStatus==UpStatus.UP) numUp--;
+            if (newUpStatus==UpStatus.UP) numUp++;
+            if (newUpStatus==UpStatus.NOT_UP) notUp.add(producer);
+            else notUp.remove(producer);
+
+            HealthStatus newHealthStatus = null;
+            if (state.isPresent()) {
+                if (stateValue==Lifecycle.RUNNING) newHealthStatus = HealthStatus.RUNNING;
+                else if (statusesIgnoreStates.contains(stateValue)) newHealthStatus = HealthStatus.IGNORED;
+                else newHealthStatus = HealthStatus.NOT_HEALTHY;
+            }
+            HealthStatus oldHealthStatus = (newHealthStatus==null) ? healthStatuses.remove(producer) : healthStatuses.put(producer, newHealthStatus);
+            if (oldHealthStatus==HealthStatus.RUNNING) numRunning--;
+            if (newHealthStatus==HealthStatus.RUNNING) numRunning++;
+            if (newHealthStatus==HealthStatus.NOT_HEALTHY) notHealthy.add(producer);
+            else notHealthy.remove(producer);
+        }
+
+        /**
+         * Counts of how often the indicators have been updated, recomputed and had publishing deferred
+         * (see {@link AbstractAggregator#PUBLISH_PERIOD}), and of the producers' current statuses.
+         */
+        @Beta
+        public Map<String, Object> getMetrics() {
+            Map<String, Object> result = MutableMap.of();
+            result.put("updates", updateCount.get());
+            result.put("recomputes", recomputeCount.get());
+            result.put("deferred", deferredCount.get());
+            if (lastRecomputeTime >= 0) result.put("lastRecomputeTime", lastRecomputeTime);
+            synchronized (getValuesMutex()) {
+                result.put("producers", MutableMap.of(
+                    "publishingUp", numPublishingUp,
+                    "up", numUp,
+                    "notUp", notUp.size(),
+                    "running", numRunning,
+                    "notHealthy", notHealthy.size()));
+            }
+            return result;
+        }
+
         private List<String> nameOfEntity(List<Entity> entities) {
             List<String> result = MutableList.of();
             for (Entity e: entities) result.add(nameOfEntity(e));
@@ -695,6 +810,11 @@ public class ServiceStateLogic {
             configure(ComputeServiceIndicatorsFromChildrenAndMembers.ENTITY_FILTER, val);
             return self();
         }
+        /** publishes the indicators at most once in the given period, rather than on every change of a child or member */
+        public ComputeServiceIndicatorsFromChildrenAndMembersSpec publishPeriod(Duration val) {
+            configure(ComputeServiceIndicatorsFromChildrenAndMembers.PUBLISH_PERIOD, val);
+            return self();
+        }
     }
 
     /** provides the default {@link ComputeServiceIndicatorsFromChildrenAndMembers} enricher,
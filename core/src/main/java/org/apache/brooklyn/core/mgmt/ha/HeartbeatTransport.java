@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeSyncRecord;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A lightweight channel for management nodes to exchange heartbeats directly,
+ * as used by {@link HighAvailabilityManagerImpl} alongside the persisted management-plane records.
+ * <p>
+ * A node heard from over the transport is judged healthy or not by how recently it was heard from,
+ * so failure can be detected within a fraction of the time it takes for its persisted record to go stale,
+ * and the persisted records need be written and read less often;
+ * see {@link HighAvailabilityManagerImpl#HEARTBEAT_STORE_PERIOD}.
+ * Nodes never heard from over the transport are judged by their persisted records, as before.
+ *
+ * @see UdpHeartbeatTransport
+ */
+@Beta
+public interface HeartbeatTransport {
+
+    /** starts listening for heartbeats from other nodes; a no-op if already started */
+    void start();
+
+    /** sends this node's record to the other nodes; should not block for long, and should not throw if they cannot be reached */
+    void publish(ManagementNodeSyncRecord ownRecord);
+
+    /**
+     * Returns the most recent record received from each other node since started, keyed by node id,
+     * with its {@link ManagementNodeSyncRecord#getRemoteTimestamp() remote timestamp} set to the time
+     * (according to this node) that it was received.
+     */
+    Map<String, ManagementNodeSyncRecord> getReceived();
+
+    /** stops listening, and forgets the records received */
+    void stop();
+
+}
@@ -26,6 +26,8 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -98,12 +100,31 @@ import com.google.common.collect.Iterables;
  * For example, if using {@link ManagementPlaneSyncRecordPersisterToObjectStore} with a shared blobstore or 
  * filesystem/NFS mount, then each management-node periodically writes its state. 
  * This acts as a heartbeat, being read by the other management-nodes.
+ * If a {@link HeartbeatTransport} is also in use (see {@link #setHeartbeatTransport(HeartbeatTransport)}
+ * and {@link UdpHeartbeatTransport}), heartbeats are sent over it on every poll, 
+ * and nodes heard from over it recently are judged healthy, so the persisted records are written and read less often
+ * (see {@link #HEARTBEAT_STORE_PERIOD}). The transport is not authoritative, however: a master no longer heard from
+ * (see {@link #HEARTBEAT_TRANSPORT_TIMEOUT}) causes the store to be re-read straight away,
+ * and is judged failed only if its persisted record is also out of date, so a lossy or partitioned network
+ * does not on its own lead to a second master.
+ * <p>
+ * For fast failover, while any node is no longer heard over the transport, every node writes its record on each poll
+ * (as if there were no transport); a master heard over the transport which then stops being heard is therefore judged
+ * against the much shorter {@link #HEARTBEAT_TRANSPORT_LOSS_TIMEOUT} rather than the {@link #HEARTBEAT_TIMEOUT}, once it has been
+ * silent for that long beyond the transport timeout. This assumes that a live master which cannot be heard cannot hear
+ * its peers either, and so also writes on each poll. If heartbeats are lost in one direction only (from master to a standby),
+ * for longer than the loss timeout, and master's writes to the store are slower than that, the standby may promote itself
+ * while master is still running: a split brain, until master next reads the store and sees it has been superseded.
+ * Set the loss timeout to null to use the heartbeat timeout always, trading failover time for that risk.
  * <p>
  * Promotion to master involves:
  * <ol>
  *   <li>notifying the other management-nodes that it is now master
  *   <li>calling {@link RebindManager#rebind(ClassLoader, org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler, ManagementNodeState)} to read all persisted entity state, and thus reconstitute the entities.
+ *       (This is done in full even from hot standby: the read-only objects are not themselves made primary,
+ *       and a master which failed may not have recorded all its changes for the standby to have picked up.)
  * </ol>
+ * The time taken by each phase of the last promotion is reported in {@link #getMetrics()}.
  * <p>
  * Future improvements in this area will include brooklyn-managing-brooklyn to decide + promote
  * the standby.
@@ -120,6 +141,23 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     public final ConfigKey<Duration> HEARTBEAT_TIMEOUT = ConfigKeys.newConfigKey(Duration.class, "brooklyn.ha.heartbeatTimeout",
         "Maximum allowable time for detection of a peer's heartbeat; if no sign of master after this time, "
         + "another node may promote itself", Duration.THIRTY_SECONDS);
+    @Beta
+    public final ConfigKey<Duration> HEARTBEAT_TRANSPORT_TIMEOUT = ConfigKeys.newConfigKey(Duration.class, "brooklyn.ha.heartbeat.transportTimeout",
+        "Maximum allowable time between a peer's heartbeats over the heartbeat transport, if one is in use and the peer has been heard over it; "
+        + "if none from master after this time, the persisted records are re-read, and another node may promote itself if master's is also out of date",
+        Duration.seconds(3));
+    @Beta
+    public final ConfigKey<Duration> HEARTBEAT_TRANSPORT_LOSS_TIMEOUT = ConfigKeys.newConfigKey(Duration.class, "brooklyn.ha.heartbeat.transportLossTimeout",
+        "When master has been heard over the heartbeat transport but no longer is, the maximum age of its persisted record "
+        + "(once it has been silent for this long after the transport timeout) before another node may promote itself; "
+        + "can be much shorter than the heartbeat timeout, as nodes write their records on every poll while a peer is not heard; "
+        + "if null, the heartbeat timeout is used (see the class javadoc for the split-brain trade-off)",
+        Duration.seconds(5));
+    @Beta
+    public final ConfigKey<Duration> HEARTBEAT_STORE_PERIOD = ConfigKeys.newConfigKey(Duration.class, "brooklyn.ha.heartbeat.storePeriod",
+        "When a heartbeat transport is in use, how often a node writes its record to and reads others' from the persistence store, "
+        + "unless a node's state changes or its heartbeats stop; must be well within the heartbeat timeout; if null, on every poll",
+        Duration.TEN_SECONDS);
     
     @VisibleForTesting /* only used in tests currently */
     public static interface PromotionListener {
@@ -133,6 +171,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     private volatile ManagementPlaneSyncRecordPersister persister;
     private volatile PromotionListener promotionListener;
     private volatile MasterChooser masterChooser = new AlphabeticMasterChooser();
+    private volatile HeartbeatTransport heartbeatTransport;
     private volatile Ticker localTickerUtc = new Ticker() {
         // strictly not a ticker because returns millis UTC, but it works fine even so
         @Override
@@ -157,6 +196,18 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
 
     private volatile ManagementPlaneSyncRecord lastSyncRecord;
     
+    /** the record last read from the store, and what this node last wrote to it, when checking master;
+     * re-used when they can be, if a heartbeat transport is in use */
+    private volatile ManagementPlaneSyncRecord lastStoreReadRecord;
+    private volatile long lastStoreReadTime;
+    private volatile ManagementNodeSyncRecord lastStoreWriteRecord;
+    private volatile long lastStoreWriteTime;
+    private final AtomicLong storeReadsSkipped = new AtomicLong();
+    private final AtomicLong storeWritesSkipped = new AtomicLong();
+    
+    /** details and time taken by each phase of the last promotion of this node to master, for {@link #getMetrics()} */
+    private volatile Map<String,Object> lastPromotion;
+    
     private volatile PersistenceActivityMetrics managementStateWritePersistenceMetrics = new PersistenceActivityMetrics();
     private volatile PersistenceActivityMetrics managementStateReadPersistenceMetrics = new PersistenceActivityMetrics();
     private final long startTimeUtc;
@@ -199,6 +250,37 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         return this;
     }
 
+    /** Sets a transport over which to exchange heartbeats with other nodes, in addition to the persistence store;
+     * if not set, one is created on {@link #start(HighAvailabilityMode)} if configured, as per {@link UdpHeartbeatTransport#newInstance(org.apache.brooklyn.config.StringConfigMap)} */
+    @Beta
+    public HighAvailabilityManagerImpl setHeartbeatTransport(HeartbeatTransport val) {
+        this.heartbeatTransport = val;
+        return this;
+    }
+
+    @Beta
+    @Nullable
+    public HeartbeatTransport getHeartbeatTransport() {
+        return heartbeatTransport;
+    }
+
+    protected Duration getHeartbeatTransportTimeout() {
+        return managementContext.getBrooklynProperties().getConfig(HEARTBEAT_TRANSPORT_TIMEOUT);
+    }
+
+    /** the {@link #HEARTBEAT_TRANSPORT_LOSS_TIMEOUT}, or null if not applicable */
+    @Nullable
+    protected Duration getHeartbeatTransportLossTimeout() {
+        return managementContext.getBrooklynProperties().getConfig(HEARTBEAT_TRANSPORT_LOSS_TIMEOUT);
+    }
+
+    /** the {@link #HEARTBEAT_STORE_PERIOD}, or null if every poll should use the store, including if there is no heartbeat transport */
+    @Nullable
+    protected Duration getHeartbeatStorePeriod() {
+        if (heartbeatTransport==null) return null;
+        return managementContext.getBrooklynProperties().getConfig(HEARTBEAT_STORE_PERIOD);
+    }
+
     public synchronized Duration getHeartbeatTimeout() {
         if (heartbeatTimeoutOverride!=null) return heartbeatTimeoutOverride;
         return managementContext.getBrooklynProperties().getConfig(HEARTBEAT_TIMEOUT);
@@ -253,9 +335,25 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         nodeStateTransitionComplete = true;
         disabled = false;
         running = true;
+        startHeartbeatTransport();
         changeMode(startMode, true, true);
     }
     
+    private void startHeartbeatTransport() {
+        if (heartbeatTransport==null) {
+            heartbeatTransport = UdpHeartbeatTransport.newInstance(managementContext.getBrooklynProperties());
+        }
+        if (heartbeatTransport!=null) {
+            try {
+                heartbeatTransport.start();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Unable to start HA heartbeat transport "+heartbeatTransport+"; continuing with heartbeats only via persistence: "+e, e);
+                heartbeatTransport = null;
+            }
+        }
+    }
+    
     @Override
     public void changeMode(HighAvailabilityMode startMode) {
         changeMode(startMode, false, false);
@@ -497,6 +595,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
                 LOG.error("Problem publishing manager-node health on termination (continuing)", e);
             }
         }
+        if (heartbeatTransport!=null) heartbeatTransport.stop();
     }
     
     /** returns the node state this node is trying to be in */
@@ -607,11 +706,19 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
             return;
         }
         
+        ManagementNodeSyncRecord memento = createManagementNodeSyncRecord(false);
+        publishOverHeartbeatTransport(memento);
+        if (!isStoreWriteDue(memento)) {
+            storeWritesSkipped.incrementAndGet();
+            return;
+        }
+        
         Stopwatch timer = Stopwatch.createStarted();
         try {
-            ManagementNodeSyncRecord memento = createManagementNodeSyncRecord(false);
             Delta delta = ManagementPlaneSyncRecordDeltaImpl.builder().node(memento).build();
             persister.delta(delta);
+            lastStoreWriteRecord = memento;
+            lastStoreWriteTime = currentTimeMillis();
             managementStateWritePersistenceMetrics.noteSuccess(Duration.of(timer));
             if (LOG.isTraceEnabled()) LOG.trace("Published management-node health: {}", memento);
         } catch (Throwable t) {
@@ -622,6 +729,41 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         }
     }
     
+    private void publishOverHeartbeatTransport(ManagementNodeSyncRecord memento) {
+        HeartbeatTransport transport = heartbeatTransport;
+        if (transport==null) return;
+        try {
+            transport.publish(memento);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Error publishing management-node health over "+transport+" (continuing): "+e);
+        }
+    }
+    
+    /** whether this node's record must be written to the store: always unless heartbeats are also sent over a transport,
+     * in which case only if its state has changed, the {@link #HEARTBEAT_STORE_PERIOD} has elapsed, 
+     * or a peer is no longer heard (so that failover after transport loss can rely on the store being current) */
+    private boolean isStoreWriteDue(ManagementNodeSyncRecord memento) {
+        Duration storePeriod = getHeartbeatStorePeriod();
+        ManagementNodeSyncRecord lastWritten = lastStoreWriteRecord;
+        if (storePeriod==null || lastWritten==null) return true;
+        if (lastWritten.getStatus()!=memento.getStatus() || !Objects.equal(lastWritten.getPriority(), memento.getPriority())) return true;
+        if (isPeerNoLongerHeard()) return true;
+        return currentTimeMillis() - lastStoreWriteTime >= storePeriod.toMilliseconds();
+    }
+    
+    /** whether some other running node which has been heard over the transport has not been heard within the transport timeout */
+    private boolean isPeerNoLongerHeard() {
+        HeartbeatTransport transport = heartbeatTransport;
+        if (transport==null) return false;
+        for (ManagementNodeSyncRecord received: transport.getReceived().values()) {
+            if (ownNodeId.equals(received.getNodeId())) continue;
+            if (received.getStatus()==ManagementNodeState.TERMINATED || received.getStatus()==ManagementNodeState.FAILED) continue;
+            if (Boolean.FALSE.equals(isHeartbeatReceivedRecently(received.getNodeId()))) return true;
+        }
+        return false;
+    }
+    
     @Override
     public void publishClearNonMaster() {
         ManagementPlaneSyncRecord plane = getLastManagementPlaneSyncRecord();
@@ -685,6 +827,11 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     
     protected boolean isHeartbeatOk(ManagementNodeSyncRecord masterNode, ManagementNodeSyncRecord meNode) {
         if (masterNode==null) return false;
+        if (!ownNodeId.equals(masterNode.getNodeId())) {
+            // if heard over the transport recently it is healthy; but not having heard is not conclusive
+            // (packets can be lost, or the network partitioned), so then fall back to its persisted record
+            if (Boolean.TRUE.equals(isHeartbeatReceivedRecently(masterNode.getNodeId()))) return true;
+        }
         if (meNode==null) {
             // we can't confirm it's healthy, but it appears so as far as we can tell
             return true;
@@ -692,9 +839,49 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         Long timestampMaster = masterNode.getRemoteTimestamp();
         Long timestampMe = meNode.getRemoteTimestamp();
         if (timestampMaster==null || timestampMe==null) return false;
+        if (isFailedAfterTransportLoss(masterNode, meNode)) return false;
         return (timestampMe - timestampMaster) <= getHeartbeatTimeout().toMilliseconds();
     }
     
+    /**
+     * Fast path for detecting failure: whether the given node, which we have heard over the transport but no longer do,
+     * has a persisted record older than the {@link #HEARTBEAT_TRANSPORT_LOSS_TIMEOUT}. Applies only once it has been silent 
+     * for that long beyond the transport timeout, by when a live node should have been writing its record on every poll
+     * (see {@link #isStoreWriteDue(ManagementNodeSyncRecord)}). See the class javadoc for the split-brain trade-off.
+     */
+    private boolean isFailedAfterTransportLoss(ManagementNodeSyncRecord node, @Nullable ManagementNodeSyncRecord me) {
+        if (me==null || ownNodeId.equals(node.getNodeId())) return false;
+        Duration lossTimeout = getHeartbeatTransportLossTimeout();
+        Long silentFor = getMillisSinceHeardOverTransport(node.getNodeId());
+        if (lossTimeout==null || silentFor==null
+                || silentFor <= getHeartbeatTransportTimeout().toMilliseconds() + lossTimeout.toMilliseconds()) {
+            return false;
+        }
+        Long timestampNode = node.getRemoteTimestamp();
+        Long timestampMe = me.getRemoteTimestamp();
+        return timestampNode!=null && timestampMe!=null && timestampMe - timestampNode > lossTimeout.toMilliseconds();
+    }
+    
+    /** whether a heartbeat has been received from the given node over the transport within the {@link #HEARTBEAT_TRANSPORT_TIMEOUT},
+     * or null if there is no transport or nothing has been received over it from that node */
+    @Nullable
+    private Boolean isHeartbeatReceivedRecently(String nodeId) {
+        Long silentFor = getMillisSinceHeardOverTransport(nodeId);
+        if (silentFor==null) return null;
+        return silentFor <= getHeartbeatTransportTimeout().toMilliseconds();
+    }
+    
+    /** time since a heartbeat was last received from the given node over the transport, 
+     * or null if there is no transport or nothing has been received over it from that node */
+    @Nullable
+    private Long getMillisSinceHeardOverTransport(String nodeId) {
+        HeartbeatTransport transport = heartbeatTransport;
+        if (transport==null) return null;
+        ManagementNodeSyncRecord received = transport.getReceived().get(nodeId);
+        if (received==null || received.getRemoteTimestamp()==null) return null;
+        return currentTimeMillis() - received.getRemoteTimestamp();
+    }
+    
     protected ManagementNodeSyncRecord hasHealthyMaster(ManagementPlaneSyncRecord memento ) {
         String nodeId = memento.getMasterNodeId();
         ManagementNodeSyncRecord masterMemento = (nodeId == null) ? null : memento.getManagementNodes().get(nodeId);
@@ -714,7 +901,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
      * If it's not then determines which node should be promoted to master. If it is ourself, then promotes.
      */
     protected void checkMaster(boolean initializing) {
-        ManagementPlaneSyncRecord memento = loadManagementPlaneSyncRecord(false);
+        ManagementPlaneSyncRecord memento = loadManagementPlaneSyncRecordForCheck();
         
         if (getNodeState()==ManagementNodeState.FAILED || getNodeState()==ManagementNodeState.HOT_BACKUP) {
             // if failed or hot backup then we can't promote ourselves, so no point in checking who is master
@@ -774,7 +961,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         }
         
         // Need to choose a new master
-        newMasterNodeRecord = masterChooser.choose(memento, getHeartbeatTimeout(), ownNodeId);
+        newMasterNodeRecord = masterChooser.choose(withHeartbeatsReceived(memento), getHeartbeatTimeout(), ownNodeId);
         
         String newMasterNodeId = (newMasterNodeRecord == null) ? null : newMasterNodeRecord.getNodeId();
         URI newMasterNodeUri = (newMasterNodeRecord == null) ? null : newMasterNodeRecord.getUri();
@@ -821,6 +1008,63 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         }
     }
     
+    /**
+     * As {@link #loadManagementPlaneSyncRecord(boolean)} with no local knowledge, but if heartbeats are also received over a transport,
+     * re-uses the record last read for up to the {@link #HEARTBEAT_STORE_PERIOD} while they show master healthy and no node's state changed.
+     */
+    private ManagementPlaneSyncRecord loadManagementPlaneSyncRecordForCheck() {
+        Duration storePeriod = getHeartbeatStorePeriod();
+        ManagementPlaneSyncRecord lastRead = lastStoreReadRecord;
+        if (storePeriod!=null && lastRead!=null && currentTimeMillis() - lastStoreReadTime < storePeriod.toMilliseconds()
+                && isConsistentWithHeartbeatsReceived(lastRead)) {
+            storeReadsSkipped.incrementAndGet();
+            return lastRead;
+        }
+        ManagementPlaneSyncRecord result = loadManagementPlaneSyncRecord(false);
+        lastStoreReadRecord = result;
+        lastStoreReadTime = currentTimeMillis();
+        return result;
+    }
+    
+    private boolean isConsistentWithHeartbeatsReceived(ManagementPlaneSyncRecord record) {
+        String masterNodeId = record.getMasterNodeId();
+        if (masterNodeId==null) return false;
+        ManagementNodeSyncRecord own = record.getManagementNodes().get(ownNodeId);
+        if (own==null || own.getStatus()!=getNodeState()) return false;
+        if (!ownNodeId.equals(masterNodeId) && !Boolean.TRUE.equals(isHeartbeatReceivedRecently(masterNodeId))) return false;
+        HeartbeatTransport transport = heartbeatTransport;
+        if (transport==null) return false;
+        for (ManagementNodeSyncRecord received: transport.getReceived().values()) {
+            ManagementNodeSyncRecord stored = record.getManagementNodes().get(received.getNodeId());
+            if (stored==null || stored.getStatus()!=received.getStatus() || !Objects.equal(stored.getPriority(), received.getPriority())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** for choosing a master: nodes heard from recently over the transport count as current, those failed by 
+     * {@link #isFailedAfterTransportLoss(ManagementNodeSyncRecord, ManagementNodeSyncRecord)} as failed; 
+     * others are judged by their persisted records */
+    private ManagementPlaneSyncRecord withHeartbeatsReceived(ManagementPlaneSyncRecord memento) {
+        ManagementNodeSyncRecord me = memento.getManagementNodes().get(ownNodeId);
+        if (heartbeatTransport==null || me==null || me.getRemoteTimestamp()==null) return memento;
+        Builder builder = ManagementPlaneSyncRecordImpl.builder()
+            .planeId(memento.getPlaneId())
+            .masterNodeId(memento.getMasterNodeId());
+        for (ManagementNodeSyncRecord node: memento.getManagementNodes().values()) {
+            boolean heard = !ownNodeId.equals(node.getNodeId()) && Boolean.TRUE.equals(isHeartbeatReceivedRecently(node.getNodeId()));
+            if (heard) {
+                builder.node(BasicManagementNodeSyncRecord.builder().from(node).remoteTimestamp(me.getRemoteTimestamp()).build());
+            } else if (isFailedAfterTransportLoss(node, me)) {
+                builder.node(BasicManagementNodeSyncRecord.builder().from(node).status(ManagementNodeState.FAILED).build());
+            } else {
+                builder.node(node);
+            }
+        }
+        return builder.build();
+    }
+    
     private static String timestampString(Long remoteTimestamp) {
         if (remoteTimestamp==null) return null;
         return remoteTimestamp+" / "+Time.makeTimeStringRounded( Duration.sinceUtc(remoteTimestamp))+" ago";
@@ -840,16 +1084,36 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
                 LOG.warn("Problem in promption-listener (continuing)", e);
             }
         }
+        ManagementNodeState fromState = getInternalNodeState();
+        Map<String,Object> phases = MutableMap.of();
+        Stopwatch total = Stopwatch.createStarted();
+        Stopwatch phase = Stopwatch.createStarted();
+        
+        // stops any read-only activity and clears the read-only items
         setInternalNodeState(ManagementNodeState.MASTER);
+        phases.put("stopStandby", phase.elapsed(TimeUnit.MILLISECONDS));
+        phase.reset().start();
         publishPromotionToMaster();
+        phases.put("publish", phase.elapsed(TimeUnit.MILLISECONDS));
+        phase.reset().start();
         try {
             managementContext.getRebindManager().rebind(managementContext.getCatalogClassLoader(), null, getInternalNodeState());
+            phases.put("rebind", phase.elapsed(TimeUnit.MILLISECONDS));
+            phase.reset().start();
         } catch (Exception e) {
             LOG.error("Management node "+managementContext.getManagementNodeId()+" enountered problem during rebind when promoting self to master; demoting to FAILED and rethrowing: "+e);
             demoteTo(ManagementNodeState.FAILED);
             throw Exceptions.propagate(e);
         }
         managementContext.getRebindManager().start();
+        phases.put("startPersistence", phase.elapsed(TimeUnit.MILLISECONDS));
+        
+        lastPromotion = MutableMap.<String,Object>of(
+            "timestampUtc", currentTimeMillis(),
+            "fromState", fromState,
+            "duration", total.elapsed(TimeUnit.MILLISECONDS),
+            "phases", phases);
+        LOG.debug("Management node "+ownNodeId+" promoted to master from "+fromState+" in "+Time.makeTimeStringRounded(total)+"; phases (ms) "+phases);
     }
     
     protected void backupOnDemotionIfNeeded() {
@@ -1099,11 +1363,26 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         result.put("uptime", Time.makeTimeStringRounded(Duration.millis(currentTimeMillis()-startTimeUtc)));
         result.put("currentTimeUtc", currentTimeMillis());
         result.put("startTimeUtc", startTimeUtc);
-        result.put("highAvailability", MutableMap.<String,Object>of(
+        Map<String,Object> highAvailability = MutableMap.<String,Object>of(
             "priority", getPriority(),
             "pollPeriod", getPollPeriod().toMilliseconds(),
             "heartbeatTimeout", getHeartbeatTimeout().toMilliseconds(),
-            "history", nodeStateHistory));
+            "history", nodeStateHistory);
+        if (lastPromotion!=null) highAvailability.put("lastPromotion", lastPromotion);
+        HeartbeatTransport transport = heartbeatTransport;
+        if (transport!=null) {
+            Duration storePeriod = getHeartbeatStorePeriod();
+            Duration lossTimeout = getHeartbeatTransportLossTimeout();
+            highAvailability.put("heartbeat", MutableMap.<String,Object>of(
+                "transport", transport.toString(),
+                "transportTimeout", getHeartbeatTransportTimeout().toMilliseconds(),
+                "transportLossTimeout", lossTimeout!=null ? lossTimeout.toMilliseconds() : null,
+                "storePeriod", storePeriod!=null ? storePeriod.toMilliseconds() : null,
+                "nodesHeard", transport.getReceived().keySet(),
+                "storeReadsSkipped", storeReadsSkipped.get(),
+                "storeWritesSkipped", storeWritesSkipped.get()));
+        }
+        result.put("highAvailability", highAvailability);
         
         result.putAll(managementContext.getRebindManager().getMetrics());
         result.put("managementStatePersistence", 
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeSyncRecord;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.mgmt.ha.dto.BasicManagementNodeSyncRecord;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import com.google.common.net.HostAndPort;
+
+/**
+ * A {@link HeartbeatTransport} sending each heartbeat as a single UDP datagram to each of a configured list of peers.
+ * <p>
+ * Configured by {@link #HEARTBEAT_UDP_PORT} and {@link #HEARTBEAT_UDP_PEERS} (see {@link #newInstance(StringConfigMap)});
+ * heartbeats are signed with the {@link #HEARTBEAT_UDP_SECRET}, which is required, and those not correctly signed are ignored
+ * (as an unsigned heartbeat could be spoofed by anyone able to send a datagram, to keep a failed master looking healthy).
+ * Each heartbeat carries a sequence number, being the time it was sent but always greater than the sender's last;
+ * those not newer than the last accepted from that node, or sent outside the {@link #HEARTBEAT_UDP_MAX_CLOCK_SKEW}, are ignored,
+ * so a heartbeat cannot be replayed.
+ * A lost datagram does no harm so long as a later one arrives within the transport timeout.
+ */
+@Beta
+public class UdpHeartbeatTransport implements HeartbeatTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UdpHeartbeatTransport.class);
+
+    public static final ConfigKey<Integer> HEARTBEAT_UDP_PORT = ConfigKeys.newIntegerConfigKey("brooklyn.ha.heartbeat.udp.port",
+        "Port on which to send and receive HA heartbeats over UDP; if unset, heartbeats are exchanged only via the persistence store");
+    public static final ConfigKey<String> HEARTBEAT_UDP_PEERS = ConfigKeys.newStringConfigKey("brooklyn.ha.heartbeat.udp.peers",
+        "Comma-separated list of host:port of the other management nodes to which to send HA heartbeats over UDP "
+        + "(the port defaulting to this node's)");
+    public static final ConfigKey<String> HEARTBEAT_UDP_SECRET = ConfigKeys.newStringConfigKey("brooklyn.ha.heartbeat.udp.secret",
+        "Shared secret with which HA heartbeats over UDP are signed and checked; required if the port is set");
+    public static final ConfigKey<Duration> HEARTBEAT_UDP_MAX_CLOCK_SKEW = ConfigKeys.newDurationConfigKey("brooklyn.ha.heartbeat.udp.maxClockSkew",
+        "Maximum difference between the time a HA heartbeat over UDP was sent, by the sender's clock, and received, by ours; "
+        + "heartbeats outside this are ignored",
+        Duration.ONE_MINUTE);
+
+    /** marks heartbeats in this format; the number is the version, to be incremented if the format changes */
+    static final String HEADER_V2 = "#brooklyn-heartbeat:2";
+    private static final String MAC_PREFIX = "mac:";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_PACKET_SIZE = 4096;
+
+    private final int port;
+    private final List<HostAndPort> peers;
+    private final byte[] secret;
+    private final long maxClockSkewMillis;
+
+    private final Map<String, ManagementNodeSyncRecord> received = new ConcurrentHashMap<String, ManagementNodeSyncRecord>();
+    /** the sequence of the last heartbeat accepted from each node; kept across restarts, so old heartbeats stay rejected */
+    private final Map<String, Long> lastReceivedSequences = MutableMap.of();
+    private final AtomicLong lastSentSequence = new AtomicLong();
+    private volatile DatagramSocket socket;
+    private volatile Thread listener;
+    private volatile String ownNodeId;
+
+    /** returns a transport as configured in the given properties, or null if {@link #HEARTBEAT_UDP_PORT} is not set
+     * @throws IllegalStateException if the port is set but the {@link #HEARTBEAT_UDP_SECRET} is not */
+    @Nullable
+    public static UdpHeartbeatTransport newInstance(StringConfigMap config) {
+        Integer port = config.getConfig(HEARTBEAT_UDP_PORT);
+        if (port==null) return null;
+        if (Strings.isBlank(config.getConfig(HEARTBEAT_UDP_SECRET))) {
+            throw new IllegalStateException("HA heartbeats over UDP ("+HEARTBEAT_UDP_PORT.getName()+") require a shared secret ("+HEARTBEAT_UDP_SECRET.getName()+")");
+        }
+        List<HostAndPort> peers = MutableList.of();
+        String peersVal = config.getConfig(HEARTBEAT_UDP_PEERS);
+        if (Strings.isNonBlank(peersVal)) {
+            for (String peer: Splitter.on(',').omitEmptyStrings().trimResults().split(peersVal)) {
+                peers.add(HostAndPort.fromString(peer).withDefaultPort(port));
+            }
+        }
+        return new UdpHeartbeatTransport(port, peers, config.getConfig(HEARTBEAT_UDP_SECRET), config.getConfig(HEARTBEAT_UDP_MAX_CLOCK_SKEW));
+    }
+
+    /** as {@link #UdpHeartbeatTransport(int, Collection, String, Duration)}, with the default {@link #HEARTBEAT_UDP_MAX_CLOCK_SKEW} */
+    public UdpHeartbeatTransport(int port, Collection<HostAndPort> peers, String secret) {
+        this(port, peers, secret, HEARTBEAT_UDP_MAX_CLOCK_SKEW.getDefaultValue());
+    }
+
+    /** the port may be 0 to choose one on {@link #start()}, as reported by {@link #getLocalPort()}; the secret must not be blank */
+    public UdpHeartbeatTransport(int port, Collection<HostAndPort> peers, String secret, Duration maxClockSkew) {
+        checkArgument(Strings.isNonBlank(secret), "secret must be supplied for HA heartbeats over UDP");
+        this.port = port;
+        this.peers = ImmutableList.copyOf(checkNotNull(peers, "peers"));
+        this.secret = secret.getBytes(Charsets.UTF_8);
+        this.maxClockSkewMillis = checkNotNull(maxClockSkew, "maxClockSkew").toMilliseconds();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (socket!=null) return;
+        try {
+            socket = new DatagramSocket(port);
+        } catch (SocketException e) {
+            throw Exceptions.propagate(e);
+        }
+        final DatagramSocket listenSocket = socket;
+        listener = new Thread("brooklyn-ha-heartbeat-udp") {
+            @Override public void run() {
+                listen(listenSocket);
+            }
+        };
+        listener.setDaemon(true);
+        listener.start();
+        LOG.debug("Started HA heartbeats over UDP on port "+getLocalPort()+", peers "+peers);
+    }
+
+    @VisibleForTesting
+    public int getLocalPort() {
+        DatagramSocket s = socket;
+        return s!=null ? s.getLocalPort() : port;
+    }
+
+    private void listen(DatagramSocket listenSocket) {
+        byte[] buf = new byte[MAX_PACKET_SIZE];
+        while (!listenSocket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buf, buf.length);
+            try {
+                listenSocket.receive(packet);
+            } catch (IOException e) {
+                if (!listenSocket.isClosed()) LOG.debug("Problem receiving HA heartbeat (continuing): "+e);
+                continue;
+            }
+            try {
+                ManagementNodeSyncRecord record = parse(new String(packet.getData(), packet.getOffset(), packet.getLength(), Charsets.UTF_8), System.currentTimeMillis());
+                if (record==null) {
+                    if (LOG.isTraceEnabled()) LOG.trace("Ignoring unrecognised HA heartbeat from "+packet.getSocketAddress());
+                } else if (!record.getNodeId().equals(ownNodeId)) {
+                    received.put(record.getNodeId(), record);
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Ignoring unparseable HA heartbeat from "+packet.getSocketAddress()+": "+e);
+            }
+        }
+    }
+
+    @Override
+    public void publish(ManagementNodeSyncRecord ownRecord) {
+        ownNodeId = ownRecord.getNodeId();
+        DatagramSocket s = socket;
+        if (s==null) return;
+        byte[] payload = format(ownRecord).getBytes(Charsets.UTF_8);
+        for (HostAndPort peer: peers) {
+            try {
+                s.send(new DatagramPacket(payload, payload.length, new InetSocketAddress(peer.getHostText(), peer.getPort())));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isDebugEnabled()) LOG.debug("Problem sending HA heartbeat to "+peer+" (continuing): "+e);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, ManagementNodeSyncRecord> getReceived() {
+        return ImmutableMap.copyOf(received);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (socket!=null) {
+            socket.close();
+            socket = null;
+            listener = null;
+        }
+        received.clear();
+    }
+
+    @VisibleForTesting
+    String format(ManagementNodeSyncRecord record) {
+        String body = Joiner.on('\n').join(HEADER_V2,
+            record.getNodeId(),
+            record.getStatus(),
+            record.getPriority()!=null ? record.getPriority() : "",
+            record.getLocalTimestamp(),
+            record.getBrooklynVersion()!=null ? record.getBrooklynVersion() : "",
+            record.getUri()!=null ? record.getUri() : "",
+            nextSequence());
+        return body+"\n"+MAC_PREFIX+BaseEncoding.base16().encode(mac(body));
+    }
+
+    /** the current time, unless that is not greater than the last sequence sent (e.g. if the clock goes back) */
+    private long nextSequence() {
+        while (true) {
+            long last = lastSentSequence.get();
+            long next = Math.max(last+1, System.currentTimeMillis());
+            if (lastSentSequence.compareAndSet(last, next)) return next;
+        }
+    }
+
+    /**
+     * returns the record in the given heartbeat, received at the given time, or null if not in the expected format, 
+     * not correctly signed, or not newer than the last accepted from that node, or sent outside the allowed clock skew
+     */
+    @VisibleForTesting
+    @Nullable
+    ManagementNodeSyncRecord parse(String contents, long receivedTimestamp) {
+        List<String> lines = Splitter.on('\n').splitToList(contents);
+        if (lines.size()<8 || !HEADER_V2.equals(lines.get(0))) return null;
+        if (lines.size()<9 || !lines.get(8).startsWith(MAC_PREFIX)) return null;
+        byte[] expected = mac(Joiner.on('\n').join(lines.subList(0, 8)));
+        byte[] actual = BaseEncoding.base16().decode(lines.get(8).substring(MAC_PREFIX.length()));
+        if (!MessageDigest.isEqual(expected, actual)) return null;
+        String nodeId = lines.get(1);
+        long sequence = Long.parseLong(lines.get(7));
+        if (Math.abs(receivedTimestamp - sequence) > maxClockSkewMillis) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring HA heartbeat from "+nodeId+" sent at "+sequence+", received at "+receivedTimestamp+": outside allowed clock skew");
+            return null;
+        }
+        if (!acceptSequence(nodeId, sequence)) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring HA heartbeat from "+nodeId+" with sequence "+sequence+": not newer than last accepted");
+            return null;
+        }
+        return BasicManagementNodeSyncRecord.builder()
+            .nodeId(nodeId)
+            .status(ManagementNodeState.valueOf(lines.get(2)))
+            .priority(Strings.isNonBlank(lines.get(3)) ? Long.valueOf(lines.get(3)) : null)
+            .localTimestamp(Long.parseLong(lines.get(4)))
+            .brooklynVersion(Strings.emptyToNull(lines.get(5)))
+            .uri(Strings.isNonBlank(lines.get(6)) ? URI.create(lines.get(6)) : null)
+            .remoteTimestamp(receivedTimestamp)
+            .build();
+    }
+
+    private boolean acceptSequence(String nodeId, long sequence) {
+        synchronized (lastReceivedSequences) {
+            Long last = lastReceivedSequences.get(nodeId);
+            if (last!=null && sequence<=last) return false;
+            lastReceivedSequences.put(nodeId, sequence);
+            return true;
+        }
+    }
+
+    private byte[] mac(String body) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+            return mac.doFinal(body.getBytes(Charsets.UTF_8));
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"[port="+getLocalPort()+";peers="+peers+"]";
+    }
+
+}
@@ -96,6 +96,11 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
      * <li>subscriberExecutionManagerTag - a tag to pass to execution manager (without setting any execution semantics / TaskPreprocessor);
      *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SingleThreadedScheduler
      * <li>eventFilter - a Predicate&lt;SensorEvent&gt; instance to filter what events are delivered
+     * <li>batch - if a positive integer, events are queued and delivered by a single task handling up to this many events,
+     *      rather than one task per event
+     * <li>coalesce - if true, events are queued as for <code>batch</code> (with no limit unless that is also set),
+     *      and a pending event is replaced by a newer event for the same producer and sensor, so the listener
+     *      only sees the latest value
      * </ul>
      * 
      * @see SubscriptionManager#subscribe(Map, Entity, Sensor, SensorEventListener)
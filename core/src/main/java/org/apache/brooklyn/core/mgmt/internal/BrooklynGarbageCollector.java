@@ -28,12 +28,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
@@ -63,6 +66,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
 /**
@@ -81,6 +85,12 @@ import com.google.common.collect.Iterables;
  * and keeping at most 100000 tasks in the system,
  * max 1000 tasks per entity, 50 per effector within that entity, and 50 per other non-effector tag
  * within that entity (or global if not attached to an entity).
+ * <p>
+ * If {@link #INCREMENTAL} is set, the per-tag, per-entity and global limits are instead enforced
+ * as each task completes, by keeping a bounded FIFO of the completed tasks for each tag
+ * (and one for all tasks); a task is deleted when it is pushed out of the FIFO for every tag
+ * in one of its categories, as with the periodic check. The periodic run then only needs to
+ * deal with age-based expiry, unmanaged entities, and any change to the configured limits.
  * 
  * @author aled
  */
@@ -146,6 +156,13 @@ public class BrooklynGarbageCollector {
             "the duration after which a completed task will be automatically deleted", 
             Duration.days(30));
     
+    @Beta
+    public static final ConfigKey<Boolean> INCREMENTAL = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.gc.incremental",
+        "whether to enforce the per-tag, per-entity and global task limits as each task completes, "
+        + "rather than by scanning all tasks periodically (read at startup)",
+        false);
+
     protected final static Comparator<Task<?>> TASKS_OLDEST_FIRST_COMPARATOR = new Comparator<Task<?>>() {
         @Override public int compare(Task<?> t1, Task<?> t2) {
             long end1 = t1.getEndTimeUtc();
@@ -164,12 +181,33 @@ public class BrooklynGarbageCollector {
     
     private Duration gcPeriod;
     private volatile boolean running = true;
+
+    // used only when incremental
+    private final boolean incremental;
+    private final ConcurrentMap<Object, CompletedTaskRingBuffer> completedTasksByTag = new ConcurrentHashMap<Object, CompletedTaskRingBuffer>();
+    private final CompletedTaskRingBuffer completedTasksGlobal;
+    /** for each recorded task, the number of its tags per {@link TagCategory} whose buffer still holds it */
+    private final ConcurrentMap<Task<?>, int[]> completedTaskTagCounts = new ConcurrentHashMap<Task<?>, int[]>();
+    private volatile int maxTasksPerEntity;
+    private volatile int maxTasksPerTag;
+    private volatile int maxTasksGlobal;
+    private final AtomicLong evictedPerTagCount = new AtomicLong();
+    private final AtomicLong evictedGloballyCount = new AtomicLong();
+    private final Predicate<Task<?>> isTaskDeleted = new Predicate<Task<?>>() {
+        @Override public boolean apply(Task<?> task) {
+            return executionManager.getTask(task.getId())==null;
+        }
+    };
     
     public BrooklynGarbageCollector(BrooklynProperties brooklynProperties, BasicExecutionManager executionManager, BrooklynStorage storage) {
         this.executionManager = executionManager;
         this.storage = storage;
         this.brooklynProperties = brooklynProperties;
 
+        incremental = Boolean.TRUE.equals(brooklynProperties.getConfig(INCREMENTAL));
+        refreshLimits();
+        completedTasksGlobal = incremental ? new CompletedTaskRingBuffer(maxTasksGlobal) : null;
+
         if (brooklynProperties.getConfig(TRACK_SOFT_MAYBE_USAGE))
             SoftlyPresent.getUsageTracker().enable();
         
@@ -249,6 +287,7 @@ public class BrooklynGarbageCollector {
     }
     
     public String getUsageString() {
+        Map<String, Object> runnerMetrics = executionManager.getRunnerMetrics();
         return makeBasicUsageString()+"; "+
             // ignore storage
 //            "storage: " + storage.getStorageMetrics() + "; " +
@@ -256,7 +295,20 @@ public class BrooklynGarbageCollector {
             executionManager.getNumActiveTasks()+" active, "+
             executionManager.getNumIncompleteTasks()+" unfinished; "+
             executionManager.getNumInMemoryTasks()+" remembered, "+
-            executionManager.getTotalTasksSubmitted()+" total submitted)";
+            executionManager.getTotalTasksSubmitted()+" total submitted)"+
+            (runnerMetrics.isEmpty() ? "" : "; task pool: "+
+                runnerMetrics.get("poolSize")+" threads ("+runnerMetrics.get("blockedWorkers")+" blocked), "+
+                runnerMetrics.get("queueSize")+" queued, "+
+                runnerMetrics.get("overflowCount")+" overflowed")+
+            (incremental ? "; gc evictions: "+evictedPerTagCount.get()+" per-tag, "+evictedGloballyCount.get()+" global" : "");
+    }
+
+    /** 
+     * counts of tasks deleted on completion of a newer task (when {@link #INCREMENTAL}),
+     * keyed by <code>perTag</code> (covering entity and other tag limits) and <code>global</code>
+     */
+    public Map<String, Long> getEvictionCounts() {
+        return MutableMap.of("perTag", evictedPerTagCount.get(), "global", evictedGloballyCount.get());
     }
     
     public void shutdownNow() {
@@ -279,6 +331,12 @@ public class BrooklynGarbageCollector {
         executionManager.deleteTag(BrooklynTaskTags.tagForContextEntity(entity));
         executionManager.deleteTag(BrooklynTaskTags.tagForCallerEntity(entity));
         executionManager.deleteTag(BrooklynTaskTags.tagForTargetEntity(entity));
+        if (incremental) {
+            completedTasksByTag.remove(entity);
+            completedTasksByTag.remove(BrooklynTaskTags.tagForContextEntity(entity));
+            completedTasksByTag.remove(BrooklynTaskTags.tagForCallerEntity(entity));
+            completedTasksByTag.remove(BrooklynTaskTags.tagForTargetEntity(entity));
+        }
     }
     
     public void onUnmanaged(Location loc) {
@@ -288,8 +346,101 @@ public class BrooklynGarbageCollector {
     public void onTaskDone(Task<?> task) {
         if (shouldDeleteTaskImmediately(task)) {
             executionManager.deleteTask(task);
+        } else if (incremental && running) {
+            recordCompletedTask(task);
         }
     }
+
+    /** adds the task to the buffers for each of its tags, deleting any older tasks which are thereby evicted */
+    protected void recordCompletedTask(Task<?> task) {
+        int[] counts = new int[TagCategory.values().length];
+        List<Object> tags = MutableList.of();
+        for (Object tag: task.getTags()) {
+            for (TagCategory category: TagCategory.values()) {
+                if (category.acceptsTag(tag)) {
+                    counts[category.ordinal()]++;
+                    tags.add(tag);
+                }
+            }
+        }
+        if (!tags.isEmpty()) completedTaskTagCounts.put(task, counts);
+        
+        for (Object tag: tags) {
+            CompletedTaskRingBuffer buffer = completedTasksByTag.get(tag);
+            if (buffer==null) {
+                CompletedTaskRingBuffer newBuffer = new CompletedTaskRingBuffer(getMaxTasksForTag(tag));
+                buffer = completedTasksByTag.putIfAbsent(tag, newBuffer);
+                if (buffer==null) buffer = newBuffer;
+            }
+            onEvictedFromTag(tag, buffer.add(task, isTaskDeleted));
+        }
+        onEvictedGlobally(completedTasksGlobal.add(task, isTaskDeleted));
+    }
+
+    private int getMaxTasksForTag(Object tag) {
+        return (tag instanceof WrappedEntity) ? maxTasksPerEntity : maxTasksPerTag;
+    }
+
+    private void onEvictedFromTag(Object tag, List<Task<?>> evicted) {
+        if (evicted.isEmpty()) return;
+        int category = (tag instanceof WrappedEntity ? TagCategory.ENTITY : TagCategory.NON_ENTITY_NORMAL).ordinal();
+        for (Task<?> task: evicted) {
+            int[] counts = completedTaskTagCounts.get(task);
+            if (counts==null) continue;
+            boolean lastInCategory;
+            synchronized (counts) {
+                lastInCategory = --counts[category] == 0;
+            }
+            // as with the periodic check, only delete once no tag in this category still wants the task
+            if (lastInCategory && deleteEvictedTask(task)) {
+                evictedPerTagCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void onEvictedGlobally(List<Task<?>> evicted) {
+        for (Task<?> task: evicted) {
+            if (deleteEvictedTask(task)) {
+                evictedGloballyCount.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean deleteEvictedTask(Task<?> task) {
+        completedTaskTagCounts.remove(task);
+        if (isTaskDeleted.apply(task)) return false;
+        if (LOG.isTraceEnabled())
+            LOG.trace("brooklyn-gc evicting "+task);
+        executionManager.deleteTask(task);
+        return true;
+    }
+
+    private void refreshLimits() {
+        maxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
+        maxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
+        maxTasksGlobal = brooklynProperties.getConfig(MAX_TASKS_GLOBAL);
+    }
+
+    /** applies any change in the configured limits, and discards state for tasks and tags which have since been deleted */
+    protected int gcCompletedTaskBuffers() {
+        long evictedBefore = evictedPerTagCount.get() + evictedGloballyCount.get();
+        refreshLimits();
+        for (Map.Entry<Object, CompletedTaskRingBuffer> entry: completedTasksByTag.entrySet()) {
+            Object tag = entry.getKey();
+            if (executionManager.tasksWithTagLiveOrNull(tag)==null) {
+                completedTasksByTag.remove(tag, entry.getValue());
+                continue;
+            }
+            onEvictedFromTag(tag, entry.getValue().setCapacity(getMaxTasksForTag(tag), isTaskDeleted));
+        }
+        onEvictedGlobally(completedTasksGlobal.setCapacity(maxTasksGlobal, isTaskDeleted));
+        
+        Iterator<Task<?>> ti = completedTaskTagCounts.keySet().iterator();
+        while (ti.hasNext()) {
+            if (isTaskDeleted.apply(ti.next())) ti.remove();
+        }
+        return (int) (evictedPerTagCount.get() + evictedGloballyCount.get() - evictedBefore);
+    }
     
     /** @deprecated since 0.7.0, method moved internal until semantics are clarified; see also {@link #shouldDeleteTaskImmediately(Task)} */
     @Deprecated
@@ -360,6 +511,13 @@ public class BrooklynGarbageCollector {
         expireAgedTasks();
         expireTransientTasks();
         
+        if (incremental) {
+            // capacity is enforced as tasks complete
+            int deletedCount = gcCompletedTaskBuffers();
+            deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+            return deletedCount;
+        }
+        
         // now look at overcapacity tags, non-entity tags first
         
         Set<Object> taskTags = executionManager.getTaskTags();
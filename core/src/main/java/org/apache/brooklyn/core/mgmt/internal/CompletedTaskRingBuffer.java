@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.base.Predicate;
+
+/**
+ * Bounded FIFO of completed tasks for a single tag (or for all tasks), used by
+ * {@link BrooklynGarbageCollector} when collecting incrementally.
+ * <p>
+ * {@link #add(Task, Predicate)} returns the tasks pushed out by the new one (normally zero or one),
+ * so that eviction is O(1) at the point a task completes.
+ * Tasks are kept in order of end time, oldest first; as completion listeners can run
+ * slightly out of order, a new task is inserted by walking back from the newest, which is
+ * normally just one step.
+ * Tasks deleted by other means (e.g. age or unmanagement) linger until evicted, or until
+ * the buffer is full and due a compaction, which is done at most once per <code>capacity</code> additions.
+ */
+class CompletedTaskRingBuffer {
+
+    private final LinkedList<Task<?>> tasks = new LinkedList<Task<?>>();
+    private int capacity;
+    private int addsSinceCompaction = 0;
+
+    CompletedTaskRingBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** adds the task, returning any tasks which are evicted to keep within capacity */
+    synchronized List<Task<?>> add(Task<?> task, Predicate<Task<?>> isDead) {
+        ListIterator<Task<?>> ti = tasks.listIterator(tasks.size());
+        while (ti.hasPrevious()) {
+            if (BrooklynGarbageCollector.TASKS_OLDEST_FIRST_COMPARATOR.compare(ti.previous(), task) <= 0) {
+                ti.next();
+                break;
+            }
+        }
+        ti.add(task);
+        addsSinceCompaction++;
+        return evictOverCapacity(isDead);
+    }
+
+    /** changes the capacity, returning any tasks which are evicted as a result */
+    synchronized List<Task<?>> setCapacity(int capacity, Predicate<Task<?>> isDead) {
+        this.capacity = capacity;
+        return evictOverCapacity(isDead);
+    }
+
+    private List<Task<?>> evictOverCapacity(Predicate<Task<?>> isDead) {
+        if (tasks.size() <= capacity) return MutableList.of();
+        if (addsSinceCompaction >= capacity) {
+            // drop tasks already deleted elsewhere, so they don't use up capacity
+            addsSinceCompaction = 0;
+            Iterator<Task<?>> ti = tasks.iterator();
+            while (ti.hasNext()) {
+                if (isDead.apply(ti.next())) ti.remove();
+            }
+        }
+        List<Task<?>> result = MutableList.of();
+        while (tasks.size() > capacity) {
+            result.add(tasks.removeFirst());
+        }
+        return result;
+    }
+
+    synchronized List<Task<?>> getTasks() {
+        return MutableList.copyOf(tasks);
+    }
+
+    synchronized int size() {
+        return tasks.size();
+    }
+}
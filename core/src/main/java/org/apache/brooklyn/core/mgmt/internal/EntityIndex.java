@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.entity.EntityPredicates;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.javalang.Reflections;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * An index of the managed entities, maintained by {@link LocalEntityManager} as entities are managed and unmanaged,
+ * so that the entities satisfying a predicate can be found without testing every entity.
+ * <p>
+ * Entities are always indexed by the things about them which do not change while managed:
+ * their application, and the interfaces they implement.
+ * They are also indexed by the value of a sensor or config key, or by whether they have a tag,
+ * once that is first queried; those indexes are kept up to date as the values change
+ * (see {@link EntityManagementSupport#getEntityChangeListener()}), and dropped if not queried for a while.
+ * A value which could change without that being reported (e.g. a mutable collection, or config yet to be resolved)
+ * is not indexed, and the entity is instead always a candidate for that sensor or key.
+ * <p>
+ * Predicates implementing {@link IndexedPredicate} (such as {@link EntityPredicates#applicationIdEqualTo(String)},
+ * {@link EntityPredicates#hasInterfaceMatching(String)}, {@link EntityPredicates#attributeEqualTo(AttributeSensor, Object)},
+ * {@link EntityPredicates#configEqualTo(ConfigKey, Object)}, {@link EntityPredicates#hasTag(Object)}
+ * and {@link EntityPredicates#allOf(Predicate...)}) narrow the candidates using the index;
+ * those are then tested against the predicate as normal. Other predicates are tested against every entity.
+ */
+@Beta
+public class EntityIndex {
+
+    /**
+     * A predicate which can select a superset of the entities satisfying it from the index,
+     * rather than needing to be tested against all entities.
+     */
+    public interface IndexedPredicate extends Predicate<Entity> {
+        /** returns the entities which might satisfy this predicate, or null if it cannot narrow them down using this index */
+        @Nullable
+        Collection<Entity> getCandidates(EntityIndex index);
+    }
+
+    /** how long an index of sensor, config or tag values is kept after it was last queried */
+    @VisibleForTesting
+    static final Duration UNUSED_VALUE_INDEX_EXPIRY = Duration.minutes(10);
+
+    /** types whose values are immutable, so can be indexed knowing they change only when set */
+    private static final Set<Class<?>> INDEXABLE_VALUE_TYPES = ImmutableSet.<Class<?>>of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+    private static class Entry {
+        final Entity entity;
+        final String applicationId;
+        final Set<String> interfaceNames;
+
+        Entry(Entity entity) {
+            this.entity = entity;
+            this.applicationId = entity.getApplicationId();
+            Set<String> names = MutableSet.of();
+            for (Class<?> type : Reflections.getAllInterfaces(entity.getClass())) {
+                names.add(type.getName());
+            }
+            this.interfaceNames = names;
+        }
+    }
+
+    /**
+     * The entities by some value of theirs, built when first queried and then updated (under its own lock,
+     * so that frequently set sensors do not contend on the whole index) whenever that value might have changed.
+     */
+    private abstract class ValueIndex {
+        private final Map<String, Object> valuesById = new ConcurrentHashMap<String, Object>();
+        private final Map<Object, Map<String, Entity>> entitiesByValue = new ConcurrentHashMap<Object, Map<String, Entity>>();
+        /** entities whose value cannot be indexed, so which are candidates whatever the value queried */
+        private final Map<String, Entity> unindexed = new ConcurrentHashMap<String, Entity>();
+        private volatile long lastQueried = System.currentTimeMillis();
+
+        /** the value to index (present but null if none), or absent if it cannot be indexed */
+        abstract Maybe<Object> valueOf(Entity entity);
+
+        synchronized void update(Entity entity) {
+            remove(entity.getId());
+            // checked while holding this index's lock, as the entity is removed from entriesById before from here
+            if (!entriesById.containsKey(entity.getId())) return;
+            Maybe<Object> value;
+            try {
+                value = valueOf(entity);
+            } catch (Exception e) {
+                // e.g. unmanaged concurrently; treat as a candidate, to be tested against the predicate itself
+                value = Maybe.absent(e);
+            }
+            if (value.isAbsent()) {
+                unindexed.put(entity.getId(), entity);
+            } else if (value.get() != null) {
+                valuesById.put(entity.getId(), value.get());
+                addTo(entitiesByValue, value.get(), entity);
+            }
+        }
+
+        synchronized void remove(String entityId) {
+            unindexed.remove(entityId);
+            Object old = valuesById.remove(entityId);
+            if (old != null) removeFrom(entitiesByValue, old, entityId);
+        }
+
+        Collection<Entity> get(Object value) {
+            lastQueried = System.currentTimeMillis();
+            Map<String, Entity> matching = entitiesByValue.get(value);
+            Collection<Entity> result = (matching == null) ? ImmutableList.<Entity>of() : Collections.unmodifiableCollection(matching.values());
+            if (unindexed.isEmpty()) return result;
+            return ImmutableList.copyOf(Iterables.concat(result, unindexed.values()));
+        }
+    }
+
+    private class AttributeValueIndex extends ValueIndex {
+        private final AttributeSensor<Object> sensor;
+        AttributeValueIndex(String sensorName) {
+            this.sensor = Sensors.newSensor(Object.class, sensorName);
+        }
+        @Override
+        Maybe<Object> valueOf(Entity entity) {
+            Object value = entity.getAttribute(sensor);
+            return isIndexableValue(value) ? Maybe.of(value) : Maybe.absent();
+        }
+    }
+
+    private class ConfigValueIndex extends ValueIndex {
+        private final ConfigKey<?> key;
+        ConfigValueIndex(ConfigKey<?> key) {
+            this.key = key;
+        }
+        /** whether this indexes the same values as would be looked up with the given key (config keys are equal if named the same) */
+        boolean isFor(ConfigKey<?> other) {
+            return key.getName().equals(other.getName()) && key.getTypeToken().equals(other.getTypeToken())
+                    && Objects.equal(key.getDefaultValue(), other.getDefaultValue());
+        }
+        @Override
+        Maybe<Object> valueOf(Entity entity) {
+            // only resolve values which are set (or inherited, or defaulted) as simple values, so cannot block nor change unreported
+            Object raw = ((EntityInternal) entity).config().getRaw(key).or(key.getDefaultValue());
+            if (!isIndexableValue(raw)) return Maybe.absent();
+            Object value = entity.getConfig(key);
+            return isIndexableValue(value) ? Maybe.of(value) : Maybe.absent();
+        }
+    }
+
+    private class TagIndex extends ValueIndex {
+        private final Object tag;
+        TagIndex(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        Maybe<Object> valueOf(Entity entity) {
+            return Maybe.<Object>of(entity.tags().containsTag(tag) ? Boolean.TRUE : null);
+        }
+    }
+
+    private final Map<String, Entry> entriesById = new ConcurrentHashMap<String, Entry>();
+    // entities keyed by id within each, rather than in sets, so as not to depend on the entities' (proxies') equals
+    private final Map<String, Map<String, Entity>> entitiesByApplicationId = new ConcurrentHashMap<String, Map<String, Entity>>();
+    private final Map<String, Map<String, Entity>> entitiesByInterfaceName = new ConcurrentHashMap<String, Map<String, Entity>>();
+
+    private final Map<String, AttributeValueIndex> attributeIndexes = new ConcurrentHashMap<String, AttributeValueIndex>();
+    private final Map<String, List<ConfigValueIndex>> configIndexes = new ConcurrentHashMap<String, List<ConfigValueIndex>>();
+    private final Map<Object, TagIndex> tagIndexes = new ConcurrentHashMap<Object, TagIndex>();
+    private volatile long lastExpiryCheck = System.currentTimeMillis();
+
+    /** adds or replaces the entity with this id */
+    public synchronized void add(Entity entity) {
+        remove(entity.getId());
+        Entry entry = new Entry(entity);
+        entriesById.put(entity.getId(), entry);
+        if (entry.applicationId != null) {
+            addTo(entitiesByApplicationId, entry.applicationId, entity);
+        }
+        for (String name : entry.interfaceNames) {
+            addTo(entitiesByInterfaceName, name, entity);
+        }
+        for (ValueIndex index : getValueIndexes()) {
+            index.update(entity);
+        }
+    }
+
+    public synchronized void remove(String entityId) {
+        Entry entry = entriesById.remove(entityId);
+        if (entry == null) return;
+        if (entry.applicationId != null) {
+            removeFrom(entitiesByApplicationId, entry.applicationId, entityId);
+        }
+        for (String name : entry.interfaceNames) {
+            removeFrom(entitiesByInterfaceName, name, entityId);
+        }
+        for (ValueIndex index : getValueIndexes()) {
+            index.remove(entityId);
+        }
+    }
+
+    private List<ValueIndex> getValueIndexes() {
+        List<ValueIndex> result = MutableList.<ValueIndex>copyOf(attributeIndexes.values());
+        for (List<ConfigValueIndex> indexes : configIndexes.values()) {
+            result.addAll(indexes);
+        }
+        result.addAll(tagIndexes.values());
+        return result;
+    }
+
+    private static <K> void addTo(Map<K, Map<String, Entity>> index, K key, Entity entity) {
+        Map<String, Entity> entities = index.get(key);
+        if (entities == null) {
+            entities = new ConcurrentHashMap<String, Entity>();
+            index.put(key, entities);
+        }
+        entities.put(entity.getId(), entity);
+    }
+
+    private static <K> void removeFrom(Map<K, Map<String, Entity>> index, K key, String entityId) {
+        Map<String, Entity> entities = index.get(key);
+        if (entities != null) {
+            entities.remove(entityId);
+            if (entities.isEmpty()) index.remove(key);
+        }
+    }
+
+    private static boolean isIndexableValue(@Nullable Object value) {
+        return value == null || value instanceof Enum || INDEXABLE_VALUE_TYPES.contains(value.getClass());
+    }
+
+    public boolean contains(String entityId) {
+        return entriesById.containsKey(entityId);
+    }
+
+    @Nullable
+    public Entity get(String entityId) {
+        Entry entry = entriesById.get(entityId);
+        return (entry == null) ? null : entry.entity;
+    }
+
+    public int size() {
+        return entriesById.size();
+    }
+
+    /** returns the entities in the given application, as an unmodifiable live view */
+    public Collection<Entity> getEntitiesInApplication(String applicationId) {
+        Map<String, Entity> result = entitiesByApplicationId.get(applicationId);
+        return (result == null) ? ImmutableList.<Entity>of() : Collections.unmodifiableCollection(result.values());
+    }
+
+    /** returns the entities implementing an interface whose name matches the given pattern */
+    public List<Entity> getEntitiesWithInterfaceMatching(Pattern pattern) {
+        Map<String, Entity> result = MutableMap.of();
+        for (Map.Entry<String, Map<String, Entity>> entry : entitiesByInterfaceName.entrySet()) {
+            if (pattern.matcher(entry.getKey()).matches()) {
+                result.putAll(entry.getValue());
+            }
+        }
+        return ImmutableList.copyOf(result.values());
+    }
+
+    /**
+     * returns the entities whose value for the given sensor might equal the given (non-null) value,
+     * or null if the value is null (as that cannot be indexed)
+     */
+    @Nullable
+    public Collection<Entity> getEntitiesWithAttribute(AttributeSensor<?> sensor, @Nullable Object value) {
+        if (value == null) return null;
+        AttributeValueIndex index = attributeIndexes.get(sensor.getName());
+        if (index == null) {
+            synchronized (this) {
+                index = attributeIndexes.get(sensor.getName());
+                if (index == null) {
+                    index = populate(new AttributeValueIndex(sensor.getName()));
+                    attributeIndexes.put(sensor.getName(), index);
+                }
+            }
+        }
+        expireUnusedValueIndexes();
+        return index.get(value);
+    }
+
+    /**
+     * returns the entities whose value for the given config key might equal the given (non-null) value,
+     * or null if the value is null (as that cannot be indexed)
+     */
+    @Nullable
+    public Collection<Entity> getEntitiesWithConfig(ConfigKey<?> key, @Nullable Object value) {
+        if (value == null) return null;
+        ConfigValueIndex index = findConfigIndex(key);
+        if (index == null) {
+            synchronized (this) {
+                index = findConfigIndex(key);
+                if (index == null) {
+                    index = populate(new ConfigValueIndex(key));
+                    List<ConfigValueIndex> indexes = configIndexes.get(key.getName());
+                    if (indexes == null) {
+                        indexes = new CopyOnWriteArrayList<ConfigValueIndex>();
+                        configIndexes.put(key.getName(), indexes);
+                    }
+                    indexes.add(index);
+                }
+            }
+        }
+        expireUnusedValueIndexes();
+        return index.get(value);
+    }
+
+    @Nullable
+    private ConfigValueIndex findConfigIndex(ConfigKey<?> key) {
+        List<ConfigValueIndex> indexes = configIndexes.get(key.getName());
+        if (indexes != null) {
+            for (ConfigValueIndex index : indexes) {
+                if (index.isFor(key)) return index;
+            }
+        }
+        return null;
+    }
+
+    /** returns the entities which might have the given tag */
+    public Collection<Entity> getEntitiesWithTag(Object tag) {
+        TagIndex index = tagIndexes.get(tag);
+        if (index == null) {
+            synchronized (this) {
+                index = tagIndexes.get(tag);
+                if (index == null) {
+                    index = populate(new TagIndex(tag));
+                    tagIndexes.put(tag, index);
+                }
+            }
+        }
+        expireUnusedValueIndexes();
+        return index.get(Boolean.TRUE);
+    }
+
+    // called while synchronized, so no entities are added or removed while populating
+    private <T extends ValueIndex> T populate(T index) {
+        for (Entry entry : entriesById.values()) {
+            index.update(entry.entity);
+        }
+        return index;
+    }
+
+    private void expireUnusedValueIndexes() {
+        long now = System.currentTimeMillis();
+        if (now - lastExpiryCheck < UNUSED_VALUE_INDEX_EXPIRY.toMilliseconds()) return;
+        synchronized (this) {
+            lastExpiryCheck = now;
+            long cutoff = now - UNUSED_VALUE_INDEX_EXPIRY.toMilliseconds();
+            Iterables.removeIf(attributeIndexes.values(), new IsUnusedSince(cutoff));
+            for (List<ConfigValueIndex> indexes : configIndexes.values()) {
+                Iterables.removeIf(indexes, new IsUnusedSince(cutoff));
+            }
+            Iterables.removeIf(configIndexes.values(), new Predicate<List<?>>() {
+                @Override public boolean apply(List<?> input) { return input.isEmpty(); }
+            });
+            Iterables.removeIf(tagIndexes.values(), new IsUnusedSince(cutoff));
+        }
+    }
+
+    private static class IsUnusedSince implements Predicate<ValueIndex> {
+        private final long cutoff;
+        IsUnusedSince(long cutoff) {
+            this.cutoff = cutoff;
+        }
+        @Override
+        public boolean apply(ValueIndex input) {
+            return input.lastQueried < cutoff;
+        }
+    }
+
+    /** to be called after the given entity's value for the sensor with the given name is set or removed */
+    public void onAttributeChanged(String entityId, String sensorName) {
+        if (attributeIndexes.isEmpty()) return;
+        AttributeValueIndex index = attributeIndexes.get(sensorName);
+        if (index == null) return;
+        Entry entry = entriesById.get(entityId);
+        if (entry != null) index.update(entry.entity);
+    }
+
+    /**
+     * to be called after the given entity's value for the config key with the given name is set;
+     * re-indexes that entity and its descendants, as they may inherit the value
+     */
+    public void onConfigChanged(String entityId, String keyName) {
+        if (configIndexes.isEmpty()) return;
+        List<ConfigValueIndex> indexes = configIndexes.get(keyName);
+        if (indexes == null) return;
+        Entry entry = entriesById.get(entityId);
+        if (entry == null) return;
+        List<Entity> toUpdate = MutableList.of(entry.entity);
+        for (int i = 0; i < toUpdate.size(); i++) {
+            for (Entity child : toUpdate.get(i).getChildren()) {
+                Entity indexed = get(child.getId());
+                if (indexed != null) toUpdate.add(indexed);
+            }
+        }
+        for (ConfigValueIndex index : indexes) {
+            for (Entity entity : toUpdate) {
+                index.update(entity);
+            }
+        }
+    }
+
+    /** to be called after a tag is added to or removed from the given entity */
+    public void onTagsChanged(String entityId) {
+        if (tagIndexes.isEmpty()) return;
+        Entry entry = entriesById.get(entityId);
+        if (entry == null) return;
+        for (TagIndex index : tagIndexes.values()) {
+            index.update(entry.entity);
+        }
+    }
+
+    /**
+     * Returns the indexed entities satisfying the given predicate, using the index to narrow the candidates
+     * where the predicate is an {@link IndexedPredicate}.
+     */
+    public List<Entity> find(Predicate<? super Entity> filter) {
+        Collection<Entity> candidates = (filter instanceof IndexedPredicate) ? ((IndexedPredicate)filter).getCandidates(this) : null;
+        List<Entity> result = MutableList.of();
+        if (candidates == null) {
+            for (Entry entry : entriesById.values()) {
+                if (filter.apply(entry.entity)) result.add(entry.entity);
+            }
+        } else {
+            for (Entity candidate : candidates) {
+                // candidates may include entities not (or no longer) managed, e.g. children of a given parent
+                Entity indexed = get(candidate.getId());
+                if (indexed != null && filter.apply(indexed)) result.add(indexed);
+            }
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+}
@@ -23,6 +23,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
@@ -403,6 +405,11 @@ public class EntityManagementSupport {
     }
     
     private class EntityChangeListenerImpl implements EntityChangeListener {
+        /** the index of managed entities, to be told of changes to the values it may index */
+        @Nullable
+        private final EntityIndex entityIndex = (getManagementContext().getEntityManager() instanceof EntityManagerInternal)
+                ? ((EntityManagerInternal)getManagementContext().getEntityManager()).getEntityIndex() : null;
+        
         @Override
         public void onChanged() {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
@@ -417,6 +424,7 @@ public class EntityManagementSupport {
         }
         @Override
         public void onTagsChanged() {
+            if (entityIndex!=null) entityIndex.onTagsChanged(entity.getId());
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
@@ -458,10 +466,12 @@ public class EntityManagementSupport {
             // TODO Could make this more efficient by inspecting the attribute to decide if needs persisted
             // immediately, or not important, or transient (e.g. do we really need to persist 
             // request-per-second count for rebind purposes?!)
+            if (entityIndex!=null) entityIndex.onAttributeChanged(entity.getId(), attribute.getName());
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onConfigChanged(ConfigKey<?> key) {
+            if (entityIndex!=null) entityIndex.onConfigChanged(entity.getId(), key.getName());
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
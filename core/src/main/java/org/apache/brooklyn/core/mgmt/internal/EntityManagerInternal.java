@@ -39,4 +39,8 @@ public interface EntityManagerInternal extends EntityManager, BrooklynObjectMana
      */
     @Beta
     <T extends Entity> T createEntity(EntitySpec<T> spec, Optional<String> entityId);
+
+    /** the index of managed entities, used for finding entities satisfying predicates; see {@link EntityIndex} */
+    @Beta
+    EntityIndex getEntityIndex();
 }
@@ -122,6 +122,9 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     /** Proxies of the managed entities that are applications */
     private final Set<Application> applications = Sets.newConcurrentHashSet();
+    
+    /** Managed entities (proxies), indexed for {@link #findEntities(Predicate)} etc */
+    private final EntityIndex entityIndex = new EntityIndex();
 
     private final BrooklynStorage storage;
     private final Map<String,String> entityTypes;
@@ -220,19 +223,22 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> getEntitiesInApplication(Application application) {
-        Predicate<Entity> predicate = EntityPredicates.applicationIdEqualTo(application.getId());
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return ImmutableList.copyOf(entityIndex.getEntitiesInApplication(application.getId()));
     }
 
     @Override
     public Collection<Entity> findEntities(Predicate<? super Entity> filter) {
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), filter));
+        return entityIndex.find(filter);
     }
     
     @Override
     public Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter) {
-        Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()), filter);
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return entityIndex.find(EntityPredicates.allOf(EntityPredicates.applicationIdEqualTo(application.getId()), filter));
+    }
+
+    @Override
+    public EntityIndex getEntityIndex() {
+        return entityIndex;
     }
 
     @Override
@@ -376,7 +382,13 @@ public class LocalEntityManager implements EntityManagerInternal {
             if (mode==null) {
                 setManagementTransitionMode(it, mode = initialMode);
             }
-            
+
+            if (mode.wasReadOnly() && mode.isReadOnly() && isManaged(it)) {
+                // already loaded as this instance, so unchanged (in a partial read-only rebind); nor are its descendants reloaded
+                // (any which have changed are managed separately, see ReadOnlyPartialRebindIteration)
+                return false;
+            }
+
             Boolean isReadOnlyFromEntity = it.getManagementSupport().isReadOnlyRaw();
             if (isReadOnlyFromEntity==null) {
                 if (mode.isReadOnly()) {
@@ -532,6 +544,7 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.remove(e.getId());
         entitiesById.remove(e.getId());
         entityModesById.remove(e.getId());
+        entityIndex.remove(e.getId());
     }
     
     private void stopTasks(Entity entity) {
@@ -725,6 +738,7 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.put(e.getId(), proxyE);
         entityTypes.put(e.getId(), realE.getClass().getName());
         entitiesById.put(e.getId(), realE);
+        entityIndex.add(proxyE);
         
         preManagedEntitiesById.remove(e.getId());
         if ((e instanceof Application) && (e.getParent()==null)) {
@@ -791,6 +805,7 @@ public class LocalEntityManager implements EntityManagerInternal {
             entities.remove(proxyE);
             entityProxiesById.remove(e.getId());
             entityModesById.remove(e.getId());
+            entityIndex.remove(e.getId());
             
             Object old = entitiesById.remove(e.getId());
 
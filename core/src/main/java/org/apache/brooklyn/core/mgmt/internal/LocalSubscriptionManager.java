@@ -46,6 +46,7 @@ import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.sensor.BasicSensorEvent;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
 import org.apache.brooklyn.util.text.Identifiers;
@@ -77,8 +78,8 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
-    @SuppressWarnings("rawtypes")
-    protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
+    /** subscriptions keyed by producer id and sensor name; lock-free for publishing, see {@link SubscriptionIndex} */
+    private final SubscriptionIndex subscriptionsByToken = new SubscriptionIndex();
     
     public LocalSubscriptionManager(ExecutionManager m) {
         this.em = m;
@@ -101,7 +102,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     
     @Override
     @SuppressWarnings("unchecked")
-    protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
+    protected <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
         Entity producer = s.producer;
         Sensor<T> sensor= s.sensor;
         s.subscriber = getSubscriber(flags, s);
@@ -123,14 +124,25 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
         boolean notifyOfInitialValue = Boolean.TRUE.equals(flags.remove("notifyOfInitialValue"));
+        Integer batch = TypeCoercions.coerce(flags.remove("batch"), Integer.class);
+        boolean coalesce = Boolean.TRUE.equals(TypeCoercions.coerce(flags.remove("coalesce"), Boolean.class));
+        if (coalesce || (batch!=null && batch>0)) {
+            s.eventBuffer = new SubscriptionEventBuffer(batch==null ? 0 : batch, coalesce);
+        }
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
         allSubscriptions.put(s.id, s);
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        subscriptionsByToken.add(s);
         if (s.subscriber!=null) {
             addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
         }
+        if (!allSubscriptions.containsKey(s.id)) {
+            // unsubscribed concurrently, after the put but before the adds; don't leave dangling entries
+            subscriptionsByToken.remove(s);
+            if (s.subscriber!=null) removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
+            return s;
+        }
         if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
             ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
         }
@@ -159,13 +171,9 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     }
 
     @Override
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
-        Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
-        return subscriptions;
+    @SuppressWarnings("unchecked")
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+        return new LinkedHashSet<SubscriptionHandle>((Set<SubscriptionHandle>) (Set<?>) subscriptionsByToken.getMatching(source, sensor));
     }
 
     /**
@@ -175,15 +183,16 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
      */
     @Override
     @SuppressWarnings("rawtypes")
-    public synchronized boolean unsubscribe(SubscriptionHandle sh) {
+    public boolean unsubscribe(SubscriptionHandle sh) {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
-        assert result==b2;
+        boolean b2 = subscriptionsByToken.remove(s);
+        // b2 (and b3) may be false if a concurrent subscribe has not yet indexed s; subscribe then removes the entries itself
+        assert result || !b2;
         if (s.subscriber!=null) {
             boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
-            assert b3 == b2;
+            assert result || !b3;
         }
 
         // FIXME ALEX - this seems wrong
@@ -209,7 +218,8 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
+        // lock-free lookup against a snapshot of the matching subscriptions
+        Set<Subscription> subs = subscriptionsByToken.getMatching(event.getSource(), event.getSensor());
         if (groovyTruth(subs)) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
             for (Subscription s : subs) {
@@ -225,12 +235,13 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (s.eventFilter!=null && !s.eventFilter.apply(event))
             return;
         
-        List<Object> tags = MutableList.builder()
-            .addAll(s.subscriberExtraExecTags == null ? ImmutableList.of() : s.subscriberExtraExecTags)
-            .add(s.subscriberExecutionManagerTag)
-            .add(BrooklynTaskTags.SENSOR_TAG)
-            .build()
-            .asUnmodifiable();
+        if (s.eventBuffer!=null && !isInitial) {
+            // batched delivery; only submit a task if one is not already pending for this subscription
+            if (s.eventBuffer.add(event)) {
+                submitBatchDelivery(s);
+            }
+            return;
+        }
         
         StringBuilder name = new StringBuilder("sensor ");
         StringBuilder description = new StringBuilder("Sensor ");
@@ -254,7 +265,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             description.append(", value: ");
             description.append(event.getValue());
         }
-        Map<String, Object> execFlags = MutableMap.of("tags", tags, 
+        Map<String, Object> execFlags = MutableMap.of("tags", getDeliveryTags(s), 
             "displayName", name.toString(),
             "description", description.toString());
         
@@ -268,22 +279,68 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                 }
             }
             @Override
+            public void run() {
+                deliverEvent(s, event);
+            }});
+    }
+    
+    /** submits a single task to deliver the next batch of events buffered for the given subscription */
+    @SuppressWarnings("rawtypes")
+    private void submitBatchDelivery(final Subscription s) {
+        String sensorName = s.sensor==null ? "<null-sensor>" : s.sensor.getName();
+        String sourceName = s.producer==null ? "<null-source>" : s.producer.getId();
+        Map<String, Object> execFlags = MutableMap.of("tags", getDeliveryTags(s), 
+            "displayName", "sensor batch "+sensorName,
+            "description", "Sensor batch of "+sensorName+" on "+sourceName+" publishing to "
+                +(s.subscriber instanceof Entity ? ((Entity)s.subscriber).getId() : s.subscriber));
+        
+        em.submit(execFlags, new Runnable() {
+            @Override
+            public String toString() {
+                return "LSM.publishBatch("+s+")";
+            }
+            @Override
             public void run() {
                 try {
-                    int count = s.eventCount.incrementAndGet();
-                    if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
-                    
-                    s.listener.onEvent(event);
-                } catch (Throwable t) {
-                    if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                        LOG.debug("Error processing subscriptions to "+this+", after entity unmanaged: "+t, t);
-                    } else {
-                        LOG.warn("Error processing subscriptions to "+this+": "+t, t);
+                    for (SensorEvent<?> event : s.eventBuffer.takeBatch()) {
+                        deliverEvent(s, event);
+                    }
+                } finally {
+                    // more may have arrived, or the batch size may have limited us; if so go round again,
+                    // as a new task so that other tasks for this subscriber are not starved
+                    if (s.eventBuffer.finishBatch()) {
+                        submitBatchDelivery(s);
                     }
                 }
             }});
     }
     
+    @SuppressWarnings("rawtypes")
+    private List<Object> getDeliveryTags(Subscription s) {
+        return MutableList.builder()
+            .addAll(s.subscriberExtraExecTags == null ? ImmutableList.of() : s.subscriberExtraExecTags)
+            .add(s.subscriberExecutionManagerTag)
+            .add(BrooklynTaskTags.SENSOR_TAG)
+            .build()
+            .asUnmodifiable();
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliverEvent(Subscription s, SensorEvent<?> event) {
+        try {
+            int count = s.eventCount.incrementAndGet();
+            if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
+            
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error processing subscriptions to "+s+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error processing subscriptions to "+s+": "+t, t);
+            }
+        }
+    }
+    
     protected boolean includeDescriptionForSensorTask(SensorEvent<?> event) {
         // just do it for simple/quick things to avoid expensive toStrings
         // (info is rarely useful, but occasionally it will be)
@@ -194,6 +194,15 @@ public class NonDeploymentEntityManager implements EntityManagerInternal {
         return (initialManagementContext != null && !(initialManagementContext instanceof NonDeploymentManagementContext));
     }
 
+    @Override
+    public EntityIndex getEntityIndex() {
+        if (isInitialManagementContextReal()) {
+            return ((EntityManagerInternal)initialManagementContext.getEntityManager()).getEntityIndex();
+        } else {
+            return new EntityIndex();
+        }
+    }
+
     @Override
     public Iterable<Entity> getAllEntitiesInApplication(Application application) {
         if (isInitialManagementContextReal()) {
@@ -44,6 +44,8 @@ class Subscription<T> implements SubscriptionHandle {
     public final AtomicInteger eventCount = new AtomicInteger();
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** non-null if events are to be delivered in batches, possibly coalesced */
+    public SubscriptionEventBuffer eventBuffer;
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.util.collections.MutableList;
+
+/**
+ * Pending events for a subscription which has requested batched delivery
+ * (the <code>batch</code> or <code>coalesce</code> subscription flags).
+ * <p>
+ * Publishers {@link #add(SensorEvent)} events; at most one delivery task is outstanding at a time,
+ * which {@link #takeBatch() takes} up to the batch size of events and then {@link #finishBatch() finishes},
+ * being told whether it must resubmit itself because more events arrived in the meantime.
+ * <p>
+ * When coalescing, an event replaces any pending event for the same producer and sensor,
+ * and is moved to the end so the relative order of events from different sensors is preserved.
+ */
+class SubscriptionEventBuffer {
+
+    private final int maxBatchSize;
+    private final boolean coalesce;
+
+    // all guarded by this
+    private final Deque<SensorEvent<?>> queue;
+    private final Map<Object, SensorEvent<?>> latestByToken;
+    private boolean deliveryScheduled = false;
+    private long coalescedCount = 0;
+
+    /**
+     * @param maxBatchSize maximum number of events to deliver in one task, or non-positive for no limit
+     * @param coalesce whether to replace pending events for a producer/sensor by newer ones
+     */
+    SubscriptionEventBuffer(int maxBatchSize, boolean coalesce) {
+        this.maxBatchSize = maxBatchSize > 0 ? maxBatchSize : Integer.MAX_VALUE;
+        this.coalesce = coalesce;
+        this.queue = coalesce ? null : new ArrayDeque<SensorEvent<?>>();
+        this.latestByToken = coalesce ? new LinkedHashMap<Object, SensorEvent<?>>() : null;
+    }
+
+    /** adds the event, returning true if the caller should submit a new delivery task */
+    synchronized boolean add(SensorEvent<?> event) {
+        if (coalesce) {
+            Object token = AbstractSubscriptionManager.makeEntitySensorToken(event);
+            if (latestByToken.remove(token) != null) coalescedCount++;
+            latestByToken.put(token, event);
+        } else {
+            queue.add(event);
+        }
+        if (deliveryScheduled) return false;
+        deliveryScheduled = true;
+        return true;
+    }
+
+    /** removes and returns the next batch of events to deliver (in publication order) */
+    synchronized List<SensorEvent<?>> takeBatch() {
+        List<SensorEvent<?>> result = MutableList.of();
+        if (coalesce) {
+            Iterator<SensorEvent<?>> ei = latestByToken.values().iterator();
+            while (ei.hasNext() && result.size() < maxBatchSize) {
+                result.add(ei.next());
+                ei.remove();
+            }
+        } else {
+            while (!queue.isEmpty() && result.size() < maxBatchSize) {
+                result.add(queue.poll());
+            }
+        }
+        return result;
+    }
+
+    /** called by the delivery task when done; returns true if events remain and the task should be resubmitted */
+    synchronized boolean finishBatch() {
+        if (size() > 0) return true;
+        deliveryScheduled = false;
+        return false;
+    }
+
+    synchronized int size() {
+        return coalesce ? latestByToken.size() : queue.size();
+    }
+
+    /** number of events which were dropped because a newer value for the same sensor superseded them */
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionEventBuffer["+(coalesce ? "coalescing" : "batching")+
+            (maxBatchSize < Integer.MAX_VALUE ? ";batch="+maxBatchSize : "")+"]";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.Sensor;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Index of subscriptions keyed by producer entity id and then by sensor name,
+ * with {@link #WILDCARD} standing in for a <code>null</code> producer or sensor.
+ * <p>
+ * Each bucket is an immutable set which is replaced (copy-on-write) when a subscription is
+ * added or removed, atomically for that bucket only; lookups are therefore lock-free and
+ * return a stable snapshot. This suits the usage pattern where events are published far
+ * more often than subscriptions change, and means subscription churn on one entity does not
+ * block publication on any other.
+ */
+@SuppressWarnings("rawtypes")
+class SubscriptionIndex {
+
+    /** key used for a wildcard (i.e. null) producer or sensor */
+    static final Object WILDCARD = new Object() {
+        @Override public String toString() { return "*"; }
+    };
+
+    private final ConcurrentMap<Object, ConcurrentMap<Object, Set<Subscription>>> byProducer = new ConcurrentHashMap<>();
+
+    static Object producerKey(Entity producer) {
+        return producer==null ? WILDCARD : producer.getId();
+    }
+
+    static Object sensorKey(Sensor<?> sensor) {
+        return sensor==null ? WILDCARD : sensor.getName();
+    }
+
+    public void add(final Subscription s) {
+        ConcurrentMap<Object, Set<Subscription>> bySensor = byProducer.get(producerKey(s.producer));
+        while (true) {
+            if (bySensor==null) {
+                ConcurrentMap<Object, Set<Subscription>> newBySensor = new ConcurrentHashMap<>();
+                bySensor = byProducer.putIfAbsent(producerKey(s.producer), newBySensor);
+                if (bySensor==null) bySensor = newBySensor;
+            }
+            bySensor.compute(sensorKey(s.sensor), (k, old) -> old==null ? ImmutableSet.of(s) :
+                ImmutableSet.<Subscription>builder().addAll(old).add(s).build());
+            // if the producer bucket was concurrently discarded as empty, re-add to a fresh one
+            if (byProducer.get(producerKey(s.producer))==bySensor) return;
+            bySensor = null;
+        }
+    }
+
+    /** @return true if the subscription was present */
+    public boolean remove(final Subscription s) {
+        final Object producerKey = producerKey(s.producer);
+        ConcurrentMap<Object, Set<Subscription>> bySensor = byProducer.get(producerKey);
+        if (bySensor==null) return false;
+        final boolean[] found = new boolean[1];
+        bySensor.computeIfPresent(sensorKey(s.sensor), (k, old) -> {
+            if (!old.contains(s)) return old;
+            found[0] = true;
+            if (old.size()==1) return null;
+            Set<Subscription> result = new LinkedHashSet<>(old);
+            result.remove(s);
+            return ImmutableSet.copyOf(result);
+        });
+        if (bySensor.isEmpty()) {
+            // only discards if still empty; a concurrent add will see this and retry
+            byProducer.computeIfPresent(producerKey, (k, old) -> old==bySensor && old.isEmpty() ? null : old);
+        }
+        return found[0];
+    }
+
+    /** returns the (immutable) subscriptions registered against exactly this producer/sensor pair, where either can be null for a wildcard */
+    public Set<Subscription> get(Entity producer, Sensor<?> sensor) {
+        return get(producerKey(producer), sensorKey(sensor));
+    }
+
+    private Set<Subscription> get(Object producerKey, Object sensorKey) {
+        ConcurrentMap<Object, Set<Subscription>> bySensor = byProducer.get(producerKey);
+        if (bySensor==null) return Collections.emptySet();
+        Set<Subscription> result = bySensor.get(sensorKey);
+        return result==null ? Collections.<Subscription>emptySet() : result;
+    }
+
+    /** returns all subscriptions which match an event from the given source and sensor, including wildcard subscriptions */
+    public Set<Subscription> getMatching(Entity source, Sensor<?> sensor) {
+        Object producerKey = producerKey(source);
+        Object sensorKey = sensorKey(sensor);
+        Set<Subscription> exact = get(producerKey, sensorKey);
+        Set<Subscription> anyProducer = producerKey==WILDCARD ? Collections.<Subscription>emptySet() : get(WILDCARD, sensorKey);
+        Set<Subscription> anySensor = sensorKey==WILDCARD ? Collections.<Subscription>emptySet() : get(producerKey, WILDCARD);
+        Set<Subscription> anything = (producerKey==WILDCARD || sensorKey==WILDCARD) ? Collections.<Subscription>emptySet() : get(WILDCARD, WILDCARD);
+
+        if (anyProducer.isEmpty() && anySensor.isEmpty() && anything.isEmpty()) return exact;
+        Set<Subscription> result = new LinkedHashSet<>(exact);
+        result.addAll(anyProducer);
+        result.addAll(anySensor);
+        result.addAll(anything);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionIndex["+byProducer.size()+" producers]";
+    }
+}
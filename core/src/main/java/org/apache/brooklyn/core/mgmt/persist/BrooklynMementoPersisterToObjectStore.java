@@ -21,10 +21,13 @@ package org.apache.brooklyn.core.mgmt.persist;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -78,10 +81,15 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -111,8 +119,40 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTER_COMPRESS_MEMENTOS = ConfigKeys.newBooleanConfigKey(
+            "persister.compressMementos",
+            "Whether to write mementos compressed (see CompressedMementoSerializer), rather than as plain XML; "
+            + "either form is read, so this can be changed at any time, with objects rewritten in the new form when they next change",
+            false);
+
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTER_SKIP_UNCHANGED_WRITES = ConfigKeys.newBooleanConfigKey(
+            "persister.skipUnchangedWrites",
+            "Whether to skip writing a memento whose serialized contents are identical to what this node last wrote for that object; "
+            + "a hash of the last written contents is kept per object, and discarded whenever write access is (re-)enabled",
+            true);
+
+    private static final HashFunction CONTENTS_HASH_FUNCTION = Hashing.murmur3_128();
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
+    private final boolean compressMementos;
+    private final boolean skipUnchangedWrites;
+
+    /** hash of the contents last written at each path, for {@link #PERSISTER_SKIP_UNCHANGED_WRITES} */
+    private final Map<String, HashCode> lastWrittenHashes = new ConcurrentHashMap<String, HashCode>();
+    private volatile PersistenceActivityMetrics metrics;
+
+    /** changes noted for hot-standby nodes; null until this node first writes (after write access is enabled) */
+    private MementoChangeLog changeLog;
+    private final Object changeLogMutex = new Object();
+
+    /** manifest details of each item as at the last {@link #loadMementoManifest(BrooklynMementoRawData, RebindExceptionHandler)}
+     * (and any {@link #loadMementoManifestOfItems(BrooklynMementoRawData, RebindExceptionHandler)} since),
+     * re-used for items whose contents are unchanged (e.g. on successive rebinds of a hot standby, or its promotion);
+     * kept only while this node cannot write (a master does not rebind again), and discarded when write access is enabled */
+    private volatile Map<String, ManifestEntry> lastManifestEntries = ImmutableMap.of();
 
     private final Map<String, StoreObjectAccessorWithLock> writers = new LinkedHashMap<String, PersistenceObjectStore.StoreObjectAccessorWithLock>();
 
@@ -149,6 +189,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
         MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
+        this.compressMementos = Boolean.TRUE.equals(brooklynProperties.getConfig(PERSISTER_COMPRESS_MEMENTOS));
+        this.skipUnchangedWrites = !Boolean.FALSE.equals(brooklynProperties.getConfig(PERSISTER_SKIP_UNCHANGED_WRITES));
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
 
@@ -216,7 +258,20 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
     
+    /** sets the metrics to which written and skipped (unchanged) objects are reported */
+    @Beta
+    public void setActivityMetrics(PersistenceActivityMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override public void enableWriteAccess() {
+        // another node may have written since we last did (e.g. if we were previously master, then standby)
+        lastWrittenHashes.clear();
+        lastManifestEntries = ImmutableMap.of();
+        synchronized (changeLogMutex) {
+            // readers must not combine what we note with what another node noted
+            changeLog = null;
+        }
         writesAllowed = true;
     }
     
@@ -259,6 +314,58 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return objectStore;
     }
 
+    /**
+     * Writes the given contents for an object exactly as supplied (e.g. when importing an archive of persisted state),
+     * replacing anything there and without regard to the managed instance (if there is one).
+     * Callers should use the {@link BrooklynObjectType#getSubPathName()} id conventions, e.g. bundle jars as <code>id.jar</code>.
+     */
+    @Beta
+    public void persistRaw(BrooklynObjectType type, String id, ByteSource contents) {
+        checkWritesAllowed();
+        String path = getPath(type.getSubPathName(), id);
+        // the store no longer has what we last wrote, so the next change must be written
+        lastWrittenHashes.remove(path);
+        getWriter(path).put(contents);
+        noteChanges(ImmutableMap.of(type, ImmutableSet.of(id)), ImmutableMap.<BrooklynObjectType, Set<String>>of());
+    }
+
+    /** Deletes the persisted contents for an object, as for {@link #persistRaw(BrooklynObjectType, String, ByteSource)}. */
+    @Beta
+    public void deleteRaw(BrooklynObjectType type, String id) {
+        checkWritesAllowed();
+        String path = getPath(type.getSubPathName(), id);
+        lastWrittenHashes.remove(path);
+        getWriter(path).delete();
+        noteChanges(ImmutableMap.<BrooklynObjectType, Set<String>>of(), ImmutableMap.of(type, ImmutableSet.of(id)));
+    }
+
+    /** records the given changes for hot-standby nodes, as described in {@link MementoChangeLog} */
+    private void noteChanges(Map<BrooklynObjectType, ? extends Set<String>> changedIds, Map<BrooklynObjectType, ? extends Set<String>> removedIds) {
+        synchronized (changeLogMutex) {
+            MementoChangeLog current = (changeLog != null) ? changeLog : MementoChangeLog.newEpoch();
+            writeChangeLog(current.withChanges(changedIds, removedIds));
+        }
+    }
+
+    private void noteFullReload() {
+        synchronized (changeLogMutex) {
+            MementoChangeLog current = (changeLog != null) ? changeLog : MementoChangeLog.newEpoch();
+            writeChangeLog(current.withFullReload());
+        }
+    }
+
+    private void writeChangeLog(MementoChangeLog newChangeLog) {
+        // kept even if the write fails, so the changes are included next time
+        changeLog = newChangeLog;
+        try {
+            getWriter(MementoChangeLog.CHANGES_FILE_NAME).put(newChangeLog.toPersistedForm());
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Failed to write record of persisted changes (hot-standby nodes may be delayed seeing them): "+e);
+            LOG.debug("Trace for failure to write record of persisted changes", e);
+        }
+    }
+
     protected StoreObjectAccessorWithLock getWriter(String path) {
         String id = path.substring(path.lastIndexOf('/')+1);
         synchronized (writers) {
@@ -289,8 +396,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
         Stopwatch stopwatch = Stopwatch.createStarted();
         try {
-            for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
-                subPathDataBuilder.putAll(type, makeIdSubPathMap(objectStore.listContentsWithSubPath(type.getSubPathName())));
+            // list the types concurrently; for remote stores each listing can be several round trips
+            Map<BrooklynObjectType, ListenableFuture<List<String>>> listings = MutableMap.of();
+            for (final BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                listings.put(type, executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return objectStore.listContentsWithSubPath(type.getSubPathName());
+                    }}));
+            }
+            for (Map.Entry<BrooklynObjectType, ListenableFuture<List<String>>> listing: listings.entrySet()) {
+                subPathDataBuilder.putAll(listing.getKey(), makeIdSubPathMap(listing.getValue().get()));
             }
             
         } catch (Exception e) {
@@ -314,39 +430,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         BrooklynMementoRawData subPathData = listMementoSubPathsAsData(exceptionHandler);
         
         final BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
-        
-        Visitor loaderVisitor = new Visitor() {
-            @Override
-            public void visit(BrooklynObjectType type, String id, String contentsSubpath) throws Exception {
-                if (type == BrooklynObjectType.MANAGED_BUNDLE && id.endsWith(".jar")) {
-                    // don't visit jar files directly; someone else will read them
-                    return;
-                }
-                
-                String contents = null;
-                try {
-                    contents = read(contentsSubpath);
-                } catch (Exception e) {
-                    Exceptions.propagateIfFatal(e);
-                    exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
-                }
-                
-                String xmlId = (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
-                String safeXmlId = Strings.makeValidFilename(xmlId);
-                if (!Objects.equal(id, safeXmlId))
-                    LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
-                
-                if (type == BrooklynObjectType.MANAGED_BUNDLE) {
-                    // TODO could R/W to cache space directly, rather than memory copy then extra file copy
-                    byte[] jarData = readBytes(contentsSubpath+".jar");
-                    if (jarData==null) {
-                        throw new IllegalStateException("No bundle data for "+contentsSubpath);
-                    }
-                    builder.bundleJar(id, ByteSource.wrap(jarData));
-                }
-                builder.put(type, xmlId, contents);
-            }
-        };
+        Visitor loaderVisitor = newLoaderVisitor(builder, exceptionHandler);
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
@@ -390,30 +474,155 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
 
 
+    private static class ManifestEntry {
+        private final HashCode contentsHash;
+        private final String id;
+        private final String type;
+        @Nullable private final String parent;
+        @Nullable private final String catalogItemId;
+        @Nullable private final List<String> searchPath;
+
+        private ManifestEntry(HashCode contentsHash, String id, String type, @Nullable String parent, @Nullable String catalogItemId, @Nullable List<String> searchPath) {
+            this.contentsHash = contentsHash;
+            this.id = id;
+            this.type = type;
+            this.parent = parent;
+            this.catalogItemId = catalogItemId;
+            this.searchPath = searchPath;
+        }
+
+        private static ManifestEntry parse(BrooklynObjectType type, String contents, HashCode contentsHash) {
+            XPathHelper x = new XPathHelper(contents, "/"+type.toCamelCase()+"/");
+            if (type==BrooklynObjectType.ENTITY) {
+                return new ManifestEntry(contentsHash, x.get("id"), x.get("type"), Strings.emptyToNull(x.get("parent")),
+                    Strings.emptyToNull(x.get("catalogItemId")), x.getStringList("searchPath"));
+            } else {
+                return new ManifestEntry(contentsHash, x.get("id"), x.get("type"), null, null, null);
+            }
+        }
+    }
+
+    private Visitor newLoaderVisitor(final BrooklynMementoRawData.Builder builder, final RebindExceptionHandler exceptionHandler) {
+        return new Visitor() {
+            @Override
+            public void visit(BrooklynObjectType type, String id, String contentsSubpath) throws Exception {
+                if (type == BrooklynObjectType.MANAGED_BUNDLE && id.endsWith(".jar")) {
+                    // don't visit jar files directly; someone else will read them
+                    return;
+                }
+                
+                String contents = null;
+                try {
+                    contents = read(contentsSubpath);
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
+                }
+                if (contents==null) {
+                    // deleted since listed (or listed by a store's index ahead of being written)
+                    LOG.debug("No contents for "+type.toCamelCase()+" "+id+" at "+contentsSubpath+"; skipping");
+                    return;
+                }
+                
+                String xmlId = (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
+                String safeXmlId = Strings.makeValidFilename(xmlId);
+                if (!Objects.equal(id, safeXmlId))
+                    LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
+                
+                if (type == BrooklynObjectType.MANAGED_BUNDLE) {
+                    // TODO could R/W to cache space directly, rather than memory copy then extra file copy
+                    byte[] jarData = readBytes(contentsSubpath+".jar");
+                    if (jarData==null) {
+                        throw new IllegalStateException("No bundle data for "+contentsSubpath);
+                    }
+                    builder.bundleJar(id, ByteSource.wrap(jarData));
+                }
+                builder.put(type, xmlId, contents);
+            }
+        };
+    }
+
+    /** reads the record of changes written by the master (see {@link MementoChangeLog}), or null if there is none */
+    @Beta
+    @Nullable
+    public MementoChangeLog loadChangeLog() {
+        return MementoChangeLog.fromPersistedForm(objectStore.newAccessor(MementoChangeLog.CHANGES_FILE_NAME).get());
+    }
+
+    /**
+     * Loads only the given items, rather than everything; used by hot-standby nodes to re-read
+     * only the items changed since they last read (see {@link MementoChangeLog}).
+     * Items no longer in the store are omitted.
+     */
+    @Beta
+    public BrooklynMementoRawData loadMementoRawDataItems(Map<BrooklynObjectType, ? extends Collection<String>> ids, RebindExceptionHandler exceptionHandler) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        BrooklynMementoRawData.Builder paths = BrooklynMementoRawData.builder();
+        int count = 0;
+        for (Map.Entry<BrooklynObjectType, ? extends Collection<String>> entry: ids.entrySet()) {
+            for (String id: entry.getValue()) {
+                paths.put(entry.getKey(), id, getPath(entry.getKey().getSubPathName(), id));
+                count++;
+            }
+        }
+        visitMemento("loading items", paths.build(), newLoaderVisitor(builder, exceptionHandler), exceptionHandler);
+        
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Loaded rebind raw data items; took {}; {} items, from {}", new Object[]{
+                Time.makeTimeStringRounded(stopwatch.elapsed(TimeUnit.MILLISECONDS)), count, objectStore.getSummaryName() });
+        }
+        return builder.build();
+    }
+
     @Override
     public BrooklynMementoManifest loadMementoManifest(BrooklynMementoRawData mementoDataR,
                                                        final RebindExceptionHandler exceptionHandler) throws IOException {
+        return loadMementoManifest(mementoDataR, exceptionHandler, false);
+    }
+    
+    /**
+     * As {@link #loadMementoManifest(BrooklynMementoRawData, RebindExceptionHandler)}, for data with only some of the items
+     * (see {@link #loadMementoRawDataItems(Map, RebindExceptionHandler)}), keeping what was parsed for the other items.
+     */
+    @Beta
+    public BrooklynMementoManifest loadMementoManifestOfItems(BrooklynMementoRawData mementoData,
+                                                       RebindExceptionHandler exceptionHandler) throws IOException {
+        return loadMementoManifest(checkNotNull(mementoData, "mementoData"), exceptionHandler, true);
+    }
+    
+    private BrooklynMementoManifest loadMementoManifest(BrooklynMementoRawData mementoDataR,
+                                                       final RebindExceptionHandler exceptionHandler, boolean partial) throws IOException {
         final BrooklynMementoRawData mementoData = mementoDataR==null ? loadMementoRawData(exceptionHandler) : mementoDataR;
         
         final BrooklynMementoManifestImpl.Builder builder = BrooklynMementoManifestImpl.builder();
 
         builder.planeId(mementoData.getPlaneId());
 
+        final Map<String, ManifestEntry> previousManifestEntries = lastManifestEntries;
+        final Map<String, ManifestEntry> manifestEntries = new ConcurrentHashMap<String, ManifestEntry>();
         Visitor visitor = new Visitor() {
             @Override
             public void visit(BrooklynObjectType type, String objectId, final String contents) throws Exception {
-                XPathHelper x = new XPathHelper(contents, "/"+type.toCamelCase()+"/");
                 switch (type) {
                     case ENTITY:
-                        builder.entity(x.get("id"), x.get("type"), Strings.emptyToNull(x.get("parent")),
-                            Strings.emptyToNull(x.get("catalogItemId")),
-                            x.getStringList("searchPath"));
-                        break;
                     case LOCATION:
                     case POLICY:
                     case ENRICHER:
                     case FEED:
-                        builder.putType(type, x.get("id"), x.get("type"));
+                        // parsing is comparatively slow, so re-use what we parsed before if unchanged
+                        String key = type.getSubPathName()+"/"+objectId;
+                        HashCode contentsHash = CONTENTS_HASH_FUNCTION.hashString(contents, Charsets.UTF_8);
+                        ManifestEntry entry = previousManifestEntries.get(key);
+                        if (entry==null || !entry.contentsHash.equals(contentsHash)) {
+                            entry = ManifestEntry.parse(type, contents, contentsHash);
+                        }
+                        manifestEntries.put(key, entry);
+                        if (type==BrooklynObjectType.ENTITY) {
+                            builder.entity(entry.id, entry.type, entry.parent, entry.catalogItemId, MutableList.copyOf(entry.searchPath));
+                        } else {
+                            builder.putType(type, entry.id, entry.type);
+                        }
                         break;
                     case CATALOG_ITEM:
                         try {
@@ -446,6 +655,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         visitMemento("manifests", mementoData, visitor, exceptionHandler);
+        if (writesAllowed) {
+            lastManifestEntries = ImmutableMap.of();
+        } else if (partial) {
+            Map<String, ManifestEntry> merged = MutableMap.copyOf(previousManifestEntries);
+            merged.putAll(manifestEntries);
+            lastManifestEntries = merged;
+        } else {
+            lastManifestEntries = manifestEntries;
+        }
         
         BrooklynMementoManifest result = builder.build();
 
@@ -606,6 +824,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 // Wait for all the tasks to complete or fail, rather than aborting on the first failure.
                 // But then propagate failure if any fail. (hence the two calls).
                 Futures.successfulAsList(futures).get();
+                noteFullReload();
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
@@ -667,6 +886,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 deletedIds.addAll(delta.getRemovedIdsOfType(type));
             }
+            Map<BrooklynObjectType, Set<String>> changedIds = MutableMap.of();
+            Map<BrooklynObjectType, Set<String>> removedIds = MutableMap.of();
             
             if (delta.planeId() != null) {
                 futures.add(asyncUpdatePlaneId(delta.planeId(), exceptionHandler));
@@ -676,11 +897,13 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                     if (!deletedIds.contains(item.getId())) {
                         addPersistContentIfManagedBundle(type, item.getId(), futures, exceptionHandler);
                         futures.add(asyncPersist(type.getSubPathName(), item, exceptionHandler));
+                        putInSet(changedIds, type, item.getId());
                     }
                 }
             }
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
+                    putInSet(removedIds, type, id);
                     futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
                     if (type==BrooklynObjectType.MANAGED_BUNDLE) {
                         futures.add(asyncDelete(type.getSubPathName(), id+".jar", exceptionHandler));
@@ -692,6 +915,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 // Wait for all the tasks to complete or fail, rather than aborting on the first failure.
                 // But then propagate failure if any fail. (hence the two calls).
                 Futures.successfulAsList(futures).get();
+                if (!changedIds.isEmpty() || !removedIds.isEmpty()) {
+                    // noted even if some writes failed; readers then re-read what is there
+                    noteChanges(changedIds, removedIds);
+                }
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
@@ -703,6 +930,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    private static void putInSet(Map<BrooklynObjectType, Set<String>> map, BrooklynObjectType type, String id) {
+        Set<String> ids = map.get(type);
+        if (ids==null) {
+            ids = MutableSet.of();
+            map.put(type, ids);
+        }
+        ids.add(id);
+    }
+
     private void addPersistContentIfManagedBundle(final BrooklynObjectType type, final String id, List<ListenableFuture<?>> futures, final PersistenceExceptionHandler exceptionHandler) {
         if (type==BrooklynObjectType.MANAGED_BUNDLE) {
             if (mgmt==null) {
@@ -752,9 +988,14 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /** reads the contents, decompressing if written with {@link #PERSISTER_COMPRESS_MEMENTOS}, so callers always see XML */
     private String read(String subPath) {
         StoreObjectAccessor objectAccessor = objectStore.newAccessor(subPath);
-        return objectAccessor.get();
+        return CompressedMementoSerializer.decompressIfNeeded(objectAccessor.get());
+    }
+    
+    private String encodeForStore(String contents) {
+        return compressMementos ? CompressedMementoSerializer.compress(contents) : contents;
     }
 
     private byte[] readBytes(String subPath) {
@@ -764,22 +1005,46 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
     private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            String path = getPath(subPath, memento.getId());
+            String content = getSerializerWithStandardClassLoader().toString(memento);
+            HashCode hash = hashIfSkippingUnchanged(content);
+            if (hash!=null && hash.equals(lastWrittenHashes.get(path))) {
+                if (LOG.isTraceEnabled()) LOG.trace("Skipping write of unchanged memento {}", path);
+                PersistenceActivityMetrics m = metrics;
+                if (m!=null) m.noteObjectWriteSkipped();
+                return;
+            }
+            putContents(path, content, hash);
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
     }
     
+    /** always writes, as checkpoints can be to a store where the contents have been changed externally (e.g. a backup) */
     private void persist(String subPath, BrooklynObjectType type, String id, String content, PersistenceExceptionHandler exceptionHandler) {
         try {
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
             }
-            getWriter(getPath(subPath, id)).put(content);
+            putContents(getPath(subPath, id), content, content==null ? null : hashIfSkippingUnchanged(content));
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
     }
+
+    private void putContents(String path, String content, @Nullable HashCode hash) {
+        // forget the old hash first, so a failed write is not subsequently treated as unchanged
+        lastWrittenHashes.remove(path);
+        getWriter(path).put(encodeForStore(content));
+        if (hash!=null) lastWrittenHashes.put(path, hash);
+        PersistenceActivityMetrics m = metrics;
+        if (m!=null) m.noteObjectWritten();
+    }
+
+    @Nullable
+    private HashCode hashIfSkippingUnchanged(String content) {
+        return skipUnchangedWrites ? CONTENTS_HASH_FUNCTION.hashString(content, Charsets.UTF_8) : null;
+    }
     
     private void persist(String subPath, BrooklynObjectType type, String id, ByteSource content, PersistenceExceptionHandler exceptionHandler) {
         try {
@@ -791,7 +1056,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
         try {
-            StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
+            String path = getPath(subPath, id);
+            lastWrittenHashes.remove(path);
+            StoreObjectAccessorWithLock w = getWriter(path);
             w.delete();
             synchronized (writers) {
                 writers.remove(id);
@@ -18,7 +18,18 @@
  */
 package org.apache.brooklyn.core.mgmt.persist;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.entity.Entity;
@@ -27,9 +38,11 @@ import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeSyncRecord;
 import org.apache.brooklyn.api.mgmt.ha.ManagementPlaneSyncRecord;
 import org.apache.brooklyn.api.mgmt.ha.MementoCopyMode;
 import org.apache.brooklyn.api.mgmt.rebind.PersistenceExceptionHandler;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
 import org.apache.brooklyn.api.objs.BrooklynObject;
@@ -51,6 +64,8 @@ import org.apache.brooklyn.core.objs.BrooklynObjectInternal;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.server.BrooklynServerPaths;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Strings;
@@ -60,8 +75,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
 
 public class BrooklynPersistenceUtils {
 
@@ -169,37 +188,54 @@ public class BrooklynPersistenceUtils {
     
 
     private static BrooklynMementoRawData newStateMementoFromLocal(ManagementContext mgmt) {
-        BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder();
+        final BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder();
+        result.planeId(mgmt.getManagementPlaneIdMaybe().orNull());
+        try {
+            visitLocalMementos(mgmt, new LocalMementoVisitor() {
+                @Override
+                public void visit(BrooklynObjectType type, String id, String contents) {
+                    result.put(type, id, contents);
+                }
+            });
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+        return result.build();
+    }
+
+    private interface LocalMementoVisitor {
+        void visit(BrooklynObjectType type, String id, String contents) throws IOException;
+    }
+
+    /** serializes the items managed locally one at a time, passing each to the visitor */
+    private static void visitLocalMementos(ManagementContext mgmt, LocalMementoVisitor visitor) throws IOException {
         MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(mgmt.getClass().getClassLoader());
         RetryingMementoSerializer<Object> serializer = new RetryingMementoSerializer<Object>(rawSerializer, 1);
         
-        result.planeId(mgmt.getManagementPlaneIdMaybe().orNull());
         for (Location instance: mgmt.getLocationManager().getLocations())
-            result.location(instance.getId(), serializer.toString(newObjectMemento(instance)));
+            visitor.visit(BrooklynObjectType.LOCATION, instance.getId(), serializer.toString(newObjectMemento(instance)));
         for (Entity instance: mgmt.getEntityManager().getEntities()) {
             instance = Entities.deproxy(instance);
-            result.entity(instance.getId(), serializer.toString(newObjectMemento(instance)));
+            visitor.visit(BrooklynObjectType.ENTITY, instance.getId(), serializer.toString(newObjectMemento(instance)));
             for (Feed instanceAdjunct: ((EntityInternal)instance).feeds().getFeeds()) {
-                result.feed(instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
+                visitor.visit(BrooklynObjectType.FEED, instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
             }
             for (Enricher instanceAdjunct: instance.enrichers()) {
-                result.enricher(instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
+                visitor.visit(BrooklynObjectType.ENRICHER, instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
             }
             for (Policy instanceAdjunct: instance.policies()) {
-                result.policy(instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
+                visitor.visit(BrooklynObjectType.POLICY, instanceAdjunct.getId(), serializer.toString(newObjectMemento(instanceAdjunct)));
             }
         }
         for (CatalogItem<?,?> instance: mgmt.getCatalog().getCatalogItemsLegacy()) {
-            result.catalogItem(instance.getId(), serializer.toString(newObjectMemento(instance)));
+            visitor.visit(BrooklynObjectType.CATALOG_ITEM, instance.getId(), serializer.toString(newObjectMemento(instance)));
         }
         OsgiManager osgi = ((LocalManagementContext)mgmt).getOsgiManager().orNull();
         if (osgi!=null) {
             for (ManagedBundle instance: osgi.getManagedBundles().values()) {
-                result.bundle(instance.getId(), serializer.toString(newObjectMemento(instance)));
+                visitor.visit(BrooklynObjectType.MANAGED_BUNDLE, instance.getId(), serializer.toString(newObjectMemento(instance)));
             }
         }
-        
-        return result.build();
     }
 
     /** generates and writes mementos for the given mgmt context to the given targetStore;
@@ -221,6 +257,175 @@ public class BrooklynPersistenceUtils {
         log.debug("Wrote full memento to "+targetStore+" in "+Time.makeTimeStringRounded(Duration.of(timer)));
     }
 
+    /**
+     * Writes the persisted state as a zip to the given stream, in the same layout as a persistence directory
+     * (under the given root dir name), one object at a time, so memory use does not grow with the size of the state.
+     * As {@link #writeMemento(ManagementContext, PersistenceObjectStore, MementoCopyMode)}, this can be taken from
+     * {@link MementoCopyMode#LOCAL} or {@link MementoCopyMode#REMOTE} state, or {@link MementoCopyMode#AUTO} detected.
+     * Mementos are written as XML, even if stored compressed. The stream is not closed.
+     */
+    @Beta
+    public static void writeMementoArchive(ManagementContext mgmt, MementoCopyMode source, String rootDirName, OutputStream out) throws IOException {
+        if (source==null || source==MementoCopyMode.AUTO) 
+            source = (mgmt.getHighAvailabilityManager().getNodeState()==ManagementNodeState.MASTER ? MementoCopyMode.LOCAL : MementoCopyMode.REMOTE);
+
+        Stopwatch timer = Stopwatch.createStarted();
+        final ZipOutputStream zip = new ZipOutputStream(out);
+        final String root = Strings.isBlank(rootDirName) ? "" : Strings.removeFromEnd(rootDirName, "/")+"/";
+        final AtomicInteger count = new AtomicInteger();
+        
+        BrooklynMementoPersisterToObjectStore persister = getObjectStorePersister(mgmt);
+        if (source==MementoCopyMode.LOCAL) {
+            String planeId = mgmt.getManagementPlaneIdMaybe().orNull();
+            if (planeId!=null) putArchiveEntry(zip, root+BrooklynMementoPersisterToObjectStore.PLANE_ID_FILE_NAME, planeId.getBytes(Charsets.UTF_8));
+            visitLocalMementos(mgmt, new LocalMementoVisitor() {
+                @Override
+                public void visit(BrooklynObjectType type, String id, String contents) throws IOException {
+                    putArchiveEntry(zip, root+type.getSubPathName()+"/"+id, contents.getBytes(Charsets.UTF_8));
+                    count.incrementAndGet();
+                }
+            });
+            ManagementPlaneSyncRecord mgmtRecord = newManagerMemento(mgmt, source);
+            if (mgmtRecord!=null) {
+                MementoSerializer<Object> serializer = new XmlMementoSerializer<Object>(mgmt.getCatalogClassLoader());
+                for (ManagementNodeSyncRecord node : mgmtRecord.getManagementNodes().values()) {
+                    // as ManagementPlaneSyncRecordPersisterToObjectStore.checkpoint
+                    if (!ManagementNodeState.INITIALIZING.equals(node.getStatus()) && node.getNodeId() != null) {
+                        putArchiveEntry(zip, root+ManagementPlaneSyncRecordPersisterToObjectStore.NODES_SUB_PATH+"/"+node.getNodeId(), 
+                            serializer.toString(node).getBytes(Charsets.UTF_8));
+                    }
+                }
+            }
+            
+        } else if (persister!=null) {
+            PersistenceObjectStore store = persister.getObjectStore();
+            for (BrooklynObjectType type: STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                for (String path: store.listContentsWithSubPath(type.getSubPathName())) {
+                    if (putArchiveEntryFromStore(zip, root, store, path)) count.incrementAndGet();
+                }
+            }
+            for (String path: store.listContentsWithSubPath(ManagementPlaneSyncRecordPersisterToObjectStore.NODES_SUB_PATH)) {
+                putArchiveEntryFromStore(zip, root, store, path);
+            }
+            for (String path: ImmutableList.of(BrooklynMementoPersisterToObjectStore.PLANE_ID_FILE_NAME, "master", "change.log")) {
+                putArchiveEntryFromStore(zip, root, store, path);
+            }
+            
+        } else {
+            // not persisting to an object store we can walk, so fall back to loading all state
+            log.debug("Persisted state not in an object store; loading all of it to write archive");
+            BrooklynMementoRawData dataRecord = newStateMemento(mgmt, source);
+            if (dataRecord.getPlaneId()!=null) putArchiveEntry(zip, root+BrooklynMementoPersisterToObjectStore.PLANE_ID_FILE_NAME, dataRecord.getPlaneId().getBytes(Charsets.UTF_8));
+            for (BrooklynObjectType type: STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                for (Map.Entry<String, String> entry: dataRecord.getObjectsOfType(type).entrySet()) {
+                    putArchiveEntry(zip, root+type.getSubPathName()+"/"+entry.getKey(), entry.getValue().getBytes(Charsets.UTF_8));
+                    count.incrementAndGet();
+                }
+            }
+        }
+        zip.finish();
+        zip.flush();
+        
+        log.debug("Wrote archive of "+count+" persisted item"+Strings.s(count.get())+" ("+source+") in "+Time.makeTimeStringRounded(Duration.of(timer)));
+    }
+
+    /**
+     * Reads a zip as written by {@link #writeMementoArchive(ManagementContext, MementoCopyMode, String, OutputStream)}
+     * into the persistence store of this node, one object at a time, so memory use does not grow with the size of the state.
+     * Management plane records in the archive are ignored, as they describe the nodes of the plane which wrote it.
+     * <p>
+     * This node must be master. What is imported is used when state is next rebinded (e.g. on restart or failover);
+     * items which are managed here will be overwritten when they next change.
+     * If <code>clearOthers</code> is set, persisted items not in the archive are deleted.
+     * 
+     * @return the number of items imported
+     */
+    @Beta
+    public static int readMementoArchive(ManagementContext mgmt, InputStream in, boolean clearOthers) throws IOException {
+        if (mgmt.getHighAvailabilityManager().getNodeState()!=ManagementNodeState.MASTER) {
+            throw new IllegalStateException("Persisted state can only be imported at the master node");
+        }
+        BrooklynMementoPersisterToObjectStore persister = getObjectStorePersister(mgmt);
+        if (persister==null) {
+            throw new IllegalStateException("Persisted state can only be imported when persisting to an object store");
+        }
+        
+        Stopwatch timer = Stopwatch.createStarted();
+        Map<BrooklynObjectType, Set<String>> importedIds = MutableMap.of();
+        int count = 0;
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) continue;
+            // entries are [root/]subpath/id; anything else (plane id and records) is not imported
+            List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(entry.getName());
+            BrooklynObjectType type = segments.size()<2 ? null : getTypeForSubPathName(segments.get(segments.size()-2));
+            if (type==null) {
+                log.trace("Skipping archive entry "+entry.getName()+" on import");
+                continue;
+            }
+            String id = segments.get(segments.size()-1);
+            persister.persistRaw(type, id, ByteSource.wrap(ByteStreams.toByteArray(zip)));
+            if (clearOthers) {
+                Set<String> ids = importedIds.get(type);
+                if (ids==null) importedIds.put(type, ids = MutableSet.of());
+                ids.add(id);
+            }
+            count++;
+        }
+        
+        if (clearOthers) {
+            PersistenceObjectStore store = persister.getObjectStore();
+            for (BrooklynObjectType type: STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                Set<String> ids = importedIds.get(type);
+                for (String path: store.listContentsWithSubPath(type.getSubPathName())) {
+                    String id = path.substring(path.lastIndexOf('/')+1);
+                    if (ids==null || !ids.contains(id)) {
+                        persister.deleteRaw(type, id);
+                    }
+                }
+            }
+        }
+        
+        log.info("Imported archive of "+count+" persisted item"+Strings.s(count)+" into "+persister.getBackingStoreDescription()
+            +(clearOthers ? ", clearing others," : "")+" in "+Time.makeTimeStringRounded(Duration.of(timer)));
+        return count;
+    }
+
+    @Nullable
+    private static BrooklynMementoPersisterToObjectStore getObjectStorePersister(ManagementContext mgmt) {
+        BrooklynMementoPersister persister = mgmt.getRebindManager().getPersister();
+        return (persister instanceof BrooklynMementoPersisterToObjectStore) ? (BrooklynMementoPersisterToObjectStore) persister : null;
+    }
+
+    @Nullable
+    static BrooklynObjectType getTypeForSubPathName(String subPathName) {
+        for (BrooklynObjectType type: STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            if (type.getSubPathName().equals(subPathName)) return type;
+        }
+        return null;
+    }
+
+    /** returns false if the object is no longer there (e.g. deleted since listed) */
+    private static boolean putArchiveEntryFromStore(ZipOutputStream zip, String root, PersistenceObjectStore store, String path) throws IOException {
+        byte[] contents = store.newAccessor(path).getBytes();
+        if (contents==null) return false;
+        if (!path.endsWith(".jar")) {
+            String text = new String(contents, Charsets.UTF_8);
+            if (CompressedMementoSerializer.isCompressed(text)) {
+                contents = CompressedMementoSerializer.decompressIfNeeded(text).getBytes(Charsets.UTF_8);
+            }
+        }
+        putArchiveEntry(zip, root+path, contents);
+        return true;
+    }
+
+    private static void putArchiveEntry(ZipOutputStream zip, String name, byte[] contents) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
     public static enum CreateBackupMode { PROMOTION, DEMOTION, CUSTOM;
         @Override public String toString() { return super.toString().toLowerCase(); }
     }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister.LookupContext;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Wraps another serializer (normally {@link XmlMementoSerializer}) so that what it writes is stored compressed.
+ * <p>
+ * The persisted form is a header line giving the format and its version, {@value #HEADER_V1_DEFLATE},
+ * followed by the delegate's output compressed with deflate and base64-encoded
+ * (as object stores hold text); memento XML typically shrinks to a fifth or less of its size.
+ * <p>
+ * Anything without the header is passed to the delegate as is, so mementos previously persisted as XML
+ * can still be read, and are rewritten in this format when they next change.
+ * The static {@link #compress(String)} and {@link #decompressIfNeeded(String)} apply the same encoding
+ * where the raw contents are needed, as in {@link BrooklynMementoPersisterToObjectStore}.
+ */
+@Beta
+public class CompressedMementoSerializer<T> implements MementoSerializer<T> {
+
+    /** marks contents in this format; the number is the version, to be incremented if the encoding changes */
+    public static final String HEADER_V1_DEFLATE = "#brooklyn-memento:deflate:1\n";
+
+    private final MementoSerializer<T> delegate;
+
+    public CompressedMementoSerializer(MementoSerializer<T> delegate) {
+        this.delegate = checkNotNull(delegate, "delegate");
+    }
+
+    @Override
+    public String toString(T memento) {
+        return compress(delegate.toString(memento));
+    }
+
+    @Override
+    public T fromString(String string) {
+        return delegate.fromString(decompressIfNeeded(string));
+    }
+
+    @Override
+    public void setLookupContext(LookupContext lookupContext) {
+        delegate.setLookupContext(lookupContext);
+    }
+
+    @Override
+    public void unsetLookupContext() {
+        delegate.unsetLookupContext();
+    }
+
+    public static boolean isCompressed(String contents) {
+        return contents!=null && contents.startsWith(HEADER_V1_DEFLATE);
+    }
+
+    public static String compress(String contents) {
+        if (contents==null) return null;
+        // favour speed: most of the gain is from repeated tag and class names, which any level removes
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(contents.length() / 4 + 64);
+            DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+            out.close();
+            return HEADER_V1_DEFLATE + BaseEncoding.base64().encode(bytes.toByteArray());
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            // not done by the stream when the deflater is supplied
+            deflater.end();
+        }
+    }
+
+    /** returns the original contents if compressed by {@link #compress(String)}, otherwise the argument unchanged */
+    public static String decompressIfNeeded(String contents) {
+        if (!isCompressed(contents)) return contents;
+        try {
+            byte[] compressed = BaseEncoding.base64().decode(contents.substring(HEADER_V1_DEFLATE.length()).trim());
+            InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+            try {
+                return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -111,7 +111,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public void createSubPath(String subPath) {
-        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        checkPrepared();
         
         File dir = new File(getBaseDir(), subPath);
         if (dir.mkdir()) {
@@ -129,7 +129,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public StoreObjectAccessor newAccessor(String path) {
-        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        checkPrepared();
         
         String tmpExt = ".tmp";
         if (mgmt!=null && mgmt.getManagementNodeId()!=null) tmpExt = "."+mgmt.getManagementNodeId()+tmpExt;
@@ -138,7 +138,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public List<String> listContentsWithSubPath(final String parentSubPath) {
-        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        checkPrepared();
         
         Preconditions.checkNotNull(parentSubPath);
         File subPathDir = new File(basedir, parentSubPath);
@@ -161,6 +161,10 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
                 }).toList();
     }
 
+    protected void checkPrepared() {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+    }
+
     @Override
     public void close() {
         executor.shutdown();
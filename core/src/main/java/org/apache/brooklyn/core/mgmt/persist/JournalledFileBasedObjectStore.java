@@ -0,0 +1,581 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.io.FileUtil;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.stream.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.io.ByteSource;
+
+/**
+ * A file-based object store which keeps all objects in an append-only journal, rather than one file per object.
+ * <p>
+ * {@link FileBasedObjectStore} writes a temp file and renames it for every change, so a persistence cycle
+ * costs several file operations per changed object. Here each change (put, append or delete) is
+ * one write to the end of {@value #JOURNAL_FILE_NAME}, forced to disk before the write returns; when the journal
+ * has grown to several times the size of the live data it is compacted into {@value #SNAPSHOT_FILE_NAME}
+ * (written to a temp file, synced, renamed, and the directory synced), after which the journal starts again.
+ * <p>
+ * Every record carries a checksum, and holds the full new contents of an object, so replaying is idempotent:
+ * on loading, the snapshot and then the journal are replayed, stopping at the first incomplete or corrupt record
+ * (as left by a crash mid-write), so each object has either its old or its new contents, as with the atomic rename.
+ * Objects are held in memory once loaded.
+ * <p>
+ * Each snapshot starts with a randomly chosen generation. A reader checks that the snapshot still has the generation
+ * it replayed after it has replayed the journal, so that if the writer compacted in between (leaving the reader with
+ * the old snapshot and the new, emptied journal) it reloads rather than missing what was compacted.
+ * <p>
+ * Only one node should write (the master, as for other stores). Every node re-reads the files when they have been
+ * changed by another process, including before writing, so that hot standby works and so that a node which
+ * becomes master again after another node was master does not overwrite what that node wrote. The management plane records under {@value #PLANE_SUB_PATH},
+ * which every node writes, are kept as individual files as in {@link FileBasedObjectStore}.
+ * <p>
+ * When first used against a directory persisted by {@link FileBasedObjectStore} (i.e. with no journal or snapshot)
+ * the existing files are read in, and written to the snapshot on the first change; they are left in place,
+ * but are not kept up to date.
+ */
+@Beta
+public class JournalledFileBasedObjectStore extends FileBasedObjectStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalledFileBasedObjectStore.class);
+
+    public static final String JOURNAL_FILE_NAME = "memento.journal";
+    public static final String SNAPSHOT_FILE_NAME = "memento.snapshot";
+    /** kept as files; see class javadoc */
+    public static final String PLANE_SUB_PATH = "plane";
+
+    private static final int RECORD_MAGIC = 0x42524a31;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    /** first record of a snapshot, with an empty path and the generation as data */
+    private static final byte OP_GENERATION = 3;
+    // magic, op, timestamp, path length, data length (-1 for delete); then path, data, and crc
+    private static final int RECORD_HEADER_SIZE = 4 + 1 + 8 + 4 + 4;
+    private static final int RECORD_TRAILER_SIZE = 8;
+
+    private static final long DEFAULT_MIN_COMPACTION_BYTES = 4*1024*1024;
+    /** attempts to load a consistent snapshot and journal, if a writer is compacting concurrently */
+    private static final int MAX_LOAD_ATTEMPTS = 10;
+
+    private static class Entry {
+        final byte[] contents;
+        final long lastModified;
+        Entry(byte[] contents, long lastModified) {
+            this.contents = contents;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final Object writeLock = new Object();
+    private final Random random = new SecureRandom();
+
+    private volatile boolean loaded = false;
+    private boolean importedFromFiles = false;
+    private FileChannel journal;
+    private long journalLength;
+    private long liveBytes;
+    /** to detect changes by a writer in another process (including one that was master while we were not) */
+    private long loadedJournalLength = -1, loadedSnapshotModified = -1, loadedSnapshotLength = -1;
+    private long minCompactionBytes = DEFAULT_MIN_COMPACTION_BYTES;
+
+    public JournalledFileBasedObjectStore(File basedir) {
+        super(basedir);
+    }
+
+    @VisibleForTesting
+    void setMinCompactionBytes(long minCompactionBytes) {
+        this.minCompactionBytes = minCompactionBytes;
+    }
+
+    @VisibleForTesting
+    long getJournalLength() {
+        synchronized (writeLock) {
+            return journalLength;
+        }
+    }
+
+    @Override
+    public StoreObjectAccessor newAccessor(String path) {
+        if (isPlanePath(path)) return super.newAccessor(path);
+        checkPrepared();
+        return new JournalledStoreObjectAccessor(normalize(path));
+    }
+
+    @Override
+    public List<String> listContentsWithSubPath(String parentSubPath) {
+        if (isPlanePath(parentSubPath)) return super.listContentsWithSubPath(parentSubPath);
+        checkPrepared();
+        ensureCurrent();
+        String prefix = normalize(parentSubPath) + "/";
+        List<String> result = MutableList.of();
+        for (String path : entries.keySet()) {
+            if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0) {
+                result.add(parentSubPath + "/" + path.substring(prefix.length()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            closeJournal();
+        }
+        super.close();
+    }
+
+    @Override
+    public void deleteCompletely() {
+        synchronized (writeLock) {
+            closeJournal();
+            entries.clear();
+            liveBytes = 0;
+            loaded = false;
+        }
+        super.deleteCompletely();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("basedir", getBaseDir()).add("journal", JOURNAL_FILE_NAME).toString();
+    }
+
+    private static boolean isPlanePath(String path) {
+        String p = normalize(path);
+        return p.equals(PLANE_SUB_PATH) || p.startsWith(PLANE_SUB_PATH+"/");
+    }
+
+    private static String normalize(String path) {
+        while (path.startsWith("/")) path = path.substring(1);
+        while (path.endsWith("/")) path = path.substring(0, path.length()-1);
+        return path;
+    }
+
+    private File getJournalFile() {
+        return new File(getBaseDir(), JOURNAL_FILE_NAME);
+    }
+
+    private File getSnapshotFile() {
+        return new File(getBaseDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Loads if not yet loaded, or reloads if the files have been changed by another process. 
+     * This is checked even if we have written, as another node may have been master since.
+     */
+    private void ensureCurrent() {
+        synchronized (writeLock) {
+            if (loaded) {
+                File snapshot = getSnapshotFile();
+                if (getJournalFile().length()==loadedJournalLength && snapshot.lastModified()==loadedSnapshotModified
+                        && snapshot.length()==loadedSnapshotLength) {
+                    return;
+                }
+                log.debug("Reloading {}, changed by another writer", this);
+            }
+            load();
+        }
+    }
+
+    private void load() {
+        closeJournal();
+        File snapshot = getSnapshotFile();
+        File journalFile = getJournalFile();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                entries.clear();
+                liveBytes = 0;
+                long snapshotModified = snapshot.lastModified();
+                long snapshotLength = snapshot.length();
+                Long snapshotGeneration = null;
+                if (!snapshot.exists() && !journalFile.exists()) {
+                    importFromFiles();
+                } else {
+                    importedFromFiles = false;
+                    snapshotGeneration = replay(snapshot).generation;
+                }
+                ReplayResult journalReplay = replay(journalFile);
+                
+                // if the writer compacted while we were replaying, we may have the old snapshot with the new journal;
+                // the new snapshot with the old journal is fine, as replaying is idempotent
+                if (!Objects.equal(readGeneration(snapshot), snapshotGeneration)) {
+                    if (attempt >= MAX_LOAD_ATTEMPTS) {
+                        throw new IllegalStateException("Persisted state in "+getBaseDir()+" changed by another writer on each of "+attempt+" attempts to load it");
+                    }
+                    log.debug("Reloading {}, compacted by another writer during load (attempt {})", this, attempt);
+                    continue;
+                }
+                
+                journalLength = journalReplay.validLength;
+                loadedJournalLength = journalFile.length();
+                loadedSnapshotModified = snapshotModified;
+                loadedSnapshotLength = snapshotLength;
+                loaded = true;
+                if (journalLength < loadedJournalLength) {
+                    log.warn("Persisted state journal "+journalFile+" has an incomplete or corrupt record at "+journalLength
+                            +" (of "+loadedJournalLength+" bytes); ignoring the remainder (probably written when the process was stopped)");
+                }
+                return;
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static class ReplayResult {
+        final long validLength;
+        final Long generation;
+        ReplayResult(long validLength, Long generation) {
+            this.validLength = validLength;
+            this.generation = generation;
+        }
+    }
+
+    /** returns the generation recorded at the start of the file, or null if it has none */
+    private Long readGeneration(File file) throws IOException {
+        if (!file.exists()) return null;
+        return replay(file, false).generation;
+    }
+
+    /** replays the records in the file, returning the length of the valid part and the generation (if a snapshot) */
+    private ReplayResult replay(File file) throws IOException {
+        return replay(file, true);
+    }
+
+    /** reads the file as a stream (rather than mapping it, which is limited to 2GB), one record at a time */
+    private ReplayResult replay(File file, boolean apply) throws IOException {
+        long length = file.length();
+        if (!file.exists() || length==0) return new ReplayResult(0, null);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64*1024));
+        Long fileGeneration = null;
+        long position = 0;
+        try {
+            CRC32 crc = new CRC32();
+            while (length - position >= RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE) {
+                long start = position;
+                if (in.readInt() != RECORD_MAGIC) return new ReplayResult(start, fileGeneration);
+                byte op = in.readByte();
+                long timestamp = in.readLong();
+                int pathLength = in.readInt();
+                int dataLength = in.readInt();
+                position += RECORD_HEADER_SIZE;
+                long bodyLength = (long)pathLength + Math.max(0, dataLength) + RECORD_TRAILER_SIZE;
+                if (pathLength < 0 || dataLength < -1 || length - position < bodyLength) {
+                    return new ReplayResult(start, fileGeneration);
+                }
+                byte[] path = new byte[pathLength];
+                byte[] data = dataLength < 0 ? null : new byte[dataLength];
+                long expectedCrc;
+                try {
+                    in.readFully(path);
+                    if (data!=null) in.readFully(data);
+                    expectedCrc = in.readLong();
+                } catch (EOFException e) {
+                    // truncated since we took its length, e.g. by a writer compacting
+                    return new ReplayResult(start, fileGeneration);
+                }
+                position += bodyLength;
+                crc.reset();
+                crc.update(op);
+                crc.update(path);
+                if (data!=null) crc.update(data);
+                if (crc.getValue() != expectedCrc) return new ReplayResult(start, fileGeneration);
+
+                if (op==OP_GENERATION && start==0 && data!=null && data.length==8) {
+                    fileGeneration = ByteBuffer.wrap(data).getLong();
+                    if (!apply) break;
+                    continue;
+                }
+                if (!apply) break;
+                String key = new String(path, StandardCharsets.UTF_8);
+                if (op==OP_PUT && data!=null) {
+                    apply(key, new Entry(data, timestamp));
+                } else if (op==OP_DELETE) {
+                    apply(key, null);
+                } else {
+                    return new ReplayResult(start, fileGeneration);
+                }
+            }
+            return new ReplayResult(position, fileGeneration);
+        } catch (EOFException e) {
+            // truncated in the header, since we took its length
+            return new ReplayResult(position, fileGeneration);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void apply(String key, Entry entry) {
+        Entry old = entry==null ? entries.remove(key) : entries.put(key, entry);
+        if (old!=null) liveBytes -= old.contents.length;
+        if (entry!=null) liveBytes += entry.contents.length;
+    }
+
+    private void importFromFiles() throws IOException {
+        File basedir = getBaseDir();
+        File[] subdirs = basedir.listFiles();
+        if (subdirs==null) return;
+        int count = 0;
+        for (File subdir : subdirs) {
+            if (!subdir.isDirectory() || subdir.getName().equals(PLANE_SUB_PATH)) continue;
+            for (String path : super.listContentsWithSubPath(subdir.getName())) {
+                File file = new File(Os.mergePaths(basedir.getAbsolutePath(), path));
+                if (!file.isFile()) continue;
+                apply(path, new Entry(Files.readAllBytes(file.toPath()), file.lastModified()));
+                count++;
+            }
+        }
+        File planeId = new File(basedir, BrooklynMementoPersisterToObjectStore.PLANE_ID_FILE_NAME);
+        if (planeId.isFile()) {
+            apply(planeId.getName(), new Entry(Files.readAllBytes(planeId.toPath()), planeId.lastModified()));
+            count++;
+        }
+        importedFromFiles = count > 0;
+        if (importedFromFiles) {
+            log.info("Read "+count+" persisted object"+(count==1 ? "" : "s")+" from files in "+basedir+"; subsequent changes will be written to "+JOURNAL_FILE_NAME);
+        }
+    }
+
+    private void write(String key, byte[] contents) {
+        ensureCurrent();
+        synchronized (writeLock) {
+            try {
+                if (!loaded) load();
+                if (importedFromFiles) {
+                    // capture what was read from the files before writing anything, so the journal is the complete state
+                    importedFromFiles = false;
+                    compact();
+                }
+                if (journal==null) {
+                    // drop any incomplete record left by a crash
+                    openJournal().truncate(journalLength);
+                    journal.force(true);
+                }
+                long now = System.currentTimeMillis();
+                writeFully(journal, newRecord(contents==null ? OP_DELETE : OP_PUT, now, key, contents), journalLength);
+                // the change is only reported as persisted once it is on disk (data-only sync still includes the new length)
+                journal.force(false);
+                journalLength = journal.size();
+                loadedJournalLength = journalLength;
+                apply(key, contents==null ? null : new Entry(contents, now));
+
+                if (journalLength > Math.max(minCompactionBytes, 3*liveBytes)) {
+                    compact();
+                }
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+    }
+
+    private static ByteBuffer newGenerationRecord(long generation) {
+        return newRecord(OP_GENERATION, System.currentTimeMillis(), "", ByteBuffer.allocate(8).putLong(generation).array());
+    }
+
+    private static ByteBuffer newRecord(byte op, long timestamp, String key, byte[] contents) {
+        byte[] path = key.getBytes(StandardCharsets.UTF_8);
+        int dataLength = contents==null ? -1 : contents.length;
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + path.length + Math.max(0, dataLength) + RECORD_TRAILER_SIZE);
+        buf.putInt(RECORD_MAGIC).put(op).putLong(timestamp).putInt(path.length).putInt(dataLength);
+        buf.put(path);
+        if (contents!=null) buf.put(contents);
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(path);
+        if (contents!=null) crc.update(contents);
+        buf.putLong(crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    /** writes all live objects to a new snapshot, then empties the journal; caller must hold the write lock */
+    private void compact() throws IOException {
+        File snapshot = getSnapshotFile();
+        File tmp = new File(getBaseDir(), SNAPSHOT_FILE_NAME+".tmp");
+        FileChannel out = new RandomAccessFile(tmp, "rw").getChannel();
+        try {
+            FileUtil.setFilePermissionsTo600(tmp);
+            out.truncate(0);
+            long position = writeFully(out, newGenerationRecord(random.nextLong()), 0);
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                position = writeFully(out, newRecord(OP_PUT, e.getValue().lastModified, e.getKey(), e.getValue().contents), position);
+            }
+            out.force(true);
+        } finally {
+            out.close();
+        }
+        try {
+            moveFile(tmp, snapshot);
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        // the rename must be durable before the journal is emptied, else a crash could leave the old snapshot and no journal
+        syncDirectory(getBaseDir());
+        // replaying the old journal over the new snapshot gives the same state, so a crash before this is safe
+        if (journal==null) openJournal();
+        journal.truncate(0);
+        journal.force(true);
+        journalLength = 0;
+        loadedJournalLength = journalLength;
+        loadedSnapshotModified = snapshot.lastModified();
+        loadedSnapshotLength = snapshot.length();
+        if (log.isDebugEnabled()) log.debug("Compacted "+this+": "+entries.size()+" objects, "+liveBytes+" bytes");
+    }
+
+    private FileChannel openJournal() throws IOException {
+        File file = getJournalFile();
+        journal = new RandomAccessFile(file, "rw").getChannel();
+        FileUtil.setFilePermissionsTo600(file);
+        return journal;
+    }
+
+    /** forces a directory's entries (e.g. a rename in it) to disk, where the platform supports that */
+    private static void syncDirectory(File dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // e.g. on Windows, where directories cannot be opened; renames there are durable when they return
+            if (log.isTraceEnabled()) log.trace("Unable to open "+dir+" to sync it: "+e);
+            return;
+        }
+        try {
+            channel.force(true);
+        } catch (IOException e) {
+            if (log.isTraceEnabled()) log.trace("Unable to sync "+dir+": "+e);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /** writes the buffer at the given position, returning the position after it */
+    private static long writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+        return position;
+    }
+
+    private void closeJournal() {
+        if (journal!=null) {
+            Streams.closeQuietly(journal);
+            journal = null;
+        }
+    }
+
+    private class JournalledStoreObjectAccessor implements StoreObjectAccessor {
+        private final String key;
+
+        JournalledStoreObjectAccessor(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String get() {
+            byte[] b = getBytes();
+            return b==null ? null : new String(b, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] getBytes() {
+            ensureCurrent();
+            Entry entry = entries.get(key);
+            return entry==null ? null : Arrays.copyOf(entry.contents, entry.contents.length);
+        }
+
+        @Override
+        public boolean exists() {
+            ensureCurrent();
+            return entries.containsKey(key);
+        }
+
+        @Override
+        public void put(String contentsToReplaceOrCreate) {
+            write(key, contentsToReplaceOrCreate.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void put(ByteSource bytes) {
+            try {
+                write(key, bytes.read());
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        @Override
+        public void append(String contentsToAppendOrCreate) {
+            // records hold the full contents (so that replay is idempotent)
+            synchronized (writeLock) {
+                String old = get();
+                put(old==null ? contentsToAppendOrCreate : old + contentsToAppendOrCreate);
+            }
+        }
+
+        @Override
+        public void delete() {
+            ensureCurrent();
+            if (!entries.containsKey(key)) return;
+            write(key, null);
+        }
+
+        @Override
+        public Date getLastModifiedDate() {
+            ensureCurrent();
+            Entry entry = entries.get(key);
+            return entry==null ? null : new Date(entry.lastModified);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("store", JournalledFileBasedObjectStore.this).add("path", key).toString();
+        }
+    }
+}
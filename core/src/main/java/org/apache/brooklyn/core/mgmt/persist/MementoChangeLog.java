@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A bounded record of which persisted items have changed, written by the master beside the mementos
+ * (as {@value #CHANGES_FILE_NAME}), so that hot-standby nodes can re-read only the items changed since they last read,
+ * and need do nothing when nothing has changed.
+ * <p>
+ * Each write of the record increments its sequence number, and the items changed or removed are noted against it;
+ * only the most recent {@value #MAX_RETAINED_SEQUENCES} sequence numbers are kept.
+ * The epoch is new each time a node starts writing (e.g. on promotion), and changes not made item-by-item
+ * (e.g. a full checkpoint) are noted as requiring a full reload.
+ * A reader must therefore do a full reload if the epoch differs from what it last read,
+ * if it has fallen behind what is retained, or if a full reload is noted; see {@link #getChangesSince(long)}.
+ * <p>
+ * Instances are immutable.
+ */
+@Beta
+public class MementoChangeLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoChangeLog.class);
+
+    public static final String CHANGES_FILE_NAME = "changes";
+
+    /** marks contents in this format; the number is the version, to be incremented if the format changes */
+    static final String HEADER_V1 = "#brooklyn-changes:1";
+    static final int MAX_RETAINED_SEQUENCES = 100;
+
+    private static final String FULL_RELOAD = "*";
+    private static final String CHANGED = "+";
+    private static final String REMOVED = "-";
+
+    public static class Change {
+        private final long sequence;
+        @Nullable private final BrooklynObjectType type;
+        @Nullable private final String id;
+        private final boolean removed;
+
+        private Change(long sequence, @Nullable BrooklynObjectType type, @Nullable String id, boolean removed) {
+            this.sequence = sequence;
+            this.type = type;
+            this.id = id;
+            this.removed = removed;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /** whether all items must be reloaded, rather than a single item; type and id are null if so */
+        public boolean isFullReload() {
+            return type==null;
+        }
+
+        @Nullable
+        public BrooklynObjectType getType() {
+            return type;
+        }
+
+        @Nullable
+        public String getId() {
+            return id;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        @Override
+        public String toString() {
+            return sequence+" "+(isFullReload() ? FULL_RELOAD : (removed ? REMOVED : CHANGED)+" "+type.getSubPathName()+" "+id);
+        }
+    }
+
+    /** items changed and removed (the latter being the last change to the item) */
+    public static class ChangedItems {
+        private final Map<BrooklynObjectType, Set<String>> changed = MutableMap.of();
+        private final Map<BrooklynObjectType, Set<String>> removed = MutableMap.of();
+
+        private void add(Change change) {
+            Map<BrooklynObjectType, Set<String>> to = change.isRemoved() ? removed : changed;
+            Map<BrooklynObjectType, Set<String>> from = change.isRemoved() ? changed : removed;
+            Set<String> previous = from.get(change.getType());
+            if (previous!=null) previous.remove(change.getId());
+            Set<String> ids = to.get(change.getType());
+            if (ids==null) {
+                ids = MutableSet.of();
+                to.put(change.getType(), ids);
+            }
+            ids.add(change.getId());
+        }
+
+        public Set<String> getChanged(BrooklynObjectType type) {
+            Set<String> result = changed.get(type);
+            return result==null ? MutableSet.<String>of() : result;
+        }
+
+        public Set<String> getRemoved(BrooklynObjectType type) {
+            Set<String> result = removed.get(type);
+            return result==null ? MutableSet.<String>of() : result;
+        }
+
+        public int size() {
+            int result = 0;
+            for (Set<String> ids: changed.values()) result += ids.size();
+            for (Set<String> ids: removed.values()) result += ids.size();
+            return result;
+        }
+    }
+
+    private final String epoch;
+    private final long sequence;
+    private final List<Change> changes;
+
+    private MementoChangeLog(String epoch, long sequence, List<Change> changes) {
+        this.epoch = checkNotNull(epoch, "epoch");
+        this.sequence = sequence;
+        this.changes = ImmutableList.copyOf(changes);
+    }
+
+    /** a record for a node starting to write, with a new epoch */
+    public static MementoChangeLog newEpoch() {
+        return new MementoChangeLog(Identifiers.makeRandomId(8), 0, ImmutableList.<Change>of());
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /** a new record, with the next sequence number, noting the given items as changed and removed */
+    public MementoChangeLog withChanges(Map<BrooklynObjectType, ? extends Collection<String>> changedIds, Map<BrooklynObjectType, ? extends Collection<String>> removedIds) {
+        long next = sequence+1;
+        List<Change> result = newRetainedChanges(next);
+        for (Map.Entry<BrooklynObjectType, ? extends Collection<String>> entry: changedIds.entrySet()) {
+            for (String id: entry.getValue()) result.add(new Change(next, entry.getKey(), id, false));
+        }
+        for (Map.Entry<BrooklynObjectType, ? extends Collection<String>> entry: removedIds.entrySet()) {
+            for (String id: entry.getValue()) result.add(new Change(next, entry.getKey(), id, true));
+        }
+        return new MementoChangeLog(epoch, next, result);
+    }
+
+    /** a new record, with the next sequence number, noting that all items must be reloaded */
+    public MementoChangeLog withFullReload() {
+        long next = sequence+1;
+        List<Change> result = newRetainedChanges(next);
+        result.add(new Change(next, null, null, false));
+        return new MementoChangeLog(epoch, next, result);
+    }
+
+    private List<Change> newRetainedChanges(long next) {
+        List<Change> result = MutableList.of();
+        for (Change change: changes) {
+            if (change.getSequence() > next - MAX_RETAINED_SEQUENCES) result.add(change);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items changed after the given sequence number,
+     * or null if they are not all known, so a full reload is required
+     * (which is never the case for a record from a different epoch; callers must check that first).
+     */
+    @Nullable
+    public ChangedItems getChangesSince(long previousSequence) {
+        if (previousSequence > sequence) return null;
+        // all sequence numbers after the previous must be retained
+        if (previousSequence < sequence - MAX_RETAINED_SEQUENCES + 1) return null;
+        ChangedItems result = new ChangedItems();
+        for (Change change: changes) {
+            if (change.getSequence() <= previousSequence) continue;
+            if (change.isFullReload()) return null;
+            result.add(change);
+        }
+        return result;
+    }
+
+    public String toPersistedForm() {
+        StringBuilder result = new StringBuilder();
+        result.append(HEADER_V1).append("\n");
+        result.append(epoch).append(" ").append(sequence).append("\n");
+        for (Change change: changes) {
+            result.append(change).append("\n");
+        }
+        return result.toString();
+    }
+
+    /** returns the record in the given persisted form, or null if absent or not understood */
+    @Nullable
+    public static MementoChangeLog fromPersistedForm(@Nullable String contents) {
+        if (contents==null) return null;
+        List<String> lines = Splitter.on('\n').omitEmptyStrings().trimResults().splitToList(contents);
+        if (lines.size()<2 || !HEADER_V1.equals(lines.get(0))) {
+            LOG.debug("Ignoring persisted changes in unknown format");
+            return null;
+        }
+        try {
+            List<String> head = Splitter.on(' ').splitToList(lines.get(1));
+            List<Change> changes = MutableList.of();
+            for (String line: lines.subList(2, lines.size())) {
+                List<String> parts = Splitter.on(' ').splitToList(line);
+                long sequence = Long.parseLong(parts.get(0));
+                if (FULL_RELOAD.equals(parts.get(1))) {
+                    changes.add(new Change(sequence, null, null, false));
+                } else {
+                    BrooklynObjectType type = BrooklynPersistenceUtils.getTypeForSubPathName(parts.get(2));
+                    if (type==null) {
+                        // an item we don't know how to read, so can't rely on what we have
+                        changes.add(new Change(sequence, null, null, false));
+                    } else {
+                        changes.add(new Change(sequence, type, parts.get(3), REMOVED.equals(parts.get(1))));
+                    }
+                }
+            }
+            return new MementoChangeLog(head.get(0), Long.parseLong(head.get(1)), changes);
+        } catch (RuntimeException e) {
+            LOG.debug("Ignoring unparseable persisted changes: "+e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("epoch", epoch).add("sequence", sequence).add("changes", changes.size()).toString();
+    }
+}
@@ -30,8 +30,13 @@ public class PersistenceActivityMetrics {
     final static int MAX_ERRORS = 200;
     
     long count=0, failureCount=0;
+    long objectWriteCount=0, objectWriteSkippedCount=0;
+    long throttledCount=0;
+    Integer lastDeltaSize;
+    Long lastDeltaLag, maxDeltaLag;
     Long lastSuccessTime, lastDuration, lastFailureTime;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    Map<String,Long> lastPhaseDurations;
 
     public void noteSuccess(Duration duration) {
         count++;
@@ -46,6 +51,37 @@ public class PersistenceActivityMetrics {
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
     }
 
+    /** records the time taken by each phase of the last run, in order, for those activities which have phases */
+    public synchronized void notePhaseDurations(Map<String,Duration> phaseDurations) {
+        Map<String,Long> result = MutableMap.of();
+        for (Map.Entry<String,Duration> entry: phaseDurations.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toMilliseconds());
+        }
+        lastPhaseDurations = result;
+    }
+
+    /** records that an object was written to the store */
+    public synchronized void noteObjectWritten() {
+        objectWriteCount++;
+    }
+
+    /** records that writing an object was skipped because its contents were unchanged since last written */
+    public synchronized void noteObjectWriteSkipped() {
+        objectWriteSkippedCount++;
+    }
+
+    /** records the size of a delta being persisted, and how long ago its oldest change was made */
+    public synchronized void noteDelta(int size, Duration lag) {
+        lastDeltaSize = size;
+        lastDeltaLag = lag.toMilliseconds();
+        if (maxDeltaLag==null || lastDeltaLag > maxDeltaLag) maxDeltaLag = lastDeltaLag;
+    }
+
+    /** records that a thread reporting a change was held back because persistence was lagging */
+    public synchronized void noteThrottled() {
+        throttledCount++;
+    }
+
     public void noteError(String error) {
         noteErrorObject(error);
     }
@@ -71,7 +107,14 @@ public class PersistenceActivityMetrics {
         result.put("failureCount", failureCount);
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
+        result.put("objectWriteCount", objectWriteCount);
+        result.put("objectWriteSkippedCount", objectWriteSkippedCount);
+        result.put("lastDeltaSize", lastDeltaSize);
+        result.put("lastDeltaLag", lastDeltaLag);
+        result.put("maxDeltaLag", maxDeltaLag);
+        result.put("throttledCount", throttledCount);
         result.put("errorMessages", MutableList.copyOf(errorMessages));
+        if (lastPhaseDurations!=null) result.put("lastPhaseDurations", MutableMap.copyOf(lastPhaseDurations));
         return result;
     }
 
@@ -28,6 +28,8 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
@@ -76,6 +78,11 @@ import com.google.common.collect.Sets;
  * prevent hammering the persister when a bunch of entity attributes change (e.g. when the entity
  * has just polled over JMX/http/etc). Such a scheduled-write approach would be similar to the 
  * Nagle buffering algorithm in TCP (see tcp_nodelay).
+ * <p>
+ * If a maximum period is given, the period adapts between the two: it backs off towards the maximum
+ * while there are no changes, and when writes are slow (so each write batches more changes), returning
+ * to the minimum when changes are written quickly. If a maximum lag is given, threads reporting changes
+ * are briefly held back while the oldest unwritten change is older than that.
  * 
  * @author aled
  *
@@ -90,6 +97,8 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
 
     private static class DeltaCollector {
         private String planeId;
+        /** when the first change in this collector was recorded, or 0 if none */
+        private long firstChangeTimeUtc = 0;
 
         private Set<Location> locations = Sets.newLinkedHashSet();
         private Set<Entity> entities = Sets.newLinkedHashSet();
@@ -117,11 +126,24 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                     removedCatalogItemIds.isEmpty() && removedBundleIds.isEmpty();
         }
         
+        public int size() {
+            return locations.size() + entities.size() + policies.size() + enrichers.size() + feeds.size() + 
+                    catalogItems.size() + bundles.size() + 
+                    removedLocationIds.size() + removedEntityIds.size() + removedPolicyIds.size() + 
+                    removedEnricherIds.size() + removedFeedIds.size() + 
+                    removedCatalogItemIds.size() + removedBundleIds.size();
+        }
+
         public void setPlaneId(String planeId) {
             this.planeId = planeId;
         }
 
+        private void noteChange() {
+            if (firstChangeTimeUtc == 0) firstChangeTimeUtc = System.currentTimeMillis();
+        }
+
         public void add(BrooklynObject instance) {
+            noteChange();
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).add(instance);
             if (type==BrooklynObjectType.CATALOG_ITEM) {
@@ -132,11 +154,13 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         public void addIfNotRemoved(BrooklynObject instance) {
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             if (!getRemovedIdsOfType(type).contains(instance.getId())) {
+                noteChange();
                 getUnsafeCollectionOfType(type).add(instance);
             }
         }
 
         public void remove(BrooklynObject instance) {
+            noteChange();
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).remove(instance);
             getRemovedIdsOfType(type).add(instance.getId());
@@ -186,9 +210,19 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     private final PersistenceExceptionHandler exceptionHandler;
     
     private final Duration period;
+    private final Duration maxPeriod;
+    private final Duration maxLag;
+    private volatile Duration currentPeriod;
         
     private DeltaCollector deltaCollector = new DeltaCollector();
 
+    /** when the oldest change being written by the current persist was recorded, or 0 if not persisting */
+    private volatile long inFlightSinceUtc = 0;
+    private volatile int inFlightCount = 0;
+    private volatile int lastDeltaSize = 0;
+    private volatile Thread persistingThread;
+    private final Object lagMonitor = new Object();
+
     private enum ListenerState { INIT, RUNNING, STOPPING, STOPPED } 
     private volatile ListenerState state = ListenerState.INIT;
 
@@ -214,12 +248,32 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             PersistenceExceptionHandler exceptionHandler,
             PersistenceActivityMetrics metrics,
             Duration period) {
+        this(planeIdSupplier, executionContext, persister, exceptionHandler, metrics, period, null, null);
+    }
+
+    /**
+     * @param period the period between persisting changes; the minimum period if <code>maxPeriod</code> is set
+     * @param maxPeriod if not null, the longest the period will be adapted to
+     * @param maxLag if not null, how long a change can remain unpersisted before threads reporting changes are held back
+     */
+    public PeriodicDeltaChangeListener(
+            Supplier<String> planeIdSupplier,
+            ExecutionContext executionContext,
+            BrooklynMementoPersister persister,
+            PersistenceExceptionHandler exceptionHandler,
+            PersistenceActivityMetrics metrics,
+            Duration period,
+            @Nullable Duration maxPeriod,
+            @Nullable Duration maxLag) {
         this.planeIdSupplier = planeIdSupplier;
         this.executionContext = executionContext;
         this.persister = persister;
         this.exceptionHandler = exceptionHandler;
         this.metrics = metrics;
         this.period = period;
+        this.maxPeriod = (maxPeriod == null) ? null : maxPeriod.lowerBound(period);
+        this.maxLag = maxLag;
+        this.currentPeriod = period;
         
         this.persistPoliciesEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_POLICY_PERSISTENCE_PROPERTY);
         this.persistEnrichersEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_ENRICHER_PERSISTENCE_PROPERTY);
@@ -233,6 +287,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                 return;
             }
             state = ListenerState.RUNNING;
+            currentPeriod = period;
 
             Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
                 @Override public Task<Void> call() {
@@ -377,7 +432,9 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         Stopwatch timer = Stopwatch.createStarted();
         try {
             persistNowInternal(alreadyHasMutex);
-            metrics.noteSuccess(Duration.of(timer));
+            Duration duration = Duration.of(timer);
+            metrics.noteSuccess(duration);
+            adaptPeriod(duration);
             return true;
         } catch (RuntimeInterruptedException e) {
             LOG.debug("Interrupted persisting change-delta (rethrowing)", e);
@@ -406,6 +463,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         }
         try {
             if (!alreadyHasMutex) persistingMutex.acquire();
+            persistingThread = Thread.currentThread();
             if (!isActive() && state != ListenerState.STOPPING) return;
             
             // Writes to the datastore are lossy. We'll just log failures and move on.
@@ -421,6 +479,8 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             synchronized (this) {
                 prevDeltaCollector = deltaCollector;
                 deltaCollector = new DeltaCollector();
+                inFlightSinceUtc = prevDeltaCollector.firstChangeTimeUtc;
+                inFlightCount = prevDeltaCollector.size();
             }
             
             if (LOG.isDebugEnabled() && shouldLogCheckpoint()) LOG.debug("Checkpointing delta of memento: "
@@ -431,6 +491,10 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                         limitedCountString(prevDeltaCollector.removedEntityIds), limitedCountString(prevDeltaCollector.removedLocationIds), limitedCountString(prevDeltaCollector.removedPolicyIds), limitedCountString(prevDeltaCollector.removedEnricherIds), limitedCountString(prevDeltaCollector.removedCatalogItemIds), limitedCountString(prevDeltaCollector.removedBundleIds)});
 
             addReferencedObjects(prevDeltaCollector);
+            lastDeltaSize = prevDeltaCollector.size();
+            if (!prevDeltaCollector.isEmpty()) {
+                metrics.noteDelta(lastDeltaSize, Duration.millis(System.currentTimeMillis() - prevDeltaCollector.firstChangeTimeUtc));
+            }
 
             if (LOG.isTraceEnabled()) LOG.trace("Checkpointing delta of memento with references: "
                     + "updating {} entities, {} locations, {} policies, {} enrichers, {} catalog items, {} bundles; "
@@ -481,13 +545,80 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                 LOG.debug("Problem persisting, but no longer active (ignoring)", e);
             }
         } finally {
+            inFlightSinceUtc = 0;
+            inFlightCount = 0;
+            persistingThread = null;
             synchronized (writeCount) {
                 writeCount.incrementAndGet();
                 writeCount.notifyAll();
             }
             if (!alreadyHasMutex) persistingMutex.release();
+            synchronized (lagMonitor) {
+                lagMonitor.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * If adaptive (i.e. with a max period), sets the period before the next persist: doubling it while there
+     * have been no changes, and otherwise twice the time the last persist took, so that a slow store
+     * spends at most about half its time writing and each write batches up more changes.
+     */
+    private void adaptPeriod(Duration lastDuration) {
+        if (maxPeriod == null) return;
+        Duration next = (lastDeltaSize == 0) ? currentPeriod.multiply(2) : lastDuration.multiply(2);
+        next = next.lowerBound(period).upperBound(maxPeriod);
+        if (!next.equals(currentPeriod)) {
+            if (LOG.isTraceEnabled()) LOG.trace("Persistence period changing from {} to {} (last delta {} items in {})", 
+                    new Object[] {currentPeriod, next, lastDeltaSize, lastDuration});
+            currentPeriod = next;
+            ScheduledTask task = scheduledTask;
+            // the scheduled task reads this when scheduling its next iteration
+            if (task != null) task.period(next);
         }
     }
+
+    /**
+     * Holds back the caller (for at most the max lag) while the oldest unpersisted change is older than the max lag,
+     * so that objects changing faster than they can be persisted do not run ever further ahead of the store.
+     */
+    private void throttleIfLagging() {
+        if (maxLag == null || !isActive() || persistingThread == Thread.currentThread() || Thread.holdsLock(this)) return;
+        if (getLag().isShorterThan(maxLag)) return;
+        
+        metrics.noteThrottled();
+        CountdownTimer timer = maxLag.countdownTimer();
+        try {
+            synchronized (lagMonitor) {
+                while (isActive() && !getLag().isShorterThan(maxLag) && timer.isNotExpired()) {
+                    lagMonitor.wait(timer.getDurationRemaining().lowerBound(Duration.ONE_MILLISECOND).toMilliseconds());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** how long ago the oldest change not yet persisted was made; zero if there are none */
+    public Duration getLag() {
+        long oldest;
+        synchronized (this) {
+            oldest = deltaCollector.firstChangeTimeUtc;
+        }
+        long inFlight = inFlightSinceUtc;
+        if (inFlight != 0 && (oldest == 0 || inFlight < oldest)) oldest = inFlight;
+        return (oldest == 0) ? Duration.ZERO : Duration.millis(Math.max(0, System.currentTimeMillis() - oldest));
+    }
+
+    /** the number of changed or removed objects waiting to be persisted, including any being written now */
+    public synchronized int getQueueDepth() {
+        return deltaCollector.size() + inFlightCount;
+    }
+
+    /** the period until the next persist, which changes over time only if a max period was supplied */
+    public Duration getCurrentPeriod() {
+        return currentPeriod;
+    }
     
     private void updatePlaneIdIfTimedOut() {
         if (planeIdPersistTimer.isExpired()) {
@@ -511,7 +642,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     }
 
     @Override
-    public synchronized void onManaged(BrooklynObject instance) {
+    public void onManaged(BrooklynObject instance) {
         if (LOG.isTraceEnabled()) LOG.trace("onManaged: {}", instance);
         onChanged(instance);
     }
@@ -535,10 +666,13 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     }
 
     @Override
-    public synchronized void onChanged(BrooklynObject instance) {
+    public void onChanged(BrooklynObject instance) {
         if (LOG.isTraceEnabled()) LOG.trace("onChanged: {}", instance);
-        if (!isStopped()) {
-            deltaCollector.add(instance);
+        throttleIfLagging();
+        synchronized (this) {
+            if (!isStopped()) {
+                deltaCollector.add(instance);
+            }
         }
     }
     
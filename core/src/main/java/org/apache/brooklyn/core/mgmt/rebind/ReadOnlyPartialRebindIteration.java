@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest.EntityMementoManifest;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
+import org.apache.brooklyn.api.objs.BrooklynObject;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.internal.BrooklynObjectManagementMode;
+import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
+import org.apache.brooklyn.core.mgmt.internal.ManagementTransitionMode;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.MementoChangeLog;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Reloads, on a hot-standby or hot-backup node, only the entities whose persisted state has changed
+ * (as recorded by the master, see {@link MementoChangeLog}), each with all its adjuncts, and unmanages those removed;
+ * the read-only objects for everything else are kept as they are.
+ * <p>
+ * Entities refer to each other through proxies, which are re-pointed at the reloaded instances;
+ * but locations, catalog items and bundles are referred to directly, so changes to those need a full rebind,
+ * see {@link #isApplicable(MementoChangeLog.ChangedItems)}.
+ */
+public class ReadOnlyPartialRebindIteration extends RebindIteration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadOnlyPartialRebindIteration.class);
+
+    private static final List<BrooklynObjectType> ADJUNCT_TYPES = ImmutableList.of(
+        BrooklynObjectType.POLICY, BrooklynObjectType.ENRICHER, BrooklynObjectType.FEED);
+    private static final List<BrooklynObjectType> UNSUPPORTED_TYPES = ImmutableList.of(
+        BrooklynObjectType.LOCATION, BrooklynObjectType.CATALOG_ITEM, BrooklynObjectType.MANAGED_BUNDLE);
+
+    protected MementoChangeLog.ChangedItems changes;
+
+    public ReadOnlyPartialRebindIteration(RebindManagerImpl rebindManager,
+            ManagementNodeState mode,
+            ClassLoader classLoader, RebindExceptionHandler exceptionHandler,
+            Semaphore rebindActive, AtomicInteger readOnlyRebindCount, PersistenceActivityMetrics rebindMetrics, BrooklynMementoPersister persistenceStoreAccess
+            ) {
+        super(rebindManager, mode, classLoader, exceptionHandler, rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess);
+    }
+
+    /** whether the given changes can be applied by this iteration; if not, a full rebind is needed */
+    public static boolean isApplicable(MementoChangeLog.ChangedItems changes) {
+        for (BrooklynObjectType type: UNSUPPORTED_TYPES) {
+            if (!changes.getChanged(type).isEmpty() || !changes.getRemoved(type).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public void setChanges(MementoChangeLog.ChangedItems changes) {
+        this.changes = changes;
+    }
+
+    @Override
+    protected boolean isRebindingActiveAgain() {
+        return false;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        Preconditions.checkState(ManagementNodeState.isHotProxy(mode), "Read-only partial rebind only supported in hot proxy modes, not "+mode);
+        Preconditions.checkNotNull(changes, "Changes must be set");
+        Preconditions.checkState(isApplicable(changes), "Changes to locations, catalog items or bundles require a full rebind");
+        Preconditions.checkState(persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore,
+            "Read-only partial rebind not supported with persister "+persistenceStoreAccess);
+
+        LOG.debug("Partial rebind - rebinding ("+mode+", iteration "+readOnlyRebindCount+") "+changes.size()+" changed item(s) "
+            + "from "+rebindManager.getPersister().getBackingStoreDescription()+"...");
+
+        super.doRun();
+    }
+
+    /** Reads only the changed entities, with all their adjuncts (so those whose adjuncts have changed count as changed). */
+    @Override
+    protected void loadManifestFiles() throws Exception {
+        checkEnteringPhase(1);
+        EntityManagerInternal entityManager = (EntityManagerInternal)managementContext.getEntityManager();
+
+        Set<String> entityIds = MutableSet.copyOf(changes.getChanged(BrooklynObjectType.ENTITY));
+        Set<String> changedAdjunctIds = MutableSet.of();
+        for (BrooklynObjectType type: ADJUNCT_TYPES) {
+            changedAdjunctIds.addAll(changes.getChanged(type));
+        }
+        if (!changedAdjunctIds.isEmpty()) {
+            // new adjuncts are not found here, but their entity will have changed to list them
+            for (Entity entity: entityManager.getEntities()) {
+                for (BrooklynObject adjunct: getAdjuncts(entity)) {
+                    if (changedAdjunctIds.contains(adjunct.getId())) entityIds.add(entity.getId());
+                }
+            }
+        }
+
+        Map<BrooklynObjectType, Set<String>> ids = MutableMap.of();
+        ids.put(BrooklynObjectType.ENTITY, entityIds);
+        for (BrooklynObjectType type: ADJUNCT_TYPES) {
+            ids.put(type, MutableSet.copyOf(changes.getChanged(type)));
+        }
+        for (String entityId: entityIds) {
+            Entity entity = entityManager.getEntity(entityId);
+            if (entity==null) continue;
+            for (BrooklynObject adjunct: getAdjuncts(entity)) {
+                BrooklynObjectType type = BrooklynObjectType.of(adjunct);
+                if (!changes.getRemoved(type).contains(adjunct.getId())) ids.get(type).add(adjunct.getId());
+            }
+        }
+
+        mementoRawData = getObjectStorePersister().loadMementoRawDataItems(ids, exceptionHandler);
+        preprocessManifestFiles();
+    }
+
+    private static List<BrooklynObject> getAdjuncts(Entity entity) {
+        EntityInternal entityRO = (EntityInternal) Entities.deproxy(entity);
+        List<BrooklynObject> result = MutableList.of();
+        result.addAll( entityRO.policies().asList() );
+        result.addAll( entityRO.enrichers().asList() );
+        result.addAll( entityRO.feeds().getFeeds() );
+        return result;
+    }
+
+    private BrooklynMementoPersisterToObjectStore getObjectStorePersister() {
+        return (BrooklynMementoPersisterToObjectStore) persistenceStoreAccess;
+    }
+
+    @Override
+    protected void preprocessManifestFiles() throws Exception {
+        checkContinuingPhase(1);
+        Preconditions.checkState(mementoManifest==null, "Memento data should not yet be set when calling this");
+
+        mementoManifest = getObjectStorePersister().loadMementoManifestOfItems(mementoRawData, exceptionHandler);
+        overwritingMaster = false;
+        isEmpty = mementoManifest.isEmpty();
+    }
+
+    @Override
+    protected void initPlaneId() {
+        // managementPlaneId is already initialized from the last full rebind
+    }
+
+    @Override
+    protected void installBundlesAndRebuildCatalog() {
+        checkEnteringPhase(2);
+
+        // skip; not supported here (see isApplicable), so unchanged since the last full rebind
+    }
+
+    /** The ancestors from which a catalog item might be inferred may be unchanged, so not read;
+     * so use what was inferred for the read-only entity, or for its parent if it is new. */
+    @Override
+    protected CatalogItemIdAndSearchPath findCatalogItemIds(ClassLoader cl, Map<String, EntityMementoManifest> entityIdToManifest,
+            EntityMementoManifest entityManifest) {
+        if (entityManifest.getCatalogItemId()==null) {
+            Entity existing = managementContext.getEntityManager().getEntity(entityManifest.getId());
+            if (existing==null && entityManifest.getParent()!=null && !entityIdToManifest.containsKey(entityManifest.getParent())) {
+                existing = managementContext.getEntityManager().getEntity(entityManifest.getParent());
+            }
+            if (existing!=null && existing.getCatalogItemId()!=null) {
+                return new CatalogItemIdAndSearchPath(existing.getCatalogItemId(), existing.getCatalogItemIdSearchPath());
+            }
+        }
+        return super.findCatalogItemIds(cl, entityIdToManifest, entityManifest);
+    }
+
+    @Override
+    protected Collection<String> getMementoRootEntities() {
+        // changed entities are all roots here, as unchanged ones are not reloaded (see LocalEntityManager.manageRecursive);
+        // parent-first, so that new children are managed along with their parent
+        return sortParentFirst(memento.getEntityMementos()).keySet();
+    }
+
+    @Override
+    protected void cleanupOldLocations(Set<String> oldLocations) {
+        // not applicable here
+    }
+
+    @Override
+    protected void cleanupOldEntities(Set<String> oldEntities) {
+        // only those removed; the rest are unchanged
+        EntityManagerInternal entityManager = (EntityManagerInternal)managementContext.getEntityManager();
+        Set<String> removedIds = changes.getRemoved(BrooklynObjectType.ENTITY);
+        if (!removedIds.isEmpty()) LOG.debug("Destroying removed entities on rebind: "+removedIds);
+        for (String removedId: removedIds) {
+            // may already have gone, as a descendant of another
+            Entity removed = entityManager.getEntity(removedId);
+            if (removed!=null) {
+                entityManager.unmanage(removed, ManagementTransitionMode.guessing(
+                    BrooklynObjectManagementMode.MANAGED_PRIMARY, BrooklynObjectManagementMode.NONEXISTENT));
+            }
+        }
+    }
+
+}
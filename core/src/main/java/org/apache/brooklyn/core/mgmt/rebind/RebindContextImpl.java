@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.brooklyn.api.catalog.CatalogItem;
@@ -45,11 +46,13 @@ import com.google.common.collect.Maps;
 
 public class RebindContextImpl implements RebindContext {
 
-    private final Map<String, Entity> entities = Maps.newLinkedHashMap();
-    private final Map<String, Location> locations = Maps.newLinkedHashMap();
-    private final Map<String, Policy> policies = Maps.newLinkedHashMap();
-    private final Map<String, Enricher> enrichers = Maps.newLinkedHashMap();
-    private final Map<String, Feed> feeds = Maps.newLinkedHashMap();
+    // synchronized as objects may be reconstructed in parallel (see RebindManagerImpl.REBIND_PARALLELISM);
+    // registration and iteration are only done in sequential steps
+    private final Map<String, Entity> entities = Collections.synchronizedMap(Maps.<String, Entity>newLinkedHashMap());
+    private final Map<String, Location> locations = Collections.synchronizedMap(Maps.<String, Location>newLinkedHashMap());
+    private final Map<String, Policy> policies = Collections.synchronizedMap(Maps.<String, Policy>newLinkedHashMap());
+    private final Map<String, Enricher> enrichers = Collections.synchronizedMap(Maps.<String, Enricher>newLinkedHashMap());
+    private final Map<String, Feed> feeds = Collections.synchronizedMap(Maps.<String, Feed>newLinkedHashMap());
     private final Map<String, CatalogItem<?, ?>> catalogItems = Maps.newLinkedHashMap();
     private final Map<String, ManagedBundle> bundles = Maps.newLinkedHashMap();
     
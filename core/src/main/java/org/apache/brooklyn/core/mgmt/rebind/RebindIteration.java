@@ -27,9 +27,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -124,6 +130,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
 Multi-phase deserialization:
@@ -142,6 +149,13 @@ Multi-phase deserialization:
 <li> 8. manage the entities
 </ul>
 
+ The time taken by each phase is logged on completion and recorded in the rebind metrics.
+ If {@link RebindManagerImpl#REBIND_PARALLELISM} is more than 1, the instantiation in phases 3 and 5
+ and the reconstruction in phase 6 are done by a pool of that many threads:
+ locations and entities are reconstructed one level of the hierarchy at a time, parents first
+ (as reconstructing a parent adds its children), and the adjuncts between those as before.
+ Phases 7 and 8 start adjuncts and manage entities, so are always done in sequence.
+
  If underlying data-store is changed between first and second manifest read (e.g. to add an
  entity), then second phase might try to reconstitute an entity that has not been put in
  the rebindContext. This should not affect normal production usage, because rebind is run
@@ -194,6 +208,15 @@ public abstract class RebindIteration {
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
+    
+    private static final String[] PHASE_NAMES = { null, "loadManifests", "installBundlesAndCatalog", 
+        "instantiateLocationsAndEntities", "instantiateMementos", "instantiateAdjuncts", 
+        "reconstruct", "associateAdjuncts", "manage" };
+    protected Stopwatch phaseTimer;
+    protected final Map<String, Duration> phaseDurations = Collections.synchronizedMap(Maps.<String, Duration>newLinkedHashMap());
+    
+    /** created on demand if {@link RebindManagerImpl#REBIND_PARALLELISM} is more than 1; shut down at the end of the run */
+    private ExecutorService parallelExecutor;
 
     // set in first phase
     
@@ -249,6 +272,13 @@ public abstract class RebindIteration {
         return rebindContext;
     }
     
+    /** time taken by each phase completed so far, in order */
+    public Map<String, Duration> getPhaseDurations() {
+        synchronized (phaseDurations) {
+            return MutableMap.copyOf(phaseDurations);
+        }
+    }
+    
     protected void doRun() throws Exception {
         loadManifestFiles();
         initPlaneId();
@@ -284,24 +314,39 @@ public abstract class RebindIteration {
             exceptionHandler.onDone();
             
             rebindMetrics.noteSuccess(Duration.of(timer));
+            rebindMetrics.notePhaseDurations(getPhaseDurations());
             noteErrors(exceptionHandler, null);
             
         } catch (Exception e) {
             rebindMetrics.noteFailure(Duration.of(timer));
+            rebindMetrics.notePhaseDurations(getPhaseDurations());
             
             Exceptions.propagateIfFatal(e);
             noteErrors(exceptionHandler, e);
             throw exceptionHandler.onFailed(e);
             
         } finally {
+            if (parallelExecutor!=null) {
+                parallelExecutor.shutdownNow();
+                parallelExecutor = null;
+            }
             rebindActive.release();
             RebindTracker.reset();
         }
     }
     
     protected void checkEnteringPhase(int targetPhase) {
+        notePhaseDone();
         phase++;
         checkContinuingPhase(targetPhase);
+        phaseTimer = Stopwatch.createStarted();
+    }
+    
+    private void notePhaseDone() {
+        if (phaseTimer!=null && phase>0 && phase<PHASE_NAMES.length) {
+            phaseDurations.put(PHASE_NAMES[phase], Duration.of(phaseTimer));
+        }
+        phaseTimer = null;
     }
     protected void checkContinuingPhase(int targetPhase) {
         if (targetPhase!=phase)
@@ -509,36 +554,53 @@ public abstract class RebindIteration {
         checkEnteringPhase(3);
         
         // Instantiate locations
+        // (when parallel, objects are registered afterwards so that the context keeps the order in the manifest)
         logRebindingDebug("RebindManager instantiating locations: {}", mementoManifest.getLocationIdToType().keySet());
+        final Map<String, Location> locations = new ConcurrentHashMap<String, Location>();
+        List<Runnable> jobs = MutableList.of();
         for (Map.Entry<String, String> entry : mementoManifest.getLocationIdToType().entrySet()) {
-            String locId = entry.getKey();
-            String locType = entry.getValue();
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
-            
-            try {
-                Location location = instantiator.newLocation(locId, locType);
-                rebindContext.registerLocation(locId, location);
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
-            }
+            final String locId = entry.getKey();
+            final String locType = entry.getValue();
+            jobs.add(new Runnable() { @Override public void run() {
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
+                
+                try {
+                    locations.put(locId, instantiator.newLocation(locId, locType));
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
+                }
+            }});
+        }
+        runJobs(jobs);
+        for (String locId : mementoManifest.getLocationIdToType().keySet()) {
+            Location location = locations.get(locId);
+            if (location!=null) rebindContext.registerLocation(locId, location);
         }
         
         // Instantiate entities
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
+        final Map<String, Entity> entities = new ConcurrentHashMap<String, Entity>();
+        jobs = MutableList.of();
         for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
-            String entityId = entry.getKey();
-            EntityMementoManifest entityManifest = entry.getValue();
-            
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
-            
-            try {
-                Entity entity = instantiator.newEntity(entityManifest);
-                ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
-
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
-            }
+            final String entityId = entry.getKey();
+            final EntityMementoManifest entityManifest = entry.getValue();
+            jobs.add(new Runnable() { @Override public void run() {
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
+                
+                try {
+                    Entity entity = instantiator.newEntity(entityManifest);
+                    ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
+                    entities.put(entityId, entity);
+    
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+                }
+            }});
+        }
+        runJobs(jobs);
+        for (String entityId : mementoManifest.getEntityIdToManifest().keySet()) {
+            Entity entity = entities.get(entityId);
+            if (entity!=null) rebindContext.registerEntity(entityId, entity);
         }
     }
 
@@ -564,22 +626,29 @@ public abstract class RebindIteration {
         }
     }
 
-    protected void instantiateAdjuncts(BrooklynObjectInstantiator instantiator) {
+    protected void instantiateAdjuncts(final BrooklynObjectInstantiator instantiator) {
         
         checkEnteringPhase(5);
         
+        // as for locations and entities, instantiated in parallel if configured, but registered in order
+        final Map<String, Policy> policies = new ConcurrentHashMap<String, Policy>();
+        final Map<String, Enricher> enrichers = new ConcurrentHashMap<String, Enricher>();
+        final Map<String, Feed> feeds = new ConcurrentHashMap<String, Feed>();
+        List<Runnable> jobs = MutableList.of();
+        
         // Instantiate policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager instantiating policies: {}", memento.getPolicyIds());
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
-                
-                try {
-                    Policy policy = instantiator.newPolicy(policyMemento);
-                    rebindContext.registerPolicy(policyMemento.getId(), policy);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
-                }
+            for (final PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
+                jobs.add(new Runnable() { @Override public void run() {
+                    logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
+                    
+                    try {
+                        policies.put(policyMemento.getId(), instantiator.newPolicy(policyMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
+                    }
+                }});
             }
         } else {
             logRebindingDebug("Not rebinding policies; feature disabled: {}", memento.getPolicyIds());
@@ -588,15 +657,16 @@ public abstract class RebindIteration {
         // Instantiate enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager instantiating enrichers: {}", memento.getEnricherIds());
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
-
-                try {
-                    Enricher enricher = instantiator.newEnricher(enricherMemento);
-                    rebindContext.registerEnricher(enricherMemento.getId(), enricher);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
-                }
+            for (final EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
+                jobs.add(new Runnable() { @Override public void run() {
+                    logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
+    
+                    try {
+                        enrichers.put(enricherMemento.getId(), instantiator.newEnricher(enricherMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
+                    }
+                }});
             }
         } else {
             logRebindingDebug("Not rebinding enrichers; feature disabled: {}", memento.getEnricherIds());
@@ -605,19 +675,34 @@ public abstract class RebindIteration {
         // Instantiate feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager instantiating feeds: {}", memento.getFeedIds());
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
-
-                try {
-                    Feed feed = instantiator.newFeed(feedMemento);
-                    rebindContext.registerFeed(feedMemento.getId(), feed);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
-                }
+            for (final FeedMemento feedMemento : memento.getFeedMementos().values()) {
+                jobs.add(new Runnable() { @Override public void run() {
+                    if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
+    
+                    try {
+                        feeds.put(feedMemento.getId(), instantiator.newFeed(feedMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
+                    }
+                }});
             }
         } else {
             logRebindingDebug("Not rebinding feeds; feature disabled: {}", memento.getFeedIds());
         }
+        
+        runJobs(jobs);
+        for (String id : memento.getPolicyMementos().keySet()) {
+            Policy policy = policies.get(id);
+            if (policy!=null) rebindContext.registerPolicy(id, policy);
+        }
+        for (String id : memento.getEnricherMementos().keySet()) {
+            Enricher enricher = enrichers.get(id);
+            if (enricher!=null) rebindContext.registerEnricher(id, enricher);
+        }
+        for (String id : memento.getFeedMementos().keySet()) {
+            Feed feed = feeds.get(id);
+            if (feed!=null) rebindContext.registerFeed(id, feed);
+        }
     }
 
     protected void reconstructEverything() {
@@ -626,102 +711,123 @@ public abstract class RebindIteration {
         
         // Reconstruct locations
         logRebindingDebug("RebindManager reconstructing locations");
-        for (LocationMemento locMemento : sortParentFirst(memento.getLocationMementos()).values()) {
-            Location location = rebindContext.getLocation(locMemento.getId());
-            logRebindingDebug("RebindManager reconstructing location {}", locMemento);
-            if (location == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.LOCATION, locMemento.getId());
-            } else {
-                try {
-                    ((LocationInternal)location).getRebindSupport().reconstruct(rebindContext, locMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.LOCATION, location, e);
-                }
+        for (Collection<LocationMemento> level : parentFirstLevels(memento.getLocationMementos())) {
+            List<Runnable> jobs = MutableList.of();
+            for (final LocationMemento locMemento : level) {
+                jobs.add(new Runnable() { @Override public void run() {
+                    Location location = rebindContext.getLocation(locMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing location {}", locMemento);
+                    if (location == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.LOCATION, locMemento.getId());
+                    } else {
+                        try {
+                            ((LocationInternal)location).getRebindSupport().reconstruct(rebindContext, locMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.LOCATION, location, e);
+                        }
+                    }
+                }});
             }
+            runJobs(jobs);
         }
 
+        // adjuncts are independent of each other, so can all be done together
+        List<Runnable> adjunctJobs = MutableList.of();
+        
         // Reconstruct policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager reconstructing policies");
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                Policy policy = rebindContext.getPolicy(policyMemento.getId());
-                logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
-   
-                if (policy == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
-                } else {
-                    try {
-                        policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
-                        rebindContext.unregisterPolicy(policy);
+            for (final PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
+                adjunctJobs.add(new Runnable() { @Override public void run() {
+                    Policy policy = rebindContext.getPolicy(policyMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
+       
+                    if (policy == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
+                    } else {
+                        try {
+                            policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
+                            rebindContext.unregisterPolicy(policy);
+                        }
                     }
-                }
+                }});
             }
         }
 
         // Reconstruct enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager reconstructing enrichers");
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
-                logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
-      
-                if (enricher == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
-                } else {
-                    try {
-                        enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
-                        rebindContext.unregisterEnricher(enricher);
+            for (final EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
+                adjunctJobs.add(new Runnable() { @Override public void run() {
+                    Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
+          
+                    if (enricher == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
+                    } else {
+                        try {
+                            enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
+                            rebindContext.unregisterEnricher(enricher);
+                        }
                     }
-                }
+                }});
             }
         }
    
         // Reconstruct feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager reconstructing feeds");
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                Feed feed = rebindContext.getFeed(feedMemento.getId());
-                logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
-      
-                if (feed == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
-                } else {
-                    try {
-                        feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
-                        rebindContext.unregisterFeed(feed);
+            for (final FeedMemento feedMemento : memento.getFeedMementos().values()) {
+                adjunctJobs.add(new Runnable() { @Override public void run() {
+                    Feed feed = rebindContext.getFeed(feedMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
+          
+                    if (feed == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
+                    } else {
+                        try {
+                            feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
+                            rebindContext.unregisterFeed(feed);
+                        }
                     }
-                }
-
+                }});
             }
         }
+        runJobs(adjunctJobs);
    
         // Reconstruct entities
         logRebindingDebug("RebindManager reconstructing entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
-                }
+        for (Collection<EntityMemento> level : parentFirstLevels(memento.getEntityMementos())) {
+            List<Runnable> jobs = MutableList.of();
+            for (final EntityMemento entityMemento : level) {
+                jobs.add(new Runnable() { @Override public void run() {
+                    Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
+           
+                    if (entity == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+                    } else {
+                        try {
+                            entityMemento.injectTypeClass(entity.getClass());
+                            ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                        }
+                    }
+                }});
             }
+            runJobs(jobs);
         }
     }
 
@@ -845,18 +951,20 @@ public abstract class RebindIteration {
     protected void finishingUp() {
         
         checkContinuingPhase(8);
+        notePhaseDone();
         
         if (!isEmpty) {
             BrooklynLogging.log(LOG, shouldLogRebinding() ? LoggingLevel.INFO : LoggingLevel.DEBUG, 
                 "Rebind complete " + "("+mode+(readOnlyRebindCount.get()>=0 ? ", iteration "+readOnlyRebindCount : "")+")" +
-                    " in {}: {} app{}, {} entit{}, {} location{}, {} polic{}, {} enricher{}, {} feed{}, {} catalog item{}",
+                    " in {}: {} app{}, {} entit{}, {} location{}, {} polic{}, {} enricher{}, {} feed{}, {} catalog item{}; phases {}",
                 Time.makeTimeStringRounded(timer), applications.size(), Strings.s(applications),
                 rebindContext.getEntities().size(), Strings.ies(rebindContext.getEntities()),
                 rebindContext.getLocations().size(), Strings.s(rebindContext.getLocations()),
                 rebindContext.getPolicies().size(), Strings.ies(rebindContext.getPolicies()),
                 rebindContext.getEnrichers().size(), Strings.s(rebindContext.getEnrichers()),
                 rebindContext.getFeeds().size(), Strings.s(rebindContext.getFeeds()),
-                rebindContext.getCatalogItems().size(), Strings.s(rebindContext.getCatalogItems())
+                rebindContext.getCatalogItems().size(), Strings.s(rebindContext.getCatalogItems()),
+                getPhaseDurations()
             );
         }
 
@@ -1358,6 +1466,70 @@ public abstract class RebindIteration {
     protected <T extends TreeNode> Map<String, T> sortParentFirst(Map<String, T> nodes) {
         return RebindManagerImpl.sortParentFirst(nodes);
     }
+    
+    /** 
+     * Groups the nodes by depth in the hierarchy, roots first, so that each group can be processed in parallel
+     * once the previous one is done; when not parallel, returns a single group in {@link #sortParentFirst(Map)} order.
+     */
+    protected <T extends TreeNode> List<Collection<T>> parentFirstLevels(Map<String, T> nodes) {
+        Map<String, T> sorted = sortParentFirst(nodes);
+        if (rebindManager.rebindParallelism <= 1) {
+            return ImmutableList.<Collection<T>>of(sorted.values());
+        }
+        Map<String, Integer> depths = MutableMap.of();
+        List<Collection<T>> result = MutableList.of();
+        for (T node : sorted.values()) {
+            Integer parentDepth = node.getParent()==null ? null : depths.get(node.getParent());
+            int depth = parentDepth==null ? 0 : parentDepth+1;
+            depths.put(node.getId(), depth);
+            while (result.size() <= depth) result.add(MutableList.<T>of());
+            result.get(depth).add(node);
+        }
+        return result;
+    }
+    
+    /**
+     * Runs the given jobs, in parallel if {@link RebindManagerImpl#REBIND_PARALLELISM} is more than 1,
+     * returning when all are done; if any fail (e.g. with a fail-fast exception handler) the first failure is rethrown.
+     */
+    protected void runJobs(List<? extends Runnable> jobs) {
+        if (rebindManager.rebindParallelism <= 1 || jobs.size() <= 1) {
+            for (Runnable job : jobs) job.run();
+            return;
+        }
+        if (parallelExecutor==null) {
+            parallelExecutor = Executors.newFixedThreadPool(rebindManager.rebindParallelism, 
+                new ThreadFactoryBuilder().setNameFormat("brooklyn-rebind-"+managementContext.getManagementNodeId()+"-%d").setDaemon(true).build());
+        }
+        final ClassLoader callerClassLoader = Thread.currentThread().getContextClassLoader();
+        List<Future<?>> futures = MutableList.of();
+        for (final Runnable job : jobs) {
+            futures.add(parallelExecutor.submit(new Runnable() { @Override public void run() {
+                // entities check whether they are being rebound (e.g. to skip persistence), so mark these threads as the rebind thread is
+                ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+                Thread.currentThread().setContextClassLoader(callerClassLoader);
+                RebindTracker.setRebinding();
+                try {
+                    job.run();
+                } finally {
+                    RebindTracker.reset();
+                    Thread.currentThread().setContextClassLoader(oldClassLoader);
+                }
+            }}));
+        }
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure==null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                for (Future<?> f : futures) f.cancel(true);
+                throw Exceptions.propagate(e);
+            }
+        }
+        if (failure!=null) throw Exceptions.propagate(failure);
+    }
 
     /** logs at debug, except during subsequent read-only rebinds, in which it logs trace */
     protected void logRebindingDebug(String message, Object... args) {
@@ -28,12 +28,17 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityManager;
 import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.api.mgmt.ha.ManagementPlaneSyncRecord;
 import org.apache.brooklyn.api.mgmt.ha.MementoCopyMode;
 import org.apache.brooklyn.api.mgmt.rebind.ChangeListener;
 import org.apache.brooklyn.api.mgmt.rebind.PersistenceExceptionHandler;
@@ -43,6 +48,7 @@ import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.TreeNode;
 import org.apache.brooklyn.api.objs.BrooklynObject;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.config.ConfigKeys;
@@ -53,6 +59,7 @@ import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils.CreateBackupMode;
+import org.apache.brooklyn.core.mgmt.persist.MementoChangeLog;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.CompoundTransformer;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
@@ -111,6 +118,50 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    @Beta
+    public static final ConfigKey<Integer> REBIND_PARALLELISM =
+        ConfigKeys.newIntegerConfigKey("rebind.parallelism",
+                "Number of threads to use when instantiating and reconstructing objects during rebind; "
+                + "locations and entities are reconstructed a level of the hierarchy at a time, parents first, "
+                + "and adjuncts after those; 1 (the default) does everything in sequence in the rebinding thread",
+                1);
+
+    @Beta
+    public static final ConfigKey<Duration> PERSIST_MAX_PERIOD =
+        ConfigKeys.newDurationConfigKey("rebind.persist.maxPeriod",
+                "If set, the period between persisting changes adapts between the configured persist period and this: "
+                + "backing off while there are no changes or while writes are slow, so that each write batches more changes; "
+                + "this therefore also bounds how long the first change after a quiet spell can wait to be persisted",
+                null);
+
+    @Beta
+    public static final ConfigKey<Duration> PERSIST_MAX_LAG =
+        ConfigKeys.newDurationConfigKey("rebind.persist.maxLag",
+                "If set, threads reporting changes are held back (each for at most this long) "
+                + "while the oldest change not yet persisted is older than this; "
+                + "should be longer than the persist period (or max period, if set)",
+                null);
+
+    @Beta
+    public static final ConfigKey<Boolean> READ_ONLY_INCREMENTAL =
+        ConfigKeys.newBooleanConfigKey("rebind.readOnly.incremental",
+                "Whether hot-standby and hot-backup nodes use the record of changes written by the master "
+                + "to re-read only the items changed since their last read-only rebind, "
+                + "and to skip the periodic rebind entirely when nothing has changed; "
+                + "and to reload only the read-only entities (and their adjuncts) which have changed; "
+                + "if false, or the record is unavailable or too far ahead, or locations or the catalog have changed, "
+                + "everything is re-read and reloaded",
+                true);
+
+    @Beta
+    public static final ConfigKey<Duration> READ_ONLY_FULL_READ_PERIOD =
+        ConfigKeys.newDurationConfigKey("rebind.readOnly.fullReadPeriod",
+                "With rebind.readOnly.incremental, how often hot-standby and hot-backup nodes re-read everything regardless "
+                + "of the record of changes, to pick up changes not recorded there "
+                + "(e.g. made by an older master, by an import, or by a master which failed before recording them); "
+                + "everything is also re-read whenever the master changes",
+                Duration.ONE_MINUTE);
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -126,6 +177,15 @@ public class RebindManagerImpl implements RebindManager {
     private transient Semaphore rebindActive = new Semaphore(1);
     private transient AtomicInteger readOnlyRebindCount = new AtomicInteger(Integer.MIN_VALUE);
     
+    /** the record of changes as at the last read-only rebind, for {@link #READ_ONLY_INCREMENTAL}; discarded when read-only stops */
+    private volatile MementoChangeLog readOnlyChangeLog;
+    /** the master, and when everything was last read, as at the last read-only rebind; see {@link #READ_ONLY_FULL_READ_PERIOD} */
+    private volatile String readOnlyMasterNodeId;
+    private volatile long readOnlyLastFullReadUtc = -1;
+    private final AtomicLong readOnlySkippedCount = new AtomicLong();
+    private final AtomicLong readOnlyIncrementalCount = new AtomicLong();
+    private final AtomicLong readOnlyFullCount = new AtomicLong();
+    
     private volatile BrooklynMementoPersister persistenceStoreAccess;
 
     final boolean persistPoliciesEnabled;
@@ -133,6 +193,9 @@ public class RebindManagerImpl implements RebindManager {
     final boolean persistFeedsEnabled;
     final boolean persistCatalogItemsEnabled;
     final boolean persistBundlesEnabled;
+    final int rebindParallelism;
+    final Duration persistMaxPeriod;
+    final Duration persistMaxLag;
     
     private RebindFailureMode danglingRefFailureMode;
     private RebindFailureMode rebindFailureMode;
@@ -196,6 +259,9 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        rebindParallelism = Math.max(1, managementContext.getConfig().getConfig(REBIND_PARALLELISM));
+        persistMaxPeriod = managementContext.getConfig().getConfig(PERSIST_MAX_PERIOD);
+        persistMaxLag = managementContext.getConfig().getConfig(PERSIST_MAX_LAG);
 
         LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
                 new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
@@ -247,6 +313,9 @@ public class RebindManagerImpl implements RebindManager {
         }
         
         this.persistenceStoreAccess = checkNotNull(val, "persister");
+        if (val instanceof BrooklynMementoPersisterToObjectStore) {
+            ((BrooklynMementoPersisterToObjectStore)val).setActivityMetrics(persistMetrics);
+        }
         
         this.persistenceRealChangeListener = new PeriodicDeltaChangeListener(
                 new PlaneIdSupplier(),
@@ -254,7 +323,9 @@ public class RebindManagerImpl implements RebindManager {
                 persistenceStoreAccess,
                 exceptionHandler,
                 persistMetrics,
-                periodicPersistPeriod);
+                periodicPersistPeriod,
+                persistMaxPeriod,
+                persistMaxLag);
         this.persistencePublicChangeListener = new SafeChangeListener(persistenceRealChangeListener);
         
         if (persistenceRunning) {
@@ -281,6 +352,7 @@ public class RebindManagerImpl implements RebindManager {
         }
         persistenceRunning = true;
         readOnlyRebindCount.set(Integer.MIN_VALUE);
+        readOnlyChangeLog = null;
         persistenceStoreAccess.enableWriteAccess();
         if (persistenceRealChangeListener != null) persistenceRealChangeListener.start();
     }
@@ -314,9 +386,10 @@ public class RebindManagerImpl implements RebindManager {
         
         readOnlyRunning = true;
         readOnlyRebindCount.set(0);
+        readOnlyChangeLog = null;
 
         try {
-            rebind(null, null, mode);
+            rebindReadOnly(mode);
         } catch (Exception e) {
             throw Exceptions.propagate(e);
         }
@@ -327,7 +400,7 @@ public class RebindManagerImpl implements RebindManager {
                     @Override
                     public Void call() {
                         try {
-                            rebind(null, null, mode);
+                            rebindReadOnly(mode);
                             return null;
                         } catch (RuntimeInterruptedException e) {
                             LOG.debug("Interrupted rebinding (re-interrupting): "+e);
@@ -372,6 +445,7 @@ public class RebindManagerImpl implements RebindManager {
             readOnlyTask = null;
             LOG.debug("Stopped read-only rebinding ("+this+"), mgmt "+managementContext.getManagementNodeId());
         }
+        readOnlyChangeLog = null;
     }
     
     @Override
@@ -504,7 +578,33 @@ public class RebindManagerImpl implements RebindManager {
         final ClassLoader classLoader = classLoaderO!=null ? classLoaderO :
             managementContext.getCatalogClassLoader();
         final RebindExceptionHandler exceptionHandler = exceptionHandlerO!=null ? exceptionHandlerO :
-            RebindExceptionHandlerImpl.builder()
+            newRebindExceptionHandler();
+        final ManagementNodeState mode = modeO!=null ? modeO : getRebindMode();
+        
+        if (mode!=ManagementNodeState.MASTER && mode!=ManagementNodeState.HOT_STANDBY && mode!=ManagementNodeState.HOT_BACKUP)
+            throw new IllegalStateException("Must be either master or hot standby/backup to rebind (mode "+mode+")");
+
+        return runInExecutionContext(new Callable<List<Application>>() {
+            @Override public List<Application> call() throws Exception {
+                return rebindImpl(classLoader, exceptionHandler, mode);
+            }});
+    }
+    
+    private <T> T runInExecutionContext(Callable<T> job) {
+        ExecutionContext ec = BasicExecutionContext.getCurrentExecutionContext();
+        try {
+            if (ec == null) {
+                return managementContext.getServerExecutionContext().submit(job).get();
+            } else {
+                return job.call();
+            }
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    private RebindExceptionHandler newRebindExceptionHandler() {
+        return RebindExceptionHandlerImpl.builder()
                 .danglingRefFailureMode(danglingRefFailureMode)
                 .danglingRefQuorumRequiredHealthy(danglingRefsQuorumRequiredHealthy)
                 .rebindFailureMode(rebindFailureMode)
@@ -512,26 +612,77 @@ public class RebindManagerImpl implements RebindManager {
                 .addPolicyFailureMode(addPolicyFailureMode)
                 .loadPolicyFailureMode(loadPolicyFailureMode)
                 .build();
-        final ManagementNodeState mode = modeO!=null ? modeO : getRebindMode();
+    }
+    
+    /**
+     * Does a read-only rebind, as for the periodic task of hot proxies.
+     * With {@link #READ_ONLY_INCREMENTAL}, this reads the master's record of changes first:
+     * if there are none since the last iteration, this does nothing;
+     * if those changes are all known, only the changed entities are reloaded (see {@link ReadOnlyPartialRebindIteration}),
+     * and the read-only objects for everything else are kept.
+     * Otherwise everything is reloaded, as it is regardless of the record if the master has changed,
+     * or if it has not been for {@link #READ_ONLY_FULL_READ_PERIOD}.
+     */
+    @VisibleForTesting
+    public void rebindReadOnly(final ManagementNodeState mode) {
+        MementoChangeLog previousChangeLog = readOnlyChangeLog;
+        // forgotten until this iteration succeeds, so a failed iteration is followed by a full one
+        readOnlyChangeLog = null;
         
-        if (mode!=ManagementNodeState.MASTER && mode!=ManagementNodeState.HOT_STANDBY && mode!=ManagementNodeState.HOT_BACKUP)
-            throw new IllegalStateException("Must be either master or hot standby/backup to rebind (mode "+mode+")");
-
-        ExecutionContext ec = BasicExecutionContext.getCurrentExecutionContext();
-        if (ec == null) {
-            ec = managementContext.getServerExecutionContext();
-            Task<List<Application>> task = ec.submit(new Callable<List<Application>>() {
-                @Override public List<Application> call() throws Exception {
-                    return rebindImpl(classLoader, exceptionHandler, mode);
+        if (!(persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) ||
+                !Boolean.TRUE.equals(managementContext.getConfig().getConfig(READ_ONLY_INCREMENTAL))) {
+            readOnlyFullCount.incrementAndGet();
+            rebind(null, null, mode);
+            return;
+        }
+        BrooklynMementoPersisterToObjectStore persister = (BrooklynMementoPersisterToObjectStore) persistenceStoreAccess;
+        final RebindExceptionHandler exceptionHandler = newRebindExceptionHandler();
+        
+        // anything not recorded in the change log (e.g. written by a master which does not record changes) is picked up here
+        String masterNodeId = getMasterNodeId();
+        long now = System.currentTimeMillis();
+        Duration fullReadPeriod = managementContext.getConfig().getConfig(READ_ONLY_FULL_READ_PERIOD);
+        boolean fullReadRequired = (masterNodeId!=null && !masterNodeId.equals(readOnlyMasterNodeId))
+                || (fullReadPeriod!=null && readOnlyLastFullReadUtc >= 0 && now - readOnlyLastFullReadUtc >= fullReadPeriod.toMilliseconds());
+        
+        // read before the items, so that the items are at least as recent as the changes recorded
+        MementoChangeLog changeLog = persister.loadChangeLog();
+        final MementoChangeLog.ChangedItems changes = (fullReadRequired || !isSameEpoch(changeLog, previousChangeLog)) ? null
+                : changeLog.getChangesSince(previousChangeLog.getSequence());
+        if (changes!=null && changes.size()==0) {
+            readOnlySkippedCount.incrementAndGet();
+            readOnlyChangeLog = changeLog;
+            return;
+        }
+        if (changes!=null && ReadOnlyPartialRebindIteration.isApplicable(changes)) {
+            runInExecutionContext(new Callable<Void>() {
+                @Override public Void call() {
+                    ReadOnlyPartialRebindIteration iteration = new ReadOnlyPartialRebindIteration(RebindManagerImpl.this, mode, 
+                        managementContext.getCatalogClassLoader(), exceptionHandler,
+                        rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess);
+                    iteration.setChanges(changes);
+                    iteration.run();
+                    return null;
                 }});
-            try {
-                return task.get();
-            } catch (Exception e) {
-                throw Exceptions.propagate(e);
-            }
+            readOnlyIncrementalCount.incrementAndGet();
         } else {
-            return rebindImpl(classLoader, exceptionHandler, mode);
+            rebind(null, exceptionHandler, mode);
+            readOnlyFullCount.incrementAndGet();
+            readOnlyLastFullReadUtc = now;
         }
+        readOnlyChangeLog = changeLog;
+        readOnlyMasterNodeId = masterNodeId;
+    }
+    
+    @Nullable
+    private String getMasterNodeId() {
+        HighAvailabilityManager haManager = managementContext.getHighAvailabilityManager();
+        ManagementPlaneSyncRecord record = haManager==null ? null : haManager.getLastManagementPlaneSyncRecord();
+        return record==null ? null : record.getMasterNodeId();
+    }
+    
+    private static boolean isSameEpoch(@Nullable MementoChangeLog changeLog, @Nullable MementoChangeLog previousChangeLog) {
+        return changeLog!=null && previousChangeLog!=null && changeLog.getEpoch().equals(previousChangeLog.getEpoch());
     }
     
     @Override
@@ -674,10 +825,22 @@ public class RebindManagerImpl implements RebindManager {
         Map<String,Object> result = MutableMap.of();
 
         result.put("rebind", rebindMetrics.asMap());
-        result.put("persist", persistMetrics.asMap());
+        Map<String,Object> persist = persistMetrics.asMap();
+        PeriodicDeltaChangeListener listener = persistenceRealChangeListener;
+        if (listener!=null) {
+            persist.put("queueDepth", listener.getQueueDepth());
+            persist.put("lag", listener.getLag().toMilliseconds());
+            persist.put("period", listener.getCurrentPeriod().toMilliseconds());
+        }
+        result.put("persist", persist);
         
-        if (readOnlyRebindCount.get()>=0)
+        if (readOnlyRebindCount.get()>=0) {
             result.put("rebindReadOnlyCount", readOnlyRebindCount);
+            result.put("rebindReadOnlyIterations", MutableMap.of(
+                "skipped", readOnlySkippedCount.get(),
+                "incremental", readOnlyIncrementalCount.get(),
+                "full", readOnlyFullCount.get()));
+        }
         
         // include first rebind counts, so we know whether we rebinded or not
         result.put("firstRebindCounts", MutableMap.of(
@@ -21,14 +21,25 @@ package org.apache.brooklyn.core.sensor;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.core.sensor.SensorPublishPolicy.Decision;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,9 +51,18 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * A {@link Map} of {@link Entity} attribute values.
+ * <p>
+ * By default values are kept in an insertion-ordered {@link ConcurrentMap}, so reads and updates
+ * do not contend with each other, {@link #modify(AttributeSensor, Function)} is a compare-and-set,
+ * and {@link #asMap()} is a consistent-per-entry snapshot in insertion order.
+ * If a non-concurrent (e.g. synchronized) storage map is supplied, the previous behaviour
+ * of synchronizing on that map for compound operations is used.
+ * <p>
+ * Events are published for each update unless a {@link SensorPublishPolicy} applies to the sensor.
  */
 public final class AttributeMap {
 
@@ -56,6 +76,17 @@ public final class AttributeMap {
 
     // Assumed to be something like a ConcurrentMap passed in.
     private final Map<Collection<String>, Object> values;
+    // the same as values if it is concurrent, otherwise null
+    private final ConcurrentMap<Collection<String>, Object> concurrentValues;
+    // monitor exposed by getSynchObjectInternal: values if that is not concurrent, otherwise a dedicated object
+    private final Object synchObject;
+    
+    // keyed by sensor name; NO_PUBLISH_POLICY where every change is published
+    private final ConcurrentMap<String, SensorPublishPolicy.State> publishStates = new ConcurrentHashMap<String, SensorPublishPolicy.State>();
+    private static final SensorPublishPolicy.State NO_PUBLISH_POLICY = new SensorPublishPolicy.State(SensorPublishPolicy.ALWAYS);
+
+    // keyed by path; held across the update and the publish in modify, so that events are emitted in the order values were set
+    private final Striped<Lock> modifyLocks = Striped.lazyWeakLock(16);
 
     /**
      * Creates a new AttributeMap.
@@ -64,9 +95,8 @@ public final class AttributeMap {
      * @throws NullPointerException if entity is null
      */
     public AttributeMap(AbstractEntity entity) {
-        // Not using ConcurrentMap, because want to (continue to) allow null values.
-        // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
-        this(entity, Collections.synchronizedMap(Maps.<Collection<String>, Object>newLinkedHashMap()));
+        // Null values are stored as Marker.NULL, so a ConcurrentMap can be used
+        this(entity, new InsertionOrderedConcurrentMap<Collection<String>, Object>());
     }
 
     /**
@@ -74,36 +104,54 @@ public final class AttributeMap {
      *
      * @param entity  the Entity this AttributeMap belongs to.
      * @param storage the Map in which to store the values - should be concurrent or synchronized.
+     *   If it is a {@link ConcurrentMap}, compound operations use its atomic methods rather than
+     *   synchronizing on it.
      * @throws NullPointerException if entity is null
      */
+    @SuppressWarnings("unchecked")
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.values = checkNotNull(storage, "storage map must not be null");
+        this.concurrentValues = (storage instanceof ConcurrentMap) ? (ConcurrentMap<Collection<String>, Object>) storage : null;
+        this.synchObject = (concurrentValues!=null) ? new Object() : values;
     }
 
-    /** Internal object this class synchs on when modifying values.
-     * Exposed for internal usage to synchronize on this to enforce canonical order.
-     * @return
+    /** Internal object for callers wanting to make compound changes (e.g. to an entity's children or a group's members,
+     * and the attributes describing them) atomic with respect to each other, and to enforce a canonical lock order.
+     * <p>
+     * If the storage is not concurrent this is the storage map, which this class synchs on when modifying values.
+     * Otherwise it is a dedicated object which attribute updates do <em>not</em> take, so holding it does not
+     * block other attribute writes; callers needing exclusion must all synchronize on it.
      */
     @Beta
     public Object getSynchObjectInternal() {
-        return values;
+        return synchObject;
     }
     
     public Map<Collection<String>, Object> asRawMap() {
+        if (concurrentValues!=null) {
+            return ImmutableMap.copyOf(concurrentValues);
+        }
         synchronized (values) {
             return ImmutableMap.copyOf(values);
         }
     }
 
     public Map<String, Object> asMap() {
-        Map<String, Object> result = Maps.newLinkedHashMap();
+        if (concurrentValues!=null) {
+            return asMap(concurrentValues);
+        }
         synchronized (values) {
-            for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-                String sensorName = Joiner.on('.').join(entry.getKey());
-                Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-                result.put(sensorName, val);
-            }
+            return asMap(values);
+        }
+    }
+
+    private Map<String, Object> asMap(Map<Collection<String>, Object> source) {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        for (Map.Entry<Collection<String>, Object> entry : source.entrySet()) {
+            String sensorName = Joiner.on('.').join(entry.getKey());
+            Object val = (isNull(entry.getValue())) ? null : entry.getValue();
+            result.put(sensorName, val);
         }
         return result;
     }
@@ -140,9 +188,78 @@ public final class AttributeMap {
 
     public <T> T update(AttributeSensor<T> attribute, T newValue) {
         T oldValue = updateWithoutPublishing(attribute, newValue);
-        entity.emitInternal(attribute, newValue);
+        publish(attribute, newValue);
         return oldValue;
     }
+
+    private <T> void publish(AttributeSensor<T> attribute, T newValue) {
+        SensorPublishPolicy.State state = getPublishState(attribute);
+        if (state == NO_PUBLISH_POLICY) {
+            entity.emitInternal(attribute, newValue);
+            return;
+        }
+        Decision decision = state.onUpdate(newValue, System.currentTimeMillis());
+        if (decision == Decision.DEFER && !entity.getManagementSupport().isDeployed()) {
+            // can't schedule a later publication, so publish now
+            decision = state.onDeferredDue(newValue, System.currentTimeMillis()) ? Decision.PUBLISH : Decision.SUPPRESS;
+        }
+        switch (decision) {
+        case PUBLISH:
+            entity.emitInternal(attribute, newValue);
+            break;
+        case DEFER:
+            scheduleDeferredPublish(attribute, state);
+            break;
+        default:
+            if (log.isTraceEnabled()) log.trace("not publishing attribute {}={} on {}, due to publish policy {}", new Object[] {attribute.getName(), newValue, entity, state.policy});
+        }
+    }
+
+    private SensorPublishPolicy.State getPublishState(AttributeSensor<?> attribute) {
+        SensorPublishPolicy.State state = publishStates.get(attribute.getName());
+        if (state == null) {
+            SensorPublishPolicy policy = resolvePublishPolicy(attribute);
+            state = (policy == null || policy.isAlways()) ? NO_PUBLISH_POLICY : new SensorPublishPolicy.State(policy);
+            SensorPublishPolicy.State existing = publishStates.putIfAbsent(attribute.getName(), state);
+            if (existing != null) state = existing;
+        }
+        return state;
+    }
+
+    private SensorPublishPolicy resolvePublishPolicy(AttributeSensor<?> attribute) {
+        if (attribute instanceof BasicAttributeSensor && ((BasicAttributeSensor<?>)attribute).getPublishPolicy() != null) {
+            return ((BasicAttributeSensor<?>)attribute).getPublishPolicy();
+        }
+        try {
+            Map<String, String> policies = entity.config().get(SensorPublishPolicy.PUBLISH_POLICIES);
+            if (policies == null || !policies.containsKey(attribute.getName())) return null;
+            return SensorPublishPolicy.parse(policies.get(attribute.getName()));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Invalid publish policy for "+attribute.getName()+" on "+entity+"; publishing every change: "+e);
+            return null;
+        }
+    }
+
+    private <T> void scheduleDeferredPublish(final AttributeSensor<T> attribute, final SensorPublishPolicy.State state) {
+        final Runnable publishLatest = new Runnable() {
+            @Override public void run() {
+                if (!entity.getManagementSupport().isDeployed()) return;
+                T currentValue = getValue(attribute);
+                if (state.onDeferredDue(currentValue, System.currentTimeMillis())) {
+                    entity.emitInternal(attribute, currentValue);
+                }
+            }};
+        Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+            @Override public Task<?> call() {
+                return Tasks.builder().dynamic(false).displayName("publishing "+attribute.getName())
+                    .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG).body(publishLatest).build();
+            }};
+        entity.getExecutionContext().submit(new ScheduledTask(MutableMap.of(
+                "displayName", "deferred publish of "+attribute.getName(),
+                "tags", MutableSet.of(BrooklynTaskTags.TRANSIENT_TASK_TAG)), taskFactory)
+            .delay(state.getDeferredDelay(System.currentTimeMillis())));
+    }
     
     public <T> T updateWithoutPublishing(AttributeSensor<T> attribute, T newValue) {
         if (log.isTraceEnabled()) {
@@ -160,9 +277,17 @@ public final class AttributeMap {
     }
 
     /**
-     * Where atomicity is desired, the methods in this class synchronize on the {@link #values} map.
+     * Where atomicity is desired, the methods in this class synchronize on the {@link #values} map,
+     * or if that is concurrent then the new value is compare-and-set, retrying if there was
+     * a concurrent change (so the modifier may be called more than once, and should not have side-effects
+     * other than recording the last value it returned).
+     * In both cases the update and the publishing of the new value happen under the same lock, so concurrent
+     * modifications of an attribute are published in the order they were applied.
      */
     public <T> T modify(AttributeSensor<T> attribute, Function<? super T, Maybe<T>> modifier) {
+        if (concurrentValues!=null) {
+            return modifyConcurrently(attribute, modifier);
+        }
         synchronized (values) {
             T oldValue = getValue(attribute);
             Maybe<? extends T> newValue = modifier.apply(oldValue);
@@ -177,11 +302,49 @@ public final class AttributeMap {
         }
     }
 
+    private <T> T modifyConcurrently(AttributeSensor<T> attribute, Function<? super T, Maybe<T>> modifier) {
+        Collection<String> path = attribute.getNameParts();
+        checkPath(path);
+        Lock lock = modifyLocks.get(path);
+        lock.lock();
+        try {
+            return modifyConcurrentlyLocked(attribute, path, modifier);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T modifyConcurrentlyLocked(AttributeSensor<T> attribute, Collection<String> path, Function<? super T, Maybe<T>> modifier) {
+        // plain updates do not take the lock, so still compare-and-set
+        while (true) {
+            Object rawOldValue = concurrentValues.get(path);
+            T oldValue = (T) TypeCoercions.coerce(isNull(rawOldValue) ? null : rawOldValue, attribute.getType());
+            Maybe<? extends T> newValue = modifier.apply(oldValue);
+
+            if (!newValue.isPresent()) {
+                if (log.isTraceEnabled()) log.trace("modified attribute {} unchanged; not emitting on {}", new Object[] {attribute.getName(), newValue, this});
+                return oldValue;
+            }
+            Object rawNewValue = (newValue.get()==null) ? typedNull() : newValue.get();
+            boolean set = (rawOldValue==null) ? concurrentValues.putIfAbsent(path, rawNewValue)==null
+                : concurrentValues.replace(path, rawOldValue, rawNewValue);
+            if (set) {
+                if (log.isTraceEnabled()) log.trace("modified attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+                publish(attribute, newValue.get());
+                return (isNull(rawOldValue)) ? null : (T) rawOldValue;
+            }
+            // concurrently changed; try again with the latest value
+        }
+    }
+
     public void remove(AttributeSensor<?> attribute) {
         BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
             "removing attribute {} on {}", attribute.getName(), entity);
 
         remove(attribute.getNameParts());
+        // if set again, it is treated as new
+        publishStates.remove(attribute.getName());
     }
 
     // TODO path must be ordered(and legal to contain duplicates like "a.b.a"; list would be better
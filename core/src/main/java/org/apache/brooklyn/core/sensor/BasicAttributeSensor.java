@@ -32,6 +32,7 @@ public class BasicAttributeSensor<T> extends BasicSensor<T> implements Attribute
     private static final long serialVersionUID = -2493209215974820300L;
     
     private final SensorPersistenceMode persistence;
+    private final SensorPublishPolicy publishPolicy;
 
     public BasicAttributeSensor(Class<T> type, String name) {
         this(type, name, name);
@@ -55,8 +56,12 @@ public class BasicAttributeSensor<T> extends BasicSensor<T> implements Attribute
         this(null, typeToken, name, description, persistence);
     }
     public BasicAttributeSensor(Class<T> type, TypeToken<T> typeToken, String name, String description, SensorPersistenceMode persistence) {
+        this(type, typeToken, name, description, persistence, null);
+    }
+    public BasicAttributeSensor(Class<T> type, TypeToken<T> typeToken, String name, String description, SensorPersistenceMode persistence, SensorPublishPolicy publishPolicy) {
         super(type, typeToken, name, description);
         this.persistence = checkNotNull(persistence, "persistence");
+        this.publishPolicy = publishPolicy;
     }
 
     @Override
@@ -64,4 +69,9 @@ public class BasicAttributeSensor<T> extends BasicSensor<T> implements Attribute
         // persistence could be null if deserializing state written by an old version; in which case default to 'required'
         return (persistence != null) ? persistence : SensorPersistenceMode.REQUIRED;
     }
+
+    /** the policy for publishing changes to this sensor, or null if not set (in which case the entity's config may give one) */
+    public SensorPublishPolicy getPublishPolicy() {
+        return publishPolicy;
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.base.Objects;
+
+/**
+ * A {@link ConcurrentMap} which iterates in insertion order, as a {@link LinkedHashMap} does
+ * (replacing the value for a key keeps its position; removing and re-adding moves it to the end).
+ * <p>
+ * Reads and writes are lock-free, as with {@link ConcurrentHashMap}; each entry records
+ * a sequence number when first added, and {@link #entrySet()} (and hence the key and value views)
+ * returns an ordered, unmodifiable snapshot. That makes iteration O(n log n), which suits
+ * {@link AttributeMap} where values are read and written far more often than the whole map is listed.
+ * Null keys and values are not permitted.
+ */
+class InsertionOrderedConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private static final class Slot<V> {
+        final long order;
+        final V value;
+        Slot(long order, V value) {
+            this.order = order;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Map.Entry<?, ? extends Slot<?>>> BY_ORDER = new Comparator<Map.Entry<?, ? extends Slot<?>>>() {
+        @Override
+        public int compare(Map.Entry<?, ? extends Slot<?>> e1, Map.Entry<?, ? extends Slot<?>> e2) {
+            return Long.compare(e1.getValue().order, e2.getValue().order);
+        }
+    };
+
+    // slots are compared by identity in the conditional operations, so a slot is never reused
+    private final ConcurrentHashMap<K, Slot<V>> slots = new ConcurrentHashMap<K, Slot<V>>();
+    private final AtomicLong nextOrder = new AtomicLong();
+
+    @Override
+    public V get(Object key) {
+        Slot<V> slot = slots.get(key);
+        return slot==null ? null : slot.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slots.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkNotNull(value, "value");
+        while (true) {
+            Slot<V> old = slots.get(key);
+            if (old==null) {
+                if (slots.putIfAbsent(key, new Slot<V>(nextOrder.incrementAndGet(), value))==null) return null;
+            } else {
+                if (slots.replace(key, old, new Slot<V>(old.order, value))) return old.value;
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkNotNull(value, "value");
+        Slot<V> old = slots.putIfAbsent(key, new Slot<V>(nextOrder.incrementAndGet(), value));
+        return old==null ? null : old.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Slot<V> old = slots.remove(key);
+        return old==null ? null : old.value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        while (true) {
+            Slot<V> old = slots.get(key);
+            if (old==null || !Objects.equal(old.value, value)) return false;
+            if (slots.remove(key, old)) return true;
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(newValue, "value");
+        while (true) {
+            Slot<V> old = slots.get(key);
+            if (old==null || !Objects.equal(old.value, oldValue)) return false;
+            if (slots.replace(key, old, new Slot<V>(old.order, newValue))) return true;
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(value, "value");
+        while (true) {
+            Slot<V> old = slots.get(key);
+            if (old==null) return null;
+            if (slots.replace(key, old, new Slot<V>(old.order, value))) return old.value;
+        }
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+    }
+
+    /** returns an unmodifiable snapshot of the entries, in insertion order */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        List<Map.Entry<K, Slot<V>>> snapshot = MutableList.copyOf(slots.entrySet());
+        Collections.sort(snapshot, BY_ORDER);
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (Map.Entry<K, Slot<V>> entry : snapshot) {
+            result.put(entry.getKey(), entry.getValue().value);
+        }
+        return Collections.unmodifiableMap(result).entrySet();
+    }
+}
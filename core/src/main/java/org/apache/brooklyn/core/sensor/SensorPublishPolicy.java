@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Splitter;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Controls when a change to an attribute is published as a sensor event.
+ * The new value is always stored (so <code>getAttribute</code> sees it immediately);
+ * a policy only reduces the events emitted, and so the work done by subscribers.
+ * <ul>
+ *   <li><b>suppressEqual</b> - do not publish a value equal to the last one published
+ *   <li><b>minPeriod</b> - publish at most once in this period; a change within the period
+ *       is published (with the latest value at that time) when the period ends
+ *   <li><b>minDelta</b> - for numeric values, do not publish unless the value differs
+ *       from the last one published by at least this amount
+ * </ul>
+ * A policy can be set on a sensor with {@link Sensors.Builder#publishPolicy(SensorPublishPolicy)},
+ * or per entity with the {@link #PUBLISH_POLICIES} config, mapping sensor names to policies in the form
+ * parsed by {@link #parse(String)}, e.g. <code>suppressEqual, minPeriod=5s</code>.
+ * The sensor's own policy takes precedence; either is looked up when the sensor is first set on the entity.
+ */
+@Beta
+public final class SensorPublishPolicy implements Serializable {
+
+    private static final long serialVersionUID = 7512963302746851217L;
+
+    public static final ConfigKey<Map<String, String>> PUBLISH_POLICIES = ConfigKeys.newConfigKey(
+            new TypeToken<Map<String, String>>() {},
+            "sensor.publishPolicies",
+            "Publish policies for attributes on this entity, keyed by sensor name, "
+            + "each a comma-separated list of suppressEqual, minPeriod=<duration> and minDelta=<number>");
+
+    /** publishes every change (the default) */
+    public static final SensorPublishPolicy ALWAYS = new SensorPublishPolicy(false, null, null);
+
+    private final boolean suppressEqual;
+    private final Duration minPeriod;
+    private final Double minDelta;
+
+    private SensorPublishPolicy(boolean suppressEqual, Duration minPeriod, Double minDelta) {
+        this.suppressEqual = suppressEqual;
+        this.minPeriod = minPeriod;
+        this.minDelta = minDelta;
+    }
+
+    public static SensorPublishPolicy suppressEqual() {
+        return ALWAYS.andSuppressEqual();
+    }
+
+    public static SensorPublishPolicy minPeriod(Duration period) {
+        return ALWAYS.andMinPeriod(period);
+    }
+
+    public static SensorPublishPolicy minDelta(double delta) {
+        return ALWAYS.andMinDelta(delta);
+    }
+
+    public SensorPublishPolicy andSuppressEqual() {
+        return new SensorPublishPolicy(true, minPeriod, minDelta);
+    }
+
+    public SensorPublishPolicy andMinPeriod(Duration period) {
+        return new SensorPublishPolicy(suppressEqual, period, minDelta);
+    }
+
+    public SensorPublishPolicy andMinDelta(double delta) {
+        return new SensorPublishPolicy(suppressEqual, minPeriod, delta);
+    }
+
+    /**
+     * Parses a comma-separated list of <code>suppressEqual</code>, <code>minPeriod=&lt;duration&gt;</code>
+     * and <code>minDelta=&lt;number&gt;</code>; blank gives {@link #ALWAYS}.
+     */
+    public static SensorPublishPolicy parse(String spec) {
+        SensorPublishPolicy result = ALWAYS;
+        if (Strings.isBlank(spec)) return result;
+        for (String part : Splitter.on(',').trimResults().omitEmptyStrings().split(spec)) {
+            List<String> kv = MutableList.copyOf(Splitter.on('=').trimResults().limit(2).split(part));
+            String key = kv.get(0);
+            String value = kv.size() > 1 ? kv.get(1) : null;
+            if (key.equalsIgnoreCase("suppressEqual")) {
+                result = result.andSuppressEqual();
+            } else if (key.equalsIgnoreCase("minPeriod") && value != null) {
+                result = result.andMinPeriod(Duration.of(value));
+            } else if (key.equalsIgnoreCase("minDelta") && value != null) {
+                result = result.andMinDelta(Double.parseDouble(value));
+            } else {
+                throw new IllegalArgumentException("Invalid sensor publish policy '"+part+"' in '"+spec+"'");
+            }
+        }
+        return result;
+    }
+
+    public boolean isAlways() {
+        return !suppressEqual && minPeriod == null && minDelta == null;
+    }
+
+    public boolean isSuppressEqual() {
+        return suppressEqual;
+    }
+
+    public Duration getMinPeriod() {
+        return minPeriod;
+    }
+
+    public Double getMinDelta() {
+        return minDelta;
+    }
+
+    /** whether a change from the last published value to this one is too small to publish */
+    boolean isInsignificant(Object lastPublished, Object newValue) {
+        if (suppressEqual && Objects.equal(lastPublished, newValue)) return true;
+        if (minDelta != null && lastPublished instanceof Number && newValue instanceof Number) {
+            double delta = Math.abs(((Number)newValue).doubleValue() - ((Number)lastPublished).doubleValue());
+            if (delta < minDelta) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SensorPublishPolicy)) return false;
+        SensorPublishPolicy o = (SensorPublishPolicy) obj;
+        return suppressEqual == o.suppressEqual && Objects.equal(minPeriod, o.minPeriod) && Objects.equal(minDelta, o.minDelta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(suppressEqual, minPeriod, minDelta);
+    }
+
+    @Override
+    public String toString() {
+        if (isAlways()) return "always";
+        List<String> parts = MutableList.of();
+        if (suppressEqual) parts.add("suppressEqual");
+        if (minPeriod != null) parts.add("minPeriod="+minPeriod);
+        if (minDelta != null) parts.add("minDelta="+minDelta);
+        return Strings.join(parts, ", ");
+    }
+
+    enum Decision { PUBLISH, SUPPRESS, DEFER }
+
+    /** Tracks what has been published for one sensor on one entity, applying the policy. */
+    static class State {
+        final SensorPublishPolicy policy;
+        private boolean published = false;
+        private Object lastPublished;
+        private long lastPublishTime;
+        private boolean deferred = false;
+
+        State(SensorPublishPolicy policy) {
+            this.policy = policy;
+        }
+
+        /** called when the value is set; if {@link Decision#DEFER} the caller should call {@link #onDeferredDue(Object, long)} after {@link #getDeferredDelay(long)} */
+        synchronized Decision onUpdate(Object newValue, long nowMillis) {
+            if (published) {
+                if (policy.isInsignificant(lastPublished, newValue)) return Decision.SUPPRESS;
+                if (policy.minPeriod != null && nowMillis - lastPublishTime < policy.minPeriod.toMilliseconds()) {
+                    // a pending publication will pick up the latest value
+                    if (deferred) return Decision.SUPPRESS;
+                    deferred = true;
+                    return Decision.DEFER;
+                }
+            }
+            recordPublished(newValue, nowMillis);
+            return Decision.PUBLISH;
+        }
+
+        synchronized Duration getDeferredDelay(long nowMillis) {
+            return Duration.millis(Math.max(0, lastPublishTime + policy.minPeriod.toMilliseconds() - nowMillis));
+        }
+
+        /** returns whether the current value should now be published */
+        synchronized boolean onDeferredDue(Object currentValue, long nowMillis) {
+            deferred = false;
+            if (policy.isInsignificant(lastPublished, currentValue)) return false;
+            recordPublished(currentValue, nowMillis);
+            return true;
+        }
+
+        private void recordPublished(Object value, long nowMillis) {
+            published = true;
+            lastPublished = value;
+            lastPublishTime = nowMillis;
+        }
+    }
+}
@@ -58,6 +58,7 @@ public class Sensors {
         private TypeToken<T> typeT;
         private String description;
         private SensorPersistenceMode persistence = SensorPersistenceMode.REQUIRED;
+        private SensorPublishPolicy publishPolicy;
         
         protected Builder() { // use builder(type, name) instead
         }
@@ -76,8 +77,12 @@ public class Sensors {
         public Builder<T> persistence(SensorPersistenceMode val) {
             this.persistence = val; return this;
         }
+        /** @see SensorPublishPolicy */
+        public Builder<T> publishPolicy(SensorPublishPolicy val) {
+            this.publishPolicy = val; return this;
+        }
         public AttributeSensor<T> build() {
-            return new BasicAttributeSensor<T>(typeC, typeT, name, description, persistence);
+            return new BasicAttributeSensor<T>(typeC, typeT, name, description, persistence, publishPolicy);
         }
     }
 
@@ -34,6 +34,8 @@ import org.apache.brooklyn.util.os.Os;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+
 /** Config keys for the brooklyn server */
 public class BrooklynServerConfig {
 
@@ -66,6 +68,12 @@ public class BrooklynServerConfig {
         "Optional location spec string for an object store (e.g. jclouds:swift:URL) where persisted state should be kept; "
         + "if blank or not supplied, the file system is used"); 
 
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTENCE_FILE_JOURNAL = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.persistence.file.journal",
+        "Whether persisted state on the file system should be kept in an append-only journal (JournalledFileBasedObjectStore) "
+        + "rather than a file per object; ignored for other object stores", false);
+
     public static final ConfigKey<String> PERSISTENCE_BACKUPS_DIR = newStringConfigKey(
         "brooklyn.persistence.backups.dir", 
         "Directory or container name for writing backups of persisted state; "
@@ -23,10 +23,12 @@ import static com.google.common.base.Preconditions.checkState;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
@@ -34,11 +36,18 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.enricher.AbstractEnricher;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.entity.trait.Changeable;
 import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.text.StringPredicates;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -99,6 +108,12 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
                     "may only apply if no value filter set", 
             false);
 
+    public static final ConfigKey<Duration> PUBLISH_PERIOD = ConfigKeys.newConfigKey(
+            Duration.class,
+            "enricher.aggregating.publishPeriod",
+            "If set, the aggregate is published at most once in this period (with the latest values), "
+            + "rather than on every change; useful where there are many frequently-changing producers");
+
     protected Entity producer;
     protected Sensor<U> targetSensor;
     protected T defaultMemberValue;
@@ -107,6 +122,11 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
     protected Boolean fromChildren;
     protected Predicate<? super Entity> entityFilter;
     protected Predicate<? super T> valueFilter;
+    protected Duration publishPeriod;
+    
+    private final Object publishMutex = new Object();
+    private long lastPublishTime;
+    private boolean publishScheduled;
     
     public AbstractAggregator() {}
 
@@ -156,6 +176,7 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
         this.fromChildren = Maybe.fromNullable(getConfig(FROM_CHILDREN)).or(fromChildren);
         this.entityFilter = (Predicate<? super Entity>) (getConfig(ENTITY_FILTER) == null ? Predicates.alwaysTrue() : getConfig(ENTITY_FILTER));
         this.valueFilter = (Predicate<? super T>) (getConfig(VALUE_FILTER) == null ? getDefaultValueFilter() : getConfig(VALUE_FILTER));
+        this.publishPeriod = getConfig(PUBLISH_PERIOD);
         
         setEntityLoadingTargetConfig();
     }
@@ -266,8 +287,10 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     /**
      * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * If {@link #PUBLISH_PERIOD} is set, publishing may be deferred (see {@link #deferPublishIfTooSoon()}).
      */
     protected void onUpdated() {
+        if (deferPublishIfTooSoon()) return;
         try {
             emit(targetSensor, compute());
         } catch (Throwable t) {
@@ -278,4 +301,44 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     protected abstract Object compute();
     
+    /**
+     * Returns false if the aggregate should be published now, recording that it is being published; or
+     * returns true if it was published less than {@link #PUBLISH_PERIOD} ago, in which case {@link #onUpdated()}
+     * is called again when the period has elapsed (once, however many changes there are in the meantime).
+     * Always returns false if no period is set.
+     */
+    protected boolean deferPublishIfTooSoon() {
+        if (publishPeriod==null || !publishPeriod.isPositive()) return false;
+        long now = System.currentTimeMillis();
+        long delay;
+        synchronized (publishMutex) {
+            if (publishScheduled) return true;
+            delay = lastPublishTime + publishPeriod.toMilliseconds() - now;
+            if (delay <= 0) {
+                lastPublishTime = now;
+                return false;
+            }
+            publishScheduled = true;
+        }
+        // some subclasses publish other sensors rather than a target sensor
+        final String published = (targetSensor!=null) ? targetSensor.getName() : getDisplayName();
+        final Runnable publishLatest = new Runnable() {
+            @Override public void run() {
+                synchronized (publishMutex) {
+                    publishScheduled = false;
+                }
+                if (isRunning()) onUpdated();
+            }};
+        Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+            @Override public Task<?> call() {
+                return Tasks.builder().dynamic(false).displayName("publishing "+published)
+                    .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG).body(publishLatest).build();
+            }};
+        ((EntityInternal)entity).getExecutionContext().submit(new ScheduledTask(MutableMap.of(
+                "displayName", "deferred publish of "+published,
+                "tags", MutableSet.of(BrooklynTaskTags.TRANSIENT_TASK_TAG)), taskFactory)
+            .delay(Duration.millis(delay)));
+        return true;
+    }
+    
 }
@@ -32,6 +32,7 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,7 +102,10 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     } else {
                         initialVal = null;
                     }
-                    vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    Object newVal = initialVal != null ? initialVal : defaultMemberValue;
+                    boolean hadValue = vs.containsKey(producer);
+                    vs.put(producer, newVal);
+                    onValueChanged(sensor, producer, hadValue ? Maybe.of(vo) : Maybe.absent(), Maybe.of(newVal));
                     // NB: see notes on possible race, in Aggregator#onProducerAdded
                 }
             }
@@ -113,8 +117,10 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer)) {
+                    Object oldVal = vs.remove(producer);
+                    onValueChanged(sensor, producer, Maybe.of(oldVal), Maybe.absent());
+                }
             }
         }
         onUpdated();
@@ -129,13 +135,41 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                 if (vs==null) {
                     LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
                 } else {
-                    vs.put(e, event.getValue());
+                    boolean hadValue = vs.containsKey(e);
+                    Object oldVal = vs.put(e, event.getValue());
+                    onValueChanged(event.getSensor(), e, hadValue ? Maybe.of(oldVal) : Maybe.absent(), Maybe.of(event.getValue()));
                 }
             }
             onUpdated();
         }
     }
 
+    /**
+     * Called when the value recorded for a producer changes, before {@link #onUpdated()}, while synchronized
+     * on the values (so calls are in order); absent means no value recorded (as distinct from a null value).
+     * Subclasses can override this to maintain their aggregate incrementally, instead of recomputing it
+     * from all the values in {@link #compute()}. Does nothing by default.
+     */
+    protected void onValueChanged(Sensor<?> sensor, Entity producer, Maybe<Object> oldValue, Maybe<Object> newValue) {
+    }
+
+    /**
+     * The mutex held while values are recorded and {@link #onValueChanged(Sensor, Entity, Maybe, Maybe)} is called;
+     * subclasses can hold it to read state they maintain there consistently.
+     */
+    protected Object getValuesMutex() {
+        return values;
+    }
+
+    /** the value recorded for the given producer (uncoerced), or absent if none is recorded */
+    protected Maybe<Object> getRecordedValue(Sensor<?> sensor, Entity producer) {
+        synchronized (values) {
+            Map<Entity,Object> vs = values.get(sensor.getName());
+            if (vs==null || !vs.containsKey(producer)) return Maybe.absent();
+            return Maybe.of(vs.get(producer));
+        }
+    }
+
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
         Map<Entity, T> valuesCopy = copyValues(sensor);
         return coerceValues(valuesCopy, sensor.getType());
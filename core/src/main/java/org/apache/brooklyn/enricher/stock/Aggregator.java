@@ -34,11 +34,12 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.enricher.stock.MathAggregatorFunctions.Accumulator;
+import org.apache.brooklyn.enricher.stock.MathAggregatorFunctions.IncrementallyComputable;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
-import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,10 +90,19 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     /**
      * Users of values should either on it synchronize when iterating over its entries or use
      * copyOfValues to obtain an immutable copy of the map.
+     * It should be modified only with {@link #putValue(Entity, Object)} and {@link #removeValue(Entity)},
+     * so that any {@link #accumulator} is kept up to date.
      */
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * If the transformation is {@link IncrementallyComputable}, the aggregate of the (filtered) {@link #values},
+     * updated as each value changes rather than recomputed from all values; null otherwise.
+     * Guarded by {@link #values}.
+     */
+    private Accumulator<?> accumulator;
+
     public Aggregator() {}
 
     @Override
@@ -122,6 +132,13 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        synchronized (values) {
+            accumulator = (transformation instanceof IncrementallyComputable) ? ((IncrementallyComputable<?>)transformation).newAccumulator() : null;
+            for (T value : values.values()) {
+                accumulate(value, true);
+            }
+        }
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -203,7 +220,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                putValue(producer, initialVal != null ? initialVal : defaultMemberValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -216,7 +233,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        removeValue(producer);
         onUpdated();
     }
 
@@ -225,7 +242,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                putValue(e, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -233,19 +250,44 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         onUpdated();
     }
 
-    @Override
-    protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting aggregate for enricher "+this, t);
-            throw Exceptions.propagate(t);
+    /** sets the value for the given producer, updating the {@link #accumulator} if there is one */
+    protected void putValue(Entity producer, T value) {
+        synchronized (values) {
+            boolean hadValue = values.containsKey(producer);
+            T oldValue = values.put(producer, value);
+            if (hadValue) accumulate(oldValue, false);
+            accumulate(value, true);
+        }
+    }
+    
+    /** removes the value for the given producer, updating the {@link #accumulator} if there is one */
+    protected void removeValue(Entity producer) {
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                accumulate(values.remove(producer), false);
+            }
+        }
+    }
+    
+    private void accumulate(T value, boolean add) {
+        if (accumulator==null || !valueFilter.apply(value)) return;
+        if (value!=null && !(value instanceof Number)) {
+            // not something the accumulator can take; compute from all values instead
+            LOG.debug("{} computing aggregate from all values, as value {} is not a number", this, value);
+            accumulator = null;
+            return;
+        }
+        if (add) {
+            accumulator.add((Number)value);
+        } else {
+            accumulator.remove((Number)value);
         }
     }
     
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (accumulator!=null) return accumulator.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
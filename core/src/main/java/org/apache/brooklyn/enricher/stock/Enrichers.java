@@ -40,6 +40,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -201,6 +202,7 @@ public class Enrichers {
         protected Predicate<Object> valueFilter;
         protected Object defaultValueForUnreportedSensors;
         protected Object valueToReportIfNoSensors;
+        protected Duration publishPeriod;
 
         public AbstractAggregatorBuilder(AttributeSensor<S> aggregating) {
             super(Aggregator.class);
@@ -263,7 +265,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return MathAggregatorFunctions.computingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken)publishing.getTypeToken());
                 }
             };
             return self();
@@ -274,7 +276,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return MathAggregatorFunctions.computingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken)publishing.getTypeToken());
                 }
             };
             return self();
@@ -299,6 +301,11 @@ public class Enrichers {
             this.excludingBlank = true;
             return self();
         }
+        /** publishes at most once in the given period, rather than on every change */
+        public B publishPeriod(Duration val) {
+            this.publishPeriod = val;
+            return self();
+        }
         @Override
         protected String getDefaultUniqueTag() {
             if (publishing==null) return null;
@@ -320,6 +327,7 @@ public class Enrichers {
                             .putIfNotNull(Aggregator.ENTITY_FILTER, entityFilter)
                             .putIfNotNull(Aggregator.VALUE_FILTER, valueFilter)
                             .putIfNotNull(Aggregator.DEFAULT_MEMBER_VALUE, defaultValueForUnreportedSensors)
+                            .putIfNotNull(Aggregator.PUBLISH_PERIOD, publishPeriod)
                             .build());
         }
 
@@ -341,6 +349,7 @@ public class Enrichers {
                     .add("valueFilter", valueFilter)
                     .add("defaultValueForUnreportedSensors", defaultValueForUnreportedSensors)
                     .add("valueToReportIfNoSensors", valueToReportIfNoSensors)
+                    .add("publishPeriod", publishPeriod)
                     .toString();
         }
     }
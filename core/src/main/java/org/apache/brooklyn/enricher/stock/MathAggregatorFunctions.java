@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.enricher.stock;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,7 @@ import org.apache.brooklyn.util.core.flags.TypeCoercions;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
+import com.google.common.collect.TreeMultiset;
 import com.google.common.reflect.TypeToken;
 
 @Beta
@@ -83,6 +85,29 @@ public class MathAggregatorFunctions {
         return new ComputingMax<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
     }
 
+    /**
+     * A function over a collection of numbers which can also be computed incrementally,
+     * as values are added and removed, rather than re-reading the whole collection each time
+     * (see {@link Aggregator}).
+     */
+    @Beta
+    public interface IncrementallyComputable<T> {
+        /**
+         * Returns a new (empty) accumulator, whose {@link Accumulator#get()} gives the result of applying
+         * this function to the values currently added (to within floating-point rounding).
+         */
+        Accumulator<T> newAccumulator();
+    }
+
+    /** The running state of an {@link IncrementallyComputable} function. Not thread-safe. */
+    @Beta
+    public interface Accumulator<T> {
+        void add(@Nullable Number val);
+        /** removes one occurrence of a value previously added */
+        void remove(@Nullable Number val);
+        T get();
+    }
+
     @Beta
     protected abstract static class AbstractComputingNumber<T extends Number> implements Function<Collection<? extends Number>, T> {
         protected final Number defaultValueForUnreportedSensors;
@@ -108,7 +133,7 @@ public class MathAggregatorFunctions {
     }
 
     @Beta
-    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> {
+    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> implements IncrementallyComputable<T> {
         public BasicComputingNumber(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
@@ -137,12 +162,121 @@ public class MathAggregatorFunctions {
         public abstract Number applyImpl(Collection<Number> vals);
     }
 
+    /**
+     * Handles nulls (using the default value for unreported sensors) and the empty case for an {@link Accumulator},
+     * as {@link BasicComputingNumber#apply(Collection)} does.
+     */
+    @Beta
+    protected abstract static class BasicAccumulator<T extends Number> implements Accumulator<T> {
+        protected final BasicComputingNumber<T> function;
+        protected long count;
+
+        public BasicAccumulator(BasicComputingNumber<T> function) {
+            this.function = function;
+        }
+        @Override
+        public void add(@Nullable Number val) {
+            if (val == null) val = function.defaultValueForUnreportedSensors;
+            if (val == null) return;
+            count++;
+            addImpl(val.doubleValue());
+        }
+        @Override
+        public void remove(@Nullable Number val) {
+            if (val == null) val = function.defaultValueForUnreportedSensors;
+            if (val == null) return;
+            count--;
+            removeImpl(val.doubleValue());
+        }
+        @Override
+        public T get() {
+            if (count<=0) return cast(function.valueToReportIfNoSensors, function.typeToken);
+            return cast(getImpl(), function.typeToken);
+        }
+        protected abstract void addImpl(double val);
+        protected abstract void removeImpl(double val);
+        protected abstract Number getImpl();
+    }
+
+    /**
+     * A running sum, for {@link ComputingSum} and {@link ComputingAverage}; kept exactly (as a {@link BigDecimal},
+     * with non-finite values counted separately) so that it does not drift as values are added and removed.
+     */
+    @Beta
+    protected static class SumAccumulator<T extends Number> extends BasicAccumulator<T> {
+        private final boolean average;
+        private BigDecimal sum = BigDecimal.ZERO;
+        private long nanCount, positiveInfinityCount, negativeInfinityCount;
+
+        public SumAccumulator(BasicComputingNumber<T> function, boolean average) {
+            super(function);
+            this.average = average;
+        }
+        @Override
+        protected void addImpl(double val) {
+            update(val, 1);
+        }
+        @Override
+        protected void removeImpl(double val) {
+            update(val, -1);
+        }
+        private void update(double val, int delta) {
+            if (Double.isNaN(val)) nanCount += delta;
+            else if (val == Double.POSITIVE_INFINITY) positiveInfinityCount += delta;
+            else if (val == Double.NEGATIVE_INFINITY) negativeInfinityCount += delta;
+            else if (delta > 0) sum = sum.add(new BigDecimal(val));
+            else sum = sum.subtract(new BigDecimal(val));
+        }
+        @Override
+        protected Number getImpl() {
+            double result;
+            if (nanCount > 0 || (positiveInfinityCount > 0 && negativeInfinityCount > 0)) result = Double.NaN;
+            else if (positiveInfinityCount > 0) result = Double.POSITIVE_INFINITY;
+            else if (negativeInfinityCount > 0) result = Double.NEGATIVE_INFINITY;
+            else result = sum.doubleValue();
+            return average ? result / count : result;
+        }
+    }
+
+    /** The smallest or largest value, for {@link ComputingMin} and {@link ComputingMax}, kept in a sorted multiset. */
+    @Beta
+    protected static class ExtremeAccumulator<T extends Number> extends BasicAccumulator<T> {
+        private final boolean max;
+        private final TreeMultiset<Double> vals = TreeMultiset.create();
+        private long nanCount;
+
+        public ExtremeAccumulator(BasicComputingNumber<T> function, boolean max) {
+            super(function);
+            this.max = max;
+        }
+        @Override
+        protected void addImpl(double val) {
+            if (Double.isNaN(val)) nanCount++;
+            else vals.add(val);
+        }
+        @Override
+        protected void removeImpl(double val) {
+            if (Double.isNaN(val)) nanCount--;
+            else vals.remove(val);
+        }
+        @Override
+        protected Number getImpl() {
+            // as Math.min and Math.max
+            if (nanCount > 0) return Double.NaN;
+            return max ? vals.lastEntry().getElement() : vals.firstEntry().getElement();
+        }
+    }
+
     @Beta
     protected static class ComputingSum<T extends Number> extends BasicComputingNumber<T> {
         public ComputingSum(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
         @Override
+        public Accumulator<T> newAccumulator() {
+            return new SumAccumulator<T>(this, false);
+        }
+        @Override
         public Number applyImpl(Collection<Number> vals) {
             double result = 0d;
             for (Number val : vals) { 
@@ -158,6 +292,10 @@ public class MathAggregatorFunctions {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
         @Override
+        public Accumulator<T> newAccumulator() {
+            return new SumAccumulator<T>(this, true);
+        }
+        @Override
         public Number applyImpl(Collection<Number> vals) {
             double sum = 0d;
             for (Number val : vals) { 
@@ -173,6 +311,10 @@ public class MathAggregatorFunctions {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
         @Override
+        public Accumulator<T> newAccumulator() {
+            return new ExtremeAccumulator<T>(this, false);
+        }
+        @Override
         public Number applyImpl(Collection<Number> vals) {
             Double result = null;
             for (Number val : vals) { 
@@ -188,6 +330,10 @@ public class MathAggregatorFunctions {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
         @Override
+        public Accumulator<T> newAccumulator() {
+            return new ExtremeAccumulator<T>(this, true);
+        }
+        @Override
         public Number applyImpl(Collection<Number> vals) {
             Double result = null;
             for (Number val : vals) { 
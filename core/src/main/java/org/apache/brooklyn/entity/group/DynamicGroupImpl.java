@@ -21,6 +21,7 @@ package org.apache.brooklyn.entity.group;
 import java.util.Collection;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.EntityManager;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
@@ -30,6 +31,8 @@ import org.apache.brooklyn.core.BrooklynLogging.LoggingLevel;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.mgmt.internal.CollectionChangeListener;
+import org.apache.brooklyn.core.mgmt.internal.EntityIndex;
+import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -86,7 +89,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         if (entityFilter == null) {
             entityFilter = Predicates.alwaysFalse();
         }
-        return Predicates.and(
+        // allOf, rather than Predicates.and, so the entity index can be used to find the entities in this application
+        return EntityPredicates.allOf(
                 EntityPredicates.applicationIdEqualTo(getApplicationId()),
                 entityFilter);
     }
@@ -210,9 +214,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             Collection<Entity> currentMembers = getMembers();
             Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
 
-            final Iterable<Entity> unfiltered = Entities.descendantsAndSelf(getApplication());
-            log.debug("{} filtering {} with {}", new Object[]{this, unfiltered, entityFilter()});
-            for (Entity it : Iterables.filter(unfiltered, entityFilter())) {
+            for (Entity it : findAcceptedEntities()) {
                 toRemove.remove(it);
                 if (!currentMembers.contains(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
@@ -230,4 +232,23 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
     }
 
+    /**
+     * The entities in this application accepted by the {@link #entityFilter()}, found using the
+     * management context's {@link EntityIndex} where available (so only the candidates it selects are tested),
+     * otherwise by testing all descendants of the application.
+     */
+    protected Iterable<Entity> findAcceptedEntities() {
+        EntityManager entityManager = getManagementContext().getEntityManager();
+        if (entityManager instanceof EntityManagerInternal) {
+            EntityIndex index = ((EntityManagerInternal) entityManager).getEntityIndex();
+            if (index != null && index.contains(getApplicationId())) {
+                log.debug("{} finding entities in index with {}", this, entityFilter());
+                return index.find(entityFilter());
+            }
+        }
+        final Iterable<Entity> unfiltered = Entities.descendantsAndSelf(getApplication());
+        log.debug("{} filtering {} with {}", new Object[]{this, unfiltered, entityFilter()});
+        return Iterables.filter(unfiltered, entityFilter());
+    }
+
 }
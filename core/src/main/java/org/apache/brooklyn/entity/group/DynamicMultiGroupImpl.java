@@ -191,7 +191,7 @@ public class DynamicMultiGroupImpl extends DynamicGroupImpl implements DynamicMu
     protected void onEntityAdded(Entity item) {
         synchronized (memberChangeMutex) {
             super.onEntityAdded(item);
-            distributeEntities();
+            distributeEntity(item);
         }
     }
 
@@ -199,7 +199,7 @@ public class DynamicMultiGroupImpl extends DynamicGroupImpl implements DynamicMu
     protected void onEntityRemoved(Entity item) {
         synchronized (memberChangeMutex) {
             super.onEntityRemoved(item);
-            distributeEntities();
+            distributeEntity(item);
         }
     }
     
@@ -207,7 +207,7 @@ public class DynamicMultiGroupImpl extends DynamicGroupImpl implements DynamicMu
     protected void onEntityChanged(Entity item) {
         synchronized (memberChangeMutex) {
             super.onEntityChanged(item);
-            distributeEntities();
+            distributeEntity(item);
         }
     }
 
@@ -236,20 +236,7 @@ public class DynamicMultiGroupImpl extends DynamicGroupImpl implements DynamicMu
             for (String name : entityMapping.keySet()) {
                 BasicGroup bucket = buckets.get(name);
                 if (bucket == null) {
-                    try {
-                        bucket = addChild(EntitySpec.create(bucketSpec).displayName(name));
-                    } catch (Exception e) {
-                        Exceptions.propagateIfFatal(e);
-                        ServiceProblemsLogic.updateProblemsIndicator(this, "children", "Could not add child; removing all new children for now: "+Exceptions.collapseText(e));
-                        // if we don't do this, they get added infinitely often
-                        MutableSet<Entity> newChildren = MutableSet.copyOf(getChildren());
-                        newChildren.removeAll(oldChildren);
-                        for (Entity child: newChildren) {
-                            removeChild(child);
-                        }
-                        throw e;
-                    }
-                    ServiceProblemsLogic.clearProblemsIndicator(this, "children");
+                    bucket = addBucket(bucketSpec, name, oldChildren);
                     buckets.put(name, bucket);
                 }
                 bucket.setMembers(entityMapping.get(name));
@@ -269,4 +256,69 @@ public class DynamicMultiGroupImpl extends DynamicGroupImpl implements DynamicMu
         }
     }
 
+    /**
+     * Moves just the given entity to the bucket it now belongs in (or out of all buckets, if it is no longer a member
+     * or its bucket is null), rather than redistributing all members as {@link #distributeEntities()} does;
+     * creates and removes buckets as needed. Used when a single entity is added, removed or changed.
+     */
+    protected void distributeEntity(Entity item) {
+        synchronized (memberChangeMutex) {
+            Function<Entity, String> bucketFunction = getConfig(BUCKET_FUNCTION);
+            EntitySpec<? extends BasicGroup> bucketSpec = getConfig(BUCKET_SPEC);
+            if (bucketFunction == null || bucketSpec == null) return;
+            Map<String, BasicGroup> buckets = MutableMap.copyOf(getAttribute(BUCKETS));
+            boolean changed = false;
+
+            String target = hasMember(item) ? bucketFunction.apply(item) : null;
+
+            // Take it out of any other bucket, removing that bucket if now empty
+            for (Map.Entry<String, BasicGroup> entry : ImmutableSet.copyOf(buckets.entrySet())) {
+                BasicGroup bucket = entry.getValue();
+                if (entry.getKey().equals(target) || !bucket.hasMember(item)) continue;
+                bucket.removeMember(item);
+                if (bucket.getMembers().isEmpty()) {
+                    buckets.remove(entry.getKey());
+                    LOG.debug(this+" removing empty child-bucket "+entry.getKey()+" -> "+bucket);
+                    removeChild(bucket);
+                    Entities.unmanage(bucket);
+                    changed = true;
+                }
+            }
+
+            // Put it into its bucket, creating that if needed
+            if (target != null) {
+                BasicGroup bucket = buckets.get(target);
+                if (bucket == null) {
+                    bucket = addBucket(bucketSpec, target, getChildren());
+                    buckets.put(target, bucket);
+                    changed = true;
+                }
+                bucket.addMember(item);
+            }
+
+            if (changed) {
+                sensors().set(BUCKETS, ImmutableMap.copyOf(buckets));
+            }
+        }
+    }
+
+    private BasicGroup addBucket(EntitySpec<? extends BasicGroup> bucketSpec, String name, Collection<Entity> oldChildren) {
+        BasicGroup bucket;
+        try {
+            bucket = addChild(EntitySpec.create(bucketSpec).displayName(name));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            ServiceProblemsLogic.updateProblemsIndicator(this, "children", "Could not add child; removing all new children for now: "+Exceptions.collapseText(e));
+            // if we don't do this, they get added infinitely often
+            MutableSet<Entity> newChildren = MutableSet.copyOf(getChildren());
+            newChildren.removeAll(oldChildren);
+            for (Entity child: newChildren) {
+                removeChild(child);
+            }
+            throw e;
+        }
+        ServiceProblemsLogic.clearProblemsIndicator(this, "children");
+        return bucket;
+    }
+
 }
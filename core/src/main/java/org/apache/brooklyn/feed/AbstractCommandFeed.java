@@ -35,6 +35,7 @@ import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.feed.AbstractFeed;
 import org.apache.brooklyn.core.feed.AttributePollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
+import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.feed.ssh.SshPollValue;
@@ -42,10 +43,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -93,6 +100,10 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
             "machine");
 
     public static final ConfigKey<Boolean> EXEC_AS_COMMAND = ConfigKeys.newBooleanConfigKey("execAsCommand");
+
+    /** whether polls of different commands with the same period should be executed together; see {@link Builder#batchPolls()} */
+    @Beta
+    public static final ConfigKey<Boolean> BATCH_POLLS = ConfigKeys.newBooleanConfigKey("batchPolls");
     
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<CommandPollIdentifier, CommandPollConfig<?>>> POLLS = ConfigKeys.newConfigKey(
@@ -105,6 +116,7 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         private Supplier<MachineLocation> machine;
         private Duration period = Duration.of(500, TimeUnit.MILLISECONDS);
         private boolean execAsCommand = false;
+        private boolean batchPolls = false;
         private String uniqueTag;
         private volatile boolean built;
         
@@ -145,6 +157,20 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
             execAsCommand = false;
             return self();
         }
+        /**
+         * Executes the distinct commands of polls with the same period together, in a single invocation on the machine
+         * (where supported, as by {@link org.apache.brooklyn.feed.ssh.SshFeed}), rather than each in its own.
+         * Suitable where there are several short, independent commands, as is usual for polling.
+         */
+        @Beta
+        public B batchPolls() {
+            return batchPolls(true);
+        }
+        @Beta
+        public B batchPolls(boolean val) {
+            batchPolls = val;
+            return self();
+        }
         public B uniqueTag(String uniqueTag) {
             this.uniqueTag = uniqueTag;
             return self();
@@ -203,6 +229,7 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         config().set(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
         config().set(MACHINE, builder.machine);
         config().set(EXEC_AS_COMMAND, builder.execAsCommand);
+        config().set(BATCH_POLLS, builder.batchPolls);
         
         SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = HashMultimap.<CommandPollIdentifier,CommandPollConfig<?>>create();
         for (CommandPollConfig<?> config : (List<CommandPollConfig<?>>)builder.getPolls()) {
@@ -227,6 +254,9 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = config().get(POLLS);
+        boolean batchPolls = Boolean.TRUE.equals(config().get(BATCH_POLLS));
+        ListMultimap<Long, CommandPollIdentifier> pollInfosByPeriod = ArrayListMultimap.create();
+        Map<CommandPollIdentifier, DelegatingPollHandler<SshPollValue>> handlersByPollInfo = Maps.newLinkedHashMap();
         
         for (final CommandPollIdentifier pollInfo : polls.keySet()) {
             Set<CommandPollConfig<?>> configs = polls.get(pollInfo);
@@ -237,15 +267,99 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
                 handlers.add(new AttributePollHandler<SshPollValue>(config, entity, this));
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
-            
-            getPoller().scheduleAtFixedRate(
-                    new Callable<SshPollValue>() {
-                        @Override
-                        public SshPollValue call() throws Exception {
-                            return exec(pollInfo.command.get(), pollInfo.env.get());
-                        }}, 
-                    new DelegatingPollHandler<SshPollValue>(handlers),
-                    minPeriod);
+            pollInfosByPeriod.put(minPeriod, pollInfo);
+            handlersByPollInfo.put(pollInfo, new DelegatingPollHandler<SshPollValue>(handlers));
+        }
+
+        for (Long period : pollInfosByPeriod.keySet()) {
+            final List<CommandPollIdentifier> pollInfos = pollInfosByPeriod.get(period);
+            if (batchPolls && pollInfos.size() > 1) {
+                List<PollHandler<SshPollValue>> handlers = Lists.newArrayList();
+                for (CommandPollIdentifier pollInfo : pollInfos) {
+                    handlers.add(handlersByPollInfo.get(pollInfo));
+                }
+                getBatchPoller().scheduleAtFixedRate(
+                        new Callable<List<SshPollValue>>() {
+                            @Override
+                            public List<SshPollValue> call() throws Exception {
+                                List<String> commands = Lists.newArrayList();
+                                List<Map<String, String>> envs = Lists.newArrayList();
+                                for (CommandPollIdentifier pollInfo : pollInfos) {
+                                    commands.add(pollInfo.command.get());
+                                    envs.add(pollInfo.env.get());
+                                }
+                                return execBatch(commands, envs);
+                            }},
+                        new BatchPollHandler(handlers),
+                        period);
+            } else {
+                for (final CommandPollIdentifier pollInfo : pollInfos) {
+                    getPoller().scheduleAtFixedRate(
+                            new Callable<SshPollValue>() {
+                                @Override
+                                public SshPollValue call() throws Exception {
+                                    return exec(pollInfo.command.get(), pollInfo.env.get());
+                                }}, 
+                            handlersByPollInfo.get(pollInfo),
+                            period);
+                }
+            }
+        }
+    }
+
+    /** Passes the result of each command in a batch to the handler for that command. */
+    private static class BatchPollHandler implements PollHandler<List<SshPollValue>> {
+        private final List<PollHandler<SshPollValue>> delegates;
+
+        BatchPollHandler(List<PollHandler<SshPollValue>> delegates) {
+            this.delegates = ImmutableList.copyOf(delegates);
+        }
+
+        @Override
+        public boolean checkSuccess(List<SshPollValue> vals) {
+            // success or failure is decided per command, in onSuccess
+            return true;
+        }
+
+        @Override
+        public void onSuccess(List<SshPollValue> vals) {
+            for (int i = 0; i < delegates.size(); i++) {
+                PollHandler<SshPollValue> delegate = delegates.get(i);
+                SshPollValue val = (i < vals.size()) ? vals.get(i) : null;
+                if (val == null) {
+                    delegate.onException(new IllegalStateException("No result for command in batch"));
+                } else if (delegate.checkSuccess(val)) {
+                    delegate.onSuccess(val);
+                } else {
+                    delegate.onFailure(val);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(List<SshPollValue> vals) {
+            onSuccess(vals);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<SshPollValue> delegate : delegates) {
+                delegate.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            List<String> descriptions = Lists.newArrayList();
+            for (PollHandler<SshPollValue> delegate : delegates) {
+                descriptions.add(delegate.getDescription());
+            }
+            return "batch"+descriptions;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString()+"["+getDescription()+"]";
         }
     }
     
@@ -255,5 +369,25 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         return (Poller<SshPollValue>) super.getPoller();
     }
     
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Poller<List<SshPollValue>> getBatchPoller() {
+        return (Poller) super.getPoller();
+    }
+    
     protected abstract SshPollValue exec(String command, Map<String,String> env) throws IOException;
+
+    /**
+     * Executes the given commands (each with the corresponding env), returning the result of each, in order;
+     * a result may be null if that command did not complete.
+     * Used when {@link #BATCH_POLLS} is set; this implementation executes each command in turn,
+     * but subclasses should execute them together where they can.
+     */
+    @Beta
+    protected List<SshPollValue> execBatch(List<String> commands, List<Map<String,String>> envs) throws IOException {
+        List<SshPollValue> result = Lists.newArrayList();
+        for (int i = 0; i < commands.size(); i++) {
+            result.add(exec(commands.get(i), envs.get(i)));
+        }
+        return result;
+    }
 }
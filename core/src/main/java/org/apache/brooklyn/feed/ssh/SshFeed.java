@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import org.apache.brooklyn.feed.CommandPollConfig;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.internal.ssh.ShellCommandBatch;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -131,4 +132,35 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
 
         return new SshPollValue(machine, exitStatus, new String(stdout.toByteArray()), new String(stderr.toByteArray()));
     }
+
+    /** executes all the commands in one ssh session, using a {@link ShellCommandBatch} */
+    @Override
+    protected List<SshPollValue> execBatch(List<String> commands, List<Map<String,String>> envs) throws IOException {
+        SshMachineLocation machine = (SshMachineLocation)getMachine();
+        Boolean execAsCommand = config().get(EXEC_AS_COMMAND);
+        ShellCommandBatch batch = new ShellCommandBatch();
+        for (int i = 0; i < commands.size(); i++) {
+            batch.add(commands.get(i), envs.get(i));
+        }
+        if (log.isTraceEnabled()) log.trace("Ssh polling for {}, executing batch of {}", machine, commands);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        ConfigBag flags = ConfigBag.newInstanceExtending(config().getBag())
+            .configure(SshTool.PROP_NO_EXTRA_OUTPUT, true)
+            .configure(SshTool.PROP_OUT_STREAM, stdout)
+            .configure(SshTool.PROP_ERR_STREAM, stderr);
+        if (Boolean.TRUE.equals(execAsCommand)) {
+            machine.execCommands(flags.getAllConfig(), "ssh-feed", batch.getCommands());
+        } else {
+            machine.execScript(flags.getAllConfig(), "ssh-feed", batch.getCommands());
+        }
+
+        List<SshPollValue> result = Lists.newArrayList();
+        for (ShellCommandBatch.Result commandResult : batch.parse(new String(stdout.toByteArray()), new String(stderr.toByteArray()))) {
+            result.add(commandResult == null ? null
+                    : new SshPollValue(machine, commandResult.getExitCode(), commandResult.getStdout(), commandResult.getStderr()));
+        }
+        return result;
+    }
 }
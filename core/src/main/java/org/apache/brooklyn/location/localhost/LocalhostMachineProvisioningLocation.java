@@ -40,8 +40,10 @@ import org.apache.brooklyn.core.location.BasicOsDetails;
 import org.apache.brooklyn.core.location.HasSubnetHostname;
 import org.apache.brooklyn.core.location.geo.HostGeoInfo;
 import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.JournalledFileBasedObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.LocationWithObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.location.byon.FixedListMachineProvisioningLocation;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -365,6 +367,9 @@ public class LocalhostMachineProvisioningLocation extends FixedListMachineProvis
     public PersistenceObjectStore newPersistenceObjectStore(String container) {
         File basedir = new File(container);
         if (basedir.isFile()) throw new IllegalArgumentException("Destination directory must not be a file");
+        if (Boolean.TRUE.equals(getManagementContext().getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_FILE_JOURNAL))) {
+            return new JournalledFileBasedObjectStore(basedir);
+        }
         return new FileBasedObjectStore(basedir);
     }
     
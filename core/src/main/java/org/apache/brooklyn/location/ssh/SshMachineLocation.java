@@ -254,7 +254,8 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     public static final Set<ConfigKey<?>> REUSABLE_SSH_PROPS = ImmutableSet.<ConfigKey<?>>of(
             STDOUT, STDERR, SCRIPT_DIR, CLOSE_CONNECTION,
             SshTool.PROP_SCRIPT_HEADER, SshTool.PROP_PERMISSIONS, SshTool.PROP_LAST_MODIFICATION_DATE,
-            SshTool.PROP_LAST_ACCESS_DATE, SshTool.PROP_OWNER_UID, SshTool.PROP_SSH_RETRY_DELAY);
+            SshTool.PROP_LAST_ACCESS_DATE, SshTool.PROP_OWNER_UID, SshTool.PROP_SSH_RETRY_DELAY,
+            SshTool.PROP_INLINE_SCRIPT);
 
     public static final Set<HasConfigKey<?>> ALL_SSH_CONFIG_KEYS =
             ImmutableSet.<HasConfigKey<?>>builder()
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.internal.ssh;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Combines several short, independent commands into one, so that they can be run in a single remote invocation
+ * (e.g. one {@link ShellTool#execScript(Map, List)}) rather than each paying for its own session,
+ * and then splits the output of that invocation back into the exit code, stdout and stderr of each command.
+ * <p>
+ * Each command is run in its own subshell, with its own environment and with stdin from {@code /dev/null};
+ * its exit code does not affect the others. Its output is followed by a marker
+ * (unique to this batch) on stdout and on stderr, by which the output is split.
+ * The marker is found wherever it occurs, rather than only at the start of a line,
+ * so that it does not need a newline before it (which would have to be stripped again, and
+ * tools such as {@link org.apache.brooklyn.util.stream.StreamGobbler} suppress blank lines).
+ * <p>
+ * Usage:
+ * <pre>
+ * {@code
+ * ShellCommandBatch batch = new ShellCommandBatch();
+ * batch.add("uptime", env);
+ * batch.add("df -h", env);
+ * machine.execScript(ImmutableMap.of("out", stdout, "err", stderr), "batch", batch.getCommands());
+ * List<ShellCommandBatch.Result> results = batch.parse(stdout.toString(), stderr.toString());
+ * }
+ * </pre>
+ */
+@Beta
+public class ShellCommandBatch {
+
+    /** The outcome of one command in a batch. */
+    public static class Result {
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+
+        public Result(int exitCode, String stdout, String stderr) {
+            this.exitCode = exitCode;
+            this.stdout = checkNotNull(stdout, "stdout");
+            this.stderr = checkNotNull(stderr, "stderr");
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getStdout() {
+            return stdout;
+        }
+
+        public String getStderr() {
+            return stderr;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("exitCode", exitCode).add("stdout", stdout).add("stderr", stderr).toString();
+        }
+    }
+
+    private final String marker = "BROOKLYN_BATCH_"+Identifiers.makeRandomId(8);
+    private final List<String> commands = MutableList.of();
+
+    /** adds a command, to be run with the given env (which may be null); returns its index in the batch */
+    public int add(String command, @Nullable Map<String, ?> env) {
+        int index = commands.size();
+        StringBuilder result = new StringBuilder("RESULT=0 ; ( ");
+        if (env != null) {
+            for (Entry<String, ?> entry : env.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) continue;
+                result.append("export ").append(entry.getKey()).append("=\"")
+                        .append(BashStringEscapes.escapeLiteralForDoubleQuotedBash(entry.getValue().toString()))
+                        .append("\" ; ");
+            }
+        }
+        // newline rather than ";" after the command, in case it ends with a comment or "&"
+        result.append(command).append("\n) < /dev/null || RESULT=$? ; ")
+                .append("printf '%s %s %s\\n' ").append(marker).append(' ').append(index).append(" $RESULT ; ")
+                .append("printf '%s %s\\n' ").append(marker).append(' ').append(index).append(" >&2");
+        commands.add(result.toString());
+        return index;
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    /** the commands to execute, in order, in a single invocation (as a script or as commands) */
+    public List<String> getCommands() {
+        return ImmutableList.copyOf(commands);
+    }
+
+    /**
+     * Splits the output of executing {@link #getCommands()} into the result of each command, in the order added;
+     * a result is null if the batch did not get as far as completing that command (e.g. because an earlier command exited the shell).
+     */
+    public List<Result> parse(String stdout, String stderr) {
+        List<Result> results = MutableList.of();
+        int outPos = 0;
+        int errPos = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            String prefix = marker+" "+i+" ";
+            int outMarker = (outPos >= 0) ? stdout.indexOf(prefix, outPos) : -1;
+            int errMarker = (errPos >= 0) ? stderr.indexOf(marker+" "+i+"\n", errPos) : -1;
+            if (outMarker < 0) {
+                outPos = -1;
+                results.add(null);
+                continue;
+            }
+            int outEol = stdout.indexOf('\n', outMarker+prefix.length());
+            if (outEol < 0) outEol = stdout.length();
+            int exitCode;
+            try {
+                exitCode = Integer.parseInt(stdout.substring(outMarker+prefix.length(), outEol).trim());
+            } catch (NumberFormatException e) {
+                outPos = -1;
+                results.add(null);
+                continue;
+            }
+            String err;
+            if (errMarker >= 0) {
+                err = stderr.substring(errPos, errMarker);
+                errPos = errMarker+prefix.length();
+            } else {
+                // stderr not captured, or lost; don't misattribute what there is
+                err = "";
+                errPos = -1;
+            }
+            results.add(new Result(exitCode, stdout.substring(outPos, outMarker), err));
+            outPos = outEol+1;
+        }
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("marker", marker).add("size", commands.size()).toString();
+    }
+}
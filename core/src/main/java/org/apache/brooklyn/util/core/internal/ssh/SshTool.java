@@ -32,6 +32,8 @@ import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
+
 /**
  * Defines the methods available on the various different implementations of SSH,
  * and configuration options which are also generally available.
@@ -86,6 +88,9 @@ public interface SshTool extends ShellTool {
     public static final ConfigKey<Long> PROP_LAST_MODIFICATION_DATE = newConfigKey("lastModificationDate", "Last-modification-date to be set on files copied/created (should be UTC/1000, ie seconds since 1970; default 0 usually means current)", 0L);
     public static final ConfigKey<Long> PROP_LAST_ACCESS_DATE = newConfigKey("lastAccessDate", "Last-access-date to be set on files copied/created (should be UTC/1000, ie seconds since 1970; default 0 usually means lastModificationDate)", 0L);
     public static final ConfigKey<Integer> PROP_OWNER_UID = newConfigKey("ownerUid", "Default owner UID (not username) for files created on remote machine; default is unset", -1);
+    @Beta
+    public static final ConfigKey<Boolean> PROP_INLINE_SCRIPT = newConfigKey("inlineScript", "When executing a script, whether to send its contents "
+            + "in the same channel that runs it (rather than copying it in a separate sftp session first); not supported by all SshTool implementations", false);
 
     ConfigKey<String> ADDITIONAL_CONNECTION_METADATA = newStringConfigKey("additional.connection.metadata",
             "Can be used to pass additional custom data to the SshTool, which is especially useful " +
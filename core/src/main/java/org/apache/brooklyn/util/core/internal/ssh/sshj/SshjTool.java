@@ -48,6 +48,7 @@ import org.apache.brooklyn.util.exceptions.RuntimeTimeoutException;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.StreamGobbler;
+import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
@@ -323,6 +324,16 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 public int run() {
                     String scriptContents = toScript(props, commands, env);
                     if (LOG.isTraceEnabled()) LOG.trace("Running shell command at {} as script: {}", host, scriptContents);
+                    if (Boolean.TRUE.equals(getOptionalVal(props, PROP_INLINE_SCRIPT))) {
+                        List<String> writeScriptCommands = buildWriteScriptInlineCommands(scriptContents, scriptPath);
+                        if (writeScriptCommands != null) {
+                            List<String> allcmds = ImmutableList.<String>builder()
+                                    .addAll(writeScriptCommands)
+                                    .addAll(buildRunScriptCommand())
+                                    .build();
+                            return asInt(acquire(new ShellAction(allcmds, out, err, execTimeout)), -1);
+                        }
+                    }
                     copyToServer(ImmutableMap.of("permissions", "0700"), scriptContents.getBytes(), scriptPath);
                     return asInt(acquire(new ShellAction(buildRunScriptCommand(), out, err, execTimeout)), -1);
                 }
@@ -330,6 +341,28 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         }
     }
 
+    /**
+     * Returns the commands which, sent to a shell, write the given script to the given path as an executable file,
+     * so that it can be written and run in the one session rather than copied over sftp first
+     * (see {@link SshTool#PROP_INLINE_SCRIPT}); or null if that is not possible, for example because a PTY is
+     * allocated (which can mangle long input lines).
+     */
+    @VisibleForTesting
+    List<String> buildWriteScriptInlineCommands(String scriptContents, String scriptPath) {
+        if (allocatePTY) return null;
+        String delimiter = "BROOKLYN_SCRIPT_"+Identifiers.makeRandomId(8);
+        if (scriptContents.contains(delimiter)) return null;
+        String contents = scriptContents.endsWith("\n") ? scriptContents.substring(0, scriptContents.length()-1) : scriptContents;
+        // quoted delimiter so that nothing in the script is expanded as it is written;
+        // created afresh under a restrictive umask so that it is never readable by others, even before the chmod
+        return ImmutableList.of(
+                "(umask 077; rm -f "+scriptPath+"; cat > "+scriptPath+" <<'"+delimiter+"'",
+                contents,
+                delimiter,
+                ")",
+                "chmod 0700 "+scriptPath);
+    }
+
     /**
      * Executes the script in the background (`nohup ... &`), and then executes other ssh commands to poll for the
      * stdout, stderr and exit code of that original process (which will each have been written to separate files).
@@ -22,7 +22,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -35,6 +34,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -45,12 +45,16 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.Sanitizer;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -84,6 +88,39 @@ import groovy.lang.Closure;
 public class BasicExecutionManager implements ExecutionManager {
     private static final Logger log = LoggerFactory.getLogger(BasicExecutionManager.class);
 
+    /** how tasks are run; see {@link #EXECUTION_MODE} */
+    public enum ExecutionMode {
+        /** a cached thread pool with no limit on the number of threads (the default) */
+        UNBOUNDED,
+        /** a bounded {@link PooledTaskExecutor}, with prioritised queueing and compensation for blocked threads */
+        POOLED,
+        /** a new virtual thread per task, where the JVM supports it (java 21+); otherwise falls back to {@link #POOLED} */
+        VIRTUAL
+    }
+
+    public static final ConfigKey<ExecutionMode> EXECUTION_MODE = ConfigKeys.newConfigKey(ExecutionMode.class,
+            "brooklyn.executionManager.mode",
+            "how tasks are run: UNBOUNDED (a thread per concurrently executing task), "
+            + "POOLED (a bounded pool with a priority queue, see the pool.* keys), "
+            + "or VIRTUAL (a virtual thread per task, if supported by the JVM, otherwise POOLED)",
+            ExecutionMode.UNBOUNDED);
+
+    public static final ConfigKey<Integer> POOL_CORE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.pool.coreSize",
+            "when POOLED, the number of threads normally used to run tasks",
+            Math.max(32, 8*Runtime.getRuntime().availableProcessors()));
+
+    public static final ConfigKey<Integer> POOL_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.pool.maxSize",
+            "when POOLED, the maximum number of threads, "
+            + "including those added to compensate for blocked threads or when the queue is full",
+            1024);
+
+    public static final ConfigKey<Integer> POOL_QUEUE_CAPACITY = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.pool.queueCapacity",
+            "when POOLED, the number of tasks which can be queued awaiting a thread before more threads are added",
+            10000);
+
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
     private static final String JITTER_THREADS_MAX_DELAY_PROPERTY = BrooklynFeatureEnablement.FEATURE_JITTER_THREADS + ".maxDelay";
 
@@ -109,12 +146,12 @@ public class BasicExecutionManager implements ExecutionManager {
     // TODO Could have a set of all knownTasks; but instead we're having a separate set per tag,
     // so the same task could be listed multiple times if it has multiple tags...
 
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    //index of tasks by tag (including the entity / context tags, so this is also the index by entity);
+    //reads are lock-free and iteration over a tag's tasks is weakly consistent (never throws CME);
+    //adding to or removing from a tag's set is done atomically with creating or removing the set 
+    //(via compute on the tag), so no global lock is needed and a tag is discarded as soon as it is empty.
+    //NB CopyOnWriteArraySet is a perf bottleneck, hence concurrent hash sets (which are not insertion-ordered)
+    private final ConcurrentMap<Object,Set<Task<?>>> tasksByTag = new ConcurrentHashMap<Object,Set<Task<?>>>();
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -141,15 +178,44 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, null);
+    }
+    
+    /** 
+     * @param config used to determine the {@link #EXECUTION_MODE} and related settings; 
+     * if null the default (unbounded) mode is used */
+    public BasicExecutionManager(String contextid, StringConfigMap config) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
-                
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        
+        ExecutionMode mode = (config==null) ? EXECUTION_MODE.getDefaultValue() : config.getConfig(EXECUTION_MODE);
+        ExecutorService virtualRunner = null;
+        if (mode==ExecutionMode.VIRTUAL) {
+            virtualRunner = newVirtualThreadRunner(contextid);
+            if (virtualRunner==null) {
+                log.warn("Virtual threads not supported in this JVM ("+System.getProperty("java.version")+"); "
+                    + "execution manager "+contextid+" falling back to "+ExecutionMode.POOLED);
+                mode = ExecutionMode.POOLED;
+            } else {
+                log.debug("Execution manager "+contextid+" using virtual thread per task");
+            }
+        }
+        if (virtualRunner!=null) {
+            runner = virtualRunner;
+        } else if (mode==ExecutionMode.POOLED) {
+            int coreSize = config.getConfig(POOL_CORE_SIZE);
+            int maxSize = config.getConfig(POOL_MAX_SIZE);
+            int queueCapacity = config.getConfig(POOL_QUEUE_CAPACITY);
+            log.debug("Execution manager "+contextid+" using pooled runner: core "+coreSize+", max "+maxSize+", queue "+queueCapacity);
+            runner = new PooledTaskExecutor(coreSize, maxSize, queueCapacity, daemonThreadFactory);
+        } else {
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+        }
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
 
@@ -158,6 +224,27 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
     
+    /** 
+     * Creates an executor which starts a new virtual thread per task, or returns null if not supported.
+     * Done reflectively as we compile against java 8.
+     * <p>
+     * Thread-locals (such as that behind {@link Tasks#current()}) work as normal, as each task runs in its own thread.
+     */
+    protected ExecutorService newVirtualThreadRunner(String contextid) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClazz = Class.forName("java.lang.Thread$Builder");
+            builder = builderClazz.getMethod("name", String.class, long.class).invoke(builder, "brooklyn-execmanager-"+contextid+"-virtual-", 0L);
+            builder = builderClazz.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class).invoke(builder, new UncaughtExceptionHandlerImplementation());
+            ThreadFactory factory = (ThreadFactory) builderClazz.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.trace("Virtual threads not available: "+e);
+            return null;
+        }
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -215,10 +302,7 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
+        Set<Task<?>> tasks = tasksByTag.remove(tag);
         if (tasks != null) {
             for (Task<?> task : tasks) {
                 deleteTask(task);
@@ -241,15 +325,7 @@ public class BasicExecutionManager implements ExecutionManager {
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = checkNotNull(task, "task").getTags();
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            removeFromTag(tag, task);
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
@@ -284,24 +360,35 @@ public class BasicExecutionManager implements ExecutionManager {
         return tasksById.size();
     }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
-        Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
-            }
-            return result;
+    /** saturation metrics of the thread pool running tasks, if it is {@link ExecutionMode#POOLED}; otherwise empty */
+    @Beta
+    public Map<String, Object> getRunnerMetrics() {
+        if (runner instanceof PooledTaskExecutor) {
+            return ((PooledTaskExecutor)runner).getMetrics();
         }
+        return Collections.emptyMap();
     }
 
-    /** exposes live view, for internal use only */
+    private void addToTag(Object tag, final Task<?> task) {
+        Preconditions.checkNotNull(tag);
+        tasksByTag.compute(tag, (k, tasks) -> {
+            if (tasks==null) tasks = Sets.newConcurrentHashSet();
+            tasks.add(task);
+            return tasks;
+        });
+    }
+
+    private void removeFromTag(Object tag, final Task<?> task) {
+        tasksByTag.computeIfPresent(tag, (k, tasks) -> {
+            tasks.remove(task);
+            return tasks.isEmpty() ? null : tasks;
+        });
+    }
+
+    /** exposes live view, for internal use only; iteration is weakly consistent */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        return tasksByTag.get(tag);
     }
 
     @Override
@@ -322,9 +409,7 @@ public class BasicExecutionManager implements ExecutionManager {
     public Set<Task<?>> getTasksWithTag(Object tag) {
         Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
         if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
     }
     
     @Override
@@ -334,9 +419,7 @@ public class BasicExecutionManager implements ExecutionManager {
         while (ti.hasNext()) {
             Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
             if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
+                result.addAll(tasksForTag);
             }
         }
         return Collections.unmodifiableSet(result);
@@ -345,20 +428,19 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
+        //start from the least-used tag, then filter those tasks by whether they have the other tags
+        //(cheaper than intersecting full copies of each tag's set, as the entity tag can have many tasks)
+        List<Object> tagList = MutableList.copyOf(tags);
+        if (tagList.isEmpty()) return Collections.emptySet();
+        Set<Task<?>> smallest = null;
+        for (Object tag : tagList) {
+            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(tag);
+            if (tasksForTag==null || tasksForTag.isEmpty()) return Collections.emptySet();
+            if (smallest==null || tasksForTag.size() < smallest.size()) smallest = tasksForTag;
+        }
         Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
-            }
+        for (Task<?> task : smallest) {
+            if (task.getTags().containsAll(tagList)) result.add(task);
         }
         return Collections.unmodifiableSet(result);
     }
@@ -369,9 +451,7 @@ public class BasicExecutionManager implements ExecutionManager {
     
     @Override
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
     }
 
     @Override public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -386,14 +466,33 @@ public class BasicExecutionManager implements ExecutionManager {
     public <T> Task<T> submit(Map<?,?> flags, TaskAdaptable<T> task) {
         if (!(task instanceof Task))
             task = task.asTask();
-        synchronized (task) {
-            if (((TaskInternal<?>)task).getInternalFuture()!=null) return (Task<T>)task;
-            return submitNewTask(flags, (Task<T>) task);
-        }
+        return submitIfNotAlreadySubmitted(flags, (Task<T>) task);
     }
 
     public <T> Task<T> scheduleWith(Task<T> task) { return scheduleWith(Collections.emptyMap(), task); }
     public <T> Task<T> scheduleWith(Map<?,?> flags, Task<T> task) {
+        return submitIfNotAlreadySubmitted(flags, task);
+    }
+
+    /** 
+     * Guards against concurrent double-submission of a task. For a {@link BasicTask} this holds the task's lock,
+     * as do {@link TaskInternal#initInternalFuture(com.google.common.util.concurrent.ListenableFuture)} and cancel,
+     * so that submission and cancellation are mutually exclusive; it is a {@link java.util.concurrent.locks.ReentrantLock}
+     * rather than the task's monitor, so a submitting virtual thread does not pin its carrier.
+     * Other task implementations are synchronized on. An already-submitted task is detected without locking.
+     */
+    private <T> Task<T> submitIfNotAlreadySubmitted(Map<?,?> flags, Task<T> task) {
+        if (((TaskInternal<?>)task).getInternalFuture()!=null) return task;
+        if (task instanceof BasicTask) {
+            ReentrantLock lock = ((BasicTask<?>)task).getLockInternal();
+            lock.lock();
+            try {
+                if (((TaskInternal<?>)task).getInternalFuture()!=null) return task;
+                return submitNewTask(flags, task);
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (task) {
             if (((TaskInternal<?>)task).getInternalFuture()!=null) return task;
             return submitNewTask(flags, task);
@@ -413,6 +512,7 @@ public class BasicExecutionManager implements ExecutionManager {
         if (!task.isDone()) {
             task.internalFuture = delayedRunner.schedule(new ScheduledTaskCallable(task, flags),
                 task.delay.toNanoseconds(), TimeUnit.NANOSECONDS);
+            task.notifyStartedOrCancelled();
         } else {
             afterEndScheduledTaskAllIterations(flags, task);
         }
@@ -443,9 +543,7 @@ public class BasicExecutionManager implements ExecutionManager {
                     boolean shouldResubmit = true;
                     task.recentRun = taskScheduledF;
                     try {
-                        synchronized (task) {
-                            task.notifyAll();
-                        }
+                        task.notifyStateChanged();
                         Object result;
                         try {
                             result = oldJob.call();
@@ -703,6 +801,8 @@ public class BasicExecutionManager implements ExecutionManager {
         if (schedulers!=null && !schedulers.isEmpty()) {
             if (schedulers.size()>1) log.warn("multiple schedulers detected, using only the first, for "+task+": "+schedulers);
             future = schedulers.iterator().next().submit(job);
+        } else if (runner instanceof PooledTaskExecutor) {
+            future = ((PooledTaskExecutor)runner).submit(job, getPriority(task));
         } else {
             future = runner.submit(job);
         }
@@ -721,6 +821,14 @@ public class BasicExecutionManager implements ExecutionManager {
         return task;
     }
     
+    /** the priority at which to queue the task when {@link ExecutionMode#POOLED}; 
+     * effectors run ahead of ordinary tasks, which run ahead of iterations of scheduled tasks (e.g. feed polls) */
+    protected int getPriority(Task<?> task) {
+        if (task.getTags().contains(BrooklynTaskTags.EFFECTOR_TAG)) return PooledTaskExecutor.PRIORITY_FOREGROUND;
+        if (task.getSubmittedByTask() instanceof ScheduledTask) return PooledTaskExecutor.PRIORITY_BACKGROUND;
+        return PooledTaskExecutor.PRIORITY_NORMAL;
+    }
+    
     protected void beforeSubmitScheduledTaskAllIterations(Map<?,?> flags, Task<?> task) {
         internalBeforeSubmit(flags, task);
     }
@@ -739,7 +847,7 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
         for (Object tag: ((TaskInternal<?>)task).getTags()) {
-            tasksWithTagCreating(tag).add(task);
+            addToTag(tag, task);
         }
     }
 
@@ -856,7 +964,11 @@ public class BasicExecutionManager implements ExecutionManager {
             }
             ((TaskInternal<?>)task).setThread(null);
         }
-        synchronized (task) { task.notifyAll(); }
+        if (task instanceof BasicTask) {
+            ((BasicTask<?>)task).notifyStateChanged();
+        } else {
+            synchronized (task) { task.notifyAll(); }
+        }
     }
 
     public TaskScheduler getTaskSchedulerForTag(Object tag) {
@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -40,6 +41,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
@@ -203,7 +206,7 @@ public class BasicTask<T> implements TaskInternal<T> {
      * # task end callback run, if supplied
      * # end time set
      * # thread cleared, ThreadLocal getCurrentTask set
-     * # Task.notifyAll()
+     * # task state-changed condition signalled (see getLockInternal())
      * # Task.get() (result.get()) available, Task.isDone is true
      *
      * Few _consumers_ should care, but internally we rely on this so that, for example, status is displayed correctly.
@@ -220,13 +223,51 @@ public class BasicTask<T> implements TaskInternal<T> {
     protected volatile boolean cancelled = false;
     /** normally a {@link ListenableFuture}, except for scheduled tasks when it may be a {@link ScheduledFuture} */
     protected volatile Future<T> internalFuture = null;
+    /** released when the internal future is set or the task is cancelled; see {@link #blockUntilStarted(Duration)} */
+    private volatile CountDownLatch startedOrCancelled = new CountDownLatch(1);
+    /** guards submission, setting the internal future, and cancellation; used instead of this task's monitor,
+     * which a blocked virtual thread would pin to its carrier thread */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** signalled (with {@link #lock} held) whenever the task starts, is cancelled, ends, or a scheduled iteration begins */
+    private final Condition stateChanged = lock.newCondition();
     
     @Override
-    public synchronized void initInternalFuture(ListenableFuture<T> result) {
-        if (this.internalFuture != null) 
-            throw new IllegalStateException("task "+this+" is being given a result twice");
-        this.internalFuture = result;
-        notifyAll();
+    public void initInternalFuture(ListenableFuture<T> result) {
+        lock.lock();
+        try {
+            if (this.internalFuture != null) 
+                throw new IllegalStateException("task "+this+" is being given a result twice");
+            this.internalFuture = result;
+            notifyStartedOrCancelled();
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** the lock guarding this task's submission and cancellation; {@link BasicExecutionManager} holds it while submitting */
+    ReentrantLock getLockInternal() {
+        return lock;
+    }
+
+    /** signalled whenever the task's state changes; await it only while holding {@link #getLockInternal()} */
+    Condition getStateChangedInternal() {
+        return stateChanged;
+    }
+
+    /** wakes callers waiting on {@link #getStateChangedInternal()} */
+    void notifyStateChanged() {
+        lock.lock();
+        try {
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** wakes callers blocked in {@link #blockUntilStarted(Duration)}; for use where the internal future is set directly */
+    void notifyStartedOrCancelled() {
+        startedOrCancelled.countDown();
     }
 
     // metadata accessors ------------
@@ -296,35 +337,47 @@ public class BasicTask<T> implements TaskInternal<T> {
     }
 
     @Override
-    public final synchronized boolean cancel() { return cancel(true); }
+    public final boolean cancel() { return cancel(true); }
 
     /** doesn't resume it, just means if something was cancelled but not submitted it could now be submitted;
      * probably going to be removed and perhaps some mechanism for running again made available
      * @since 0.7.0  */
     @Beta
-    public synchronized boolean uncancel() {
-        boolean wasCancelled = cancelled;
-        cancelled = false; 
-        return wasCancelled;
+    public boolean uncancel() {
+        lock.lock();
+        try {
+            boolean wasCancelled = cancelled;
+            cancelled = false; 
+            if (wasCancelled && internalFuture==null) startedOrCancelled = new CountDownLatch(1);
+            return wasCancelled;
+        } finally {
+            lock.unlock();
+        }
     }
     
     @Override
-    public final synchronized boolean cancel(boolean mayInterruptIfRunning) {
+    public final boolean cancel(boolean mayInterruptIfRunning) {
         // semantics changed in 2016-01, previously "true" was INTERRUPT_TASK_BUT_NOT_SUBMITTED_TASKS
         return cancel(mayInterruptIfRunning ? TaskCancellationMode.INTERRUPT_TASK_AND_DEPENDENT_SUBMITTED_TASKS
             : TaskCancellationMode.DO_NOT_INTERRUPT);
     }
     
     @Override @Beta
-    public synchronized boolean cancel(TaskCancellationMode mode) {
-        if (isDone()) return false;
-        if (log.isTraceEnabled()) {
-            log.trace("BT cancelling "+this+" mode "+mode+", from thread "+Thread.currentThread());
+    public boolean cancel(TaskCancellationMode mode) {
+        lock.lock();
+        try {
+            if (isDone()) return false;
+            if (log.isTraceEnabled()) {
+                log.trace("BT cancelling "+this+" mode "+mode+", from thread "+Thread.currentThread());
+            }
+            cancelled = true;
+            doCancel(mode);
+            notifyStartedOrCancelled();
+            stateChanged.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
         }
-        cancelled = true;
-        doCancel(mode);
-        notifyAll();
-        return true;
     }
     
     @SuppressWarnings("deprecation")
@@ -375,12 +428,18 @@ public class BasicTask<T> implements TaskInternal<T> {
 
     @Override
     public T get() throws InterruptedException, ExecutionException {
+        boolean blocking = false;
         try {
-            if (!isDone())
+            if (!isDone()) {
                 Tasks.setBlockingTask(this);
+                // allow a bounded pool to compensate, in case we are waiting on work queued behind us
+                PooledTaskExecutor.beginBlocking();
+                blocking = true;
+            }
             blockUntilStarted();
             return internalFuture.get();
         } finally {
+            if (blocking) PooledTaskExecutor.endBlocking();
             Tasks.resetBlockingTask();
         }
     }
@@ -395,33 +454,34 @@ public class BasicTask<T> implements TaskInternal<T> {
     }
     
     @Override
-    public synchronized void blockUntilStarted() {
+    public void blockUntilStarted() {
         blockUntilStarted(null);
     }
 
+    // Waits on a latch rather than this task's monitor, so that a blocked virtual thread does not pin its carrier thread.
     // TODO: This should log a message if timeout is null and the method blocks for an unreasonably long time -
     // it probably means someone called .get() and forgot to submit the task.
     @Override
-    public synchronized boolean blockUntilStarted(Duration timeout) {
+    public boolean blockUntilStarted(Duration timeout) {
         Long endTime = timeout==null ? null : System.currentTimeMillis() + timeout.toMillisecondsRoundingUp();
         while (true) {
             if (cancelled) throw new CancellationException();
-            if (internalFuture==null)
-                try {
-                    if (timeout==null) {
-                        wait();
-                    } else {
-                        long remaining = endTime - System.currentTimeMillis();
-                        if (remaining>0)
-                            wait(remaining);
-                        else
-                            return false;
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    Throwables.propagate(e);
-                }
             if (internalFuture!=null) return true;
+            CountDownLatch latch = startedOrCancelled;
+            try {
+                if (timeout==null) {
+                    latch.await();
+                } else {
+                    long remaining = endTime - System.currentTimeMillis();
+                    if (remaining>0)
+                        latch.await(remaining, TimeUnit.MILLISECONDS);
+                    else
+                        return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Throwables.propagate(e);
+            }
         }
     }
 
@@ -433,6 +493,7 @@ public class BasicTask<T> implements TaskInternal<T> {
     @Override
     public boolean blockUntilEnded(Duration timeout) {
         Long endTime = timeout==null ? null : System.currentTimeMillis() + timeout.toMillisecondsRoundingUp();
+        PooledTaskExecutor.beginBlocking();
         try { 
             boolean started = blockUntilStarted(timeout);
             if (!started) return false;
@@ -449,6 +510,8 @@ public class BasicTask<T> implements TaskInternal<T> {
             if (!(t instanceof TimeoutException) && log.isDebugEnabled())
                 log.debug("call from "+Thread.currentThread()+", blocking until '"+this+"' finishes, ended with error: "+t);
             return isDone(); 
+        } finally {
+            PooledTaskExecutor.endBlocking();
         }
     }
 
@@ -459,15 +522,32 @@ public class BasicTask<T> implements TaskInternal<T> {
     
     @Override
     public T get(Duration duration) throws InterruptedException, ExecutionException, TimeoutException {
+        PooledTaskExecutor.beginBlocking();
+        try {
+            return getInternal(duration);
+        } finally {
+            PooledTaskExecutor.endBlocking();
+        }
+    }
+    
+    private T getInternal(Duration duration) throws InterruptedException, ExecutionException, TimeoutException {
         long start = System.currentTimeMillis();
         Long end  = duration==null ? null : start + duration.toMillisecondsRoundingUp();
         while (end==null || end > System.currentTimeMillis()) {
             if (cancelled) throw new CancellationException();
             if (internalFuture == null) {
-                synchronized (this) {
-                    long remaining = end - System.currentTimeMillis();
-                    if (internalFuture==null && remaining>0)
-                        wait(remaining);
+                lock.lock();
+                try {
+                    if (internalFuture==null && !cancelled) {
+                        if (end==null) {
+                            stateChanged.await();
+                        } else {
+                            long remaining = end - System.currentTimeMillis();
+                            if (remaining>0) stateChanged.await(remaining, TimeUnit.MILLISECONDS);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
                 }
             }
             if (internalFuture != null) break;
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A bounded thread pool for {@link BasicExecutionManager}, used instead of the default
+ * (effectively unbounded) cached thread pool when so configured.
+ * <p>
+ * Work is queued in priority order (see the <code>PRIORITY_*</code> constants, lower runs first),
+ * FIFO within a priority. The queue has a capacity; when it is full, threads are added up to the
+ * maximum pool size, and beyond that each rejected job is run in a new overflow thread rather than
+ * refused, because refusing (or running in the caller) could break the task semantics.
+ * <p>
+ * As Brooklyn tasks routinely block waiting on other tasks, a pool thread which blocks
+ * (see {@link #beginBlocking()}) causes the core size to be raised temporarily by one, so that
+ * queued work (possibly the very task it is waiting for) can still run. Once the core size has reached
+ * the maximum pool size, each further blocked thread is compensated by an overflow worker thread instead,
+ * which takes work from the queue until the blocking ends, so that even with every pool thread blocked
+ * the work they wait on is not left queued.
+ */
+@Beta
+public class PooledTaskExecutor extends ThreadPoolExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledTaskExecutor.class);
+
+    /** for short internal jobs, such as listener notification */
+    public static final int PRIORITY_URGENT = 0;
+    /** for user-initiated work, such as effectors */
+    public static final int PRIORITY_FOREGROUND = 10;
+    public static final int PRIORITY_NORMAL = 20;
+    /** for periodic work, such as feed polls */
+    public static final int PRIORITY_BACKGROUND = 30;
+
+    private static final ThreadLocal<PooledTaskExecutor> currentPool = new ThreadLocal<PooledTaskExecutor>();
+    private static final ThreadLocal<AtomicInteger> blockingDepth = new ThreadLocal<AtomicInteger>() {
+        @Override protected AtomicInteger initialValue() { return new AtomicInteger(); }
+    };
+
+    private final int baseCorePoolSize;
+    private final int queueCapacity;
+    private final ThreadFactory overflowThreadFactory;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger blockedWorkers = new AtomicInteger();
+    private final AtomicInteger maxBlockedWorkers = new AtomicInteger();
+    private final AtomicLong compensationCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    /** threads started to take queued work for blocked threads beyond the max pool size; changed only with this synchronized */
+    private final AtomicInteger overflowWorkers = new AtomicInteger();
+
+    public PooledTaskExecutor(int corePoolSize, int maxPoolSize, int queueCapacity, ThreadFactory threadFactory) {
+        super(corePoolSize, Math.max(corePoolSize, maxPoolSize), 10L, TimeUnit.SECONDS,
+                new BoundedPriorityBlockingQueue(queueCapacity), threadFactory);
+        this.baseCorePoolSize = corePoolSize;
+        this.queueCapacity = queueCapacity;
+        this.overflowThreadFactory = threadFactory;
+        setRejectedExecutionHandler(new OverflowThreadPolicy());
+    }
+
+    /** submits the given job at the given priority (lower values run first) */
+    public <T> Future<T> submit(Callable<T> job, int priority) {
+        PrioritizedFutureTask<T> result = new PrioritizedFutureTask<T>(job, priority, sequence.incrementAndGet());
+        execute(result);
+        return result;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PrioritizedFutureTask<T>(callable, PRIORITY_NORMAL, sequence.incrementAndGet());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PrioritizedFutureTask<T>(runnable, value, PRIORITY_NORMAL, sequence.incrementAndGet());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!(command instanceof PrioritizedFutureTask)) {
+            // e.g. listener callbacks: quick, and others may be waiting on them
+            command = new PrioritizedFutureTask<Void>(command, null, PRIORITY_URGENT, sequence.incrementAndGet());
+        }
+        super.execute(command);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        currentPool.set(this);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        currentPool.remove();
+        resetBlockingDepth();
+        super.afterExecute(r, t);
+    }
+
+    private void resetBlockingDepth() {
+        AtomicInteger depth = blockingDepth.get();
+        if (depth.get() > 0) {
+            // unbalanced begin/end blocking; reset so the pool size is not left inflated
+            depth.set(0);
+            releaseCompensation();
+        }
+    }
+
+    /**
+     * Notes that the current thread is about to block (e.g. waiting on another task);
+     * if it is a worker in a pool, that pool may start another thread to compensate.
+     * Calls may be nested; each should be followed by {@link #endBlocking()}.
+     */
+    public static void beginBlocking() {
+        PooledTaskExecutor pool = currentPool.get();
+        if (pool==null) return;
+        if (blockingDepth.get().getAndIncrement()==0) {
+            pool.compensate();
+        }
+    }
+
+    /** @see #beginBlocking() */
+    public static void endBlocking() {
+        PooledTaskExecutor pool = currentPool.get();
+        if (pool==null) return;
+        AtomicInteger depth = blockingDepth.get();
+        if (depth.get() <= 0) return;
+        if (depth.decrementAndGet()==0) {
+            pool.releaseCompensation();
+        }
+    }
+
+    private void compensate() {
+        int blocked = blockedWorkers.incrementAndGet();
+        int max;
+        while ((max = maxBlockedWorkers.get()) < blocked && !maxBlockedWorkers.compareAndSet(max, blocked)) {}
+        compensationCount.incrementAndGet();
+        resizeCore();
+    }
+
+    private void releaseCompensation() {
+        blockedWorkers.decrementAndGet();
+        resizeCore();
+    }
+
+    private synchronized void resizeCore() {
+        int wanted = baseCorePoolSize + Math.max(0, blockedWorkers.get());
+        int target = Math.min(wanted, getMaximumPoolSize());
+        if (target != getCorePoolSize()) {
+            // increasing will start threads for any queued work; decreasing lets idle ones time out
+            setCorePoolSize(target);
+        }
+        // beyond the max, compensate with overflow workers; surplus ones retire themselves (see OverflowWorker)
+        while (overflowWorkers.get() < wanted - target) {
+            int count = overflowWorkers.incrementAndGet();
+            if (log.isDebugEnabled()) log.debug("All "+getMaximumPoolSize()+" pool threads of "+this+" needed for blocked work; starting overflow worker "+count);
+            overflowThreadFactory.newThread(new OverflowWorker()).start();
+        }
+    }
+
+    /** true (and counted as retired) if the calling overflow worker is no longer needed */
+    private synchronized boolean retireOverflowWorkerIfUnneeded() {
+        int needed = baseCorePoolSize + Math.max(0, blockedWorkers.get()) - getMaximumPoolSize();
+        if (overflowWorkers.get() > needed || (isShutdown() && getQueue().isEmpty())) {
+            overflowWorkers.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /** takes and runs queued work, while more pool threads are blocked than the pool can compensate for */
+    private class OverflowWorker implements Runnable {
+        @Override
+        public void run() {
+            currentPool.set(PooledTaskExecutor.this);
+            try {
+                while (!retireOverflowWorkerIfUnneeded()) {
+                    Runnable job;
+                    try {
+                        job = getQueue().poll(100, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        // count as retired; a later change in blocking will start a replacement if still needed
+                        synchronized (PooledTaskExecutor.this) { overflowWorkers.decrementAndGet(); }
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (job!=null) {
+                        job.run();
+                        resetBlockingDepth();
+                    }
+                }
+            } finally {
+                currentPool.remove();
+            }
+        }
+    }
+
+    /** number of pool threads currently blocked (as notified by {@link #beginBlocking()}) */
+    public int getBlockedWorkerCount() {
+        return blockedWorkers.get();
+    }
+
+    /** count of jobs run in overflow threads because the pool and queue were full */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /** a snapshot of the pool's saturation metrics, for reporting */
+    public Map<String, Object> getMetrics() {
+        int queueSize = getQueue().size();
+        return MutableMap.<String, Object>builder()
+                .put("poolSize", getPoolSize())
+                .put("activeCount", getActiveCount())
+                .put("baseCorePoolSize", baseCorePoolSize)
+                .put("corePoolSize", getCorePoolSize())
+                .put("maxPoolSize", getMaximumPoolSize())
+                .put("largestPoolSize", getLargestPoolSize())
+                .put("queueSize", queueSize)
+                .put("queueCapacity", queueCapacity)
+                .put("queueUtilisation", queueCapacity > 0 ? (double)queueSize / queueCapacity : 0.0)
+                .put("blockedWorkers", blockedWorkers.get())
+                .put("maxBlockedWorkers", maxBlockedWorkers.get())
+                .put("compensationCount", compensationCount.get())
+                .put("overflowCount", overflowCount.get())
+                .put("overflowWorkers", overflowWorkers.get())
+                .put("completedTaskCount", getCompletedTaskCount())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString()+"[blocked="+blockedWorkers.get()+", overflow="+overflowCount.get()+"]";
+    }
+
+    private class OverflowThreadPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor "+executor+" is shut down; rejecting "+r);
+            }
+            long count = overflowCount.incrementAndGet();
+            if (count==1 || count % 1000 == 0) {
+                log.warn("Task pool saturated ("+getPoolSize()+" threads, "+getQueue().size()+" queued); "
+                    + "running job in overflow thread (count "+count+"): "+r);
+            } else if (log.isDebugEnabled()) {
+                log.debug("Task pool saturated; running job in overflow thread (count "+count+"): "+r);
+            }
+            overflowThreadFactory.newThread(r).start();
+        }
+    }
+
+    static class PrioritizedFutureTask<T> extends FutureTask<T> {
+        final int priority;
+        final long sequence;
+
+        PrioritizedFutureTask(Callable<T> callable, int priority, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        PrioritizedFutureTask(Runnable runnable, T result, int priority, long sequence) {
+            super(runnable, result);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Runnable> PRIORITY_THEN_FIFO = new Comparator<Runnable>() {
+        @Override
+        public int compare(Runnable r1, Runnable r2) {
+            PrioritizedFutureTask<?> t1 = (PrioritizedFutureTask<?>) r1;
+            PrioritizedFutureTask<?> t2 = (PrioritizedFutureTask<?>) r2;
+            if (t1.priority != t2.priority) return t1.priority < t2.priority ? -1 : 1;
+            return Long.compare(t1.sequence, t2.sequence);
+        }
+    };
+
+    /** priority queue which refuses offers beyond its capacity, so that the executor grows or overflows */
+    private static class BoundedPriorityBlockingQueue extends PriorityBlockingQueue<Runnable> {
+        private static final long serialVersionUID = -6375386766066014436L;
+        private final int capacity;
+
+        BoundedPriorityBlockingQueue(int capacity) {
+            super(11, PRIORITY_THEN_FIFO);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable e) {
+            if (size() >= capacity) return false;
+            return super.offer(e);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+}
@@ -182,18 +182,23 @@ public class ScheduledTask extends BasicTask<Object> {
         return isCancelled() || (maxIterations!=null && maxIterations <= runCount) || (period==null && nextRun!=null && nextRun.isDone());
     }
     
-    public synchronized void blockUntilFirstScheduleStarted() {
+    public void blockUntilFirstScheduleStarted() {
         // TODO Assumes that maxIterations is not negative!
-        while (true) {
-            if (isCancelled()) throw new CancellationException();
-            if (recentRun==null)
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    Throwables.propagate(e);
-                }
-            if (recentRun!=null) return;
+        getLockInternal().lock();
+        try {
+            while (true) {
+                if (isCancelled()) throw new CancellationException();
+                if (recentRun==null)
+                    try {
+                        getStateChangedInternal().await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        Throwables.propagate(e);
+                    }
+                if (recentRun!=null) return;
+            }
+        } finally {
+            getLockInternal().unlock();
         }
     }
     
@@ -106,9 +106,11 @@ public class Tasks {
         if (current instanceof TaskInternal) {
             prevBlockingDetails = ((TaskInternal)current).setBlockingDetails(description);
         } 
+        PooledTaskExecutor.beginBlocking();
         try {
             return code.call();
         } finally {
+            PooledTaskExecutor.endBlocking();
             if (current instanceof TaskInternal)
                 ((TaskInternal)current).setBlockingDetails(prevBlockingDetails); 
         }
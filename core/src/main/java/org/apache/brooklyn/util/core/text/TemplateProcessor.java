@@ -20,12 +20,13 @@ package org.apache.brooklyn.util.core.text;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.drivers.EntityDriver;
@@ -45,11 +46,15 @@ import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 
-import freemarker.cache.StringTemplateLoader;
+import freemarker.core.Environment;
 import freemarker.template.Configuration;
 import freemarker.template.ObjectWrapper;
 import freemarker.template.Template;
@@ -69,6 +74,19 @@ public class TemplateProcessor {
 
     private static final Logger log = LoggerFactory.getLogger(TemplateProcessor.class);
 
+    /** shared by all templates; must not be changed once templates are created with it, as they are used concurrently */
+    private static final Configuration TEMPLATE_CONFIG = new Configuration();
+    
+    /** the name given to templates, as reported in any errors */
+    private static final String TEMPLATE_NAME = "config";
+    
+    static final int TEMPLATE_CACHE_MAX_SIZE = 1000;
+    
+    /** parsed templates, keyed by a hash of their contents; the same scripts are commonly rendered many times, e.g. across a cluster */
+    private static final Cache<String, Template> TEMPLATE_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(TEMPLATE_CACHE_MAX_SIZE)
+        .build();
+
     protected static TemplateModel wrapAsTemplateModel(Object o) throws TemplateModelException {
         if (o instanceof Map) return new DotSplittingTemplateModel((Map<?,?>)o);
         return ObjectWrapper.DEFAULT_WRAPPER.wrap(o);
@@ -357,6 +375,9 @@ public class TemplateProcessor {
         protected final EntityDriver driver;
         protected final ManagementContext mgmt;
         protected final DotSplittingTemplateModel extraSubstitutionsModel;
+        
+        // created when first requested, then reused for the rest of the template
+        private TemplateModel entityModel, configModel, mgmtModel, driverModel, locationModel, attributeModel;
 
         protected EntityAndMapTemplateModel(ManagementContext mgmt, Map<String,? extends Object> extraSubstitutions) {
             this.entity = null;
@@ -387,28 +408,35 @@ public class TemplateProcessor {
             if (extraSubstitutionsModel.contains(key))
                 return wrapAsTemplateModel( extraSubstitutionsModel.get(key) );
 
-            if ("entity".equals(key) && entity!=null)
-                return wrapAsTemplateModel( entity );
+            if ("entity".equals(key) && entity!=null) {
+                if (entityModel==null) entityModel = wrapAsTemplateModel( entity );
+                return entityModel;
+            }
             if ("config".equals(key)) {
-                if (entity!=null)
-                    return new EntityConfigTemplateModel(entity);
-                else
-                    return new MgmtConfigTemplateModel(mgmt);
+                if (configModel==null) configModel = (entity!=null) ? new EntityConfigTemplateModel(entity) : new MgmtConfigTemplateModel(mgmt);
+                return configModel;
             }
             if ("mgmt".equals(key)) {
-                return new MgmtConfigTemplateModel(mgmt);
+                if (mgmtModel==null) mgmtModel = new MgmtConfigTemplateModel(mgmt);
+                return mgmtModel;
             }
 
-            if ("driver".equals(key) && driver!=null)
-                return wrapAsTemplateModel( driver );
+            if ("driver".equals(key) && driver!=null) {
+                if (driverModel==null) driverModel = wrapAsTemplateModel( driver );
+                return driverModel;
+            }
             if ("location".equals(key)) {
-                if (driver!=null && driver.getLocation()!=null)
-                    return wrapAsTemplateModel( driver.getLocation() );
-                if (entity!=null)
-                    return wrapAsTemplateModel( Iterables.getOnlyElement( entity.getLocations() ) );
+                if (locationModel==null) {
+                    if (driver!=null && driver.getLocation()!=null)
+                        locationModel = wrapAsTemplateModel( driver.getLocation() );
+                    else if (entity!=null)
+                        locationModel = wrapAsTemplateModel( Iterables.getOnlyElement( entity.getLocations() ) );
+                }
+                if (locationModel!=null) return locationModel;
             }
             if ("attribute".equals(key)) {
-                return new EntityAttributeTemplateModel(entity);
+                if (attributeModel==null) attributeModel = new EntityAttributeTemplateModel(entity);
+                return attributeModel;
             }
             
             if (mgmt!=null) {
@@ -445,6 +473,9 @@ public class TemplateProcessor {
         protected final ManagementContext mgmt;
         protected final DotSplittingTemplateModel extraSubstitutionsModel;
 
+        // created when first requested, then reused for the rest of the template
+        private TemplateModel locationModel, configModel, mgmtModel;
+
         protected LocationAndMapTemplateModel(LocationInternal location, Map<String,? extends Object> extraSubstitutions) {
             this.location = checkNotNull(location, "location");
             this.mgmt = location.getManagementContext();
@@ -459,13 +490,17 @@ public class TemplateProcessor {
             if (extraSubstitutionsModel.contains(key))
                 return wrapAsTemplateModel( extraSubstitutionsModel.get(key) );
 
-            if ("location".equals(key))
-                return wrapAsTemplateModel( location );
+            if ("location".equals(key)) {
+                if (locationModel==null) locationModel = wrapAsTemplateModel( location );
+                return locationModel;
+            }
             if ("config".equals(key)) {
-                return new LocationConfigTemplateModel(location);
+                if (configModel==null) configModel = new LocationConfigTemplateModel(location);
+                return configModel;
             }
             if ("mgmt".equals(key)) {
-                return new MgmtConfigTemplateModel(mgmt);
+                if (mgmtModel==null) mgmtModel = new MgmtConfigTemplateModel(mgmt);
+                return mgmtModel;
             }
 
             if (mgmt!=null) {
@@ -513,19 +548,16 @@ public class TemplateProcessor {
     /** Processes template contents against the given {@link TemplateHashModel}. */
     public static String processTemplateContents(String templateContents, final TemplateHashModel substitutions) {
         try {
-            Configuration cfg = new Configuration();
-            StringTemplateLoader templateLoader = new StringTemplateLoader();
-            templateLoader.putTemplate("config", templateContents);
-            cfg.setTemplateLoader(templateLoader);
-            Template template = cfg.getTemplate("config");
+            Template template = getTemplate(templateContents);
 
             // TODO could expose CAMP '$brooklyn:' style dsl, based on template.createProcessingEnvironment
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Writer out = new OutputStreamWriter(baos);
-            template.process(substitutions, out);
-            out.flush();
-
-            return new String(baos.toByteArray());
+            StringWriter out = new StringWriter();
+            Environment env = template.createProcessingEnvironment(substitutions, out);
+            // as would be the defaults for a new configuration; the shared one has those from when it was created
+            env.setLocale(Locale.getDefault());
+            env.setTimeZone(TimeZone.getDefault());
+            env.process();
+            return out.toString();
         } catch (Exception e) {
             log.warn("Error processing template (propagating): "+e, e);
             log.debug("Template which could not be parsed (causing "+e+") is:"
@@ -533,4 +565,17 @@ public class TemplateProcessor {
             throw Exceptions.propagate(e);
         }
     }
+
+    /** Returns the parsed template for the given contents, parsing it only if not already cached. */
+    @VisibleForTesting
+    static Template getTemplate(String templateContents) throws IOException {
+        String key = Hashing.sha256().hashString(templateContents, Charsets.UTF_8).toString();
+        Template result = TEMPLATE_CACHE.getIfPresent(key);
+        if (result==null) {
+            // if parsed concurrently by another thread, either result will do
+            result = new Template(TEMPLATE_NAME, new StringReader(templateContents), TEMPLATE_CONFIG);
+            TEMPLATE_CACHE.put(key, result);
+        }
+        return result;
+    }
 }
@@ -24,15 +24,18 @@ import static org.testng.Assert.assertTrue;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.sensor.AttributeMap;
+import org.apache.brooklyn.core.sensor.SensorPublishPolicy;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
@@ -40,6 +43,7 @@ import org.apache.brooklyn.core.test.entity.TestEntityImpl;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -47,6 +51,7 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -221,6 +226,145 @@ public class AttributeMapTest {
             }});
     }
     
+    @Test
+    public void testConcurrentModifyAttributeCallsWithDefaultStorage() throws Exception {
+        map = new AttributeMap(entityImpl);
+        testConcurrentModifyAttributeCalls();
+    }
+    
+    @Test
+    public void testConcurrentModifyAttributeCallsPublishInOrder() throws Exception {
+        map = new AttributeMap(entityImpl);
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        final RecordingSensorEventListener<Integer> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        Function<Integer, Maybe<Integer>> modifier = new Function<Integer, Maybe<Integer>>() {
+            @Override public Maybe<Integer> apply(Integer input) {
+                return Maybe.of((input == null) ? 1 : input + 1);
+            }
+        };
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_TASKS; i++) {
+            futures.add(executor.submit(newModifyAttributeCallable(map, sensor, modifier)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        
+        // each value is published once, in the order set, so the last event agrees with the attribute
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 1; i <= NUM_TASKS; i++) {
+            expected.add(i);
+        }
+        assertEventValuesEventually(listener, expected.toArray(new Integer[0]));
+        assertEquals(map.getValue(sensor), Integer.valueOf(NUM_TASKS));
+    }
+    
+    @Test
+    public void testAsMapKeepsInsertionOrderWithDefaultStorage() throws Exception {
+        map = new AttributeMap(entityImpl);
+        AttributeSensor<String> sensorB = Sensors.newStringSensor("b", "");
+        AttributeSensor<String> sensorA = Sensors.newStringSensor("a", "");
+        AttributeSensor<String> sensorC = Sensors.newStringSensor("c", "");
+        
+        map.update(sensorB, "1");
+        map.update(sensorA, "2");
+        map.update(sensorC, null);
+        map.update(sensorB, "3");
+        assertEquals(ImmutableList.copyOf(map.asMap().keySet()), ImmutableList.of("b", "a", "c"));
+        assertEquals(map.asMap().get("b"), "3");
+        assertTrue(map.asMap().containsKey("c"));
+        
+        map.remove(sensorB);
+        map.update(sensorB, "4");
+        assertEquals(ImmutableList.copyOf(map.asMap().keySet()), ImmutableList.of("a", "c", "b"));
+    }
+    
+    @Test
+    public void testPublishPolicySuppressesEqualValues() throws Exception {
+        AttributeSensor<String> sensor = Sensors.builder(String.class, "a").publishPolicy(SensorPublishPolicy.suppressEqual()).build();
+        final RecordingSensorEventListener<String> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        map.update(sensor, "x");
+        map.update(sensor, "x");
+        map.update(sensor, "y");
+        map.update(sensor, "y");
+        map.update(sensor, null);
+        map.update(sensor, null);
+        
+        assertEventValuesEventually(listener, "x", "y", null);
+        assertEquals(map.getValue(sensor), null);
+    }
+    
+    @Test
+    public void testPublishPolicyMinPeriodPublishesLatestValueLater() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.builder(Integer.class, "a").publishPolicy(SensorPublishPolicy.minPeriod(Duration.millis(200))).build();
+        final RecordingSensorEventListener<Integer> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        for (int i = 1; i <= 5; i++) {
+            map.update(sensor, i);
+        }
+        // value is stored immediately, even though not yet published
+        assertEquals(map.getValue(sensor), (Integer)5);
+        assertEventValuesEventually(listener, 1, 5);
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", Duration.millis(300)), new Runnable() {
+            @Override public void run() {
+                assertEquals(listener.getEvents().size(), 2, "events="+listener.getEvents());
+            }});
+    }
+    
+    @Test
+    public void testPublishPolicyMinDeltaFromEntityConfig() throws Exception {
+        AttributeSensor<Double> sensor = Sensors.newDoubleSensor("a");
+        entityImpl.config().set(SensorPublishPolicy.PUBLISH_POLICIES, ImmutableMap.of("a", "minDelta=1"));
+        final RecordingSensorEventListener<Double> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        map.update(sensor, 1.0);
+        map.update(sensor, 1.5);
+        map.update(sensor, 1.9);
+        map.update(sensor, 2.1);
+        map.update(sensor, 2.5);
+        
+        assertEventValuesEventually(listener, 1.0, 2.1);
+    }
+    
+    @Test
+    public void testParsePublishPolicy() throws Exception {
+        assertEquals(SensorPublishPolicy.parse(""), SensorPublishPolicy.ALWAYS);
+        assertEquals(SensorPublishPolicy.parse("suppressEqual, minPeriod=5s, minDelta=0.5"),
+            SensorPublishPolicy.suppressEqual().andMinPeriod(Duration.FIVE_SECONDS).andMinDelta(0.5));
+    }
+    
+    @Test
+    public void testSynchObjectOfConcurrentStorageDoesNotBlockUpdates() throws Exception {
+        AttributeMap concurrentMap = new AttributeMap(entityImpl);
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("attributeMapTest.exampleSensor");
+        
+        synchronized (concurrentMap.getSynchObjectInternal()) {
+            executor.submit(newUpdateMapRunnable(concurrentMap, sensor, 1)).get(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS);
+            executor.submit(newModifyAttributeCallable(concurrentMap, sensor, Functions.constant(Maybe.of(2)))).get(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+        assertEquals(concurrentMap.getValue(sensor), (Integer)2);
+    }
+    
+    @Test
+    public void testSynchObjectOfSynchronizedStorageIsTheStorage() throws Exception {
+        Map<Collection<String>, Object> storage = Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of());
+        assertTrue(new AttributeMap(entityImpl, storage).getSynchObjectInternal() == storage);
+    }
+    
+    @SafeVarargs
+    private final <T> void assertEventValuesEventually(final RecordingSensorEventListener<T> listener, final T... expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(Lists.newArrayList(listener.getEventValues()), Lists.newArrayList(expected));
+            }});
+    }
+    
     protected <T> Runnable newUpdateMapRunnable(final AttributeMap map, final AttributeSensor<T> attribute, final T val) {
         return new Runnable() {
             @Override public void run() {
@@ -42,6 +42,7 @@ import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.ConfigPredicates;
+import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensorAndConfigKey.IntegerAttributeSensorAndConfigKey;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
@@ -200,6 +201,65 @@ public class EntityConfigTest extends BrooklynAppUnitTestSupport {
         assertEquals(child.config().getLocalBag().getAllConfig(), ImmutableMap.of("mychildentity.myconfigwithflagname", "overrideMyval"));
     }
 
+    @Test
+    public void testResolvedConfigCachedUntilAncestorConfigChanges() throws Exception {
+        TestEntity child = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity grandchild = child.addChild(EntitySpec.create(TestEntity.class));
+        AbstractConfigMapImpl<?> configMap = (AbstractConfigMapImpl<?>) grandchild.config().getInternalConfigMap();
+
+        app.config().set(TestEntity.CONF_NAME, "appval");
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "appval");
+        long hits = configMap.getResolvedConfigCacheHits();
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "appval");
+        assertEquals(configMap.getResolvedConfigCacheHits(), hits+1);
+
+        app.config().set(TestEntity.CONF_NAME, "appval2");
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "appval2");
+        child.config().set(TestEntity.CONF_NAME, "childval");
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "childval");
+        grandchild.config().set(TestEntity.CONF_NAME, "grandchildval");
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "grandchildval");
+        ((EntityInternal)grandchild).config().removeKey(TestEntity.CONF_NAME);
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "childval");
+        ((EntityInternal)child).config().removeKey(TestEntity.CONF_NAME);
+        assertEquals(grandchild.config().get(TestEntity.CONF_NAME), "appval2");
+    }
+
+    @Test
+    public void testResolvedConfigCachedPerQueryKey() throws Exception {
+        ConfigKey<String> keyWithDefault = ConfigKeys.newStringConfigKey("myentity.notset", "", "defaultval");
+        ConfigKey<String> keyWithoutDefault = ConfigKeys.newStringConfigKey("myentity.notset");
+        assertEquals(app.config().get(keyWithDefault), "defaultval");
+        assertEquals(app.config().get(keyWithoutDefault), null);
+        assertEquals(app.config().get(keyWithDefault), "defaultval");
+    }
+
+    @Test
+    public void testResolvedConfigCacheInvalidatedWhenKeyAdded() throws Exception {
+        ConfigKey<String> keyWithDefault = ConfigKeys.newStringConfigKey("myentity.dynamic", "", "defaultval");
+        ConfigKey<String> keyWithoutDefault = ConfigKeys.newStringConfigKey("myentity.dynamic");
+        TestEntity child = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertEquals(child.config().get(keyWithoutDefault), null);
+
+        ((EntityInternal)app).getMutableEntityType().addConfigKey(keyWithDefault);
+        assertEquals(child.config().get(keyWithoutDefault), "defaultval");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResolvedConfigNotCachedWhenDeferred() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        app.config().set((ConfigKey<Object>)(ConfigKey<?>)TestEntity.CONF_NAME, new DeferredSupplier<String>() {
+            @Override public String get() {
+                return "val"+count.incrementAndGet();
+            }});
+        TestEntity child = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        String val1 = child.config().get(TestEntity.CONF_NAME);
+        String val2 = child.config().get(TestEntity.CONF_NAME);
+        assertTrue(val1.startsWith("val"), "val1="+val1);
+        assertFalse(val1.equals(val2), "val1="+val1+"; val2="+val2);
+    }
+
     @Test
     public void testGetConfigMapWithSubKeys() throws Exception {
         TestEntity entity = mgmt.getEntityManager().createEntity(EntitySpec.create(TestEntity.class)
@@ -18,22 +18,33 @@
  */
 package org.apache.brooklyn.core.entity;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.entity.trait.Changeable;
+import org.apache.brooklyn.core.mgmt.internal.EntityIndex;
+import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.text.StringPredicates;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
 
@@ -166,4 +177,96 @@ public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
         assertTrue(EntityPredicates.hasInterfaceMatching(".*C.*able").apply(group));
     }
 
+    @Test
+    public void testAllOf() throws Exception {
+        entity.sensors().set(TestEntity.NAME, "myname");
+        assertTrue(EntityPredicates.allOf(EntityPredicates.applicationIdEqualTo(app.getId()), EntityPredicates.attributeEqualTo(TestEntity.NAME, "myname")).apply(entity));
+        assertFalse(EntityPredicates.allOf(EntityPredicates.applicationIdEqualTo(app.getId()), EntityPredicates.attributeEqualTo(TestEntity.NAME, "wrongname")).apply(entity));
+        assertFalse(EntityPredicates.allOf(EntityPredicates.applicationIdEqualTo("wrongid"), EntityPredicates.attributeEqualTo(TestEntity.NAME, "myname")).apply(entity));
+    }
+
+    @Test
+    public void testFindUsingEntityIndex() throws Exception {
+        EntityIndex index = ((EntityManagerInternal)mgmt.getEntityManager()).getEntityIndex();
+        TestEntity other = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        other.sensors().set(TestEntity.NAME, "myname");
+        group.addMember(entity);
+
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.applicationIdEqualTo(app.getId()))), ImmutableSet.of(app, entity, group, other));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.hasInterfaceMatching(".*TestEntity"))), ImmutableSet.of(entity, other));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.isMemberOf(group))), ImmutableSet.of(entity));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.isChildOf(app))), ImmutableSet.of(entity, group, other));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.allOf(
+                EntityPredicates.applicationIdEqualTo(app.getId()),
+                EntityPredicates.hasInterfaceMatching(".*TestEntity"),
+                EntityPredicates.attributeEqualTo(TestEntity.NAME, "myname")))), ImmutableSet.of(other));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.attributeEqualTo(TestEntity.NAME, "myname"))), ImmutableSet.of(other));
+
+        Entities.unmanage(other);
+        assertFalse(index.contains(other.getId()));
+        assertEquals(ImmutableSet.copyOf(index.find(EntityPredicates.hasInterfaceMatching(".*TestEntity"))), ImmutableSet.of(entity));
+        assertEquals(ImmutableSet.copyOf(mgmt.getEntityManager().findEntitiesInApplication(app, EntityPredicates.hasInterfaceMatching(".*TestEntity"))), ImmutableSet.of(entity));
+    }
+
+    @Test
+    public void testEntityIndexKeepsSensorConfigAndTagIndexesUpToDate() throws Exception {
+        EntityIndex index = ((EntityManagerInternal)mgmt.getEntityManager()).getEntityIndex();
+        TestEntity other = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity grandchild = other.addChild(EntitySpec.create(TestEntity.class));
+        
+        // sensor: indexed when first queried, then kept up to date
+        entity.sensors().set(TestEntity.NAME, "a");
+        assertIndexed(index, EntityPredicates.attributeEqualTo(TestEntity.NAME, "a"), entity);
+        other.sensors().set(TestEntity.NAME, "a");
+        entity.sensors().set(TestEntity.NAME, "b");
+        assertIndexed(index, EntityPredicates.attributeEqualTo(TestEntity.NAME, "a"), other);
+        assertIndexed(index, EntityPredicates.attributeEqualTo(TestEntity.NAME.getName(), "b"), entity);
+        other.sensors().remove(TestEntity.NAME);
+        assertIndexed(index, EntityPredicates.attributeEqualTo(TestEntity.NAME, "a"));
+        
+        // config: including where inherited
+        assertIndexed(index, EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "x"));
+        other.config().set(TestEntity.CONF_NAME, "x");
+        assertIndexed(index, EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "x"), other, grandchild);
+        grandchild.config().set(TestEntity.CONF_NAME, "y");
+        assertIndexed(index, EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "x"), other);
+        // the default applies to entities which are not TestEntity too
+        assertIndexed(index, EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "defaultval"), app, entity, group);
+        
+        // tags
+        assertIndexed(index, EntityPredicates.hasTag("mytag"));
+        entity.tags().addTag("mytag");
+        assertIndexed(index, EntityPredicates.hasTag("mytag"), entity);
+        entity.tags().removeTag("mytag");
+        assertIndexed(index, EntityPredicates.hasTag("mytag"));
+        
+        // unmanaged entities are removed from all indexes
+        other.sensors().set(TestEntity.NAME, "a");
+        other.tags().addTag("mytag");
+        Entities.unmanage(other);
+        assertIndexed(index, EntityPredicates.attributeEqualTo(TestEntity.NAME, "a"));
+        assertIndexed(index, EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "x"));
+        assertIndexed(index, EntityPredicates.hasTag("mytag"));
+    }
+
+    @Test
+    public void testEntityIndexTreatsMutableValuesAsAlwaysCandidates() throws Exception {
+        EntityIndex index = ((EntityManagerInternal)mgmt.getEntityManager()).getEntityIndex();
+        AttributeSensor<Object> listSensor = Sensors.newSensor(Object.class, "test.list");
+        List<Object> list = MutableList.<Object>of("a");
+        entity.sensors().set(listSensor, list);
+        Predicate<Entity> predicate = EntityPredicates.attributeEqualTo(listSensor, (Object) ImmutableList.of("a", "b"));
+        assertTrue(index.find(predicate).isEmpty());
+        
+        // changed without being set again, so the index cannot know; but it must still be found
+        list.add("b");
+        assertEquals(index.find(predicate), ImmutableList.of(entity));
+    }
+
+    private void assertIndexed(EntityIndex index, Predicate<Entity> predicate, Entity... expected) {
+        // the index selects just these as candidates, and finds them
+        assertEquals(ImmutableSet.copyOf(((EntityIndex.IndexedPredicate)predicate).getCandidates(index)), ImmutableSet.copyOf(expected));
+        assertEquals(ImmutableSet.copyOf(index.find(predicate)), ImmutableSet.copyOf(expected));
+    }
+
 }
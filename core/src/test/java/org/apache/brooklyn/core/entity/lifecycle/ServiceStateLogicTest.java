@@ -21,6 +21,7 @@ package org.apache.brooklyn.core.entity.lifecycle;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -44,6 +45,7 @@ import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl.TestEntityWithoutEnrichers;
 import org.apache.brooklyn.entity.group.DynamicCluster;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
@@ -294,6 +296,72 @@ public class ServiceStateLogicTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsContinually(cluster, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
     }
 
+    @Test
+    public void testIndicatorsFromChildrenUpdatedAsChildrenChange() {
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        ComputeServiceIndicatorsFromChildrenAndMembers enricher = parent.enrichers().add(ServiceStateLogic.newEnricherFromChildren()
+                .uniqueTag("test-indicators"));
+        TestEntity child1 = parent.addChild(EntitySpec.create(TestEntity.class).impl(TestEntityWithoutEnrichers.class).displayName("child1"));
+        TestEntity child2 = parent.addChild(EntitySpec.create(TestEntity.class).impl(TestEntityWithoutEnrichers.class));
+        for (Entity child : ImmutableList.of(child1, child2)) {
+            child.sensors().set(Attributes.SERVICE_UP, true);
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+        }
+        assertIndicatorEventually(parent, Attributes.SERVICE_NOT_UP_INDICATORS, "test-indicators", null);
+        assertIndicatorEventually(parent, Attributes.SERVICE_PROBLEMS, "test-indicators", null);
+        
+        child1.sensors().set(Attributes.SERVICE_UP, false);
+        child1.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.ON_FIRE);
+        child2.sensors().set(Attributes.SERVICE_UP, false);
+        child2.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.ON_FIRE);
+        assertIndicatorEventually(parent, Attributes.SERVICE_NOT_UP_INDICATORS, "test-indicators", "None of the entities are up");
+        
+        child2.sensors().set(Attributes.SERVICE_UP, true);
+        child2.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+        assertIndicatorEventually(parent, Attributes.SERVICE_NOT_UP_INDICATORS, "test-indicators", null);
+        assertIndicatorEventually(parent, Attributes.SERVICE_PROBLEMS, "test-indicators", 
+            "Required entity not healthy: child1 ("+child1.getId()+")");
+        
+        Entities.unmanage(child1);
+        assertIndicatorEventually(parent, Attributes.SERVICE_PROBLEMS, "test-indicators", null);
+        Map<String, Object> producers = (Map<String, Object>) enricher.getMetrics().get("producers");
+        assertEquals(producers.get("up"), 1, "metrics="+enricher.getMetrics());
+        assertEquals(producers.get("notUp"), 0, "metrics="+enricher.getMetrics());
+        assertEquals(producers.get("running"), 1, "metrics="+enricher.getMetrics());
+        assertEquals(producers.get("notHealthy"), 0, "metrics="+enricher.getMetrics());
+    }
+
+    @Test
+    public void testIndicatorsFromChildrenWithPublishPeriod() {
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        ComputeServiceIndicatorsFromChildrenAndMembers enricher = parent.enrichers().add(ServiceStateLogic.newEnricherFromChildren()
+                .uniqueTag("test-indicators")
+                .publishPeriod(Duration.ONE_SECOND));
+        TestEntity child = parent.addChild(EntitySpec.create(TestEntity.class).impl(TestEntityWithoutEnrichers.class));
+        // entities without a state are ignored by default
+        child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+        
+        for (int i = 0; i < 20; i++) {
+            child.sensors().set(Attributes.SERVICE_UP, i%2==1);
+        }
+        // the latest state is published after the period, with fewer recomputations than changes
+        assertIndicatorEventually(parent, Attributes.SERVICE_NOT_UP_INDICATORS, "test-indicators", null);
+        child.sensors().set(Attributes.SERVICE_UP, false);
+        assertIndicatorEventually(parent, Attributes.SERVICE_NOT_UP_INDICATORS, "test-indicators", child+" is not up");
+        
+        Map<String, Object> metrics = enricher.getMetrics();
+        assertTrue((Long)metrics.get("recomputes") < (Long)metrics.get("updates"), "metrics="+metrics);
+        assertTrue((Long)metrics.get("deferred") > 0, "metrics="+metrics);
+    }
+
+    private static void assertIndicatorEventually(final Entity entity, final AttributeSensor<Map<String, Object>> sensor, final String key, final Object value) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Map<String, Object> indicators = entity.getAttribute(sensor);
+                assertEquals(indicators==null ? null : indicators.get(key), value, "indicators="+indicators);
+            }});
+    }
+
     public static class CountingComputeServiceState extends ComputeServiceState {
         AtomicInteger cntCalled = new AtomicInteger();
         AtomicInteger cntCalledWithNull = new AtomicInteger();
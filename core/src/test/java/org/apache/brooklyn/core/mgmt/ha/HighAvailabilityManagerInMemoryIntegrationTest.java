@@ -62,6 +62,11 @@ public class HighAvailabilityManagerInMemoryIntegrationTest extends HighAvailabi
     public void testGetManagementPlaneStatusManyTimes() throws Exception {
     }
 
+    @Override
+    @Test(groups="Integration", enabled=false) // would sleep for over 40s
+    public void testHeartbeatsOverTransportKeepMasterAliveWithFewerStoreAccesses() throws Exception {
+    }
+
     @Test(groups="Integration")
     @Override
     public void testGetManagementPlaneStatus() throws Exception {
@@ -25,6 +25,8 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
@@ -55,7 +57,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 @Test
@@ -234,6 +238,104 @@ public abstract class HighAvailabilityManagerTestFixture {
         assertNotEquals(state.getManagementNodes().get(ownNodeId).getStatus(), ManagementNodeState.FAILED);
     }
 
+    @Test
+    public void testPromotesOnlyWhenMasterHeartbeatsOverTransportStopAndPersistedRecordOutOfDate() throws Exception {
+        RecordingHeartbeatTransport transport = new RecordingHeartbeatTransport();
+        manager.setHeartbeatTransport(transport);
+        managementContext.getBrooklynProperties().put(manager.HEARTBEAT_TRANSPORT_TIMEOUT, Duration.seconds(2));
+        persister.delta(ManagementPlaneSyncRecordDeltaImpl.builder()
+                .node(newManagerMemento(ownNodeId, ManagementNodeState.HOT_STANDBY))
+                .node(newManagerMemento("node1", ManagementNodeState.MASTER))
+                .setMaster("node1")
+                .build());
+        transport.receive(newManagerMemento("node1", ManagementNodeState.MASTER), tickerCurrentMillis());
+        
+        manager.start(HighAvailabilityMode.AUTO);
+        promotionListener.assertNotCalled();
+        assertEquals(Iterables.getLast(transport.published).getNodeId(), ownNodeId);
+        
+        // no heartbeat over the transport, but master's persisted record still within the heartbeat timeout
+        tickerAdvance(Duration.seconds(3));
+        manager.publishAndCheck(false);
+        manager.publishAndCheck(false);
+        promotionListener.assertNotCalled();
+        
+        // master's persisted record now also out-of-date
+        tickerAdvance(Duration.seconds(28));
+        promotionListener.assertCalledEventually();
+    }
+    
+    @Test
+    public void testPromotesQuicklyWhenMasterHeartbeatsOverTransportStopAndItStopsWritingToStore() throws Exception {
+        RecordingHeartbeatTransport transport = new RecordingHeartbeatTransport();
+        manager.setHeartbeatTransport(transport);
+        managementContext.getBrooklynProperties().put(manager.HEARTBEAT_TRANSPORT_TIMEOUT, Duration.seconds(2));
+        managementContext.getBrooklynProperties().put(manager.HEARTBEAT_TRANSPORT_LOSS_TIMEOUT, Duration.seconds(5));
+        persister.delta(ManagementPlaneSyncRecordDeltaImpl.builder()
+                .node(newManagerMemento(ownNodeId, ManagementNodeState.HOT_STANDBY))
+                .node(newManagerMemento("node1", ManagementNodeState.MASTER))
+                .setMaster("node1")
+                .build());
+        transport.receive(newManagerMemento("node1", ManagementNodeState.MASTER), tickerCurrentMillis());
+        manager.start(HighAvailabilityMode.AUTO);
+        
+        // master no longer heard over the transport, but still writing its record, as a live master does while it cannot hear us
+        Long writesSkipped = null;
+        for (int i=0; i<15; i++) {
+            tickerAdvance(Duration.ONE_SECOND);
+            persister.delta(ManagementPlaneSyncRecordDeltaImpl.builder()
+                    .node(newManagerMemento("node1", ManagementNodeState.MASTER))
+                    .build());
+            manager.publishAndCheck(false);
+            if (i==2) writesSkipped = getHeartbeatMetric("storeWritesSkipped");
+        }
+        promotionListener.assertNotCalled();
+        // and once past the transport timeout we write our own record on each poll while master is not heard
+        assertEquals(getHeartbeatMetric("storeWritesSkipped"), writesSkipped);
+        
+        // when master stops writing too, it is judged failed after the loss timeout, well within the heartbeat timeout
+        for (int i=0; i<4; i++) {
+            tickerAdvance(Duration.ONE_SECOND);
+            manager.publishAndCheck(false);
+        }
+        promotionListener.assertNotCalled();
+        tickerAdvance(Duration.seconds(2));
+        promotionListener.assertCalledEventually();
+    }
+    
+    @Test
+    public void testHeartbeatsOverTransportKeepMasterAliveWithFewerStoreAccesses() throws Exception {
+        RecordingHeartbeatTransport transport = new RecordingHeartbeatTransport();
+        manager.setHeartbeatTransport(transport);
+        persister.delta(ManagementPlaneSyncRecordDeltaImpl.builder()
+                .node(newManagerMemento(ownNodeId, ManagementNodeState.HOT_STANDBY))
+                .node(newManagerMemento("node1", ManagementNodeState.MASTER))
+                .setMaster("node1")
+                .build());
+        transport.receive(newManagerMemento("node1", ManagementNodeState.MASTER), tickerCurrentMillis());
+        manager.start(HighAvailabilityMode.AUTO);
+        
+        // master's record in the store goes stale, but it is heard from over the transport
+        for (int i=0; i<40; i++) {
+            tickerAdvance(Duration.ONE_SECOND);
+            transport.receive(newManagerMemento("node1", ManagementNodeState.MASTER), tickerCurrentMillis());
+            manager.publishAndCheck(false);
+        }
+        promotionListener.assertNotCalled();
+        Map<?,?> heartbeat = (Map<?,?>) ((Map<?,?>)manager.getMetrics().get("highAvailability")).get("heartbeat");
+        assertTrue((Long)heartbeat.get("storeReadsSkipped") > 0, "heartbeat="+heartbeat);
+        assertTrue((Long)heartbeat.get("storeWritesSkipped") > 0, "heartbeat="+heartbeat);
+        
+        // and when it stops being heard from, a new master is chosen
+        tickerAdvance(Duration.seconds(4));
+        promotionListener.assertCalledEventually();
+    }
+
+    private Long getHeartbeatMetric(String name) {
+        Map<?,?> heartbeat = (Map<?,?>) ((Map<?,?>)manager.getMetrics().get("highAvailability")).get("heartbeat");
+        return (Long) heartbeat.get(name);
+    }
+
     protected Duration getPollPeriod() {
         return Duration.millis(10);
     }
@@ -260,6 +362,30 @@ public abstract class HighAvailabilityManagerTestFixture {
         return rb.build();
     }
     
+    /** a transport on which the test supplies the heartbeats received, and records those published */
+    public static class RecordingHeartbeatTransport implements HeartbeatTransport {
+        public final List<ManagementNodeSyncRecord> published = Lists.newCopyOnWriteArrayList();
+        private final Map<String, ManagementNodeSyncRecord> received = new ConcurrentHashMap<String, ManagementNodeSyncRecord>();
+        
+        public void receive(ManagementNodeSyncRecord record, long receivedTimestamp) {
+            received.put(record.getNodeId(), BasicManagementNodeSyncRecord.builder().from(record).remoteTimestamp(receivedTimestamp).build());
+        }
+        
+        @Override public void start() {}
+        
+        @Override public void publish(ManagementNodeSyncRecord ownRecord) {
+            published.add(ownRecord);
+        }
+        
+        @Override public Map<String, ManagementNodeSyncRecord> getReceived() {
+            return ImmutableMap.copyOf(received);
+        }
+        
+        @Override public void stop() {
+            received.clear();
+        }
+    }
+    
     public static class RecordingPromotionListener implements PromotionListener {
         public final List<Long> callTimestamps = Lists.newCopyOnWriteArrayList();
         
@@ -20,6 +20,8 @@ package org.apache.brooklyn.core.mgmt.ha;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayDeque;
@@ -37,6 +39,8 @@ import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
 import org.apache.brooklyn.api.mgmt.ha.ManagementPlaneSyncRecordPersister;
+import org.apache.brooklyn.api.policy.Policy;
+import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.Feed;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityAsserts;
@@ -55,6 +59,8 @@ import org.apache.brooklyn.core.mgmt.rebind.RebindTestFixture;
 import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.policy.TestPolicy;
+import org.apache.brooklyn.entity.stock.BasicEntity;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation.LocalhostMachine;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -71,6 +77,8 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 public class HotStandbyTest {
@@ -170,7 +178,12 @@ public class HotStandbyTest {
     }
     
     private HaMgmtNode createHotStandby(Duration rebindPeriod) throws Exception {
+        return createHotStandby(rebindPeriod, true);
+    }
+    
+    private HaMgmtNode createHotStandby(Duration rebindPeriod, boolean incremental) throws Exception {
         HaMgmtNode n2 = newNode(rebindPeriod);
+        n2.mgmt.getBrooklynProperties().put(RebindManagerImpl.READ_ONLY_INCREMENTAL, incremental);
         n2.ha.start(HighAvailabilityMode.HOT_STANDBY);
         assertEquals(n2.ha.getNodeState(), ManagementNodeState.HOT_STANDBY);
         return n2;
@@ -331,6 +344,159 @@ public class HotStandbyTest {
         Assert.assertNull(n2.mgmt.lookup(child.getId(), Application.class));
     }
 
+    @Test
+    public void testHotStandbyRereadsOnlyChangesAndSkipsWhenNone() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        waitForFirstPeriodicReadOnlyRebind(n2);
+        assertReadOnlyIterations(n2, 1, 0, 1);
+        
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 2, 0, 1);
+        
+        TestEntity child = app.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "first-child"));
+        app.sensors().set(TestEntity.SEQUENCE, 4);
+        forcePersistNow(n1);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 2, 1, 1);
+        Application appRO = n2.mgmt.lookup(app.getId(), Application.class);
+        assertEquals(appRO.getAttribute(TestEntity.SEQUENCE), (Integer)4);
+        assertEquals(Iterables.getOnlyElement(appRO.getChildren()).getConfig(TestEntity.CONF_NAME), "first-child");
+        
+        Entities.unmanage(child);
+        forcePersistNow(n1);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 2, 2, 1);
+        assertEquals(appRO.getChildren().size(), 0);
+        Assert.assertNull(n2.mgmt.lookup(child.getId(), Entity.class));
+        
+        // a full checkpoint requires everything to be re-read
+        n1.mgmt.getRebindManager().forcePersistNow(true, null);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 2, 2, 2);
+        assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 1);
+    }
+    
+    /** the periodic task runs once straight after the initial rebind, finding nothing changed */
+    private void waitForFirstPeriodicReadOnlyRebind(final HaMgmtNode hotStandby) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Map<?,?> iterations = (Map<?,?>) hotStandby.rebinder().getMetrics().get("rebindReadOnlyIterations");
+                assertEquals(iterations.get("skipped"), 1L);
+            }});
+    }
+    
+    @Test
+    public void testHotStandbyReloadsOnlyChangedEntities() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        TestEntity unchanged = app.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity changed = app.addChild(EntitySpec.create(TestEntity.class));
+        Policy policy = changed.policies().add(PolicySpec.create(TestPolicy.class));
+        forcePersistNow(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        waitForFirstPeriodicReadOnlyRebind(n2);
+        
+        Entity appRO = n2.mgmt.lookup(app.getId(), Entity.class);
+        Entity unchangedRO = n2.mgmt.lookup(unchanged.getId(), Entity.class);
+        Entity changedRO = n2.mgmt.lookup(changed.getId(), Entity.class);
+        Entity appBefore = Entities.deproxy(appRO);
+        Entity unchangedBefore = Entities.deproxy(unchangedRO);
+        Entity changedBefore = Entities.deproxy(changedRO);
+        
+        changed.sensors().set(TestEntity.SEQUENCE, 4);
+        forcePersistNow(n1);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 1, 1, 1);
+        
+        assertSame(Entities.deproxy(appRO), appBefore);
+        assertSame(Entities.deproxy(unchangedRO), unchangedBefore);
+        assertNotSame(Entities.deproxy(changedRO), changedBefore);
+        assertEquals(changedRO.getAttribute(TestEntity.SEQUENCE), (Integer)4);
+        assertEquals(Iterables.getOnlyElement(Entities.deproxy(changedRO).policies()).getId(), policy.getId());
+        assertEquals(changedRO.getParent(), appRO);
+        assertEquals(appRO.getChildren().size(), 2);
+        
+        // a changed adjunct is reloaded with its entity
+        changedBefore = Entities.deproxy(changedRO);
+        policy.config().set(TestPolicy.CONF_NAME, "changed");
+        forcePersistNow(n1);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 1, 2, 1);
+        assertSame(Entities.deproxy(unchangedRO), unchangedBefore);
+        assertNotSame(Entities.deproxy(changedRO), changedBefore);
+        assertEquals(Iterables.getOnlyElement(Entities.deproxy(changedRO).policies()).config().get(TestPolicy.CONF_NAME), "changed");
+    }
+    
+    @Test
+    public void testPromotionFromHotStandbyReadsChangesAndReportsPhases() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        waitForFirstPeriodicReadOnlyRebind(n2);
+        
+        // changed since the standby last read
+        app.sensors().set(TestEntity.SEQUENCE, 4);
+        forcePersistNow(n1);
+        n1.ha.stop();
+        n2.ha.changeMode(HighAvailabilityMode.MASTER);
+        assertMaster(n2);
+        assertEquals(n2.mgmt.lookup(app.getId(), Application.class).getAttribute(TestEntity.SEQUENCE), (Integer)4);
+        
+        Map<?,?> promotion = getLastPromotion(n2);
+        assertEquals(promotion.get("fromState"), ManagementNodeState.HOT_STANDBY);
+        assertEquals(((Map<?,?>)promotion.get("phases")).keySet(), 
+            ImmutableSet.of("stopStandby", "publish", "rebind", "startPersistence"));
+    }
+    
+    @Test(groups="Integration") // because slow, creating many entities
+    public void testPromotionFromHotStandbyWithManyEntities() throws Exception {
+        final int numChildren = 10*1000;
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        for (int i=0; i<numChildren; i++) {
+            app.addChild(EntitySpec.create(BasicEntity.class));
+        }
+        forcePersistNow(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        waitForFirstPeriodicReadOnlyRebind(n2);
+        
+        n1.ha.stop();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        n2.ha.changeMode(HighAvailabilityMode.MASTER);
+        log.info("Promoted hot standby with "+(numChildren+1)+" entities in "+Time.makeTimeStringRounded(stopwatch)+": "+getLastPromotion(n2));
+        
+        assertMaster(n2);
+        assertEquals(n2.mgmt.getEntityManager().getEntities().size(), numChildren+1);
+    }
+    
+    private Map<?,?> getLastPromotion(HaMgmtNode node) {
+        Map<?,?> highAvailability = (Map<?,?>) node.ha.getMetrics().get("highAvailability");
+        return (Map<?,?>) highAvailability.get("lastPromotion");
+    }
+    
+    @Test
+    public void testHotStandbyRereadsEverythingPeriodicallyEvenIfNoChangesRecorded() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        createFirstAppAndPersist(n1);
+        final HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertReadOnlyIterations(n2, 1, 0, 1);
+            }});
+        
+        // e.g. if written by a master which does not record its changes
+        n2.mgmt.getBrooklynProperties().put(RebindManagerImpl.READ_ONLY_FULL_READ_PERIOD, Duration.ZERO);
+        n2.rebinder().rebindReadOnly(ManagementNodeState.HOT_STANDBY);
+        assertReadOnlyIterations(n2, 1, 0, 2);
+    }
+    
+    private void assertReadOnlyIterations(HaMgmtNode hotStandby, long skipped, long incremental, long full) {
+        Object iterations = hotStandby.rebinder().getMetrics().get("rebindReadOnlyIterations");
+        assertEquals(iterations, MutableMap.of("skipped", skipped, "incremental", incremental, "full", full));
+    }
+
     @Test(groups="Integration", invocationCount=50)
     public void testHotStandbySeesStructuralChangesIncludingRemovalManyTimes() throws Exception {
         doTestHotStandbySeesStructuralChangesIncludingRemoval(true);
@@ -638,7 +804,8 @@ public class HotStandbyTest {
     @Test(groups="Integration")
     public void testHotStandbyDoesNotStartFeedsRebindingManyTimes() throws Exception {
         testHotStandbyDoesNotStartFeeds();
-        final HaMgmtNode hsb = createHotStandby(Duration.millis(10));
+        // not incremental, as nothing changes so the periodic rebinds would be skipped
+        final HaMgmtNode hsb = createHotStandby(Duration.millis(10), false);
         Repeater.create("until 10 rebinds").every(Duration.millis(100)).until(
             new Callable<Boolean>() {
                 @Override
@@ -658,7 +825,8 @@ public class HotStandbyTest {
         forcePersistNow(n1);
         Assert.assertTrue(entity.feeds().getFeeds().size() == 4, "Feeds: "+entity.feeds().getFeeds());
         
-        final HaMgmtNode hsb = createHotStandby(Duration.millis(10));
+        // not incremental, as nothing changes so the periodic rebinds would be skipped
+        final HaMgmtNode hsb = createHotStandby(Duration.millis(10), false);
         Repeater.create("until 10 rebinds").every(Duration.millis(100)).until(
             new Callable<Boolean>() {
                 @Override
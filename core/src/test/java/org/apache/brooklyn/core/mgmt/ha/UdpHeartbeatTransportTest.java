@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.net.URI;
+import java.util.List;
+
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeSyncRecord;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.ha.dto.BasicManagementNodeSyncRecord;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HostAndPort;
+
+public class UdpHeartbeatTransportTest {
+
+    private List<UdpHeartbeatTransport> transports = MutableList.of();
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        for (UdpHeartbeatTransport transport: transports) {
+            transport.stop();
+        }
+        transports.clear();
+    }
+
+    private UdpHeartbeatTransport newStartedTransport(List<HostAndPort> peers, String secret) {
+        UdpHeartbeatTransport result = new UdpHeartbeatTransport(0, peers, secret);
+        transports.add(result);
+        result.start();
+        return result;
+    }
+
+    private ManagementNodeSyncRecord newRecord(String nodeId, ManagementNodeState status) {
+        return BasicManagementNodeSyncRecord.builder()
+            .nodeId(nodeId)
+            .status(status)
+            .priority(2L)
+            .localTimestamp(1234)
+            .brooklynVersion("1.2.3")
+            .uri(URI.create("http://localhost:8081/"))
+            .build();
+    }
+
+    @Test
+    public void testFormatAndParse() throws Exception {
+        UdpHeartbeatTransport transport = new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), "mysecret");
+        ManagementNodeSyncRecord record = newRecord("node1", ManagementNodeState.HOT_STANDBY);
+        long now = System.currentTimeMillis();
+        ManagementNodeSyncRecord parsed = transport.parse(transport.format(record), now);
+        assertEquals(parsed.getNodeId(), "node1");
+        assertEquals(parsed.getStatus(), ManagementNodeState.HOT_STANDBY);
+        assertEquals(parsed.getPriority(), (Long)2L);
+        assertEquals(parsed.getLocalTimestamp(), 1234);
+        assertEquals(parsed.getRemoteTimestamp(), (Long)now);
+        assertEquals(parsed.getBrooklynVersion(), "1.2.3");
+        assertEquals(parsed.getUri(), URI.create("http://localhost:8081/"));
+
+        // not signed, or signed with a different secret
+        String signed = new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), "mysecret").format(record);
+        assertNull(transport.parse(signed.substring(0, signed.lastIndexOf('\n')), now));
+        assertNull(transport.parse(new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), "other").format(record), now));
+        assertNull(transport.parse("something else", now));
+    }
+
+    @Test
+    public void testRequiresSecret() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        assertNull(UdpHeartbeatTransport.newInstance(props));
+        props.put(UdpHeartbeatTransport.HEARTBEAT_UDP_PORT, 0);
+        try {
+            UdpHeartbeatTransport.newInstance(props);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (IllegalStateException e) {
+            Asserts.expectedFailureContains(e, UdpHeartbeatTransport.HEARTBEAT_UDP_SECRET.getName());
+        }
+        props.put(UdpHeartbeatTransport.HEARTBEAT_UDP_SECRET, "mysecret");
+        assertNotNull(UdpHeartbeatTransport.newInstance(props));
+        try {
+            new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), " ");
+            Asserts.shouldHaveFailedPreviously();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectsReplayedOutOfOrderAndStaleHeartbeats() throws Exception {
+        UdpHeartbeatTransport sender = new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), "mysecret");
+        UdpHeartbeatTransport receiver = new UdpHeartbeatTransport(0, ImmutableList.<HostAndPort>of(), "mysecret", Duration.ONE_MINUTE);
+        ManagementNodeSyncRecord record = newRecord("node1", ManagementNodeState.MASTER);
+        String first = sender.format(record);
+        String second = sender.format(record);
+        long now = System.currentTimeMillis();
+        
+        assertNotNull(receiver.parse(second, now));
+        // replayed, and older
+        assertNull(receiver.parse(second, now));
+        assertNull(receiver.parse(first, now));
+        
+        // outside the allowed clock skew, either way
+        assertNull(receiver.parse(sender.format(record), now + Duration.minutes(2).toMilliseconds()));
+        assertNull(receiver.parse(sender.format(record), now - Duration.minutes(2).toMilliseconds()));
+        assertNotNull(receiver.parse(sender.format(record), now));
+    }
+
+    @Test
+    public void testHeartbeatsReceivedFromPeers() throws Exception {
+        final UdpHeartbeatTransport receiver = newStartedTransport(ImmutableList.<HostAndPort>of(), "mysecret");
+        List<HostAndPort> peers = ImmutableList.of(HostAndPort.fromParts("localhost", receiver.getLocalPort()));
+        final UdpHeartbeatTransport sender = newStartedTransport(peers, "mysecret");
+        UdpHeartbeatTransport imposter = newStartedTransport(peers, "wrongsecret");
+
+        imposter.publish(newRecord("node2", ManagementNodeState.MASTER));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                // datagrams may be lost, so keep sending
+                sender.publish(newRecord("node1", ManagementNodeState.MASTER));
+                assertEquals(receiver.getReceived().get("node1").getStatus(), ManagementNodeState.MASTER);
+            }});
+        assertEquals(receiver.getReceived().keySet(), ImmutableSet.of("node1"));
+    }
+
+}
@@ -286,6 +286,37 @@ public class EntityExecutionManagerTest extends BrooklynAppUnitTestSupport {
         assertTaskMaxCountForEntityEventually(e, 2);
     }
 
+    public void testIncrementalGcEvictsOldestOnCompletionWithoutPeriodicRun() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.INCREMENTAL, true);
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_ENTITY, 3);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        setUpApp();
+        final TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final BrooklynGarbageCollector gc = ((LocalManagementContext)mgmt).getGarbageCollector();
+
+        final List<Task<?>> tasks = Lists.newArrayList();
+        for (int count=0; count<5; count++) {
+            tasks.add(runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag"));
+            // eviction is oldest first by end time, so ensure they differ
+            Time.sleep(Duration.millis(10));
+        }
+
+        // no forceGc: the oldest are evicted as newer ones complete (in the listener, so eventually)
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Set<Task<?>> stored = mgmt.getExecutionManager().getTasksWithTag("boring-tag");
+                assertEquals(stored, ImmutableSet.copyOf(tasks.subList(3, 5)), "stored="+stored);
+                assertEquals(gc.getEvictionCounts().get("perTag"), (Long)3L);
+            }});
+
+        // lowering the limit is applied by the next periodic run
+        ((BrooklynProperties)mgmt.getConfig()).put(BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 1);
+        forceGc();
+        assertEquals(mgmt.getExecutionManager().getTasksWithTag("boring-tag"), ImmutableSet.of(tasks.get(4)));
+    }
+
     public void testUnmanagedEntityCanBeGcedEvenIfPreviouslyTagged() throws Exception {
         TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
         String eId = e.getId();
@@ -19,6 +19,8 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -35,9 +37,16 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
 /**
  * testing the {@link SubscriptionManager} and associated classes.
  */
@@ -131,6 +140,77 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testGetSubscriptionsForEntitySensorIncludesWildcardsAndRespectsUnsubscribe() throws Exception {
+        SubscriptionManager subscriptionManager = mgmt.getSubscriptionManager();
+        SensorEventListener<Object> noop = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {}
+        };
+        SubscriptionHandle exact = subscriptionManager.subscribe(entity, TestEntity.SEQUENCE, noop);
+        SubscriptionHandle anyProducer = subscriptionManager.subscribe(null, TestEntity.SEQUENCE, noop);
+        SubscriptionHandle anySensor = subscriptionManager.subscribe(entity, null, noop);
+        SubscriptionHandle unrelated = subscriptionManager.subscribe(app, TestEntity.SEQUENCE, noop);
+        
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), 
+                ImmutableSet.of(exact, anyProducer, anySensor));
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(app, TestEntity.SEQUENCE), 
+                ImmutableSet.of(unrelated, anyProducer));
+        
+        assertTrue(subscriptionManager.unsubscribe(exact));
+        assertFalse(subscriptionManager.unsubscribe(exact));
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), 
+                ImmutableSet.of(anyProducer, anySensor));
+    }
+    
+    @Test
+    public void testBatchedDeliveryPreservesOrder() throws Exception {
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        app.subscriptions().subscribe(ImmutableMap.<String, Object>of("batch", 10), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                values.add(event.getValue());
+            }});
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+            expected.add(i);
+        }
+        assertEventually(values, expected);
+    }
+    
+    @Test
+    public void testCoalescedDeliveryKeepsLatestValue() throws Exception {
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch inFirstDelivery = new CountDownLatch(1);
+        final CountDownLatch releaseFirstDelivery = new CountDownLatch(1);
+        app.subscriptions().subscribe(ImmutableMap.<String, Object>of("coalesce", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                values.add(event.getValue());
+                inFirstDelivery.countDown();
+                try {
+                    releaseFirstDelivery.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }});
+        
+        entity.sensors().set(TestEntity.SEQUENCE, 0);
+        assertTrue(inFirstDelivery.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        // these all arrive while the first is being delivered, so only the last should be seen
+        for (int i = 1; i <= 100; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+        }
+        releaseFirstDelivery.countDown();
+        
+        assertEventually(values, ImmutableList.of(0, 100));
+    }
+    
+    private void assertEventually(final List<Integer> actual, final List<Integer> expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(actual, expected);
+            }});
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.util.javalang.JavaClassNames;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * As {@link BrooklynMementoPersisterFileBasedTest}, but with mementos written compressed.
+ */
+@Test
+public class BrooklynMementoPersisterCompressedFileBasedTest extends BrooklynMementoPersisterFileBasedTest {
+
+    @Override
+    protected ManagementContext newPersistingManagementContext() {
+        mementoDir = Os.newTempDir(JavaClassNames.cleanSimpleClassName(this));
+        Os.deleteOnExitRecursively(mementoDir);
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_COMPRESS_MEMENTOS, true);
+        return RebindTestUtils.managementContextBuilder(classLoader, new FileBasedObjectStore(mementoDir))
+            .properties(properties)
+            .persistPeriod(Duration.millis(10)).buildStarted();
+    }
+
+    @Test
+    public void testWritesCompressedAndLoadsAsXml() throws Exception {
+        BrooklynMementoRawData rawMemento = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        String entityXml = rawMemento.getEntities().get(entity.getId());
+        assertTrue(entityXml.startsWith("<entity>"), "contents="+entityXml);
+
+        String stored = Files.toString(new File(new File(mementoDir, "entities"), entity.getId()), Charsets.UTF_8);
+        assertTrue(CompressedMementoSerializer.isCompressed(stored), "contents="+stored);
+        assertTrue(stored.length() < entityXml.length(), "stored="+stored.length()+"; xml="+entityXml.length());
+        assertEquals(CompressedMementoSerializer.decompressIfNeeded(stored), entityXml);
+    }
+
+    @Test
+    public void testLoadsPreviouslyPersistedXml() throws Exception {
+        BrooklynMementoRawData rawMemento = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        String entityXml = rawMemento.getEntities().get(entity.getId());
+
+        // as if written before compression was enabled
+        File entityFile = new File(new File(mementoDir, "entities"), entity.getId());
+        Files.write(entityXml, entityFile, Charsets.UTF_8);
+
+        rawMemento = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        assertEquals(rawMemento.getEntities().get(entity.getId()), entityXml);
+        testCheckPointAndLoadMemento();
+    }
+}
@@ -23,6 +23,8 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
@@ -37,6 +39,7 @@ import org.apache.brooklyn.api.policy.Policy;
 import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.rebind.PersistenceExceptionHandlerImpl;
 import org.apache.brooklyn.core.mgmt.rebind.RebindContextImpl;
 import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
@@ -151,6 +154,35 @@ public abstract class BrooklynMementoPersisterTestFixture {
         assertFalse(Iterables.contains(reloadedMemento.getLocationIds(), location.getId()));
     }
     
+    @Test
+    public void testUnchangedMementosNotRewritten() throws Exception {
+        if (!(persister instanceof BrooklynMementoPersisterToObjectStore)) {
+            throw new SkipException("Persister "+persister+" not a "+BrooklynMementoPersisterToObjectStore.class.getSimpleName());
+        }
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        long writesBefore = getPersistMetric("objectWriteCount");
+        long skippedBefore = getPersistMetric("objectWriteSkippedCount");
+
+        // entity and its referenced location, policies and enrichers are all re-serialized, but none has changed
+        ((EntityInternal)entity).requestPersist();
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        assertEquals(getPersistMetric("objectWriteCount"), writesBefore);
+        assertTrue(getPersistMetric("objectWriteSkippedCount") > skippedBefore);
+
+        // whereas a real change is written
+        entity.config().set(TestEntity.CONF_NAME, "changed");
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        assertTrue(getPersistMetric("objectWriteCount") > writesBefore);
+        String entityXml = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister).getEntities().get(entity.getId());
+        assertTrue(entityXml.contains("changed"), "contents="+entityXml);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long getPersistMetric(String name) {
+        Map<String, Object> metrics = (Map<String, Object>) localManagementContext.getRebindManager().getMetrics().get("persist");
+        return (Long) metrics.get(name);
+    }
+
     @Test
     public void testLoadAndCheckpointRawMemento() throws Exception {
         if (persister instanceof BrooklynMementoPersisterToObjectStore) {
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class JournalledFileBasedObjectStoreTest {
+
+    private LocalManagementContextForTests mgmt;
+    private File parentdir;
+    private File basedir;
+    private JournalledFileBasedObjectStore store;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = new LocalManagementContextForTests();
+        parentdir = Files.createTempDir();
+        basedir = new File(parentdir, "mystore");
+        store = newStore();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (store != null) store.close();
+        if (parentdir != null) Os.deleteRecursively(parentdir);
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    private JournalledFileBasedObjectStore newStore() {
+        JournalledFileBasedObjectStore result = new JournalledFileBasedObjectStore(basedir);
+        result.injectManagementContext(mgmt);
+        result.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        result.createSubPath("entities");
+        result.createSubPath("plane");
+        return result;
+    }
+
+    private JournalledFileBasedObjectStore reopen() {
+        store.close();
+        store = newStore();
+        return store;
+    }
+
+    @Test
+    public void testPutGetListAndDelete() throws Exception {
+        store.newAccessor("entities/a").put("abc");
+        store.newAccessor("entities/b").put("def");
+        store.newAccessor("entities/b").append("ghi");
+
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertEquals(store.newAccessor("entities/b").get(), "defghi");
+        assertNotNull(store.newAccessor("entities/a").getLastModifiedDate());
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+
+        store.newAccessor("entities/a").delete();
+        assertFalse(store.newAccessor("entities/a").exists());
+        assertNull(store.newAccessor("entities/a").get());
+        assertNull(store.newAccessor("entities/a").getLastModifiedDate());
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableSet.of("entities/b").asList());
+
+        // one file for all objects
+        assertEquals(new File(basedir, "entities").list().length, 0);
+        assertTrue(new File(basedir, JournalledFileBasedObjectStore.JOURNAL_FILE_NAME).length() > 0);
+    }
+
+    @Test
+    public void testReloadsState() throws Exception {
+        store.newAccessor("entities/a").put("abc");
+        store.newAccessor("entities/b").put("def");
+        store.newAccessor("entities/b").delete();
+        store.newAccessor("entities/c").put("ghi");
+        store.newAccessor("entities/c").put("jkl");
+
+        reopen();
+
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(store.newAccessor("entities/c").get(), "jkl");
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/c"));
+    }
+
+    @Test
+    public void testIgnoresIncompleteRecordAtEndOfJournal() throws Exception {
+        store.newAccessor("entities/a").put("abc");
+        store.newAccessor("entities/b").put("def");
+        store.close();
+
+        // as if the process died part way through writing a record
+        File journal = new File(basedir, JournalledFileBasedObjectStore.JOURNAL_FILE_NAME);
+        long validLength = journal.length();
+        FileOutputStream out = new FileOutputStream(journal, true);
+        out.write(new byte[] { 0x42, 0x52, 0x4a, 0x31, 1, 0, 0 });
+        out.close();
+
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertEquals(store.newAccessor("entities/b").get(), "def");
+
+        // and the next write replaces the incomplete record
+        store.newAccessor("entities/c").put("ghi");
+        assertTrue(store.getJournalLength() > validLength);
+        reopen();
+        assertEquals(store.newAccessor("entities/c").get(), "ghi");
+        assertEquals(store.listContentsWithSubPath("entities").size(), 3);
+    }
+
+    @Test
+    public void testIgnoresRecordWithCompleteHeaderButIncompleteContents() throws Exception {
+        store.newAccessor("entities/a").put("abc");
+        store.close();
+
+        // header says 10 bytes of path and 1000 of data, but the process died after writing only some of them
+        File journal = new File(basedir, JournalledFileBasedObjectStore.JOURNAL_FILE_NAME);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(journal, true));
+        out.writeInt(0x42524a31);
+        out.writeByte(1);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(10);
+        out.writeInt(1000);
+        out.write(new byte[100]);
+        out.close();
+
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertEquals(store.listContentsWithSubPath("entities").size(), 1);
+    }
+
+    @Test
+    public void testCompactsIntoSnapshot() throws Exception {
+        store.setMinCompactionBytes(1000);
+        for (int i = 0; i < 100; i++) {
+            store.newAccessor("entities/a").put("val"+i);
+            store.newAccessor("entities/b"+(i%3)).put("other"+i);
+        }
+
+        assertTrue(new File(basedir, JournalledFileBasedObjectStore.SNAPSHOT_FILE_NAME).exists());
+        assertTrue(store.getJournalLength() < 1000, "journalLength="+store.getJournalLength());
+
+        reopen();
+        assertEquals(store.newAccessor("entities/a").get(), "val99");
+        assertEquals(store.newAccessor("entities/b0").get(), "other99");
+        assertEquals(store.newAccessor("entities/b1").get(), "other97");
+        assertEquals(store.newAccessor("entities/b2").get(), "other98");
+    }
+
+    @Test
+    public void testReadsFilesWrittenByFileBasedObjectStore() throws Exception {
+        store.close();
+        Os.deleteRecursively(basedir);
+        FileBasedObjectStore fileStore = new FileBasedObjectStore(basedir);
+        fileStore.injectManagementContext(mgmt);
+        fileStore.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        fileStore.createSubPath("entities");
+        fileStore.newAccessor("entities/a").put("abc");
+        fileStore.newAccessor("entities/b").put("def");
+        fileStore.close();
+
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+
+        // on writing, what was read is kept
+        store.newAccessor("entities/b").put("ghi");
+        reopen();
+        assertEquals(store.newAccessor("entities/a").get(), "abc");
+        assertEquals(store.newAccessor("entities/b").get(), "ghi");
+    }
+
+    @Test
+    public void testPlaneRecordsKeptAsFiles() throws Exception {
+        store.newAccessor("plane/node1").put("abc");
+
+        assertEquals(Files.toString(new File(new File(basedir, "plane"), "node1"), Charsets.UTF_8), "abc");
+        assertEquals(store.listContentsWithSubPath("plane"), ImmutableSet.of("plane/node1").asList());
+    }
+
+    @Test
+    public void testReaderSeesChangesFromWriter() throws Exception {
+        JournalledFileBasedObjectStore reader = newStore();
+        try {
+            store.newAccessor("entities/a").put("abc");
+            assertEquals(reader.newAccessor("entities/a").get(), "abc");
+
+            store.newAccessor("entities/a").put("def");
+            store.newAccessor("entities/b").put("ghi");
+            assertEquals(reader.newAccessor("entities/a").get(), "def");
+            assertEquals(reader.listContentsWithSubPath("entities").size(), 2);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testWriterSeesChangesFromOtherWriterWhenMasterAgain() throws Exception {
+        doTestWriterSeesChangesFromOtherWriterWhenMasterAgain(false);
+    }
+
+    @Test
+    public void testWriterSeesChangesFromOtherWriterWhenMasterAgainAfterCompaction() throws Exception {
+        doTestWriterSeesChangesFromOtherWriterWhenMasterAgain(true);
+    }
+
+    // master, then standby while another node is master, then master again
+    private void doTestWriterSeesChangesFromOtherWriterWhenMasterAgain(boolean otherCompacts) throws Exception {
+        store.prepareForMasterUse();
+        store.newAccessor("entities/a").put("a1");
+        store.newAccessor("entities/b").put("b1");
+
+        JournalledFileBasedObjectStore other = newStore();
+        try {
+            if (otherCompacts) other.setMinCompactionBytes(100);
+            other.prepareForMasterUse();
+            for (int i = 0; i < (otherCompacts ? 20 : 1); i++) {
+                other.newAccessor("entities/a").put("a2-"+i);
+            }
+            other.newAccessor("entities/c").put("c2");
+            if (otherCompacts) assertTrue(other.getJournalLength() < 100, "journalLength="+other.getJournalLength());
+        } finally {
+            other.close();
+        }
+
+        store.prepareForMasterUse();
+        String expectedA = otherCompacts ? "a2-19" : "a2-0";
+        assertEquals(store.newAccessor("entities/a").get(), expectedA);
+        store.newAccessor("entities/d").put("d1");
+
+        reopen();
+        assertEquals(store.newAccessor("entities/a").get(), expectedA);
+        assertEquals(store.newAccessor("entities/b").get(), "b1");
+        assertEquals(store.newAccessor("entities/c").get(), "c2");
+        assertEquals(store.newAccessor("entities/d").get(), "d1");
+    }
+}
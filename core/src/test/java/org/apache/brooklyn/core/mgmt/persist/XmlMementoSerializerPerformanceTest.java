@@ -67,7 +67,68 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
          int numIterations = numIterations();
          double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
 
-         // Create an entity with lots of config/parameters, and sensors
+         final Memento memento = newEntityMemento();
+         int serializedLength = serializeToString(memento).length();
+
+         // Run the performance test
+         measure(PerformanceTestDescriptor.create()
+                 .summary("mementoSerializer.serializeEntityMemento(size="+serializedLength+"chars)")
+                 .iterations(numIterations)
+                 .minAcceptablePerSecond(minRatePerSec)
+                 .job(new Runnable() {
+                     @Override public void run() {
+                         serializeToString(memento);
+                     }}));
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testSerializeEntityMementoCompressed() throws Exception {
+         int numIterations = numIterations();
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+         final CompressedMementoSerializer<Object> compressedSerializer = new CompressedMementoSerializer<Object>(serializer);
+         final Memento memento = newEntityMemento();
+         int serializedLength = compressedSerializer.toString(memento).length();
+
+         measure(PerformanceTestDescriptor.create()
+                 .summary("compressedMementoSerializer.serializeEntityMemento(size="+serializedLength+"chars, "
+                         + "uncompressed="+serializeToString(memento).length()+"chars)")
+                 .iterations(numIterations)
+                 .minAcceptablePerSecond(minRatePerSec)
+                 .job(new Runnable() {
+                     @Override public void run() {
+                         compressedSerializer.toString(memento);
+                     }}));
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testDeserializeEntityMemento() throws Exception {
+         runDeserializeEntityMemento(serializer, "mementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testDeserializeEntityMementoCompressed() throws Exception {
+         runDeserializeEntityMemento(new CompressedMementoSerializer<Object>(serializer), "compressedMementoSerializer");
+     }
+     
+     private void runDeserializeEntityMemento(final MementoSerializer<Object> serializer, String name) throws Exception {
+         int numIterations = numIterations();
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+         final String serializedForm = serializer.toString(newEntityMemento());
+
+         measure(PerformanceTestDescriptor.create()
+                 .summary(name+".deserializeEntityMemento(size="+serializedForm.length()+"chars)")
+                 .iterations(numIterations)
+                 .minAcceptablePerSecond(minRatePerSec)
+                 .job(new Runnable() {
+                     @Override public void run() {
+                         serializer.fromString(serializedForm);
+                     }}));
+     }
+     
+     /** creates the memento for an entity with lots of config/parameters, and sensors */
+     private Memento newEntityMemento() {
          Map<ConfigKey<?>, String> config = Maps.newLinkedHashMap();
          List<BasicSpecParameter<?>> params = Lists.newArrayList();
          for (int i = 0; i < 100; i++) {
@@ -88,19 +149,7 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
              entity.sensors().set(sensor, "valsensor"+i);
          }
 
-         // Create the memento for that entity (only once)
-         final Memento memento = MementosGenerators.newBasicMemento(Entities.deproxy(entity));
-         int serializedLength = serializeToString(memento).length();
-
-         // Run the performance test
-         measure(PerformanceTestDescriptor.create()
-                 .summary("mementoSerializer.serializeEntityMemento(size="+serializedLength+"chars)")
-                 .iterations(numIterations)
-                 .minAcceptablePerSecond(minRatePerSec)
-                 .job(new Runnable() {
-                     @Override public void run() {
-                         serializeToString(memento);
-                     }}));
+         return MementosGenerators.newBasicMemento(Entities.deproxy(entity));
      }
      
      private String serializeToString(Object val) {
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.mgmt.persist;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.net.InetAddress;
 import java.util.Arrays;
@@ -189,6 +190,22 @@ public class XmlMementoSerializerTest {
                 XmlMementoSerializerTest.class.getName(), "old.package.name.XmlMementoSerializerTest"));
     }
 
+    @Test
+    public void testCompressedSerializerReadsCompressedAndPlainXml() throws Exception {
+        CompressedMementoSerializer<Object> compressed = new CompressedMementoSerializer<Object>(serializer);
+        Map<String, Object> obj = MutableMap.<String, Object>of("a", "abc", "b", MutableList.of("x", "y", "z"), "c", 1);
+
+        String compressedForm = compressed.toString(obj);
+        assertTrue(compressedForm.startsWith(CompressedMementoSerializer.HEADER_V1_DEFLATE), "serializedForm="+compressedForm);
+        assertEquals(compressed.fromString(compressedForm), obj);
+        assertEquals(CompressedMementoSerializer.decompressIfNeeded(compressedForm), serializer.toString(obj));
+
+        // previously persisted XML is still read
+        String xmlForm = serializer.toString(obj);
+        assertEquals(compressed.fromString(xmlForm), obj);
+        assertEquals(CompressedMementoSerializer.decompressIfNeeded(xmlForm), xmlForm);
+    }
+
     protected void runRenamed(String serializedForm, Object obj, Map<String, String> transforms) throws Exception {
         assertSerializeAndDeserialize(obj);
         
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.Test;
+
+import com.google.common.io.ByteSource;
+
+public class RebindAdaptivePersistPeriodTest extends RebindTestFixtureWithApp {
+
+    private volatile Duration writeDelay = Duration.ZERO;
+
+    @Override
+    protected int getPersistPeriodMillis() {
+        return 10;
+    }
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(RebindManagerImpl.PERSIST_MAX_PERIOD, Duration.millis(500));
+        result.put(RebindManagerImpl.PERSIST_MAX_LAG, Duration.millis(200));
+        return result;
+    }
+
+    @Override
+    protected LocalManagementContext createOrigManagementContext() {
+        return RebindTestUtils.managementContextBuilder(classLoader, new SlowFileBasedObjectStore(mementoDir))
+                .persistPeriodMillis(getPersistPeriodMillis())
+                .properties(createBrooklynProperties())
+                .buildStarted();
+    }
+
+    @Test
+    public void testPeriodBacksOffWhenQuietAndReturnsWhenChanged() throws Exception {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(getPersistMetric("period"), (Object) 500L);
+            }});
+
+        origApp.sensors().set(TestEntity.NAME, "changed");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue((Long) getPersistMetric("period") < 500L, "period="+getPersistMetric("period"));
+            }});
+        assertTrue((Integer) getPersistMetric("lastDeltaSize") > 0, "metrics="+getPersistMetrics());
+    }
+
+    @Test
+    public void testWritersThrottledWhenPersistenceLags() throws Exception {
+        writeDelay = Duration.millis(300);
+        long start = System.currentTimeMillis();
+        int i = 0;
+        while (Duration.sinceUtc(start).isShorterThan(Duration.ONE_SECOND)) {
+            origApp.sensors().set(TestEntity.SEQUENCE, i++);
+            Time.sleep(Duration.millis(5));
+        }
+        writeDelay = Duration.ZERO;
+
+        assertTrue((Long) getPersistMetric("throttledCount") > 0, "metrics="+getPersistMetrics());
+        assertNotNull(getPersistMetric("queueDepth"));
+
+        RebindTestUtils.waitForPersisted(origApp);
+        // the lag of a delta is recorded when it is written, so check only once the lagging ones have been
+        assertTrue((Long) getPersistMetric("maxDeltaLag") >= 300, "metrics="+getPersistMetrics());
+        newApp = rebind();
+        assertEquals(newApp.sensors().get(TestEntity.SEQUENCE), (Integer) (i-1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getPersistMetrics() {
+        return (Map<String, Object>) origManagementContext.getRebindManager().getMetrics().get("persist");
+    }
+
+    private Object getPersistMetric(String name) {
+        return getPersistMetrics().get(name);
+    }
+
+    private class SlowFileBasedObjectStore extends FileBasedObjectStore {
+        public SlowFileBasedObjectStore(File basedir) {
+            super(basedir);
+        }
+
+        @Override
+        public StoreObjectAccessor newAccessor(String path) {
+            final StoreObjectAccessor delegate = super.newAccessor(path);
+            return new StoreObjectAccessor() {
+                @Override public String get() { return delegate.get(); }
+                @Override public byte[] getBytes() { return delegate.getBytes(); }
+                @Override public boolean exists() { return delegate.exists(); }
+                @Override public void put(String contentsToReplaceOrCreate) { Time.sleep(writeDelay); delegate.put(contentsToReplaceOrCreate); }
+                @Override public void put(ByteSource contentsToReplaceOrCreate) { Time.sleep(writeDelay); delegate.put(contentsToReplaceOrCreate); }
+                @Override public void append(String contentsToAppendOrCreate) { Time.sleep(writeDelay); delegate.append(contentsToAppendOrCreate); }
+                @Override public void delete() { delegate.delete(); }
+                @Override public Date getLastModifiedDate() { return delegate.getLastModifiedDate(); }
+            };
+        }
+    }
+}
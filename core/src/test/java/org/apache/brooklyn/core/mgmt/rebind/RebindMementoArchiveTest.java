@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.ha.MementoCopyMode;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+
+public class RebindMementoArchiveTest extends RebindTestFixtureWithApp {
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        // archives should have XML regardless
+        result.put(BrooklynMementoPersisterToObjectStore.PERSISTER_COMPRESS_MEMENTOS, true);
+        return result;
+    }
+
+    @Test
+    public void testArchiveFromLocalStateImportedAndRebinded() throws Exception {
+        runArchiveImportedAndRebinded(MementoCopyMode.LOCAL);
+    }
+
+    @Test
+    public void testArchiveFromRemoteStateImportedAndRebinded() throws Exception {
+        runArchiveImportedAndRebinded(MementoCopyMode.REMOTE);
+    }
+
+    protected void runArchiveImportedAndRebinded(MementoCopyMode source) throws Exception {
+        TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        child.sensors().set(TestEntity.NAME, "archived");
+        RebindTestUtils.waitForPersisted(origApp);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        BrooklynPersistenceUtils.writeMementoArchive(origManagementContext, source, "mystate", archive);
+        Map<String, String> entries = readEntries(archive.toByteArray());
+        assertEquals(entries.get("mystate/planeId"), origManagementContext.getManagementPlaneIdMaybe().get());
+        assertTrue(entries.get("mystate/entities/"+child.getId()).contains("<entity>"), "entries="+entries.keySet());
+        assertTrue(entries.containsKey("mystate/entities/"+origApp.getId()), "entries="+entries.keySet());
+
+        // changes after the archive was taken are reverted by the import, and new items cleared
+        child.sensors().set(TestEntity.NAME, "changed");
+        Entity other = origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        RebindTestUtils.waitForPersisted(origApp);
+        int count = BrooklynPersistenceUtils.readMementoArchive(origManagementContext, new ByteArrayInputStream(archive.toByteArray()), true);
+        assertTrue(count >= 2, "count="+count);
+
+        newApp = rebind();
+        Entity newChild = Iterables.getOnlyElement(newApp.getChildren());
+        assertEquals(newChild.getId(), child.getId());
+        assertEquals(newChild.sensors().get(TestEntity.NAME), "archived");
+        assertEquals(newManagementContext.getEntityManager().getEntity(other.getId()), null);
+    }
+
+    private Map<String, String> readEntries(byte[] archive) throws Exception {
+        Map<String, String> result = MutableMap.of();
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive));
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            result.put(entry.getName(), new String(ByteStreams.toByteArray(zip), Charsets.UTF_8));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.location.SimulatedLocation;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.policy.TestPolicy;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+public class RebindParallelTest extends RebindTestFixtureWithApp {
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(RebindManagerImpl.REBIND_PARALLELISM, 4);
+        return result;
+    }
+
+    @Test
+    public void testRebindsHierarchyInParallel() throws Exception {
+        SimulatedLocation loc = origManagementContext.getLocationManager().createLocation(LocationSpec.create(SimulatedLocation.class));
+        for (int i = 0; i < 3; i++) {
+            TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "child"+i)
+                    .policy(PolicySpec.create(TestPolicy.class)));
+            child.start(ImmutableList.of(loc));
+            for (int j = 0; j < 3; j++) {
+                child.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "grandchild"+i+"-"+j));
+            }
+        }
+
+        newApp = rebind();
+
+        assertEquals(newApp.getChildren().size(), 3);
+        for (Entity child : newApp.getChildren()) {
+            assertEquals(child.getParent(), newApp);
+            assertEquals(Iterables.getOnlyElement(child.getLocations()).getId(), loc.getId());
+            assertEquals(Iterables.getOnlyElement(child.policies()).getClass(), TestPolicy.class);
+            assertEquals(child.getChildren().size(), 3);
+            String name = child.getConfig(TestEntity.CONF_NAME);
+            for (Entity grandchild : child.getChildren()) {
+                assertEquals(grandchild.getParent(), child);
+                assertTrue(grandchild.getConfig(TestEntity.CONF_NAME).startsWith("grand"+name), "name="+grandchild.getConfig(TestEntity.CONF_NAME));
+            }
+        }
+    }
+
+    @Test
+    public void testRebindRecordsPhaseDurations() throws Exception {
+        origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        newApp = rebind();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> rebindMetrics = (Map<String, Object>) newManagementContext.getRebindManager().getMetrics().get("rebind");
+        @SuppressWarnings("unchecked")
+        Map<String, Long> phases = (Map<String, Long>) rebindMetrics.get("lastPhaseDurations");
+        assertNotNull(phases, "metrics="+rebindMetrics);
+        assertEquals(ImmutableList.copyOf(phases.keySet()), ImmutableList.of("loadManifests", "installBundlesAndCatalog",
+                "instantiateLocationsAndEntities", "instantiateMementos", "instantiateAdjuncts",
+                "reconstruct", "associateAdjuncts", "manage"));
+    }
+}
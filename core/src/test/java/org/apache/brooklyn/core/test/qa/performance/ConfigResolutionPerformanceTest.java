@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ConfigResolutionPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigResolutionPerformanceTest.class);
+
+    private static final int DEPTH = 10;
+
+    private static final ConfigKey<Duration> DURATION_KEY = ConfigKeys.newConfigKey(Duration.class, "test.duration");
+
+    private TestEntity leaf;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        // value set (as a string, so needing coercion) at the top of a deep hierarchy, read at the bottom
+        app.config().set(ConfigKeys.newStringConfigKey(DURATION_KEY.getName()), "5m");
+        app.config().set(TestEntity.CONF_NAME, "myname");
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        for (int i = 1; i < DEPTH; i++) {
+            parent = parent.addChild(EntitySpec.create(TestEntity.class));
+        }
+        leaf = parent;
+    }
+
+    protected int numIterations() {
+        return 100000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetInheritedConfigInDeepHierarchy() {
+        int numIterations = numIterations();
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("ConfigResolutionPerformanceTest.testGetInheritedConfigInDeepHierarchy")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        leaf.config().get(DURATION_KEY);
+                        leaf.config().get(TestEntity.CONF_NAME);
+                    }}));
+
+        assertEquals(leaf.config().get(DURATION_KEY), Duration.FIVE_MINUTES);
+        logCacheStats();
+    }
+
+    /** for comparison: the root's config changes every iteration, so values must always be resolved */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetInheritedConfigInDeepHierarchyWhenChanging() {
+        int numIterations = numIterations();
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final ConfigKey<String> otherKey = ConfigKeys.newStringConfigKey("test.other");
+        final AtomicInteger i = new AtomicInteger();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("ConfigResolutionPerformanceTest.testGetInheritedConfigInDeepHierarchyWhenChanging")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        app.config().set(otherKey, "val"+i.getAndIncrement());
+                        leaf.config().get(DURATION_KEY);
+                        leaf.config().get(TestEntity.CONF_NAME);
+                    }}));
+
+        logCacheStats();
+    }
+
+    private void logCacheStats() {
+        AbstractConfigMapImpl<?> configMap = (AbstractConfigMapImpl<?>) leaf.config().getInternalConfigMap();
+        LOG.info("Resolved config cache at depth "+DEPTH+": hits="+configMap.getResolvedConfigCacheHits()+"; misses="+configMap.getResolvedConfigCacheMisses());
+    }
+}
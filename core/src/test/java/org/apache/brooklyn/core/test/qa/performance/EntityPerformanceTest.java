@@ -34,9 +34,11 @@ import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -131,6 +133,35 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
             }});
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testConcurrentUpdateAndReadAttributes() {
+        int numIterations = numIterations();
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger i = new AtomicInteger();
+        
+        // feed-like writers, enricher-like readers and bulk (e.g. REST) reads all on the one entity
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityPerformanceTest.testConcurrentUpdateAndReadAttributes")
+                .iterations(numIterations)
+                .numConcurrentJobs(8)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        int val = i.getAndIncrement();
+                        switch (val % 4) {
+                        case 0: entity.sensors().set(TestEntity.SEQUENCE, val); break;
+                        case 1: entity.sensors().modify(TestEntity.SEQUENCE, new Function<Integer, Maybe<Integer>>() {
+                                    @Override public Maybe<Integer> apply(Integer input) {
+                                        return Maybe.of(input == null ? 1 : input + 1);
+                                    }});
+                                break;
+                        case 2: entity.sensors().get(TestEntity.SEQUENCE); break;
+                        default: entity.sensors().getAll(); break;
+                        }
+                    }}));
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testInvokeEffector() {
         int numIterations = numIterations();
@@ -23,13 +23,19 @@ import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.FileBasedStoreObjectAccessor;
+import org.apache.brooklyn.core.mgmt.persist.JournalledFileBasedObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.PersistMode;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.internal.ssh.process.ProcessTool;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.io.FileUtil;
+import org.apache.brooklyn.util.os.Os;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -83,6 +89,47 @@ public class FilePersistencePerformanceTest extends AbstractPerformanceTest {
                      }}));
      }
  
+     @Test(groups={"Integration", "Acceptance"})
+     public void testFileBasedObjectStorePuts() throws Exception {
+         runObjectStorePuts("FilePersistencePerformanceTest.testFileBasedObjectStorePuts", false);
+     }
+
+     @Test(groups={"Integration", "Acceptance"})
+     public void testJournalledFileBasedObjectStorePuts() throws Exception {
+         runObjectStorePuts("FilePersistencePerformanceTest.testJournalledFileBasedObjectStorePuts", true);
+     }
+
+     protected void runObjectStorePuts(String summary, boolean journalled) throws Exception {
+         int numIterations = numIterations();
+         double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+         final AtomicInteger i = new AtomicInteger();
+
+         File dir = Files.createTempDir();
+         final FileBasedObjectStore store = journalled ? new JournalledFileBasedObjectStore(dir) : new FileBasedObjectStore(dir);
+         try {
+             store.injectManagementContext(mgmt);
+             store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+             store.createSubPath("entities");
+             final List<StoreObjectAccessor> accessors = Lists.newArrayList();
+             for (int j = 0; j < 10; j++) {
+                 accessors.add(store.newAccessor("entities/entity"+j));
+             }
+
+             measure(PerformanceTestDescriptor.create()
+                     .summary(summary)
+                     .iterations(numIterations)
+                     .minAcceptablePerSecond(minRatePerSec)
+                     .job(new Runnable() {
+                         @Override public void run() {
+                             int val = i.incrementAndGet();
+                             accessors.get(val % accessors.size()).put(""+val);
+                         }}));
+         } finally {
+             store.close();
+             Os.deleteRecursively(dir);
+         }
+     }
+
      @Test(groups={"Integration", "Acceptance"})
      public void testFileBasedStoreObjectGet() throws Exception {
          // The file system will have done a lot of caching here - we are unlikely to touch the disk more than once.
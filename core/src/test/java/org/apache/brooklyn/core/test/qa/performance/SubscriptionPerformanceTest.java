@@ -20,16 +20,21 @@ package org.apache.brooklyn.core.test.qa.performance;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -38,6 +43,8 @@ import com.google.common.collect.Lists;
 
 public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriptionPerformanceTest.class);
+
     private static final int NUM_ITERATIONS = 10000;
     
     TestEntity entity;
@@ -158,4 +165,69 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
             throw exception.get();
         }
     }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testConcurrentPublishWhileSubscribing() throws Exception {
+        int numPublishers = 4;
+        int numIterations = NUM_ITERATIONS;
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger iter = new AtomicInteger();
+        final AtomicBoolean churning = new AtomicBoolean(true);
+        final AtomicInteger churnCount = new AtomicInteger();
+        final AtomicReference<Throwable> exception = new AtomicReference<Throwable>();
+        
+        // one subscriber per publishing entity, so each publish results in a delivery
+        final AtomicInteger listenerCount = new AtomicInteger();
+        for (TestEntity e : entities) {
+            subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", e.getId()), e, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                @Override
+                public void onEvent(SensorEvent<Integer> event) {
+                    listenerCount.incrementAndGet();
+                }});
+        }
+        
+        // continually subscribe and unsubscribe (as a cluster resize would) while events are being published
+        Thread churner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (churning.get()) {
+                        List<SubscriptionHandle> handles = Lists.newArrayList();
+                        for (TestEntity e : entities) {
+                            handles.add(subscriptionManager.subscribe(e, TestEntity.MY_NOTIF, new SensorEventListener<Integer>() {
+                                @Override public void onEvent(SensorEvent<Integer> event) {}
+                            }));
+                        }
+                        for (SubscriptionHandle handle : handles) {
+                            subscriptionManager.unsubscribe(handle);
+                        }
+                        churnCount.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    exception.set(t);
+                }
+            }}, "subscription-churn");
+        churner.start();
+        
+        try {
+            measure(PerformanceTestDescriptor.create()
+                    .summary("SubscriptionPerformanceTest.testConcurrentPublishWhileSubscribing")
+                    .iterations(numIterations)
+                    .numConcurrentJobs(numPublishers)
+                    .minAcceptablePerSecond(minRatePerSec)
+                    .job(new Runnable() {
+                        @Override public void run() {
+                            int i = iter.getAndIncrement();
+                            entities.get(i % entities.size()).sensors().set(TestEntity.SEQUENCE, i);
+                        }}));
+        } finally {
+            churning.set(false);
+            churner.join(TIMEOUT_MS);
+        }
+        
+        LOG.info("testConcurrentPublishWhileSubscribing: "+churnCount.get()+" subscribe/unsubscribe rounds, "+listenerCount.get()+" events delivered so far");
+        if (exception.get() != null) {
+            throw Exceptions.propagate(exception.get());
+        }
+    }
 }
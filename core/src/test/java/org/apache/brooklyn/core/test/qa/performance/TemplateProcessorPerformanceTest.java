@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.core.text.TemplateProcessor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TemplateProcessorPerformanceTest extends AbstractPerformanceTest {
+
+    // in the style of an install or customize script
+    private static final String TEMPLATE = Joiner.on("\n").join(ImmutableList.of(
+            "#!/bin/bash",
+            "export NAME=\"${config['test.confName']}\"",
+            "export ENTITY_ID=${entity.id}",
+            "<#list ports as port>",
+            "iptables -I INPUT -p tcp --dport ${port} -j ACCEPT",
+            "</#list>",
+            "cd ${install.dir}",
+            "tar xzf ${archive.name}",
+            "<#if debug>set -x</#if>",
+            "echo \"installed ${entity.displayName} version ${version}\""));
+
+    private TestEntity entity;
+    private Map<String, Object> substitutions;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "myname"));
+        substitutions = ImmutableMap.<String, Object>builder()
+                .put("ports", ImmutableList.of(8080, 8443, 9090))
+                .put("install.dir", "/opt/app")
+                .put("archive.name", "app.tar.gz")
+                .put("debug", false)
+                .put("version", "1.2.3")
+                .build();
+    }
+
+    protected int numIterations() {
+        return 10000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRenderSameTemplate() {
+        int numIterations = numIterations();
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("TemplateProcessorPerformanceTest.testRenderSameTemplate")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TemplateProcessor.processTemplateContents(TEMPLATE, entity, substitutions);
+                    }}));
+    }
+
+    /** for comparison: every template is different, so must be parsed */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRenderDistinctTemplates() {
+        int numIterations = numIterations();
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger i = new AtomicInteger();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("TemplateProcessorPerformanceTest.testRenderDistinctTemplates")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TemplateProcessor.processTemplateContents(TEMPLATE+"\n# "+i.getAndIncrement(), entity, substitutions);
+                    }}));
+    }
+}
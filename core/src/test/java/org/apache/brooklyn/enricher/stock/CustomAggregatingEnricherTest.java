@@ -19,11 +19,15 @@
 package org.apache.brooklyn.enricher.stock;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityAsserts;
 import org.apache.brooklyn.core.location.SimulatedLocation;
@@ -31,9 +35,12 @@ import org.apache.brooklyn.core.sensor.BasicAttributeSensor;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -549,4 +556,54 @@ public class CustomAggregatingEnricherTest extends BrooklynAppUnitTestSupport {
         producer1.sensors().set(intSensor, 2);
         EntityAsserts.assertAttributeEqualsEventually(entity, target, 5);
     }
+    
+    @Test
+    public void testMaxOfChildrenUpdatedAsValuesChangeAndChildrenRemoved() {
+        TestEntity p1 = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity p2 = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+        p1.sensors().set(intSensor, 1);
+        p2.sensors().set(intSensor, 2);
+        
+        entity.enrichers().add(Enrichers.builder()
+                .aggregating(intSensor)
+                .publishing(target)
+                .computing(MathAggregatorFunctions.computingMax(null, null, Integer.class))
+                .fromChildren()
+                .build());
+        EntityAsserts.assertAttributeEqualsEventually(entity, target, 2);
+        
+        p1.sensors().set(intSensor, 3);
+        EntityAsserts.assertAttributeEqualsEventually(entity, target, 3);
+        
+        p1.sensors().set(intSensor, 0);
+        EntityAsserts.assertAttributeEqualsEventually(entity, target, 2);
+        
+        Entities.unmanage(p2);
+        EntityAsserts.assertAttributeEqualsEventually(entity, target, 0);
+    }
+    
+    @Test
+    public void testPublishPeriodLimitsPublishing() {
+        TestEntity p1 = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<Integer> published = Collections.synchronizedList(MutableList.<Integer>of());
+        app.subscriptions().subscribe(entity, target, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                published.add(event.getValue());
+            }});
+        
+        entity.enrichers().add(Enrichers.builder()
+                .aggregating(intSensor)
+                .publishing(target)
+                .computingSum()
+                .fromChildren()
+                .publishPeriod(Duration.ONE_SECOND)
+                .build());
+        
+        for (int i = 1; i <= 20; i++) {
+            p1.sensors().set(intSensor, i);
+        }
+        // the latest value is published, after the period
+        EntityAsserts.assertAttributeEqualsEventually(entity, target, 20);
+        Assert.assertTrue(published.size() < 20, "published="+published);
+    }
 }
@@ -19,11 +19,14 @@
 package org.apache.brooklyn.enricher.stock;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.brooklyn.enricher.stock.MathAggregatorFunctions.Accumulator;
+import org.apache.brooklyn.enricher.stock.MathAggregatorFunctions.IncrementallyComputable;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.testng.annotations.Test;
 
@@ -115,4 +118,84 @@ public class MathAggregatorFunctionsTest {
         assertEquals(func.apply(MutableList.<Number>of(1, 3, 5)), (Integer)5);
         assertEquals(func.apply(MutableList.<Number>of(3, null, 1)), (Integer)3);
     }
+    
+    @Test
+    public void testIncrementalMatchesApply() throws Exception {
+        List<Function<Collection<? extends Number>, Double>> funcs = new ArrayList<>();
+        funcs.add(MathAggregatorFunctions.computingSum(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingAverage(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMin(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMax(null, 999, Double.class));
+        
+        for (Function<Collection<? extends Number>, Double> func : funcs) {
+            Accumulator<Double> accumulator = newAccumulator(func);
+            List<Number> vals = MutableList.of();
+            assertEquals(accumulator.get(), func.apply(vals), "func="+func);
+            for (Number val : MutableList.<Number>of(3, 1, null, 5, 5, 2.5, -4L)) {
+                accumulator.add(val);
+                vals.add(val);
+                assertEquals(accumulator.get(), func.apply(vals), "func="+func+"; vals="+vals);
+            }
+            for (Number val : MutableList.<Number>of(5, -4L, 1, null, 3, 5)) {
+                accumulator.remove(val);
+                vals.remove(val);
+                assertEquals(accumulator.get(), func.apply(vals), "func="+func+"; vals="+vals);
+            }
+            accumulator.remove(2.5);
+            assertEquals(accumulator.get(), (Double)999d, "func="+func);
+        }
+    }
+    
+    @Test
+    public void testIncrementalUsesDefaultForNull() throws Exception {
+        Accumulator<Integer> accumulator = newAccumulator(MathAggregatorFunctions.computingSum(10, null, Integer.class));
+        accumulator.add(null);
+        accumulator.add(1);
+        assertEquals(accumulator.get(), (Integer)11);
+        accumulator.remove(null);
+        assertEquals(accumulator.get(), (Integer)1);
+    }
+    
+    @Test
+    public void testIncrementalSumDoesNotDrift() throws Exception {
+        Accumulator<Double> accumulator = newAccumulator(MathAggregatorFunctions.computingSum(null, null, Double.class));
+        accumulator.add(1);
+        for (int i = 0; i < 1000; i++) {
+            accumulator.add(0.1);
+            accumulator.add(1e20);
+            accumulator.remove(1e20);
+            accumulator.remove(0.1);
+        }
+        assertEquals(accumulator.get(), (Double)1d);
+    }
+    
+    @Test
+    public void testIncrementalWithNonFiniteValues() throws Exception {
+        Accumulator<Double> sum = newAccumulator(MathAggregatorFunctions.computingSum(null, null, Double.class));
+        Accumulator<Double> max = newAccumulator(MathAggregatorFunctions.computingMax(null, null, Double.class));
+        for (Accumulator<Double> accumulator : ImmutableList.of(sum, max)) {
+            accumulator.add(1);
+            accumulator.add(Double.POSITIVE_INFINITY);
+        }
+        assertEquals(sum.get(), Double.POSITIVE_INFINITY);
+        assertEquals(max.get(), Double.POSITIVE_INFINITY);
+        
+        for (Accumulator<Double> accumulator : ImmutableList.of(sum, max)) {
+            accumulator.add(Double.NaN);
+        }
+        assertTrue(sum.get().isNaN());
+        assertTrue(max.get().isNaN());
+        
+        for (Accumulator<Double> accumulator : ImmutableList.of(sum, max)) {
+            accumulator.remove(Double.NaN);
+            accumulator.remove(Double.POSITIVE_INFINITY);
+        }
+        assertEquals(sum.get(), (Double)1d);
+        assertEquals(max.get(), (Double)1d);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> Accumulator<T> newAccumulator(Function<Collection<? extends Number>, T> func) {
+        return ((IncrementallyComputable<T>)func).newAccumulator();
+    }
 }
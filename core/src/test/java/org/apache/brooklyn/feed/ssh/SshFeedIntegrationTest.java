@@ -145,6 +145,26 @@ public class SshFeedIntegrationTest extends BrooklynAppUnitTestSupport {
             Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
     }
 
+    @Test(groups="Integration")
+    public void testReturnsSshStdoutAndExitStatusWhenBatched() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .batchPolls()
+                .poll(new CommandPollConfig<String>(SENSOR_STRING)
+                        .command("echo hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new CommandPollConfig<Integer>(SENSOR_INT)
+                        .command("exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .build();
+
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_STRING,
+            Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+    }
+
     @Test(groups="Integration")
     public void testReturnsSshStderr() throws Exception {
         final String cmd = "thiscommanddoesnotexist";
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.feed.ssh;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Map;
@@ -165,6 +166,39 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    @Test
+    public void testSingleCallWhenDifferentCommandsBatched() throws Exception {
+        final RecordingSshMachineLocation recordingMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(RecordingSshMachineLocation.class));
+        app.start(ImmutableList.of(recordingMachine));
+
+        final String cmd = "myCommand";
+        final String cmd2 = "myCommand2";
+
+        feed = SshFeed.builder()
+                .period(Duration.PRACTICALLY_FOREVER)
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command(cmd)
+                        .onSuccess(Functions.constant("success")))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .env(ImmutableMap.of("mykey", "myval"))
+                        .command(cmd2)
+                        .onSuccess(Functions.constant("success")))
+                .build();
+
+        // Expect both commands to be executed in the one call
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(RecordingSshMachineLocation.execScriptCalls.size(), 1);
+                List<String> cmds = RecordingSshMachineLocation.execScriptCalls.get(0);
+                assertEquals(cmds.size(), 2, "cmds="+cmds);
+                String allCmds = cmds.toString();
+                assertTrue(allCmds.contains(cmd+"\n") && allCmds.contains(cmd2+"\n") && allCmds.contains("export mykey=\"myval\""), "cmds="+cmds);
+            }});
+    }
+
     public static class RecordingSshMachineLocation extends SshMachineLocation {
         public static List<List<String>> execScriptCalls = Lists.newCopyOnWriteArrayList();
 
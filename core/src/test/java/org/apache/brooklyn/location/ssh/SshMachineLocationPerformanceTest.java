@@ -28,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.test.performance.PerformanceTestUtils;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.internal.ssh.ShellCommandBatch;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.stream.Streams;
@@ -91,6 +92,54 @@ public class SshMachineLocationPerformanceTest {
         runMany(task, "small-cmd-custom-stdout", 1, 10);
     }
 
+    // for comparison with testConsecutiveSmallCommandsWithCustomStdoutAndErr:
+    // the script is sent in the same session that runs it, rather than copied over sftp first
+    @Test(groups = {"Integration"})
+    public void testConsecutiveSmallInlineScripts() throws Exception {
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                machine.execScript(ImmutableMap.of("out", stdout, "err", stderr, SshTool.PROP_INLINE_SCRIPT.getName(), true), "test", ImmutableList.of("true"));
+            }};
+        runMany(task, "small-cmd-inline-script", 1, 10);
+    }
+
+    // Mimics SshFeed polling for several sensors, each with its own command
+    @Test(groups = {"Integration"})
+    public void testConsecutiveGroupsOfSmallCommands() throws Exception {
+        final List<String> cmds = ImmutableList.of("uptime", "df -k /", "echo $MYVAR", "date");
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                for (String cmd : cmds) {
+                    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+                    machine.execScript(ImmutableMap.of("out", stdout, "err", stderr), "test", ImmutableList.of(cmd), ImmutableMap.of("MYVAR", "myval"));
+                }
+            }};
+        runMany(task, "small-cmd-group", 1, 10);
+    }
+
+    // for comparison with testConsecutiveGroupsOfSmallCommands, as SshFeed with batchPolls
+    @Test(groups = {"Integration"})
+    public void testConsecutiveBatchesOfSmallCommands() throws Exception {
+        final List<String> cmds = ImmutableList.of("uptime", "df -k /", "echo $MYVAR", "date");
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                ShellCommandBatch batch = new ShellCommandBatch();
+                for (String cmd : cmds) {
+                    batch.add(cmd, ImmutableMap.of("MYVAR", "myval"));
+                }
+                ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+                machine.execScript(ImmutableMap.of("out", stdout, "err", stderr, SshTool.PROP_INLINE_SCRIPT.getName(), true), "test", batch.getCommands());
+                List<ShellCommandBatch.Result> results = batch.parse(new String(stdout.toByteArray()), new String(stderr.toByteArray()));
+                if (results.contains(null)) throw new IllegalStateException("Incomplete results "+results+" for "+batch);
+            }};
+        runMany(task, "small-cmd-batch", 1, 10);
+    }
+
     @Test(groups = {"Integration"})
     public void testConcurrentSmallCommands() throws Exception {
         runExecManyCommands(ImmutableList.of("true"), "small-cmd", 10, 10);
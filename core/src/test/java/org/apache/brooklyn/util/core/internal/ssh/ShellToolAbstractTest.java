@@ -397,7 +397,50 @@ public abstract class ShellToolAbstractTest {
         assertEquals(out.toString().trim(), "hello world");
         assertEquals(0, exitcode);
     }
-    
+
+    @Test(groups = {"Integration"})
+    public void testExecScriptBatchOfCommands() throws Exception {
+        runExecBatchOfCommands(false);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testExecCommandsBatchOfCommands() throws Exception {
+        runExecBatchOfCommands(true);
+    }
+
+    protected void runExecBatchOfCommands(boolean asCommands) throws Exception {
+        ShellCommandBatch batch = new ShellCommandBatch();
+        batch.add("echo val is $MYPROP", ImmutableMap.of("MYPROP", "my val"));
+        batch.add("echo -n no newline; echo to err >&2; false", null);
+        batch.add("echo val is now $MYPROP; exit 3", null);
+        batch.add("echo a; echo b", null);
+
+        Map<String,Object> props = new LinkedHashMap<String, Object>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        props.put("out", out);
+        props.put("err", err);
+        props.put(SshTool.PROP_NO_EXTRA_OUTPUT.getName(), true);
+        if (asCommands) {
+            tool.execCommands(props, batch.getCommands(), null);
+        } else {
+            tool.execScript(props, batch.getCommands(), null);
+        }
+        List<ShellCommandBatch.Result> results = batch.parse(out.toString(), err.toString());
+
+        assertEquals(results.size(), 4, "results="+results+"; out="+out+"; err="+err);
+        assertEquals(results.get(0).getExitCode(), 0);
+        assertEquals(results.get(0).getStdout(), "val is my val\n");
+        assertEquals(results.get(1).getExitCode(), 1);
+        assertEquals(results.get(1).getStdout(), "no newline");
+        assertEquals(results.get(1).getStderr(), "to err\n");
+        assertEquals(results.get(2).getExitCode(), 3);
+        assertEquals(results.get(2).getStdout(), "val is now\n");
+        assertEquals(results.get(3).getExitCode(), 0);
+        assertEquals(results.get(3).getStdout(), "a\nb\n");
+        assertEquals(results.get(3).getStderr(), "");
+    }
+
     protected String execCommands(String... cmds) {
         return execCommands(Arrays.asList(cmds));
     }
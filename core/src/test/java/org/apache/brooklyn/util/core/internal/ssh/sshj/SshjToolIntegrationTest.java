@@ -73,6 +73,17 @@ public class SshjToolIntegrationTest extends SshToolAbstractIntegrationTest {
         assertTrue(out.contains("file contents: blah blah"), "out="+out);
     }
 
+    @Test(groups = {"Integration"})
+    public void testExecScriptInline() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitcode = tool().execScript(
+                ImmutableMap.of("out", out, "err", err, SshTool.PROP_INLINE_SCRIPT.getName(), true, SshTool.PROP_NO_EXTRA_OUTPUT.getName(), true),
+                ImmutableList.of("MYVAR='a \"quoted\" $val'", "echo \"$MYVAR\" `echo b`", "exit 3"));
+        assertEquals(exitcode, 3, "out="+out+"; err="+err);
+        assertEquals(out.toString().trim(), "a \"quoted\" $val b", "err="+err);
+    }
+
     @Test(groups = {"Integration"})
     public void testGivesUpAfterMaxRetries() throws Exception {
         final AtomicInteger callCount = new AtomicInteger();
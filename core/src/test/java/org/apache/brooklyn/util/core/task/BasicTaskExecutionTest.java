@@ -23,24 +23,39 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.fail;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.ExecutionMode;
 import org.apache.brooklyn.util.core.task.BasicTask;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.SkipException;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -77,6 +92,129 @@ public class BasicTaskExecutionTest {
         if (data != null) data.clear();
     }
     
+    @Test
+    public void testVirtualExecutionModeRunsTasksOnVirtualThreads() throws Exception {
+        final Method isVirtual;
+        try {
+            isVirtual = Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            throw new SkipException("Virtual threads not supported by this JVM");
+        }
+        em.shutdownNow();
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.EXECUTION_MODE, ExecutionMode.VIRTUAL);
+        em = new BasicExecutionManager("mycontext", props);
+        
+        final Task<?>[] tasks = new Task<?>[10];
+        for (int i = 0; i < tasks.length; i++) {
+            final int index = i;
+            tasks[i] = em.submit(MutableMap.of("tag", "A"), new Callable<Boolean>() {
+                @Override public Boolean call() throws Exception {
+                    assertEquals(isVirtual.invoke(Thread.currentThread()), Boolean.TRUE, "thread="+Thread.currentThread());
+                    return Tasks.current() == tasks[index];
+                }});
+        }
+        for (Task<?> t : tasks) {
+            assertEquals(t.get(), Boolean.TRUE);
+        }
+        // re-submitting an already-submitted task is a no-op
+        assertEquals(em.submit(tasks[0]), tasks[0]);
+    }
+    
+    /** Runs the VIRTUAL mode wiring on any JVM, with a platform thread per task standing in for virtual threads. */
+    @Test
+    public void testVirtualExecutionModeUsesThreadPerTaskRunner() throws Exception {
+        em.shutdownNow();
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.EXECUTION_MODE, ExecutionMode.VIRTUAL);
+        em = new BasicExecutionManager("mycontext", props) {
+            @Override protected ExecutorService newVirtualThreadRunner(String contextid) {
+                return Executors.newCachedThreadPool(new ThreadFactory() {
+                    @Override public Thread newThread(Runnable r) {
+                        return new Thread(r, "test-thread-per-task");
+                    }});
+            }
+        };
+        
+        List<Task<Task<?>>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(em.submit(MutableMap.of("tag", "A"), new Callable<Task<?>>() {
+                @Override public Task<?> call() throws Exception {
+                    assertEquals(Thread.currentThread().getName(), "test-thread-per-task");
+                    return Tasks.current();
+                }}));
+        }
+        for (Task<Task<?>> t : tasks) {
+            assertSame(t.get(), t);
+        }
+        
+        // concurrent submissions of the same task are guarded by the task's lock, so it runs once
+        final AtomicInteger runs = new AtomicInteger();
+        final BasicTask<Void> shared = new BasicTask<Void>(new Runnable() {
+            @Override public void run() { runs.incrementAndGet(); }});
+        final CountDownLatch go = new CountDownLatch(1);
+        List<Thread> submitters = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            Thread submitter = new Thread() {
+                @Override public void run() {
+                    try {
+                        go.await();
+                        assertEquals(em.submit(shared), shared);
+                    } catch (InterruptedException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                }};
+            submitter.start();
+            submitters.add(submitter);
+        }
+        go.countDown();
+        for (Thread submitter : submitters) submitter.join(TIMEOUT_MS);
+        shared.get();
+        assertEquals(runs.get(), 1);
+    }
+    
+    @Test
+    public void testVirtualExecutionModeFallsBackToPooledWhenUnsupported() throws Exception {
+        em.shutdownNow();
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.EXECUTION_MODE, ExecutionMode.VIRTUAL);
+        em = new BasicExecutionManager("mycontext", props) {
+            @Override protected ExecutorService newVirtualThreadRunner(String contextid) {
+                return null;
+            }
+        };
+        Task<String> t = em.submit(MutableMap.of("tag", "A"), Callables.returning("a"));
+        assertEquals(t.get(), "a");
+    }
+    
+    @Test
+    public void testBlockUntilStartedReturnsOnSubmitAndThrowsOnCancel() throws Exception {
+        final BasicTask<String> submitted = new BasicTask<String>(Callables.returning("a"));
+        assertFalse(submitted.blockUntilStarted(Duration.millis(10)));
+        Thread submitter = new Thread() {
+            @Override public void run() {
+                Time.sleep(Duration.millis(50));
+                em.submit(submitted);
+            }};
+        submitter.start();
+        assertTrue(submitted.blockUntilStarted(Duration.seconds(10)));
+        assertEquals(submitted.get(), "a");
+        
+        final BasicTask<String> cancelled = new BasicTask<String>(Callables.returning("a"));
+        Thread canceller = new Thread() {
+            @Override public void run() {
+                Time.sleep(Duration.millis(50));
+                cancelled.cancel();
+            }};
+        canceller.start();
+        try {
+            cancelled.blockUntilStarted(Duration.seconds(10));
+            fail("Expected cancellation");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+    
     @Test
     public void runSimpleBasicTask() throws Exception {
         BasicTask<Object> t = new BasicTask<Object>(newPutCallable(1, "b"));
@@ -206,6 +344,46 @@ public class BasicTaskExecutionTest {
         assertEquals(em.getTasksWithAllTags(ImmutableList.of("A")), ImmutableList.of(t));
     }
 
+    @Test
+    public void testConcurrentSubmitDeleteAndQueryByTag() throws Exception {
+        final int NUM_TASKS = 500;
+        final AtomicBoolean submitting = new AtomicBoolean(true);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        
+        // query and delete (as the GC and REST API do) while tasks are being submitted
+        Thread reader = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    while (submitting.get()) {
+                        for (Task<?> t : em.getTasksWithTag("A")) {
+                            if (t.isDone()) em.deleteTask(t);
+                        }
+                        em.getTasksWithAllTags(ImmutableList.of("A", "B"));
+                        em.getTaskTags();
+                    }
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }});
+        reader.start();
+        
+        List<Task<?>> tasks = Lists.newArrayList();
+        try {
+            for (int i = 0; i < NUM_TASKS; i++) {
+                tasks.add(em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), newNoop()));
+            }
+            for (Task<?> t : tasks) t.get();
+        } finally {
+            submitting.set(false);
+            reader.join(TIMEOUT_MS);
+        }
+        if (error.get() != null) throw Exceptions.propagate(error.get());
+        
+        for (Task<?> t : tasks) em.deleteTask(t);
+        assertEquals(em.getTasksWithTag("A"), ImmutableSet.of());
+        assertFalse(em.getTaskTags().contains("A"));
+    }
+
     @Test
     public void testRetrievingTasksWithTagsExcludesNonMatchingTasks() throws Exception {
         Task<?> t = new BasicTask<Void>(newNoop());
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.ExecutionMode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+public class PooledTaskExecutorTest {
+
+    private static final long TIMEOUT_MS = 10*1000;
+
+    private PooledTaskExecutor executor;
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (executor != null) executor.shutdownNow();
+        if (em != null) em.shutdownNow();
+    }
+
+    private PooledTaskExecutor newExecutor(int coreSize, int maxSize, int queueCapacity) {
+        return new PooledTaskExecutor(coreSize, maxSize, queueCapacity,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("pooled-task-executor-test-%d").build());
+    }
+
+    @Test
+    public void testRunsQueuedJobsInPriorityOrder() throws Exception {
+        executor = newExecutor(1, 1, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = new CopyOnWriteArrayList<String>();
+
+        // occupy the only thread, so the others are queued
+        executor.submit(new Callable<Void>() {
+            @Override public Void call() throws Exception {
+                release.await();
+                return null;
+            }}, PooledTaskExecutor.PRIORITY_NORMAL);
+        Future<?> background = executor.submit(recorder(order, "background"), PooledTaskExecutor.PRIORITY_BACKGROUND);
+        Future<?> normal1 = executor.submit(recorder(order, "normal1"), PooledTaskExecutor.PRIORITY_NORMAL);
+        Future<?> foreground = executor.submit(recorder(order, "foreground"), PooledTaskExecutor.PRIORITY_FOREGROUND);
+        Future<?> normal2 = executor.submit(recorder(order, "normal2"), PooledTaskExecutor.PRIORITY_NORMAL);
+        release.countDown();
+
+        for (Future<?> f : ImmutableList.of(background, normal1, foreground, normal2)) {
+            f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(order, ImmutableList.of("foreground", "normal1", "normal2", "background"));
+    }
+
+    @Test
+    public void testRunsInOverflowThreadWhenSaturated() throws Exception {
+        executor = newExecutor(1, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = new CopyOnWriteArrayList<String>();
+
+        executor.submit(new Callable<Void>() {
+            @Override public Void call() throws Exception {
+                release.await();
+                return null;
+            }}, PooledTaskExecutor.PRIORITY_NORMAL);
+        Future<?> queued = executor.submit(recorder(order, "queued"), PooledTaskExecutor.PRIORITY_NORMAL);
+        Future<?> overflowed = executor.submit(recorder(order, "overflowed"), PooledTaskExecutor.PRIORITY_NORMAL);
+
+        // the overflowed job runs even though the pool thread is still blocked
+        overflowed.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals(executor.getOverflowCount(), 1);
+        release.countDown();
+        queued.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals(order, ImmutableList.of("overflowed", "queued"));
+    }
+
+    @Test
+    public void testBlockingOnQueuedTaskDoesNotDeadlock() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.EXECUTION_MODE, ExecutionMode.POOLED);
+        props.put(BasicExecutionManager.POOL_CORE_SIZE, 1);
+        props.put(BasicExecutionManager.POOL_MAX_SIZE, 4);
+        em = new BasicExecutionManager("mycontextid", props);
+
+        // the parent occupies the only core thread and waits on a child which can only run if the pool compensates
+        Task<String> parent = em.submit(new Callable<String>() {
+            @Override public String call() throws Exception {
+                Task<String> child = em.submit(new Callable<String>() {
+                    @Override public String call() {
+                        return "child";
+                    }});
+                return "parent-"+child.get();
+            }});
+
+        assertEquals(parent.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "parent-child");
+        assertTrue(em.getRunnerMetrics().containsKey("blockedWorkers"), "metrics="+em.getRunnerMetrics());
+        assertEquals(em.getRunnerMetrics().get("blockedWorkers"), 0);
+    }
+
+    @Test
+    public void testBlockingWithAllPoolThreadsBlockedDoesNotDeadlock() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.EXECUTION_MODE, ExecutionMode.POOLED);
+        props.put(BasicExecutionManager.POOL_CORE_SIZE, 1);
+        props.put(BasicExecutionManager.POOL_MAX_SIZE, 1);
+        em = new BasicExecutionManager("mycontextid", props);
+
+        // the pool cannot grow, so the child and grandchild must be run by overflow workers
+        Task<String> parent = em.submit(new Callable<String>() {
+            @Override public String call() throws Exception {
+                Task<String> child = em.submit(new Callable<String>() {
+                    @Override public String call() throws Exception {
+                        Task<String> grandchild = em.submit(new Callable<String>() {
+                            @Override public String call() {
+                                return "grandchild";
+                            }});
+                        return "child-"+grandchild.get();
+                    }});
+                return "parent-"+child.get();
+            }});
+
+        assertEquals(parent.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "parent-child-grandchild");
+        assertEquals(em.getRunnerMetrics().get("blockedWorkers"), 0);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(em.getRunnerMetrics().get("overflowWorkers"), 0);
+            }});
+    }
+
+    private Callable<Void> recorder(final List<String> order, final String name) {
+        return new Callable<Void>() {
+            @Override public Void call() {
+                order.add(name);
+                return null;
+            }};
+    }
+}
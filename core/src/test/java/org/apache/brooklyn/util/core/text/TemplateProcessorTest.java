@@ -19,6 +19,8 @@
 package org.apache.brooklyn.util.core.text;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 
 import com.google.common.collect.Iterables;
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -247,4 +249,15 @@ public class TemplateProcessorTest extends BrooklynAppUnitTestSupport {
         }
     }
 
+    @Test
+    public void testTemplateParsedOnceAndReused() throws Exception {
+        String templateContents = "${mykey} on ${entity.id}";
+        assertSame(TemplateProcessor.getTemplate(templateContents), TemplateProcessor.getTemplate(templateContents));
+        assertNotSame(TemplateProcessor.getTemplate(templateContents), TemplateProcessor.getTemplate(templateContents+" "));
+        
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, app, ImmutableMap.of("mykey", "val1")), "val1 on "+app.getId());
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, entity, ImmutableMap.of("mykey", "val2")), "val2 on "+entity.getId());
+    }
+
 }
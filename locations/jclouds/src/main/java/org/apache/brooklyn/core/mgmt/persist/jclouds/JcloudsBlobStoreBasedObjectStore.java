@@ -18,29 +18,47 @@
  */
 package org.apache.brooklyn.core.mgmt.persist.jclouds;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.persist.PersistMode;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.location.jclouds.BlobStoreContextFactoryImpl;
 import org.apache.brooklyn.location.jclouds.JcloudsLocation;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.exceptions.FatalConfigurationRuntimeException;
 import org.apache.brooklyn.util.text.Strings;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.FluentIterable;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteSource;
 
 /**
  * @author Andrea Turli
@@ -49,6 +67,20 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
 
     private static final Logger log = LoggerFactory.getLogger(JcloudsBlobStoreBasedObjectStore.class);
 
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTENCE_MANIFEST = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.persistence.jclouds.manifest",
+        "Whether to keep a manifest blob of the objects in each sub-path (beside it, as <subpath>.manifest), "
+        + "so that listing (e.g. on rebind) is a single read rather than a paged listing of the container; "
+        + "the manifest is only updated when objects are added or removed, not when they are rewritten. "
+        + "All nodes writing to the store must use the same setting: "
+        + "if a node writes without maintaining the manifest, objects it adds will not be seen on rebind", 
+        false);
+
+    static final String MANIFEST_SUFFIX = ".manifest";
+    /** written by all nodes, so can't be tracked in a manifest updated only by the master */
+    private static final String PLANE_SUB_PATH = "plane";
+
     private final String containerNameFirstPart;
     private final String containerSubPath;
     
@@ -58,6 +90,9 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
 
     private ManagementContext mgmt;
 
+    private volatile boolean useManifest = false;
+    private final Map<String, SubPathManifest> manifests = new ConcurrentHashMap<String, SubPathManifest>();
+
     public JcloudsBlobStoreBasedObjectStore(String locationSpec, String containerName) {
         this.locationSpec = locationSpec;
         String[] segments = splitOnce(containerName);
@@ -143,6 +178,11 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     @Override
     public StoreObjectAccessor newAccessor(String path) {
         checkPrepared();
+        SubPathManifest manifest = getManifest(path);
+        if (manifest!=null) {
+            return new ManifestUpdatingAccessor(manifest, Strings.removeFromStart(path, manifest.subPath+subPathSeparator()), 
+                context.getBlobStore(), getContainerNameFirstPart(), getItemInContainerSubPath(path));
+        }
         return new JcloudsStoreObjectAccessor(context.getBlobStore(), getContainerNameFirstPart(), getItemInContainerSubPath(path));
     }
 
@@ -165,17 +205,179 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     @Override
     public List<String> listContentsWithSubPath(final String parentSubPath) {
         checkPrepared();
-        return FluentIterable.from(context.getBlobStore().list(getContainerNameFirstPart(), 
-            ListContainerOptions.Builder.inDirectory(getItemInContainerSubPath(parentSubPath))))
-                .transform(new Function<StorageMetadata, String>() {
-                    @Override
-                    public String apply(@javax.annotation.Nullable StorageMetadata input) {
-                        String result = input.getName();
-                        result = Strings.removeFromStart(result, containerSubPath);
-                        result = Strings.removeFromStart(result, "/");
-                        return result;
+        if (useManifest && isManifestSubPath(parentSubPath)) {
+            Set<String> names = getOrCreateManifest(parentSubPath).readNames();
+            if (names!=null) {
+                List<String> result = MutableList.of();
+                for (String name: names) {
+                    result.add(mergePaths(parentSubPath, name));
+                }
+                return result;
+            }
+            // no manifest yet; it will be created on the first write
+        }
+        return listContainerWithSubPath(parentSubPath);
+    }
+
+    /** lists the container, following continuation markers as the results may be paged */
+    protected List<String> listContainerWithSubPath(final String parentSubPath) {
+        BlobStore blobStore = context.getBlobStore();
+        String directory = getItemInContainerSubPath(parentSubPath);
+        List<String> result = MutableList.of();
+        ListContainerOptions options = ListContainerOptions.Builder.inDirectory(directory);
+        while (true) {
+            PageSet<? extends StorageMetadata> page = blobStore.list(getContainerNameFirstPart(), options);
+            for (StorageMetadata input: page) {
+                String name = input.getName();
+                name = Strings.removeFromStart(name, containerSubPath);
+                name = Strings.removeFromStart(name, "/");
+                result.add(name);
+            }
+            String marker = page.getNextMarker();
+            if (marker==null) break;
+            options = ListContainerOptions.Builder.inDirectory(directory).afterMarker(marker);
+        }
+        return result;
+    }
+
+    @Nullable
+    private SubPathManifest getManifest(String path) {
+        if (!useManifest) return null;
+        int index = path.lastIndexOf(subPathSeparator());
+        if (index<=0) return null;
+        String subPath = path.substring(0, index);
+        if (!isManifestSubPath(subPath)) return null;
+        return getOrCreateManifest(subPath);
+    }
+
+    private boolean isManifestSubPath(String subPath) {
+        return !PLANE_SUB_PATH.equals(subPath) && !subPath.startsWith(PLANE_SUB_PATH+subPathSeparator());
+    }
+
+    private SubPathManifest getOrCreateManifest(String subPath) {
+        SubPathManifest result = manifests.get(subPath);
+        if (result==null) {
+            synchronized (manifests) {
+                result = manifests.get(subPath);
+                if (result==null) {
+                    result = new SubPathManifest(subPath);
+                    manifests.put(subPath, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    public void setUseManifest(boolean useManifest) {
+        this.useManifest = useManifest;
+    }
+
+    /**
+     * Names of the objects in a sub-path, stored as a blob alongside it. Additions are written before the object
+     * and removals after it, so the manifest may briefly name an object which does not exist (which readers skip)
+     * but never omits one which does. Concurrent additions and removals are batched into a single rewrite.
+     */
+    private class SubPathManifest {
+        final String subPath;
+        final JcloudsStoreObjectAccessor accessor;
+        final Set<String> pendingAdditions = Sets.newConcurrentHashSet();
+        final Set<String> pendingRemovals = Sets.newConcurrentHashSet();
+        final Object writeLock = new Object();
+        /** names known to be in the manifest, as of the last time it was read or written */
+        volatile Set<String> knownNames = null;
+
+        SubPathManifest(String subPath) {
+            this.subPath = subPath;
+            this.accessor = new JcloudsStoreObjectAccessor(context.getBlobStore(), getContainerNameFirstPart(), 
+                getItemInContainerSubPath(subPath+MANIFEST_SUFFIX));
+        }
+
+        /** @return the names in the manifest, or null if there is no manifest */
+        @Nullable
+        Set<String> readNames() {
+            String contents = accessor.get();
+            if (contents==null) return null;
+            Set<String> result = ImmutableSet.copyOf(Splitter.on('\n').omitEmptyStrings().split(contents));
+            // called on rebind, including promotion, so this also discards any stale view from a previous time as master
+            knownNames = result;
+            return result;
+        }
+
+        void beforeAdd(String name) {
+            Set<String> known = knownNames;
+            if (known!=null && known.contains(name)) return;
+            pendingRemovals.remove(name);
+            pendingAdditions.add(name);
+            commit(name, pendingAdditions);
+        }
+
+        void afterRemove(String name) {
+            pendingAdditions.remove(name);
+            pendingRemovals.add(name);
+            commit(name, pendingRemovals);
+        }
+
+        private void commit(String name, Set<String> pendingSet) {
+            synchronized (writeLock) {
+                // another thread may have committed our change while we waited
+                if (!pendingSet.contains(name)) return;
+
+                Collection<String> additions = drain(pendingAdditions);
+                Collection<String> removals = drain(pendingRemovals);
+                try {
+                    Set<String> names = readNames();
+                    if (names==null) {
+                        // first write with a manifest (or a store written without one): start from what is there
+                        names = ImmutableSet.copyOf(Iterables.transform(listContainerWithSubPath(subPath), new Function<String,String>() {
+                            @Override public String apply(String input) {
+                                return Strings.removeFromStart(input, subPath+subPathSeparator());
+                            }}));
                     }
-                }).toList();
+                    Set<String> newNames = Sets.newTreeSet(names);
+                    newNames.addAll(additions);
+                    newNames.removeAll(removals);
+                    if (!newNames.equals(names)) {
+                        accessor.put(ByteSource.wrap(Joiner.on('\n').join(newNames).getBytes(Charsets.UTF_8)));
+                    }
+                    knownNames = ImmutableSet.copyOf(newNames);
+                } catch (RuntimeException e) {
+                    // leave for the next writer (including any waiting threads whose changes we took)
+                    pendingAdditions.addAll(additions);
+                    pendingRemovals.addAll(removals);
+                    throw e;
+                }
+            }
+        }
+
+        private Collection<String> drain(Set<String> set) {
+            List<String> result = ImmutableList.copyOf(set);
+            set.removeAll(result);
+            return result;
+        }
+    }
+
+    private static class ManifestUpdatingAccessor extends JcloudsStoreObjectAccessor {
+        private final SubPathManifest manifest;
+        private final String name;
+
+        ManifestUpdatingAccessor(SubPathManifest manifest, String name, BlobStore blobStore, String containerName, String blobName) {
+            super(blobStore, containerName, blobName);
+            this.manifest = manifest;
+            this.name = name;
+        }
+
+        @Override
+        public void put(ByteSource payload) {
+            manifest.beforeAdd(name);
+            super.put(payload);
+        }
+
+        @Override
+        public void delete() {
+            super.delete();
+            manifest.afterRemove(name);
+        }
     }
 
     @Override
@@ -205,6 +407,7 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
         if (mgmt==null) throw new NullPointerException("Must inject ManagementContext before preparing "+this);
         
         getBlobStoreContext();
+        useManifest = Boolean.TRUE.equals(mgmt.getConfig().getConfig(PERSISTENCE_MANIFEST));
         
         if (persistMode==null || persistMode==PersistMode.DISABLED) {
             log.warn("Should not be using "+this+" when persistMode is "+persistMode);
@@ -26,7 +26,9 @@ import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.commons.io.Charsets;
 import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.ContainerNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.util.Strings2;
 
 import com.google.common.base.Throwables;
@@ -59,7 +61,6 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
     }
     
     public void put(ByteSource payload) {
-        blobStore.createContainerInLocation(null, containerName);
         // seems not needed, at least not w SoftLayer
 //        blobStore.createDirectory(containerName, directoryName);
         Blob blob;
@@ -70,7 +71,15 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
-        blobStore.putBlob(containerName, blob);
+        try {
+            blobStore.putBlob(containerName, blob);
+        } catch (RuntimeException e) {
+            // the container is created when the store is prepared, so only (re)create it if that is the problem,
+            // rather than paying for the extra call on every write
+            if (blobStore.containerExists(containerName)) throw e;
+            blobStore.createContainerInLocation(null, containerName);
+            blobStore.putBlob(containerName, blob);
+        }
     }
 
     @Override
@@ -89,8 +98,8 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
     @Override
     public String get() {
         try {
-            if (!blobStore.blobExists(containerName, blobName)) return null;
-            Blob blob = blobStore.getBlob(containerName, blobName);
+            // null if not present, so no need to check existence first
+            Blob blob = getBlob();
             if (blob==null) return null;
             return Strings2.toStringAndClose(blob.getPayload().openStream());
         } catch (IOException e) {
@@ -102,7 +111,7 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
     @Override
     public byte[] getBytes() {
         try {
-            Blob blob = blobStore.getBlob(containerName, blobName);
+            Blob blob = getBlob();
             if (blob==null) return null;
             return Streams.readFullyAndClose(blob.getPayload().openStream());
         } catch (IOException e) {
@@ -113,9 +122,22 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
 
     @Override
     public Date getLastModifiedDate() {
-        Blob blob = blobStore.getBlob(containerName, blobName);
-        if (blob==null) return null;
-        return blob.getMetadata().getLastModified();
+        BlobMetadata metadata;
+        try {
+            metadata = blobStore.blobMetadata(containerName, blobName);
+        } catch (ContainerNotFoundException e) {
+            return null;
+        }
+        if (metadata==null) return null;
+        return metadata.getLastModified();
+    }
+
+    private Blob getBlob() {
+        try {
+            return blobStore.getBlob(containerName, blobName);
+        } catch (ContainerNotFoundException e) {
+            return null;
+        }
     }
     
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist.jclouds;
+
+import java.io.File;
+
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterTestFixture;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * As {@link BrooklynMementoPersisterJcloudsObjectStoreTest}, but against the jclouds filesystem blobstore
+ * and with a manifest, so can run without cloud credentials.
+ */
+@Test
+public class BrooklynMementoPersisterJcloudsFilesystemObjectStoreTest extends BrooklynMementoPersisterTestFixture {
+
+    private File basedir;
+    private LocalManagementContextForTests locationMgmt;
+
+    @Override
+    protected LocalManagementContext newPersistingManagementContext() {
+        basedir = Files.createTempDir();
+        locationMgmt = new LocalManagementContextForTests();
+        objectStore = new JcloudsBlobStoreBasedObjectStore(
+            JcloudsBlobStoreBasedObjectStoreFilesystemTest.newFilesystemBlobStoreLocation(locationMgmt, basedir),
+            BlobStoreTest.CONTAINER_PREFIX);
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(JcloudsBlobStoreBasedObjectStore.PERSISTENCE_MANIFEST, true);
+        return RebindTestUtils.managementContextBuilder(classLoader, objectStore)
+            .persistPeriod(Duration.millis(10))
+            .properties(properties)
+            .buildStarted();
+    }
+
+    @Override
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        super.tearDown();
+        if (locationMgmt != null) Entities.destroyAll(locationMgmt);
+        if (basedir != null) Os.deleteRecursively(basedir);
+    }
+}
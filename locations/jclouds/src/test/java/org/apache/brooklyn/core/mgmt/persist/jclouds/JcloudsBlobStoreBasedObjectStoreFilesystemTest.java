@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.persist.PersistMode;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.location.jclouds.JcloudsLocation;
+import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.os.Os;
+import org.jclouds.blobstore.BlobStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+/**
+ * Tests {@link JcloudsBlobStoreBasedObjectStore} against the jclouds filesystem blobstore, as a local stand-in for a remote one.
+ */
+public class JcloudsBlobStoreBasedObjectStoreFilesystemTest {
+
+    private static final String CONTAINER = "brooklyn-persistence-test/mysubpath";
+
+    private LocalManagementContextForTests mgmt;
+    private File basedir;
+    private JcloudsLocation location;
+    private JcloudsBlobStoreBasedObjectStore store;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = new LocalManagementContextForTests();
+        basedir = Files.createTempDir();
+        location = newFilesystemBlobStoreLocation(mgmt, basedir);
+        store = newStore(false);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (store != null) store.close();
+        if (mgmt != null) Entities.destroyAll(mgmt);
+        if (basedir != null) Os.deleteRecursively(basedir);
+    }
+
+    static JcloudsLocation newFilesystemBlobStoreLocation(LocalManagementContextForTests mgmt, File basedir) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(JcloudsLocation.class)
+                .configure(JcloudsLocationConfig.CLOUD_PROVIDER, "filesystem")
+                .configure(JcloudsLocationConfig.ACCESS_IDENTITY, "identity")
+                .configure(JcloudsLocationConfig.ACCESS_CREDENTIAL, "credential")
+                .configure("jclouds.filesystem.basedir", basedir.getAbsolutePath()));
+    }
+
+    private JcloudsBlobStoreBasedObjectStore newStore(boolean useManifest) {
+        JcloudsBlobStoreBasedObjectStore result = new JcloudsBlobStoreBasedObjectStore(location, CONTAINER);
+        result.injectManagementContext(mgmt);
+        result.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        result.setUseManifest(useManifest);
+        return result;
+    }
+
+    private BlobStore blobStore() {
+        return store.getBlobStoreContext().getBlobStore();
+    }
+
+    @Test
+    public void testPutGetListAndDelete() throws Exception {
+        StoreObjectAccessor accessor = store.newAccessor("entities/a");
+        assertNull(accessor.get());
+        assertNull(accessor.getLastModifiedDate());
+
+        accessor.put("abc");
+        assertEquals(accessor.get(), "abc");
+        assertNotNull(accessor.getLastModifiedDate());
+        assertEquals(store.listContentsWithSubPath("entities"), MutableList.of("entities/a"));
+
+        accessor.delete();
+        assertNull(accessor.get());
+        assertEquals(store.listContentsWithSubPath("entities"), MutableList.of());
+    }
+
+    @Test
+    public void testListsAllPages() throws Exception {
+        // more than the filesystem blobstore's page size of 1000
+        int count = 1050;
+        for (int i = 0; i < count; i++) {
+            store.newAccessor("entities/e"+i).put("val"+i);
+        }
+        assertEquals(store.listContentsWithSubPath("entities").size(), count);
+    }
+
+    @Test
+    public void testManifestUsedForListing() throws Exception {
+        store.setUseManifest(true);
+        store.newAccessor("entities/a").put("abc");
+        store.newAccessor("entities/b").put("def");
+        store.newAccessor("entities/b").put("ghi");
+        assertEquals(store.newAccessor("entities.manifest").get(), "a\nb");
+
+        // written behind the manifest's back, so not listed
+        blobStore().putBlob("brooklyn-persistence-test", blobStore().blobBuilder("mysubpath/entities/c").payload("jkl").build());
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+
+        store.newAccessor("entities/a").delete();
+        assertEquals(store.listContentsWithSubPath("entities"), MutableList.of("entities/b"));
+
+        // and a new store instance (e.g. on rebind) reads it
+        store.close();
+        store = newStore(true);
+        assertEquals(store.listContentsWithSubPath("entities"), MutableList.of("entities/b"));
+    }
+
+    @Test
+    public void testManifestStartsFromExistingObjects() throws Exception {
+        store.newAccessor("entities/a").put("abc");
+        store.newAccessor("entities/b").put("def");
+
+        store.setUseManifest(true);
+        store.newAccessor("entities/c").put("ghi");
+        assertEquals(store.newAccessor("entities.manifest").get(), "a\nb\nc");
+    }
+
+    @Test
+    public void testManifestNotUsedForPlane() throws Exception {
+        store.setUseManifest(true);
+        store.newAccessor("plane/node1").put("abc");
+        assertFalse(store.newAccessor("plane.manifest").exists());
+        assertEquals(store.listContentsWithSubPath("plane"), MutableList.of("plane/node1"));
+    }
+
+    @Test
+    public void testConcurrentAdditionsAllInManifest() throws Exception {
+        store.setUseManifest(true);
+        int count = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<?>> futures = MutableList.of();
+            for (int i = 0; i < count; i++) {
+                final String path = "entities/e"+i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() {
+                        store.newAccessor(path).put(path);
+                        return null;
+                    }}));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        store.close();
+        store = newStore(true);
+        assertEquals(store.listContentsWithSubPath("entities").size(), count);
+    }
+}
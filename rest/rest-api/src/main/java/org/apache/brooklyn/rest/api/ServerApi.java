@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.rest.api;
 
+import java.io.InputStream;
 import java.util.Map;
 
 import javax.ws.rs.Consumes;
@@ -171,19 +172,17 @@ public interface ServerApi {
                 + "using LOCAL as master and REMOTE for other notes")
         @QueryParam("origin") @DefaultValue("AUTO") String origin);
 
-    // TODO would be nice to allow setting, as a means to recover / control more easily than messing with persistent stores
-//    @POST
-//    @Consumes({MediaType.APPLICATION_FORM_URLENCODED})
-//    @Path("/ha/persist/import")
-//    @ApiOperation(value = "Causes the supplied persistence data (tgz) to be imported and added "
-//        + "(fails if the node is not master), optionally removing any items not referenced")
-//    public Response importPersistenceData(
-//          // question: do we want the MementoCopyMode, cf export above?
-//        @ApiParam(name = "clearOthers", value = "Whether to clear all existing items before adding these", required = false, defaultValue = "false")
-//        @FormParam("clearOthers") Boolean clearOthers,
-//        @ApiParam(name = "data",
-//        value = "TGZ contents of a persistent directory to be imported", required = true)
-//    @Valid String dataTgz);
+    @POST
+    @Consumes({MIME_TYPE_ZIP, MediaType.APPLICATION_OCTET_STREAM})
+    @Path("/ha/persist/import")
+    @ApiOperation(value = "Causes the supplied persistence data (zip, as from export) to be imported and added "
+        + "(fails if the node is not master), optionally removing any items not referenced; "
+        + "imported items are used when state is next rebinded, e.g. on restart or failover")
+    public Response importPersistenceData(
+        @ApiParam(name = "clearOthers", value = "Whether to clear all existing items not in the supplied data", required = false, defaultValue = "false")
+        @QueryParam("clearOthers") @DefaultValue("false") Boolean clearOthers,
+        @ApiParam(name = "data", value = "ZIP contents of a persistence directory to be imported", required = true)
+        InputStream data);
 
     // TODO /ha/persist/backup set of endpoints, to list and retrieve specific backups
 
@@ -18,10 +18,9 @@
  */
 package org.apache.brooklyn.rest.resources;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +33,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.ext.ContextResolver;
 
 import org.apache.brooklyn.api.entity.Application;
@@ -55,8 +55,6 @@ import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
-import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
-import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
 import org.apache.brooklyn.rest.api.ServerApi;
 import org.apache.brooklyn.rest.domain.BrooklynFeatureSummary;
 import org.apache.brooklyn.rest.domain.HighAvailabilitySummary;
@@ -67,12 +65,9 @@ import org.apache.brooklyn.core.mgmt.ShutdownHandler;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ResourceUtils;
-import org.apache.brooklyn.util.core.file.ArchiveBuilder;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
-import org.apache.brooklyn.util.os.Os;
-import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
@@ -467,36 +462,43 @@ public class ServerResource extends AbstractBrooklynRestResource implements Serv
         return exportPersistenceData(TypeCoercions.coerce(preferredOrigin, MementoCopyMode.class));
     }
     
-    protected Response exportPersistenceData(MementoCopyMode preferredOrigin) {
+    protected Response exportPersistenceData(final MementoCopyMode preferredOrigin) {
         if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ALL_SERVER_INFO, null))
             throw WebResourceUtils.forbidden("User '%s' is not authorized for this operation", Entitlements.getEntitlementContext().user());
 
-        File dir = null;
-        try {
-            String label = mgmt().getManagementNodeId()+"-"+Time.makeDateSimpleStampString();
-            PersistenceObjectStore targetStore = BrooklynPersistenceUtils.newPersistenceObjectStore(mgmt(), null, 
-                "tmp/web-persistence-"+label+"-"+Identifiers.makeRandomId(4));
-            dir = ((FileBasedObjectStore)targetStore).getBaseDir();
-            // only register the parent dir because that will prevent leaks for the random ID
-            Os.deleteOnExitEmptyParentsUpTo(dir.getParentFile(), dir.getParentFile());
-            BrooklynPersistenceUtils.writeMemento(mgmt(), targetStore, preferredOrigin);            
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ArchiveBuilder.zip().addDirContentsAt( ((FileBasedObjectStore)targetStore).getBaseDir(), ((FileBasedObjectStore)targetStore).getBaseDir().getName() ).stream(baos);
-            Os.deleteRecursively(dir);
-            String filename = "brooklyn-state-"+label+".zip";
-            return Response.ok(baos.toByteArray(), MediaType.APPLICATION_OCTET_STREAM_TYPE)
-                .header("Content-Disposition","attachment; filename = "+filename)
-                .build();
-        } catch (Exception e) {
-            log.warn("Unable to serve persistence data (rethrowing): "+e, e);
-            if (dir!=null) {
+        // streamed one item at a time, so large state does not have to be held in memory (or copied to disk) first
+        final String label = mgmt().getManagementNodeId()+"-"+Time.makeDateSimpleStampString();
+        StreamingOutput archive = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
                 try {
-                    Os.deleteRecursively(dir);
-                } catch (Exception e2) {
-                    log.warn("Ignoring error deleting '"+dir+"' after another error, throwing original error ("+e+"); ignored error deleting is: "+e2);
+                    BrooklynPersistenceUtils.writeMementoArchive(mgmt(), preferredOrigin, "web-persistence-"+label, output);
+                } catch (Exception e) {
+                    log.warn("Unable to serve persistence data (rethrowing): "+e, e);
+                    throw Exceptions.propagate(e);
                 }
             }
+        };
+        String filename = "brooklyn-state-"+label+".zip";
+        return Response.ok(archive, MediaType.APPLICATION_OCTET_STREAM_TYPE)
+            .header("Content-Disposition","attachment; filename = "+filename)
+            .build();
+    }
+
+    @Override
+    public Response importPersistenceData(Boolean clearOthers, InputStream data) {
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.ROOT, null))
+            throw WebResourceUtils.forbidden("User '%s' is not authorized for this operation", Entitlements.getEntitlementContext().user());
+        if (mgmt().getHighAvailabilityManager().getNodeState()!=ManagementNodeState.MASTER)
+            throw WebResourceUtils.preconditionFailed("Persistence data can only be imported at the master node");
+
+        try {
+            int count = BrooklynPersistenceUtils.readMementoArchive(mgmt(), data, Boolean.TRUE.equals(clearOthers));
+            return Response.ok(MutableMap.of("imported", count)).build();
+        } catch (IllegalStateException e) {
+            throw WebResourceUtils.preconditionFailed(e.getMessage());
+        } catch (Exception e) {
+            log.warn("Unable to import persistence data (rethrowing): "+e, e);
             throw Exceptions.propagate(e);
         }
     }
@@ -29,6 +29,10 @@ import org.apache.brooklyn.util.javalang.JavaClassNames;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.Strings;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.reflect.TypeToken;
@@ -58,7 +62,26 @@ public class CommonAdaptorTryCoercions {
         coercer.registerAdapter(fn);
     }
     
-    protected static class TryCoercerWithFromMethod implements TryCoercer {
+    protected static class TryCoercerWithFromMethod implements TryCoercer.TypeDetermined {
+        /** the static {@code fromType(Type t)} methods of each target type, found once rather than on every coercion */
+        private final LoadingCache<Class<?>, List<Method>> fromMethods = CacheBuilder.newBuilder()
+                .weakKeys()
+                .softValues()
+                .build(new CacheLoader<Class<?>, List<Method>>() {
+                    @Override
+                    public List<Method> load(Class<?> type) {
+                        List<Method> result = Lists.newArrayList();
+                        for (Method m: type.getMethods()) {
+                            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
+                                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
+                                    m.getName().equals("from"+JavaClassNames.verySimpleClassName(m.getParameterTypes()[0]))) {
+                                result.add(m);
+                            }
+                        }
+                        return ImmutableList.copyOf(result);
+                    }
+                });
+
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -66,16 +89,12 @@ public class CommonAdaptorTryCoercions {
             
             List<ClassCoercionException> exceptions = Lists.newArrayList();
             //now look for static TargetType.fromType(Type t) where value instanceof Type  
-            for (Method m: rawTargetType.getMethods()) {
-                if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
-                        m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
-                        m.getParameterTypes()[0].isInstance(input)) {
-                    if (m.getName().equals("from"+JavaClassNames.verySimpleClassName(m.getParameterTypes()[0]))) {
-                        try {
-                            return Maybe.of((T) m.invoke(null, input));
-                        } catch (Exception e) {
-                            exceptions.add(new ClassCoercionException("Cannot coerce type "+input.getClass()+" to "+rawTargetType.getCanonicalName()+" ("+input+"): "+m.getName()+" adapting failed", e));
-                        }
+            for (Method m: fromMethods.getUnchecked(rawTargetType)) {
+                if (m.getParameterTypes()[0].isInstance(input)) {
+                    try {
+                        return Maybe.of((T) m.invoke(null, input));
+                    } catch (Exception e) {
+                        exceptions.add(new ClassCoercionException("Cannot coerce type "+input.getClass()+" to "+rawTargetType.getCanonicalName()+" ("+input+"): "+m.getName()+" adapting failed", e));
                     }
                 }
             }
@@ -90,7 +109,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
     
-    protected static class TryCoercerToEnum implements TryCoercer {
+    protected static class TryCoercerToEnum implements TryCoercer.TypeDetermined {
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -105,7 +124,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
 
-    protected static class TryCoercerToArray implements TryCoercer {
+    protected static class TryCoercerToArray implements TryCoercer.TypeDetermined {
         private final TypeCoercerExtensible coercer;
         
         public TryCoercerToArray(TypeCoercerExtensible coercer) {
@@ -141,7 +160,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
 
-    protected static class TryCoercerForPrimitivesAndStrings implements TryCoercer {
+    protected static class TryCoercerForPrimitivesAndStrings implements TryCoercer.TypeDetermined {
         @Override
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
             return PrimitiveStringTypeCoercions.tryCoerce(input, targetType.getRawType());
@@ -19,17 +19,41 @@
 package org.apache.brooklyn.util.javalang.coerce;
 
 import java.lang.reflect.Method;
+import java.util.List;
 
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.JavaClassNames;
 import org.apache.brooklyn.util.text.StringEscapes.JavaStringEscapes;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Primitives;
 
 public class PrimitiveStringTypeCoercions {
 
     public PrimitiveStringTypeCoercions() {}
+
+    /** the {@code value.asType()} methods of each type, found once rather than on every coercion */
+    private static final LoadingCache<Class<?>, List<Method>> AS_METHODS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .build(new CacheLoader<Class<?>, List<Method>>() {
+                @Override
+                public List<Method> load(Class<?> type) {
+                    List<Method> result = Lists.newArrayList();
+                    for (Method m: type.getMethods()) {
+                        if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
+                                m.getName().equals("as"+JavaClassNames.verySimpleClassName(m.getReturnType()))) {
+                            result.add(m);
+                        }
+                    }
+                    return ImmutableList.copyOf(result);
+                }
+            });
     
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public static <T> Maybe<T> tryCoerce(Object value, Class<? super T> targetType) {
@@ -54,16 +78,13 @@ public class PrimitiveStringTypeCoercions {
         //look for value.asType where Type is castable to targetType
         String targetTypeSimpleName = JavaClassNames.verySimpleClassName(targetType);
         if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
-            for (Method m: value.getClass().getMethods()) {
-                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
-                        targetType.isAssignableFrom(m.getReturnType()) ) {
-                    if (m.getName().equals("as"+JavaClassNames.verySimpleClassName(m.getReturnType()))) {
-                        try {
-                            return Maybe.of((T) m.invoke(value));
-                        } catch (Exception e) {
-                            Exceptions.propagateIfFatal(e);
-                            return Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e));
-                        }
+            for (Method m: AS_METHODS.getUnchecked(value.getClass())) {
+                if (targetType.isAssignableFrom(m.getReturnType())) {
+                    try {
+                        return Maybe.of((T) m.invoke(value));
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        return Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e));
                     }
                 }
             }
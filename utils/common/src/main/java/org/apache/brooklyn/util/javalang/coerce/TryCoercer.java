@@ -42,4 +42,13 @@ public interface TryCoercer {
      * </ul>
      */
     <T> Maybe<T> tryCoerce(Object input, TypeToken<T> type);
+
+    /**
+     * A {@link TryCoercer} which returns null (i.e. not applicable) according only to the class of the input
+     * and the target type, never according to the input value itself; {@link TypeCoercerExtensible} then
+     * remembers where it does not apply, and does not try it again for those types.
+     */
+    @Beta
+    public interface TypeDetermined extends TryCoercer {
+    }
 }
@@ -25,8 +25,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.AnyExceptionSupplier;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.guava.TypeTokens;
 import org.apache.brooklyn.util.javalang.Boxing;
@@ -39,7 +42,11 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -65,6 +72,10 @@ import com.google.common.reflect.TypeToken;
  * <li> {@link Date} -- parses using {@link Time#parseDate(String)}
  * <li> {@link Duration} -- parses using {@link Duration#parse(String)}
  * </ul>
+ * <p>
+ * What is found in the registry for a given source class and target type is remembered
+ * (including when nothing applies), as is which {@link TryCoercer.TypeDetermined} generic coercers
+ * do not apply, so that repeated coercions do not search again; this is discarded when an adapter is registered.
  */
 public class TypeCoercerExtensible implements TypeCoercer {
 
@@ -93,6 +104,33 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Store the generic coercers. */
     private final List<TryCoercer> genericCoercers = Lists.newCopyOnWriteArrayList();
 
+    /**
+     * What is known about coercing from a source class (the key) to each target type;
+     * keys weak and values soft, so as not to keep classes (and their class loaders) from being unloaded.
+     * Only modified when synchronized on the {@link #registry}.
+     */
+    private final LoadingCache<Class<?>, ConcurrentMap<TypeToken<?>, CoercionPlan>> coercionPlans = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .build(new CacheLoader<Class<?>, ConcurrentMap<TypeToken<?>, CoercionPlan>>() {
+                @Override
+                public ConcurrentMap<TypeToken<?>, CoercionPlan> load(Class<?> key) {
+                    return Maps.newConcurrentMap();
+                }
+            });
+
+    /** The registry adapters and generic coercers which can apply when coercing from a given source class to a given target type. */
+    private static class CoercionPlan {
+        /** registry adapters whose source type the source class is assignable to, in registry order; empty if none */
+        final List<Function<Object,?>> adapters;
+        /** {@link TryCoercer.TypeDetermined} coercers which have returned null (i.e. not applicable) for these types */
+        final Set<TryCoercer> inapplicableCoercers = Sets.newConcurrentHashSet();
+
+        CoercionPlan(List<Function<Object,?>> adapters) {
+            this.adapters = adapters;
+        }
+    }
+
     @Override
     public <T> T coerce(Object value, Class<T> targetType) {
         return coerce(value, TypeToken.of(targetType));
@@ -159,10 +197,13 @@ public class TypeCoercerExtensible implements TypeCoercer {
         if (targetType.isInstance(value)) return Maybe.of( (T) value );
 
         targetTypeToken = TypeTokens.getTypeToken(targetTypeToken, targetType);
+        CoercionPlan plan = getCoercionPlan(value.getClass(), targetTypeToken, targetType);
         for (TryCoercer coercer : genericCoercers) {
+            if (plan.inapplicableCoercers.contains(coercer)) continue;
             result = coercer.tryCoerce(value, targetTypeToken);
             if (result!=null && result.isPresent()) return result;
             if (result!=null && firstError==null) firstError = result;
+            if (result==null && coercer instanceof TryCoercer.TypeDetermined) plan.inapplicableCoercers.add(coercer);
         }
         
         //ENHANCEMENT could look in type hierarchy of both types for a conversion method...
@@ -181,43 +222,63 @@ public class TypeCoercerExtensible implements TypeCoercer {
         }
         
         //now look in registry
-        synchronized (registry) {
-            Map<Class<?>, Function<?,?>> adapters = registry.row(targetType);
-            for (Map.Entry<Class<?>, Function<?,?>> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    try {
-                        T resultT = ((Function<Object,T>)entry.getValue()).apply(value);
-                        
-                        // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                        // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                        // First check that value has changed, to avoid stack overflow!
-                        if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
-                            // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                            // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                            // and just return the result.
-                            return tryCoerce(resultT, targetTypeToken);
-                        }
-                        return Maybe.of(resultT);
-                    } catch (Exception e) {
-                        Exceptions.propagateIfFatal(e);
-                        if (log.isDebugEnabled()) {
-                            log.debug("When coercing, registry adapter "+entry+" gave error on "+value+" -> "+targetType+" "
-                                + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
-                                + ": "+e, e);
-                        }
-                        if (firstError==null) {
-                            if (e instanceof ClassCoercionException) firstError = Maybe.absent(e);
-                            else firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetType.getCanonicalName()+" ("+value+")", e));
-                        }
-                        continue;
-                    }
+        for (Function<Object,?> adapter : plan.adapters) {
+            try {
+                T resultT = ((Function<Object,T>)adapter).apply(value);
+                
+                // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+                // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+                // First check that value has changed, to avoid stack overflow!
+                if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
+                    // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                    // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                    // and just return the result.
+                    return tryCoerce(resultT, targetTypeToken);
+                }
+                return Maybe.of(resultT);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (log.isDebugEnabled()) {
+                    log.debug("When coercing, registry adapter "+adapter+" gave error on "+value+" -> "+targetType+" "
+                        + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
+                        + ": "+e, e);
+                }
+                if (firstError==null) {
+                    if (e instanceof ClassCoercionException) firstError = Maybe.absent(e);
+                    else firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetType.getCanonicalName()+" ("+value+")", e));
                 }
+                continue;
             }
         }
 
         //not found
         if (firstError!=null) return firstError;
-        return Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetType.getCanonicalName()+" ("+value+"): no adapter known"));
+        // exception created only if wanted, as failing is common (e.g. when testing whether a value can be coerced)
+        return Maybe.absent(new AnyExceptionSupplier<ClassCoercionException>(ClassCoercionException.class,
+            "Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetType.getCanonicalName()+" ("+value+"): no adapter known"));
+    }
+
+    /** returns what is known about coercing from the given class to the given type, looking in the registry if not yet known */
+    @SuppressWarnings("unchecked")
+    private CoercionPlan getCoercionPlan(Class<?> sourceClass, TypeToken<?> targetTypeToken, Class<?> targetType) {
+        ConcurrentMap<TypeToken<?>, CoercionPlan> plans = coercionPlans.getUnchecked(sourceClass);
+        CoercionPlan result = plans.get(targetTypeToken);
+        if (result != null) return result;
+        synchronized (registry) {
+            // look up again, in case the plans were discarded or computed while waiting
+            plans = coercionPlans.getUnchecked(sourceClass);
+            result = plans.get(targetTypeToken);
+            if (result != null) return result;
+            List<Function<Object,?>> adapters = MutableList.of();
+            for (Map.Entry<Class<?>, Function<?,?>> entry : registry.row(targetType).entrySet()) {
+                if (entry.getKey().isAssignableFrom(sourceClass)) {
+                    adapters.add((Function<Object,?>) entry.getValue());
+                }
+            }
+            result = new CoercionPlan(ImmutableList.copyOf(adapters));
+            plans.put(targetTypeToken, result);
+            return result;
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -298,12 +359,19 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Registers an adapter for use with type coercion. Returns any old adapter registered for this pair. */
     @SuppressWarnings("unchecked")
     public synchronized <A,B> Function<? super A,B> registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+        synchronized (registry) {
+            Function<? super A,B> result = (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+            coercionPlans.invalidateAll();
+            return result;
+        }
     }
     
     /** Registers a generic adapter for use with type coercion. */
     @Beta
     public synchronized void registerAdapter(TryCoercer fn) {
-        genericCoercers.add(fn);
+        synchronized (registry) {
+            genericCoercers.add(fn);
+            coercionPlans.invalidateAll();
+        }
     }
 }
@@ -19,12 +19,15 @@
 package org.apache.brooklyn.util.javalang.coerce;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.util.guava.Maybe;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.reflect.TypeToken;
 
@@ -56,6 +59,79 @@ public class TypeCoercerExtensibleTest {
         assertEquals(coerce("abc", MyClazz.class), new MyClazz("myprefixabc"));
     }
     
+    @Test
+    public void testTypeDeterminedCoercerNotRetriedWhereItDoesNotApply() {
+        // new coercer, as other tests register generic coercers for MyClazz
+        TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+        CountingTryCoercer counter = new CountingTypeDeterminedTryCoercer();
+        coercer.registerAdapter(counter);
+        coercer.registerAdapter(String.class, MyClazz.class, new MyClazzFromString());
+        
+        assertEquals(coercer.coerce("1", MyClazz.class), new MyClazz("1"));
+        assertEquals(coercer.coerce("2", MyClazz.class), new MyClazz("2"));
+        assertEquals(counter.count.get(), 1);
+        
+        // but is tried for other types
+        assertFalse(coercer.tryCoerce(3, MyClazz.class).isPresent());
+        assertEquals(counter.count.get(), 2);
+    }
+    
+    @Test
+    public void testOtherCoercerRetriedEveryTime() {
+        // new coercer, as other tests register generic coercers for MyClazz
+        TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+        CountingTryCoercer counter = new CountingTryCoercer();
+        coercer.registerAdapter(counter);
+        coercer.registerAdapter(String.class, MyClazz.class, new MyClazzFromString());
+        
+        assertEquals(coercer.coerce("1", MyClazz.class), new MyClazz("1"));
+        assertEquals(coercer.coerce("2", MyClazz.class), new MyClazz("2"));
+        assertEquals(counter.count.get(), 2);
+    }
+    
+    @Test
+    public void testRegisterAdapterAfterCoercionFailed() {
+        TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+        assertFalse(coercer.tryCoerce(new StringBuilder("abc"), MyClazz.class).isPresent());
+        
+        coercer.registerAdapter(CharSequence.class, MyClazz.class, new Function<CharSequence, MyClazz>() {
+            @Override
+            public MyClazz apply(CharSequence input) {
+                return new MyClazz("myprefix"+input);
+            }
+        });
+        assertEquals(coercer.coerce(new StringBuilder("abc"), MyClazz.class), new MyClazz("myprefixabc"));
+        
+        // and replacing the adapter takes effect
+        coercer.registerAdapter(CharSequence.class, MyClazz.class, new Function<CharSequence, MyClazz>() {
+            @Override
+            public MyClazz apply(CharSequence input) {
+                return new MyClazz("myotherprefix"+input);
+            }
+        });
+        assertEquals(coercer.coerce(new StringBuilder("abc"), MyClazz.class), new MyClazz("myotherprefixabc"));
+    }
+    
+    private static class MyClazzFromString implements Function<String, MyClazz> {
+        @Override
+        public MyClazz apply(String input) {
+            return new MyClazz(input);
+        }
+    }
+    
+    private static class CountingTryCoercer implements TryCoercer {
+        final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> type) {
+            count.incrementAndGet();
+            return null;
+        }
+    }
+    
+    private static class CountingTypeDeterminedTryCoercer extends CountingTryCoercer implements TryCoercer.TypeDetermined {
+    }
+    
     public static class MyClazz {
         private final String val;
 
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.javalang.coerce;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Measures the rate of common coercions, which are done repeatedly (e.g. whenever config is read).
+ */
+public class TypeCoercerPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TypeCoercerPerformanceTest.class);
+
+    private static final int NUM_ITERATIONS = 1000000;
+
+    // very conservative; typically around a million per second
+    private static final double MIN_RATE_PER_SEC = 50000;
+
+    private final TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+
+    @Test(groups="Integration")
+    public void testCoerceStringToPrimitive() {
+        assertEquals(coercer.coerce("123", Integer.class), (Integer)123);
+        measure("string to primitive", new Runnable() {
+            @Override public void run() {
+                coercer.coerce("123", Integer.class);
+            }});
+    }
+
+    @Test(groups="Integration")
+    public void testCoerceUsingRegistryAdapter() {
+        assertEquals(coercer.coerce("5m", Duration.class), Duration.FIVE_MINUTES);
+        measure("registry adapter", new Runnable() {
+            @Override public void run() {
+                coercer.coerce("5m", Duration.class);
+            }});
+    }
+
+    @Test(groups="Integration")
+    public void testCoerceToEnum() {
+        assertEquals(coercer.coerce("seconds", TimeUnit.class), TimeUnit.SECONDS);
+        measure("enum", new Runnable() {
+            @Override public void run() {
+                coercer.coerce("seconds", TimeUnit.class);
+            }});
+    }
+
+    @Test(groups="Integration")
+    public void testCoerceFailing() {
+        assertFalse(coercer.tryCoerce(new Object(), TypeCoercerPerformanceTest.class).isPresent());
+        measure("failing (no adapter)", new Runnable() {
+            @Override public void run() {
+                coercer.tryCoerce(new Object(), TypeCoercerPerformanceTest.class);
+            }});
+    }
+
+    private void measure(String summary, Runnable job) {
+        // warm up
+        for (int i = 0; i < NUM_ITERATIONS / 10; i++) {
+            job.run();
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            job.run();
+        }
+        long elapsedMillis = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        double ratePerSec = NUM_ITERATIONS * 1000d / elapsedMillis;
+        LOG.info("Coercion "+summary+": "+NUM_ITERATIONS+" iterations in "+Duration.millis(elapsedMillis)+"; "+String.format("%.0f", ratePerSec)+" per second");
+        assertTrue(ratePerSec >= MIN_RATE_PER_SEC, "rate "+ratePerSec+" below "+MIN_RATE_PER_SEC+" for "+summary);
+    }
+}